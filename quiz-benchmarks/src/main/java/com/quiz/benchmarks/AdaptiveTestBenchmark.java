@@ -0,0 +1,83 @@
+package com.quiz.benchmarks;
+
+import com.quiz.service.AdaptiveTestEngine;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of picking the next question of an adaptive test, which has to stay below 1 ms on a bank of a million items
+ * select uses the band index; linearScan computes the information of every item, as selection would without it.
+ * The bank has random 3PL parameters and twenty items count as already asked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AdaptiveTestBenchmark {
+    
+    @Param({"1000", "1000000"})
+    private int items;
+    
+    private AdaptiveTestEngine engine;
+    private double[] abilities;
+    private int position;
+    
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        float[] a = new float[items];
+        float[] b = new float[items];
+        float[] c = new float[items];
+        for (int i = 0; i < items; i++) {
+            a[i] = 0.4f + 2 * random.nextFloat();
+            b[i] = (float) (random.nextGaussian() * 1.5);
+            c[i] = 0.15f + 0.15f * random.nextFloat();
+        }
+        engine = new AdaptiveTestEngine(a, b, c);
+        abilities = new double[1024];
+        for (int i = 0; i < abilities.length; i++) {
+            abilities[i] = random.nextGaussian() * 1.5;
+        }
+    }
+    
+    /**
+     * Picks the most informative item through the band index
+     */
+    @Benchmark
+    public int select() {
+        position = (position + 1) & 1023;
+        return engine.select(abilities[position], item -> item < 20);
+    }
+    
+    /**
+     * Picks the most informative item by looking at every item
+     */
+    @Benchmark
+    public int linearScan() {
+        position = (position + 1) & 1023;
+        double ability = abilities[position];
+        int best = -1;
+        double bestInformation = -1;
+        for (int item = 20; item < items; item++) {
+            double information = engine.getInformation(item, ability);
+            if (information > bestInformation) {
+                bestInformation = information;
+                best = item;
+            }
+        }
+        return best;
+    }
+}
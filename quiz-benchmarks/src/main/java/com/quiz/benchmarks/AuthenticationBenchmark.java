@@ -0,0 +1,53 @@
+package com.quiz.benchmarks;
+
+import com.quiz.service.AuthenticationService;
+import com.quiz.service.PasswordHash;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * What a repeated admin operation costs with and without a session token
+ * passwordCheck hashes the password as every operation did before tokens; sessionCheck validates the token
+ * issued by the first login instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+    
+    @Param({"100000", "600000"})
+    private int iterations;
+    
+    private final char[] password = "admin123".toCharArray();
+    private PasswordHash hash;
+    private String token;
+    
+    @Setup
+    public void setup() {
+        hash = PasswordHash.create(password, iterations);
+        token = AuthenticationService.getInstance().authenticateAdmin(password.clone()).join().getToken();
+    }
+    
+    @Benchmark
+    public boolean passwordCheck() {
+        return hash.matches(password);
+    }
+    
+    @Benchmark
+    public boolean sessionCheck() {
+        return AuthenticationService.getInstance().isSessionValid(token);
+    }
+}
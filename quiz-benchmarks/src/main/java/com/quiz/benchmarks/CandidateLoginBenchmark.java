@@ -0,0 +1,87 @@
+package com.quiz.benchmarks;
+
+import com.quiz.service.CandidateDirectory;
+import com.quiz.service.CandidateTokens;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Candidate logins and token checks, which have to reach 100k logins a minute on one node
+ * login looks the candidate up, checks the access code and issues a token, as AuthenticationService does
+ * after the rate limiter; validateToken is what every session request pays and should allocate nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CandidateLoginBenchmark {
+    
+    @Param({"10000", "1000000"})
+    private int candidates;
+    
+    private Path candidateFile;
+    private CandidateDirectory directory;
+    private CandidateTokens tokens;
+    private String[] ids;
+    private String[] codes;
+    private String[] headers;
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<String> candidateIds = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            candidateIds.add("candidate-" + i);
+        }
+        candidateFile = Files.createTempFile("benchmark", ".candidates");
+        Map<String, String> issued = CandidateDirectory.create(candidateFile, candidateIds);
+        directory = CandidateDirectory.load(candidateFile);
+        tokens = new CandidateTokens(CandidateTokens.DEFAULT_LIFETIME_SECONDS);
+        ids = new String[1024];
+        codes = new String[1024];
+        headers = new String[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = candidateIds.get((int) ((long) i * candidates / ids.length));
+            codes[i] = issued.get(ids[i]);
+            headers[i] = "Bearer " + tokens.issue(directory.indexOf(ids[i]));
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(candidateFile);
+    }
+    
+    @Benchmark
+    public String login() {
+        next = (next + 1) & 1023;
+        int candidate = directory.indexOf(ids[next]);
+        return directory.checkAccessCode(candidate, codes[next]) ? tokens.issue(candidate) : null;
+    }
+    
+    @Benchmark
+    public int validateToken() {
+        next = (next + 1) & 1023;
+        return tokens.validate(headers[next], 7);
+    }
+}
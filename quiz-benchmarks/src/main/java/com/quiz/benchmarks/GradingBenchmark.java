@@ -0,0 +1,76 @@
+package com.quiz.benchmarks;
+
+import com.quiz.model.BatchGrader;
+import com.quiz.model.Question;
+import com.quiz.model.Quiz;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the per-question grading loop used by sessions with batch grading of a whole cohort
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class GradingBenchmark {
+    
+    @Param({"10", "100"})
+    private int questionCount;
+    
+    @Param({"1000", "100000"})
+    private int candidateCount;
+    
+    private List<Question> questions;
+    private byte[] answerKey;
+    private byte[] answers;
+    private int[] scores;
+    
+    @Setup
+    public void setup() {
+        Quiz quiz = QuizFixtures.createQuiz(questionCount);
+        questions = quiz.getQuestions();
+        answerKey = quiz.getAnswerKey();
+        answers = QuizFixtures.createAnswers(questionCount, candidateCount);
+        scores = new int[candidateCount];
+    }
+    
+    /**
+     * The loop QuizInterface.finishQuiz() used to run, once per candidate
+     */
+    @Benchmark
+    public int[] isCorrectAnswerLoop() {
+        int offset = 0;
+        for (int candidate = 0; candidate < candidateCount; candidate++) {
+            int score = 0;
+            for (int i = 0; i < questionCount; i++) {
+                int answer = answers[offset + i];
+                if (answer != -1 && questions.get(i).isCorrectAnswer(answer)) {
+                    score++;
+                }
+            }
+            scores[candidate] = score;
+            offset += questionCount;
+        }
+        return scores;
+    }
+    
+    @Benchmark
+    public int[] batchGrader() {
+        BatchGrader.grade(answerKey, answers, 0, scores, 0, candidateCount);
+        return scores;
+    }
+}
@@ -0,0 +1,111 @@
+package com.quiz.benchmarks;
+
+import com.quiz.service.LatencyHistogram;
+import com.quiz.service.MetricsRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of recording one event in the metrics registry, which has to stay well below 50 ns
+ * timedEvent is what an instrumented call site pays: two System.nanoTime() readings and a record;
+ * nanoTimePair is the same without the record, so the difference is the histogram's own share.
+ * The Contended variants record from four threads at once into the same histogram and counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    
+    private LatencyHistogram histogram;
+    private LongAdder counter;
+    private long[] durations;
+    
+    @Setup
+    public void setup() {
+        histogram = MetricsRegistry.getInstance().histogram("benchmark.event");
+        counter = MetricsRegistry.getInstance().counter("benchmark.events");
+        // Spread over the range a real call site sees, from cached reads to slow disk writes
+        durations = new long[1024];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = (long) Math.exp(ThreadLocalRandom.current().nextDouble(3, 20));
+        }
+    }
+    
+    /**
+     * Records a precomputed duration
+     */
+    @Benchmark
+    public void record(Cursor cursor) {
+        histogram.record(durations[cursor.next()]);
+    }
+    
+    /**
+     * Times an empty operation and records it, as instrumented call sites do
+     */
+    @Benchmark
+    public void timedEvent() {
+        histogram.recordSince(System.nanoTime());
+    }
+    
+    /**
+     * Baseline for timedEvent: the clock readings alone
+     */
+    @Benchmark
+    public long nanoTimePair() {
+        return System.nanoTime() - System.nanoTime();
+    }
+    
+    /**
+     * Increments a counter
+     */
+    @Benchmark
+    public void increment() {
+        counter.increment();
+    }
+    
+    /**
+     * Records from four threads at once
+     */
+    @Benchmark
+    @Threads(4)
+    public void recordContended(Cursor cursor) {
+        histogram.record(durations[cursor.next()]);
+    }
+    
+    /**
+     * Increments from four threads at once
+     */
+    @Benchmark
+    @Threads(4)
+    public void incrementContended() {
+        counter.increment();
+    }
+    
+    /**
+     * Position in the duration table, one per benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+        
+        int next() {
+            position = (position + 1) & 1023;
+            return position;
+        }
+    }
+}
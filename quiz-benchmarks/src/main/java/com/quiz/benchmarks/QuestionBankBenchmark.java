@@ -0,0 +1,70 @@
+package com.quiz.benchmarks;
+
+import com.quiz.model.Question;
+import com.quiz.service.QuestionBank;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for opening a question bank file and looking questions up in it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class QuestionBankBenchmark {
+    
+    @Param({"10", "1000", "100000", "10000000"})
+    private int bankSize;
+    
+    private Path bankFile;
+    private QuestionBank bank;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        bankFile = Files.createTempFile("benchmark", ".qbank");
+        QuestionBank.write(QuizFixtures.createQuiz(bankSize), bankFile);
+        bank = QuestionBank.open(bankFile);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bankFile);
+    }
+    
+    /**
+     * Startup cost of a bank, which should not depend on its size
+     */
+    @Benchmark
+    public QuestionBank open() throws IOException {
+        return QuestionBank.open(bankFile);
+    }
+    
+    @Benchmark
+    public Question getQuestion() {
+        return bank.getQuestion(ThreadLocalRandom.current().nextInt(bankSize));
+    }
+    
+    @Benchmark
+    public int getCorrectAnswerIndex() {
+        return bank.getCorrectAnswerIndex(ThreadLocalRandom.current().nextInt(bankSize));
+    }
+}
@@ -0,0 +1,58 @@
+package com.quiz.benchmarks;
+
+import com.quiz.model.Question;
+import com.quiz.model.Quiz;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for reading questions out of a Quiz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class QuizBenchmark {
+    
+    @Param({"10", "1000", "100000", "10000000"})
+    private int bankSize;
+    
+    private Quiz quiz;
+    
+    @Setup
+    public void setup() {
+        quiz = QuizFixtures.createQuiz(bankSize);
+    }
+    
+    /**
+     * What every session start pays to get the question list
+     */
+    @Benchmark
+    public List<Question> getQuestions() {
+        return quiz.getQuestions();
+    }
+    
+    @Benchmark
+    public Question getQuestion() {
+        return quiz.getQuestion(ThreadLocalRandom.current().nextInt(bankSize));
+    }
+    
+    @Benchmark
+    public byte[] getAnswerKey() {
+        return quiz.getAnswerKey();
+    }
+}
@@ -0,0 +1,54 @@
+package com.quiz.benchmarks;
+
+import com.quiz.model.Question;
+import com.quiz.model.Quiz;
+import java.util.SplittableRandom;
+
+/**
+ * Builds deterministic quizzes and answer sheets for the benchmarks
+ */
+final class QuizFixtures {
+    private static final String[] COMMON_ANSWERS = {"True", "False", "All of the above", "None of the above"};
+    
+    /**
+     * Private constructor, this class only has static methods
+     */
+    private QuizFixtures() {
+    }
+    
+    /**
+     * Creates a quiz with generated questions
+     * About half of the questions use common answer texts, as real banks do
+     * @param questionCount Number of questions
+     * @return The generated quiz
+     */
+    static Quiz createQuiz(int questionCount) {
+        SplittableRandom random = new SplittableRandom(42);
+        Quiz quiz = new Quiz("Benchmark Quiz", 3600);
+        for (int i = 0; i < questionCount; i++) {
+            String[] answers;
+            if (random.nextBoolean()) {
+                answers = COMMON_ANSWERS.clone();
+            } else {
+                answers = new String[] {"Option A" + i, "Option B" + i, "Option C" + i, "Option D" + i};
+            }
+            quiz.addQuestion(new Question("Generated question number " + i + "?", answers, random.nextInt(4)));
+        }
+        return quiz;
+    }
+    
+    /**
+     * Creates packed answer sheets with random answers, about one in five left unanswered
+     * @param questionCount Number of questions per sheet
+     * @param candidateCount Number of sheets
+     * @return Packed answer matrix
+     */
+    static byte[] createAnswers(int questionCount, int candidateCount) {
+        SplittableRandom random = new SplittableRandom(7);
+        byte[] answers = new byte[questionCount * candidateCount];
+        for (int i = 0; i < answers.length; i++) {
+            answers[i] = (byte) (random.nextInt(5) - 1);
+        }
+        return answers;
+    }
+}
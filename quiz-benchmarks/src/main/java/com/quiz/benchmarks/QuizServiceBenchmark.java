@@ -0,0 +1,39 @@
+package com.quiz.benchmarks;
+
+import com.quiz.service.QuizService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for QuizService operations that run once per submitted question
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizServiceBenchmark {
+    private final QuizService quizService = QuizService.getInstance();
+    private final String question = "Which planet is known as the Red Planet?";
+    private final String[] validAnswers = {"Venus", "Mars", "Jupiter", "Saturn"};
+    private final String[] blankAnswer = {"Venus", "Mars", "   ", "Saturn"};
+    
+    @Benchmark
+    public boolean validateValidQuestion() {
+        return quizService.validateQuestion(question, validAnswers, 1);
+    }
+    
+    @Benchmark
+    public boolean validateInvalidQuestion() {
+        return quizService.validateQuestion(question, blankAnswer, 1);
+    }
+}
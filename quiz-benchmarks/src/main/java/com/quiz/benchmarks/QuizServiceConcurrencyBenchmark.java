@@ -0,0 +1,78 @@
+package com.quiz.benchmarks;
+
+import com.quiz.model.Question;
+import com.quiz.service.QuizService;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Stress test for concurrent use of QuizService
+ * Read scaling: run readQuestion at increasing thread counts and compare the total throughput, e.g.
+ * <pre>
+ * java -jar target/benchmarks.jar QuizServiceConcurrency.readQuestion -t 1
+ * java -jar target/benchmarks.jar QuizServiceConcurrency.readQuestion -t max
+ * </pre>
+ * The mixed group runs readers while one admin thread keeps replacing questions in batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class QuizServiceConcurrencyBenchmark {
+    
+    @Param({"1000", "1000000"})
+    private int bankSize;
+    
+    private QuizService quizService;
+    private List<Question> replacements;
+    
+    @Setup
+    public void setup() {
+        quizService = QuizService.getInstance();
+        quizService.setCurrentQuiz(QuizFixtures.createQuiz(bankSize));
+        replacements = Arrays.asList(
+            new Question("Replacement question one?", new String[] {"A", "B", "C", "D"}, 0),
+            new Question("Replacement question two?", new String[] {"A", "B", "C", "D"}, 1));
+    }
+    
+    @Benchmark
+    public Question readQuestion() {
+        return quizService.getQuestion(ThreadLocalRandom.current().nextInt(bankSize));
+    }
+    
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Question mixedRead() {
+        return quizService.getQuestion(ThreadLocalRandom.current().nextInt(bankSize));
+    }
+    
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void mixedBatchUpdate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(bankSize);
+        int second = random.nextInt(bankSize);
+        quizService.getCurrentQuiz().update(snapshot -> snapshot
+            .withReplaced(first, replacements.get(0))
+            .withReplaced(second, replacements.get(1)));
+    }
+}
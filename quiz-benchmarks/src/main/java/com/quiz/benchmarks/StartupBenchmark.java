@@ -0,0 +1,134 @@
+package com.quiz.benchmarks;
+
+import com.quiz.service.QuestionBank;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time from launching the application jar until it is usable, in a new JVM each time
+ * headless waits for the first question of --headless; window waits for the "first frame" startup trace of the
+ * admin window, which needs a display. Build the jar with mvn package (-Pappcds for the archive) in the project
+ * root first; run from this directory or pass other paths with -p applicationJar=... -p sharedArchive=...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 15)
+@Fork(1)
+public class StartupBenchmark {
+    
+    @Param({"headless", "window"})
+    private String mode;
+    
+    @Param({"none", "../target/quiz-application.jsa"})
+    private String sharedArchive;
+    
+    @Param("../target/quiz-application-1.0.0.jar")
+    private String applicationJar;
+    
+    private Path bankFile;
+    private List<String> command;
+    private String marker;
+    private Process process;
+    
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (!Files.exists(Paths.get(applicationJar))) {
+            throw new IllegalStateException("No application jar at " + applicationJar + ", run mvn package first");
+        }
+        bankFile = Files.createTempFile("startup", ".qbank");
+        QuestionBank.write(QuizFixtures.createQuiz(1000), bankFile);
+        
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (!sharedArchive.equals("none")) {
+            if (!Files.exists(Paths.get(sharedArchive))) {
+                throw new IllegalStateException("No archive at " + sharedArchive + ", run mvn package -Pappcds first");
+            }
+            command.add("-XX:SharedArchiveFile=" + sharedArchive);
+        }
+        command.add("-Dquiz.startup.trace=true");
+        command.add("-jar");
+        command.add(applicationJar);
+        if (mode.equals("headless")) {
+            command.add("--headless");
+            marker = "Question 1 of";
+        } else {
+            marker = "startup: first frame";
+        }
+        command.add(bankFile.toString());
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bankFile);
+    }
+    
+    /**
+     * Ends the launched application and removes its answer log, so every launch starts a fresh session
+     */
+    @TearDown(Level.Invocation)
+    public void stopApplication() throws IOException, InterruptedException {
+        if (mode.equals("headless")) {
+            try (OutputStream in = process.getOutputStream()) {
+                in.write("Q\n".getBytes(StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                // Already exited
+            }
+        } else {
+            process.destroy();
+        }
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        Path logDirectory = Paths.get(bankFile + ".answers");
+        if (Files.exists(logDirectory)) {
+            try (Stream<Path> files = Files.walk(logDirectory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Launches the application and waits until it prints the marker of the mode
+     */
+    @Benchmark
+    public Process launch() throws IOException {
+        process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = out.readLine()) != null) {
+            if (line.contains(marker)) {
+                return process;
+            }
+        }
+        throw new IllegalStateException("The application exited before printing \"" + marker + "\"");
+    }
+}
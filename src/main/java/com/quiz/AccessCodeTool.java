@@ -0,0 +1,58 @@
+package com.quiz;
+
+import com.quiz.service.CandidateDirectory;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line entry point that issues access codes to candidates
+ * Arguments: candidate-id-file candidate-file [code-file]
+ * The id file lists one candidate id per line. The candidate file, which the quiz server reads with
+ * -Dquiz.candidates.file, only holds digests of the codes; the codes themselves are written once to the
+ * code file (default: the id file with .codes.csv appended) as candidate,code lines to hand out.
+ * Running the tool again gives every candidate a new code.
+ */
+public class AccessCodeTool {
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: AccessCodeTool candidate-id-file candidate-file [code-file]");
+            System.exit(2);
+        }
+        Path idFile = Paths.get(args[0]);
+        Path candidateFile = Paths.get(args[1]);
+        Path codeFile = Paths.get(args.length > 2 ? args[2] : args[0] + ".codes.csv");
+        
+        List<String> candidateIds = new ArrayList<>();
+        for (String line : Files.readAllLines(idFile, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                candidateIds.add(line.trim());
+            }
+        }
+        Map<String, String> codes;
+        try {
+            codes = CandidateDirectory.create(candidateFile, candidateIds);
+        } catch (IllegalArgumentException e) {
+            System.err.println(idFile + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        
+        try (BufferedWriter writer = Files.newBufferedWriter(codeFile, StandardCharsets.UTF_8)) {
+            writer.write("candidate,code");
+            writer.newLine();
+            for (Map.Entry<String, String> entry : codes.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue());
+                writer.newLine();
+            }
+        }
+        System.out.println("Issued " + codes.size() + " access codes. Candidates: " + candidateFile + ", codes: " + codeFile);
+    }
+}
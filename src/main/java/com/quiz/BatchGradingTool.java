@@ -0,0 +1,105 @@
+package com.quiz;
+
+import com.quiz.service.AnswerSheetGrader;
+import com.quiz.service.GradingReport;
+import com.quiz.service.ImportReport;
+import com.quiz.service.ItemStatistics;
+import com.quiz.service.MetricsRegistry;
+import com.quiz.service.QuestionBank;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Command-line entry point that grades a file of answer sheets without opening any window
+ * Arguments: question-bank-file answer-sheet-file [score-file] [statistics-file]
+ * Scores go to the score file (default: the sheet file with .scores.csv appended), one line per sheet in
+ * input order. The statistics file (default: .stats.csv) holds the item analysis of every question.
+ * The summary shown by the quiz interface at the end of a session is printed for the whole cohort.
+ * Sheets list the answers to all questions of the quiz in stored order, see AnswerSheetGrader.
+ */
+public class BatchGradingTool {
+    /** Number of rejected lines printed, the rest are only counted */
+    private static final int PRINTED_ERRORS = 20;
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchGradingTool question-bank-file answer-sheet-file [score-file] [statistics-file]");
+            System.exit(2);
+        }
+        MetricsRegistry.getInstance().exportOnExit();
+        Path bankFile = Paths.get(args[0]);
+        Path sheetFile = Paths.get(args[1]);
+        Path scoreFile = Paths.get(args.length > 2 ? args[2] : args[1] + ".scores.csv");
+        Path statisticsFile = Paths.get(args.length > 3 ? args[3] : args[1] + ".stats.csv");
+        
+        QuestionBank bank = QuestionBank.open(bankFile);
+        byte[] answerKey = new byte[bank.size()];
+        for (int i = 0; i < answerKey.length; i++) {
+            answerKey[i] = (byte) bank.getCorrectAnswerIndex(i);
+        }
+        if (answerKey.length == 0) {
+            System.err.println("Question bank " + bankFile + " has no questions");
+            System.exit(1);
+        }
+        
+        GradingReport report = new AnswerSheetGrader(answerKey).gradeFile(sheetFile, scoreFile);
+        writeStatistics(report, statisticsFile);
+        
+        System.out.println(bank.getTitle() + ": " + report);
+        System.out.println(String.format(Locale.ROOT, "Excellent (80%%+): %d, good (60-79%%): %d, keep practicing: %d",
+                countInRange(report, 0.8, 1.01), countInRange(report, 0.6, 0.8), countInRange(report, 0, 0.6)));
+        System.out.println("Scores: " + scoreFile + ", statistics: " + statisticsFile);
+        int printed = 0;
+        for (ImportReport.LineError error : report.getErrors()) {
+            if (printed++ == PRINTED_ERRORS) {
+                System.err.println("... " + (report.getErrorCount() - PRINTED_ERRORS) + " more rejected lines");
+                break;
+            }
+            System.err.println(error);
+        }
+    }
+    
+    /**
+     * Counts the sheets whose share of correct answers lies in a range
+     * @param report The grading report
+     * @param from Lowest share, inclusive
+     * @param to Highest share, exclusive
+     * @return Number of sheets
+     */
+    private static long countInRange(GradingReport report, double from, double to) {
+        long count = 0;
+        int questions = report.getQuestionCount();
+        for (int score = 0; score <= questions; score++) {
+            double share = (double) score / questions;
+            if (share >= from && share < to) {
+                count += report.getScoreCount(score);
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Writes the item analysis as CSV, one line per question
+     * @param report The grading report
+     * @param path The statistics file
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeStatistics(GradingReport report, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("question,responses,A,B,C,D,unanswered,difficulty,discrimination");
+            writer.newLine();
+            for (ItemStatistics.Item item : report.getItems()) {
+                writer.write(String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%d,%.4f,%.4f",
+                        item.getQuestionIndex() + 1, item.getResponses(),
+                        item.getChoiceCount(0), item.getChoiceCount(1), item.getChoiceCount(2), item.getChoiceCount(3),
+                        item.getUnansweredCount(), item.getDifficulty(), item.getPointBiserial()));
+                writer.newLine();
+            }
+        }
+    }
+}
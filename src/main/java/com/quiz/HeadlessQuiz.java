@@ -0,0 +1,118 @@
+package com.quiz;
+
+import com.quiz.model.Question;
+import com.quiz.service.MetricsRegistry;
+import com.quiz.service.QuizService;
+import com.quiz.service.QuizSession;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+
+/**
+ * Text-mode quiz for kiosk terminals, started with --headless [question bank file]
+ * Goes straight into a session on the question bank without loading any Swing or AWT class, so the first
+ * question is on screen a fraction of a second after the JVM starts. As with the windowed application,
+ * answers are logged next to the bank and a session interrupted by a restart continues where it stopped.
+ * Type A to D to answer, Enter to skip a question, P to go back and Q to finish.
+ */
+public class HeadlessQuiz {
+    
+    public static void main(String[] args) throws IOException {
+        StartupTrace.mark("main");
+        MetricsRegistry.getInstance().exportOnExit();
+        if (args.length > 0) {
+            QuizApplication.openQuestionBank(Paths.get(args[0]));
+        }
+        QuizService quizService = QuizService.getInstance();
+        if (!quizService.hasQuestions()) {
+            System.err.println("The quiz has no questions, pass a question bank file");
+            System.exit(1);
+        }
+        
+        QuizSession resumed = quizService.resumeSession(HeadlessQuiz::timeUp);
+        QuizSession session = resumed != null ? resumed : quizService.startSession(HeadlessQuiz::timeUp);
+        run(quizService, session, new BufferedReader(new InputStreamReader(System.in)), System.out);
+        System.exit(0); // stops the session timer and runs the shutdown hooks that save the bank
+    }
+    
+    /**
+     * Asks the questions of a session until the candidate finishes or the input ends
+     * @param quizService The service the session belongs to
+     * @param session The session to run
+     * @param in Answers, one per line
+     * @param out Where the questions and the result are printed
+     * @return The score of the session
+     * @throws IOException If the input cannot be read
+     */
+    static int run(QuizService quizService, QuizSession session, BufferedReader in, PrintStream out) throws IOException {
+        boolean first = true;
+        while (!session.isFinished()) {
+            printQuestion(session, out);
+            if (first) {
+                StartupTrace.mark("first question");
+                first = false;
+            }
+            String line = in.readLine();
+            if (line == null || session.isFinished()) {
+                break;
+            }
+            String command = line.trim().toUpperCase();
+            if (command.equals("Q")) {
+                break;
+            } else if (command.equals("P")) {
+                if (!session.previous()) {
+                    out.println("This is the first question.");
+                }
+            } else if (command.length() == 1 && command.charAt(0) >= 'A' && command.charAt(0) <= 'D') {
+                session.selectAnswer(command.charAt(0) - 'A');
+                if (!session.next()) {
+                    break; // answered the last question
+                }
+            } else if (command.isEmpty()) {
+                if (!session.next()) {
+                    break;
+                }
+            } else {
+                out.println("Type A to D, Enter, P or Q.");
+            }
+        }
+        
+        int score = quizService.finishSession(session);
+        out.printf("%nQuiz complete! Your score: %d out of %d (%.1f%%)%n",
+                   score, session.getQuestionCount(), session.getPercentage());
+        return score;
+    }
+    
+    /**
+     * Prints the current question of a session with its answers
+     * @param session The session
+     * @param out Where to print
+     */
+    private static void printQuestion(QuizSession session, PrintStream out) {
+        int index = session.getCurrentQuestionIndex();
+        Question question = session.getQuestion(index);
+        int timeLeft = session.getTimeLeft();
+        // Plain concatenation, String.format would load the formatter and regex classes before the first question
+        out.println();
+        out.println("Question " + (index + 1) + " of " + session.getQuestionCount() + " (time left " + timeLeft / 60
+                + (timeLeft % 60 < 10 ? ":0" : ":") + timeLeft % 60 + ")");
+        out.println(question.getQuestion());
+        int answer = session.getAnswer(index);
+        for (int choice = 0; choice < 4; choice++) {
+            out.println((choice == answer ? " *" : "  ") + (char) ('A' + choice) + ". " + session.getAnswerText(index, choice));
+        }
+        out.print("Answer [A-D, Enter to skip, P back, Q finish]: ");
+        out.flush();
+    }
+    
+    /**
+     * Tells the candidate the session was submitted because its time ran out
+     * @param session The expired session
+     */
+    private static void timeUp(QuizSession session) {
+        System.out.println();
+        System.out.println("Time's up! The quiz was submitted, press Enter to see your score.");
+    }
+}
@@ -1,26 +1,125 @@
 package com.quiz;
 
+import com.quiz.service.AuthenticationService;
+import com.quiz.service.MetricsRegistry;
+import com.quiz.service.QuizService;
 import com.quiz.view.AdminInterface;
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * Main entry point for the Quiz Application
  * This class initializes and starts the application
+ * An optional argument names a question bank file that is loaded at startup and saved on exit
+ * Answers are then logged next to it, so sessions interrupted by a crash continue at the next start,
+ * and the admin password is kept next to it too unless -Dquiz.credentials.file names another file
+ * With --server [port] [question bank file] it runs the headless HTTP server instead, see QuizServer
+ * With --grade question-bank-file answer-sheet-file it grades answer sheets offline, see BatchGradingTool
+ * With --headless [question bank file] it runs a text-mode quiz on the terminal, see HeadlessQuiz
+ * With --issue-codes candidate-id-file candidate-file it issues candidate access codes, see AccessCodeTool
+ * With -Dquiz.metrics.file=path the latency and counter metrics are written to that file on exit
  */
 public class QuizApplication {
     
-    public static void main(String[] args) {
-        // Set look and feel for better UI
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeel());
-        } catch (Exception e) {
-            // Use default look and feel if system look and feel is not available
+    public static void main(String[] args) throws IOException {
+        StartupTrace.mark("main");
+        MetricsRegistry.getInstance().exportOnExit();
+        if (args.length > 0 && args[0].equals("--server")) {
+            QuizServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--grade")) {
+            BatchGradingTool.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--issue-codes")) {
+            AccessCodeTool.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--headless")) {
+            HeadlessQuiz.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
         }
         
-        // Start the application with admin interface
+        if (args.length > 0) {
+            useCredentialsNextTo(Paths.get(args[0]));
+        }
+        // Swing starts up on the event thread while the question bank loads on this one
+        SwingUtilities.invokeLater(QuizApplication::initializeLookAndFeel);
+        if (args.length > 0) {
+            openQuestionBank(Paths.get(args[0]));
+        }
+        
+        // Start the application with admin interface, built once the bank is loaded so it shows the right count
         SwingUtilities.invokeLater(() -> {
             AdminInterface adminPanel = new AdminInterface();
             adminPanel.setVisible(true);
+            SwingUtilities.invokeLater(() -> StartupTrace.mark("first frame"));
         });
     }
+    
+    /**
+     * Sets the system look and feel, must run on the event dispatch thread before the first window is built
+     */
+    static void initializeLookAndFeel() {
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) {
+            // Use default look and feel if system look and feel is not available
+        }
+    }
+    
+    /**
+     * Keeps the admin credentials in {bank file}.credentials, unless a credential file was named explicitly
+     * Call before AuthenticationService is first used, it reads the file when it is created
+     * @param bankFile The question bank file
+     */
+    static void useCredentialsNextTo(Path bankFile) {
+        if (System.getProperty(AuthenticationService.CREDENTIALS_PROPERTY) == null) {
+            System.setProperty(AuthenticationService.CREDENTIALS_PROPERTY, bankFile + ".credentials");
+        }
+    }
+    
+    /**
+     * Loads the question bank if it exists and saves the quiz back to it when the application exits
+     * @param bankFile The question bank file
+     */
+    static void openQuestionBank(Path bankFile) {
+        QuizService quizService = QuizService.getInstance();
+        if (Files.exists(bankFile)) {
+            try {
+                quizService.loadQuestionBank(bankFile);
+            } catch (IOException e) {
+                System.err.println("Could not load question bank " + bankFile + ": " + e.getMessage());
+                return; // Do not overwrite a file we could not read
+            }
+        }
+        
+        Path logDirectory = Paths.get(bankFile + ".answers");
+        try {
+            int recovered = quizService.openAnswerLog(logDirectory);
+            if (recovered > 0) {
+                System.out.println("Recovered " + recovered + " running quiz sessions");
+            }
+        } catch (IOException e) {
+            System.err.println("Could not open answer log " + logDirectory + ": " + e.getMessage());
+        }
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                quizService.closeAnswerLog();
+            } catch (IOException e) {
+                System.err.println("Could not close answer log " + logDirectory + ": " + e.getMessage());
+            }
+            try {
+                quizService.saveQuestionBank(bankFile);
+            } catch (IOException e) {
+                System.err.println("Could not save question bank " + bankFile + ": " + e.getMessage());
+            }
+        }));
+    }
 }
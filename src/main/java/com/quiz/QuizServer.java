@@ -0,0 +1,134 @@
+package com.quiz;
+
+import com.quiz.controller.CatalogController;
+import com.quiz.controller.LeaderboardController;
+import com.quiz.controller.LoginController;
+import com.quiz.controller.MetricsController;
+import com.quiz.controller.SessionController;
+import com.quiz.service.AuthenticationService;
+import com.quiz.service.MetricsRegistry;
+import com.quiz.service.QuestionPayloadCache;
+import com.quiz.service.QuizCatalog;
+import com.quiz.service.QuizService;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Headless entry point that delivers quizzes over HTTP instead of opening Swing windows
+ * Every request runs on its own virtual thread, so requests waiting for the answer log
+ * do not hold on to platform threads
+ * Arguments: [port] [question bank file]
+ * The byte budget of the rendered question cache can be set with -Dquiz.payloadCache.maxBytes
+ * -Dquiz.catalog names a directory of question bank files whose quizzes are served by id and listed
+ * on /quizzes, with -Dquiz.catalog.maxQuestions bounding the number of their questions kept loaded
+ * -Dquiz.candidates.file names a candidate file (see AccessCodeTool); candidates then log in on /login,
+ * see LoginController, and need the token for every session request
+ * The standings of the current quiz are served on /leaderboard, see LeaderboardController
+ * Latency histograms and counters are served on /metrics of a second server that only listens on the
+ * loopback interface, on the port set with -Dquiz.metrics.port (see MetricsController)
+ */
+public class QuizServer {
+    /** Port used when none is given */
+    public static final int DEFAULT_PORT = 8080;
+    
+    /** System property holding the byte budget of the rendered question cache */
+    public static final String PAYLOAD_CACHE_BYTES_PROPERTY = "quiz.payloadCache.maxBytes";
+    
+    /** System property holding the quiz catalogue directory */
+    public static final String CATALOG_PROPERTY = "quiz.catalog";
+    
+    /** System property holding the number of catalogue questions kept loaded */
+    public static final String CATALOG_QUESTIONS_PROPERTY = "quiz.catalog.maxQuestions";
+    
+    /** System property holding the port of the loopback metrics server */
+    public static final String METRICS_PORT_PROPERTY = "quiz.metrics.port";
+    
+    /** Metrics port used when none is set */
+    public static final int DEFAULT_METRICS_PORT = 9090;
+    
+    private static final int BACKLOG = 1024;
+    
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        if (args.length > 1) {
+            QuizApplication.useCredentialsNextTo(Paths.get(args[1]));
+        }
+        MetricsRegistry.getInstance().exportOnExit();
+        QuizService quizService = QuizService.getInstance();
+        quizService.setPayloadCacheBytes(
+                Long.getLong(PAYLOAD_CACHE_BYTES_PROPERTY, QuestionPayloadCache.DEFAULT_MAX_BYTES));
+        String catalogDirectory = System.getProperty(CATALOG_PROPERTY);
+        if (catalogDirectory != null) {
+            // Opened before the answer log, which may hold sessions on catalogue quizzes
+            QuizCatalog catalog = quizService.openCatalog(Paths.get(catalogDirectory),
+                    Long.getLong(CATALOG_QUESTIONS_PROPERTY, QuizCatalog.DEFAULT_MAX_QUESTIONS));
+            System.out.println("Serving " + catalog.size() + " quizzes from " + catalogDirectory);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    catalog.flush();
+                } catch (IOException e) {
+                    System.err.println("Could not save the quiz catalogue: " + e.getMessage());
+                }
+            }));
+        }
+        String candidateFile = System.getProperty(AuthenticationService.CANDIDATES_PROPERTY);
+        if (candidateFile != null) {
+            int candidates = AuthenticationService.getInstance().openCandidates(Paths.get(candidateFile));
+            System.out.println(candidates + " candidate accounts from " + candidateFile + ", log in at /login");
+        }
+        if (args.length > 1) {
+            QuizApplication.openQuestionBank(Paths.get(args[1]));
+        }
+        HttpServer server = start(port);
+        System.out.println("Quiz server listening on http://localhost:" + server.getAddress().getPort() + "/sessions");
+        HttpServer metrics = startMetrics(Integer.getInteger(METRICS_PORT_PROPERTY, DEFAULT_METRICS_PORT));
+        System.out.println("Metrics on http://" + metrics.getAddress().getHostString() + ":"
+                + metrics.getAddress().getPort() + "/metrics");
+    }
+    
+    /**
+     * Starts the HTTP server on the current quiz of QuizService
+     * @param port The port to listen on, 0 for any free port
+     * @return The running server
+     * @throws IOException If the port cannot be bound
+     */
+    public static HttpServer start(int port) throws IOException {
+        // Headers and body go out in separate writes; without TCP_NODELAY every response waits for a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/sessions", new SessionController(QuizService.getInstance()));
+        server.createContext("/login", new LoginController(AuthenticationService.getInstance()));
+        server.createContext("/quizzes", new CatalogController(QuizService.getInstance(),
+                                                               AuthenticationService.getInstance()));
+        server.createContext("/leaderboard", new LeaderboardController(QuizService.getInstance(),
+                                                                       AuthenticationService.getInstance()));
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            executor.close();
+        }));
+        return server;
+    }
+    
+    /**
+     * Starts the metrics server, which only accepts connections from the same machine
+     * Metrics reveal traffic and timings, so they stay off the interfaces candidates reach
+     * @param port The port to listen on, 0 for any free port
+     * @return The running server
+     * @throws IOException If the port cannot be bound
+     */
+    public static HttpServer startMetrics(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", new MetricsController(MetricsRegistry.getInstance()));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        return server;
+    }
+}
@@ -0,0 +1,31 @@
+package com.quiz;
+
+/**
+ * Reports how long after main started a startup milestone was reached
+ * Enabled with -Dquiz.startup.trace=true; each milestone is then printed to standard error as
+ * "startup: NAME after N ms", which the startup benchmark waits for. The time the JVM needs before main
+ * runs is not included, the benchmark measures it from outside the process.
+ */
+final class StartupTrace {
+    /** System property that turns the trace on */
+    static final String PROPERTY = "quiz.startup.trace";
+    
+    private static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+    private static final long START = System.nanoTime(); // main calls mark("main") before anything else
+    
+    /**
+     * Private constructor, this class only has static methods
+     */
+    private StartupTrace() {
+    }
+    
+    /**
+     * Reports a milestone if tracing is enabled
+     * @param milestone Name of the milestone, such as "first frame"
+     */
+    static void mark(String milestone) {
+        if (ENABLED) {
+            System.err.println("startup: " + milestone + " after " + (System.nanoTime() - START) / 1_000_000 + " ms");
+        }
+    }
+}
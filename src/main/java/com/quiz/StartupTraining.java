@@ -0,0 +1,75 @@
+package com.quiz;
+
+import com.quiz.model.Question;
+import com.quiz.model.Quiz;
+import com.quiz.service.MetricsRegistry;
+import com.quiz.service.QuestionBank;
+import com.quiz.service.QuizService;
+import com.quiz.view.AdminInterface;
+import com.quiz.view.QuestionEditor;
+import com.quiz.view.QuizInterface;
+import javax.swing.SwingUtilities;
+import java.awt.GraphicsEnvironment;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Training run for the class-data sharing (AppCDS) archive built by the appcds Maven profile
+ * Goes through what a start of the application does: loads a question bank with an answer log, takes a
+ * headless quiz and, when a display is available, builds the main windows without showing them. The JVM
+ * runs it with -XX:ArchiveClassesAtExit, so every class loaded here is archived and later starts map them
+ * instead of loading and verifying them again.
+ */
+public class StartupTraining {
+    private static final int QUESTIONS = 20;
+    
+    public static void main(String[] args) throws IOException, InterruptedException, InvocationTargetException {
+        Path directory = Files.createTempDirectory("quiz-training");
+        try {
+            Quiz quiz = new Quiz("Training Quiz", 600);
+            for (int i = 0; i < QUESTIONS; i++) {
+                quiz.addQuestion(new Question("Training question " + i + "?",
+                        new String[] {"Answer A" + i, "Answer B" + i, "Answer C" + i, "Answer D" + i}, i % 4));
+            }
+            Path bankFile = directory.resolve("training.qbank");
+            QuestionBank.write(quiz, bankFile);
+            
+            QuizService quizService = QuizService.getInstance();
+            quizService.loadQuestionBank(bankFile);
+            quizService.openAnswerLog(directory.resolve("answers"));
+            String answers = "A\nB\n\nP\nC\nX\nD\nQ\n";
+            PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+            HeadlessQuiz.run(quizService, quizService.startSession(), new BufferedReader(new StringReader(answers)), discard);
+            
+            if (!GraphicsEnvironment.isHeadless()) {
+                SwingUtilities.invokeAndWait(() -> {
+                    QuizApplication.initializeLookAndFeel();
+                    AdminInterface adminPanel = new AdminInterface();
+                    adminPanel.pack();
+                    QuestionEditor editor = new QuestionEditor(adminPanel);
+                    editor.pack();
+                    QuizInterface quizPanel = new QuizInterface();
+                    quizPanel.pack();
+                    quizPanel.dispose();
+                    editor.dispose();
+                    adminPanel.dispose();
+                });
+            }
+            MetricsRegistry.getInstance().toText();
+            quizService.closeAnswerLog();
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+        System.exit(0); // the session timer thread would keep the JVM alive
+    }
+}
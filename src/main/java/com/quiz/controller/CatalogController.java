@@ -0,0 +1,70 @@
+package com.quiz.controller;
+
+import com.quiz.service.AuthenticationService;
+import com.quiz.service.QuizCatalog;
+import com.quiz.service.QuizService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Read-only HTTP endpoint listing the quizzes of the catalogue
+ * <pre>
+ * GET /quizzes                 id, title, question count and time limit of every catalogue quiz
+ * </pre>
+ * The ids are the ones POST /sessions?quiz={quizId} takes. Only the metadata kept in memory is read, so
+ * listing does not load any quiz. Without a catalogue the list is empty. When candidates have accounts
+ * the token is required here too.
+ */
+public class CatalogController implements HttpHandler {
+    private final QuizService quizService;
+    private final AuthenticationService authService;
+    
+    /**
+     * Constructor for the catalogue endpoint
+     * @param quizService The service holding the catalogue
+     * @param authService The service that checks candidate tokens
+     */
+    public CatalogController(QuizService quizService, AuthenticationService authService) {
+        this.quizService = quizService;
+        this.authService = authService;
+    }
+    
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            SessionController.drain(exchange);
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                SessionController.send(exchange, 405, Json.error("Use GET"));
+            } else if (authService.hasCandidateAccounts() && authService.validateCandidateToken(
+                    exchange.getRequestHeaders().getFirst("Authorization")) < 0) {
+                SessionController.sendUnauthorized(exchange);
+            } else {
+                QuizCatalog catalog = quizService.getCatalog();
+                SessionController.send(exchange, 200, quizzes(catalog == null ? List.of() : catalog.list()));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Builds the quiz list object
+     */
+    private static String quizzes(List<QuizCatalog.QuizInfo> infos) {
+        StringBuilder json = new StringBuilder(16 + 64 * infos.size()).append("{\"quizzes\":[");
+        for (int i = 0; i < infos.size(); i++) {
+            QuizCatalog.QuizInfo info = infos.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(info.getId()).append(",\"title\":");
+            Json.string(json, info.getTitle());
+            json.append(",\"questionCount\":").append(info.getQuestionCount())
+                    .append(",\"timeLimit\":").append(info.getTimeLimit()).append('}');
+        }
+        return json.append("]}").toString();
+    }
+}
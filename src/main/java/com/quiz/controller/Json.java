@@ -0,0 +1,64 @@
+package com.quiz.controller;
+
+/**
+ * Minimal JSON output helpers for the HTTP controllers
+ * Responses are small flat objects, so they are written straight into a StringBuilder
+ */
+final class Json {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    /**
+     * Private constructor, this class only has static methods
+     */
+    private Json() {
+    }
+    
+    /**
+     * Appends a string as a quoted JSON string
+     * @param out The builder to append to
+     * @param value The string, written as null if it is null
+     * @return The builder
+     */
+    static StringBuilder string(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+    
+    /**
+     * Builds an error object
+     * @param message The error message
+     * @return JSON text of the form {"error": "..."}
+     */
+    static String error(String message) {
+        return string(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+}
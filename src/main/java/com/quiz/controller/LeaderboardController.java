@@ -0,0 +1,82 @@
+package com.quiz.controller;
+
+import com.quiz.service.AuthenticationService;
+import com.quiz.service.Leaderboard;
+import com.quiz.service.QuizService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Read-only HTTP endpoint for the standings of the current quiz
+ * <pre>
+ * GET /leaderboard             the 10 best scores with their ranks
+ * GET /leaderboard?top=k       the k best scores, at most 100
+ * </pre>
+ * Entries carry no session ids, as an id is all it takes to answer for a session; a candidate gets
+ * their own rank from GET /sessions/{id}/rank. When candidates have accounts the token is required here too.
+ */
+public class LeaderboardController implements HttpHandler {
+    /** Number of entries sent when the request does not ask for a number */
+    public static final int DEFAULT_TOP = 10;
+    
+    /** Largest number of entries sent */
+    public static final int MAX_TOP = 100;
+    
+    private final QuizService quizService;
+    private final AuthenticationService authService;
+    
+    /**
+     * Constructor for the leaderboard endpoint
+     * @param quizService The service whose current quiz is ranked
+     * @param authService The service that checks candidate tokens
+     */
+    public LeaderboardController(QuizService quizService, AuthenticationService authService) {
+        this.quizService = quizService;
+        this.authService = authService;
+    }
+    
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            SessionController.drain(exchange);
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                SessionController.send(exchange, 405, Json.error("Use GET"));
+            } else if (authService.hasCandidateAccounts() && authService.validateCandidateToken(
+                    exchange.getRequestHeaders().getFirst("Authorization")) < 0) {
+                SessionController.sendUnauthorized(exchange);
+            } else {
+                String top = SessionController.queryParameter(exchange, "top");
+                int k = top == null ? DEFAULT_TOP : SessionController.parseInt(top, "top");
+                if (k < 1 || k > MAX_TOP) {
+                    throw new IllegalArgumentException("top must be between 1 and " + MAX_TOP);
+                }
+                SessionController.send(exchange, 200, standings(quizService.getLeaderboard(), k));
+            }
+        } catch (IllegalArgumentException e) {
+            SessionController.send(exchange, 400, Json.error(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Builds the standings object
+     * Ties at the last rank can make the leaderboard return more than k entries, they are cut at k
+     */
+    private static String standings(Leaderboard leaderboard, int k) {
+        List<Leaderboard.Standing> top = leaderboard.getTop(k);
+        StringBuilder json = new StringBuilder(32 + 24 * Math.min(k, top.size()));
+        json.append("{\"candidates\":").append(leaderboard.size()).append(",\"top\":[");
+        for (int i = 0; i < top.size() && i < k; i++) {
+            Leaderboard.Standing standing = top.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"rank\":").append(standing.getRank()).append(",\"score\":").append(standing.getScore()).append('}');
+        }
+        return json.append("]}").toString();
+    }
+}
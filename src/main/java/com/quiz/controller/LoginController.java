@@ -0,0 +1,133 @@
+package com.quiz.controller;
+
+import com.quiz.service.AuthenticationResult;
+import com.quiz.service.AuthenticationService;
+import com.quiz.service.LatencyHistogram;
+import com.quiz.service.MetricsRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP endpoints for candidate logins, available when the server was started with a candidate file
+ * <pre>
+ * POST /login              body candidate={id}&amp;code={access code}, form-encoded; returns a token
+ * POST /login/refresh      returns a new token for the still valid one in the Authorization header
+ * </pre>
+ * Requests to /sessions then carry the token as "Authorization: Bearer {token}". Wrong codes get 401,
+ * and too many attempts for one candidate get 429 with a Retry-After header.
+ */
+public class LoginController implements HttpHandler {
+    private static final int MAX_BODY_BYTES = 1024;
+    private static final LatencyHistogram LOGIN_LATENCY = MetricsRegistry.getInstance().histogram("http.login");
+    
+    private final AuthenticationService authService;
+    
+    /**
+     * Constructor for the login endpoints
+     * @param authService The service that checks access codes and issues tokens
+     */
+    public LoginController(AuthenticationService authService) {
+        this.authService = authService;
+    }
+    
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String path = exchange.getRequestURI().getRawPath();
+            if (!exchange.getRequestMethod().equals("POST")) {
+                SessionController.drain(exchange);
+                exchange.getResponseHeaders().set("Allow", "POST");
+                SessionController.send(exchange, 405, Json.error("Use POST"));
+            } else if (!authService.hasCandidateAccounts()) {
+                SessionController.drain(exchange);
+                SessionController.send(exchange, 404, Json.error("Candidate accounts are not enabled"));
+            } else if (path.equals("/login") || path.equals("/login/")) {
+                login(exchange);
+                LOGIN_LATENCY.recordSince(start);
+            } else if (path.equals("/login/refresh")) {
+                SessionController.drain(exchange);
+                refresh(exchange);
+            } else {
+                SessionController.drain(exchange);
+                SessionController.send(exchange, 404, Json.error("Not found"));
+            }
+        } catch (IllegalArgumentException e) {
+            SessionController.send(exchange, 400, Json.error(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * Checks the candidate id and access code of the request body and sends a token
+     */
+    private void login(HttpExchange exchange) throws IOException {
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            in.transferTo(OutputStream.nullOutputStream());
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            body = new String(bytes, StandardCharsets.UTF_8);
+        }
+        String candidateId = formParameter(body, "candidate");
+        String code = formParameter(body, "code");
+        if (candidateId == null || code == null) {
+            throw new IllegalArgumentException("Send candidate and code");
+        }
+        
+        String address = exchange.getRemoteAddress().getAddress().getHostAddress();
+        AuthenticationResult result = authService.loginCandidate(candidateId, code, address);
+        if (result.isSuccess()) {
+            sendToken(exchange, result.getToken());
+        } else if (result.getStatus() == AuthenticationResult.Status.THROTTLED) {
+            exchange.getResponseHeaders().set("Retry-After", Long.toString((result.getRetryAfterMillis() + 999) / 1000));
+            SessionController.send(exchange, 429, Json.error("Too many attempts, try again later"));
+        } else {
+            SessionController.send(exchange, 401, Json.error("Unknown candidate or wrong access code"));
+        }
+    }
+    
+    /**
+     * Swaps a valid token for a new one
+     */
+    private void refresh(HttpExchange exchange) throws IOException {
+        int candidate = authService.validateCandidateToken(exchange.getRequestHeaders().getFirst("Authorization"));
+        if (candidate < 0) {
+            SessionController.sendUnauthorized(exchange);
+            return;
+        }
+        sendToken(exchange, authService.refreshCandidateToken(candidate));
+    }
+    
+    /**
+     * Sends a token with its lifetime
+     */
+    private void sendToken(HttpExchange exchange, String token) throws IOException {
+        SessionController.send(exchange, 200, "{\"token\":\"" + token + "\",\"expiresIn\":"
+                + authService.getCandidateTokenLifetimeSeconds() + "}");
+    }
+    
+    /**
+     * Gets a parameter of a form-encoded body
+     * @return The decoded value, or null if absent
+     * @throws IllegalArgumentException If the value is not properly encoded
+     */
+    private static String formParameter(String body, String name) {
+        for (String pair : body.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals == name.length() && pair.startsWith(name)) {
+                return URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+}
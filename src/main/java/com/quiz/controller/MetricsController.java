@@ -0,0 +1,51 @@
+package com.quiz.controller;
+
+import com.quiz.service.MetricsRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP endpoint exporting the application metrics
+ * <pre>
+ * GET /metrics                 counters and latency summaries in the Prometheus text format
+ * GET /metrics?format=json     the same as JSON, durations in nanoseconds
+ * </pre>
+ * QuizServer serves it on a separate server bound to the loopback interface
+ */
+public class MetricsController implements HttpHandler {
+    private static final String TEXT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    
+    private final MetricsRegistry registry;
+    
+    /**
+     * Constructor for the metrics endpoint
+     * @param registry The registry to export
+     */
+    public MetricsController(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+    
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                SessionController.send(exchange, 405, Json.error("Use GET"));
+            } else if ("format=json".equals(exchange.getRequestURI().getRawQuery())) {
+                SessionController.send(exchange, 200, registry.toJson());
+            } else {
+                byte[] body = registry.toText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", TEXT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.quiz.controller;
+
+import com.quiz.model.Question;
+import com.quiz.service.AuthenticationService;
+import com.quiz.service.LatencyHistogram;
+import com.quiz.service.Leaderboard;
+import com.quiz.service.MetricsRegistry;
+import com.quiz.service.QuestionPayloadCache;
+import com.quiz.service.QuizService;
+import com.quiz.service.QuizSession;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP endpoints for taking a quiz, backed by QuizService
+ * <pre>
+ * POST /sessions                               start a session
+ * POST /sessions?quiz={quizId}                 start a session on a quiz of the catalogue
+ * GET  /sessions/{id}                          session status
+ * GET  /sessions/{id}/questions/{position}     question text and answer options as displayed
+ * GET  /sessions/{id}/rank                     live rank of the session on the leaderboard
+ * POST /sessions/{id}/answers/{position}?choice=n   record the displayed option n (0-3)
+ * POST /sessions/{id}/finish                   submit the session and get the result
+ * </pre>
+ * Responses are JSON. Answers are acknowledged only after they reach the answer log, if one is open;
+ * when the log or a catalogue bank cannot be used the request fails with 503.
+ * Session ids are random 63-bit numbers, so knowing one session does not lead to another.
+ * When candidates have accounts, every request needs the token from LoginController as
+ * "Authorization: Bearer {token}", and a session only answers to the candidate who started it.
+ * The latency of every endpoint is recorded in the MetricsRegistry as http.start, http.answer and so on.
+ */
+public class SessionController implements HttpHandler {
+    private static final String PREFIX = "/sessions";
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final LatencyHistogram START_LATENCY = MetricsRegistry.getInstance().histogram("http.start");
+    private static final LatencyHistogram STATUS_LATENCY = MetricsRegistry.getInstance().histogram("http.status");
+    private static final LatencyHistogram QUESTION_LATENCY = MetricsRegistry.getInstance().histogram("http.question");
+    private static final LatencyHistogram ANSWER_LATENCY = MetricsRegistry.getInstance().histogram("http.answer");
+    private static final LatencyHistogram FINISH_LATENCY = MetricsRegistry.getInstance().histogram("http.finish");
+    private static final LongAdder FAILED_REQUESTS = MetricsRegistry.getInstance().counter("http.failures");
+    
+    private final QuizService quizService;
+    private final AuthenticationService authService;
+    
+    /**
+     * Constructor for the session endpoints
+     * @param quizService The service sessions are started on
+     */
+    public SessionController(QuizService quizService) {
+        this(quizService, AuthenticationService.getInstance());
+    }
+    
+    /**
+     * Constructor for the session endpoints
+     * @param quizService The service sessions are started on
+     * @param authService The service that checks candidate tokens
+     */
+    public SessionController(QuizService quizService, AuthenticationService authService) {
+        this.quizService = quizService;
+        this.authService = authService;
+    }
+    
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        LatencyHistogram latency = null;
+        try {
+            latency = route(exchange);
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, Json.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            FAILED_REQUESTS.increment();
+            send(exchange, 500, Json.error("Internal error"));
+            System.err.println("Request " + exchange.getRequestURI() + " failed: " + e);
+        } finally {
+            exchange.close();
+            if (latency != null) {
+                latency.recordSince(start);
+            }
+        }
+    }
+    
+    /**
+     * Dispatches a request by method and path
+     * @param exchange The HTTP exchange
+     * @return Latency histogram of the endpoint that served the request, or null if none did
+     * @throws IOException If the response cannot be written
+     */
+    private LatencyHistogram route(HttpExchange exchange) throws IOException {
+        drain(exchange);
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+        if (!path.startsWith(PREFIX)) {
+            send(exchange, 404, Json.error("Not found"));
+            return null;
+        }
+        // Checking the token costs one SipHash and no allocation, so every request can afford it
+        int candidate = QuizSession.NO_CANDIDATE;
+        if (authService.hasCandidateAccounts()) {
+            candidate = authService.validateCandidateToken(exchange.getRequestHeaders().getFirst("Authorization"));
+            if (candidate < 0) {
+                sendUnauthorized(exchange);
+                return null;
+            }
+        }
+        String[] parts = split(path.substring(PREFIX.length()));
+        
+        if (parts.length == 0) {
+            if (expect(exchange, method, "POST")) {
+                startSession(exchange, candidate);
+                return START_LATENCY;
+            }
+            return null;
+        }
+        
+        QuizSession session = quizService.getSession(parseNumber(parts[0], "session id"));
+        if (session == null || session.getCandidate() != candidate) {
+            send(exchange, 404, Json.error("No running session " + parts[0]));
+            return null;
+        }
+        if (parts.length == 1) {
+            if (expect(exchange, method, "GET")) {
+                send(exchange, 200, status(session));
+                return STATUS_LATENCY;
+            }
+        } else if (parts.length == 3 && parts[1].equals("questions")) {
+            if (expect(exchange, method, "GET")) {
+                question(exchange, session, parseInt(parts[2], "position"));
+                return QUESTION_LATENCY;
+            }
+        } else if (parts.length == 3 && parts[1].equals("answers")) {
+            if (expect(exchange, method, "POST")) {
+                answer(exchange, session, parseInt(parts[2], "position"));
+                return ANSWER_LATENCY;
+            }
+        } else if (parts.length == 2 && parts[1].equals("rank")) {
+            if (expect(exchange, method, "GET")) {
+                rank(exchange, session);
+                return STATUS_LATENCY;
+            }
+        } else if (parts.length == 2 && parts[1].equals("finish")) {
+            if (expect(exchange, method, "POST")) {
+                finish(exchange, session);
+                return FINISH_LATENCY;
+            }
+        } else {
+            send(exchange, 404, Json.error("Not found"));
+        }
+        return null;
+    }
+    
+    /**
+     * Starts a session on the current quiz, or on the catalogue quiz named by the quiz parameter
+     * @param candidate The logged-in candidate who will own the session, or NO_CANDIDATE
+     */
+    private void startSession(HttpExchange exchange, int candidate) throws IOException {
+        String quizId = queryParameter(exchange, "quiz");
+        QuizSession session;
+        if (quizId != null) {
+            try {
+                session = quizService.startSession(parseNumber(quizId, "quiz id"), null);
+            } catch (IOException e) {
+                sendUnavailable(exchange, "Quiz " + quizId + " cannot be loaded", e);
+                return;
+            }
+            if (session == null) {
+                send(exchange, 404, Json.error("No quiz " + quizId));
+                return;
+            }
+        } else if (quizService.hasQuestions()) {
+            session = quizService.startSession();
+        } else {
+            send(exchange, 409, Json.error("The quiz has no questions"));
+            return;
+        }
+        if (candidate != QuizSession.NO_CANDIDATE) {
+            quizService.assignCandidate(session, candidate);
+        }
+        if (awaitLog(exchange, session)) {
+            send(exchange, 201, status(session));
+        }
+    }
+    
+    /**
+     * Sends a question as the candidate sees it
+     * The question text and answer options are the same for every session with the same answer order,
+     * so they come pre-rendered from the payload cache; only the position and selection are added here
+     */
+    private void question(HttpExchange exchange, QuizSession session, int position) throws IOException {
+        Question question = session.getQuestion(position);
+        if (question == null) {
+            send(exchange, 404, Json.error("No question at position " + position));
+            return;
+        }
+        QuestionPayloadCache cache = session.getPayloadCache();
+        byte[] body = cache == null ? renderQuestion(session, position) : cache.get(session.getStoredIndex(position),
+                session.getAnswerOrder(position), session.getQuizVersion(), () -> renderQuestion(session, position));
+        byte[] head = ("{\"position\":" + position + ",").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = (",\"selected\":" + session.getAnswer(position) + "}").getBytes(StandardCharsets.UTF_8);
+        send(exchange, 200, head, body, tail);
+    }
+    
+    /**
+     * Renders the question text and the answer options in displayed order
+     * @return UTF-8 JSON members of the form "question":...,"answers":[...]
+     */
+    private static byte[] renderQuestion(QuizSession session, int position) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("\"question\":");
+        Json.string(json, session.getQuestion(position).getQuestion()).append(",\"answers\":[");
+        for (int i = 0; i < 4; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            Json.string(json, session.getAnswerText(position, i));
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Records an answer given as ?choice=n
+     */
+    private void answer(HttpExchange exchange, QuizSession session, int position) throws IOException {
+        int choice = parseInt(queryParameter(exchange, "choice"), "choice");
+        if (!session.selectAnswer(position, choice)) {
+            send(exchange, session.isFinished() ? 409 : 400, Json.error(session.isFinished()
+                    ? "Session is finished" : "Invalid position or choice"));
+            return;
+        }
+        if (awaitLog(exchange, session)) {
+            send(exchange, 200, "{\"recorded\":true,\"position\":" + position + ",\"choice\":" + choice + "}");
+        }
+    }
+    
+    /**
+     * Sends the rank of a session among the sessions on the leaderboard of the current quiz
+     */
+    private void rank(HttpExchange exchange, QuizSession session) throws IOException {
+        Leaderboard leaderboard = quizService.getLeaderboard();
+        int rank = leaderboard.getRank(session.getId());
+        if (rank < 0) {
+            send(exchange, 404, Json.error("Session " + session.getId() + " is not ranked"));
+            return;
+        }
+        send(exchange, 200, "{\"sessionId\":" + session.getId()
+                + ",\"rank\":" + rank
+                + ",\"score\":" + leaderboard.getScore(session.getId())
+                + ",\"candidates\":" + leaderboard.size() + "}");
+    }
+    
+    /**
+     * Submits a session and sends the result
+     */
+    private void finish(HttpExchange exchange, QuizSession session) throws IOException {
+        quizService.finishSession(session);
+        if (awaitLog(exchange, session)) {
+            send(exchange, 200, "{\"sessionId\":" + session.getId()
+                    + ",\"score\":" + session.getScore()
+                    + ",\"questionCount\":" + session.getQuestionCount()
+                    + ",\"percentage\":" + session.getPercentage()
+                    + ",\"timeTaken\":" + session.getTimeTaken() + "}");
+        }
+    }
+    
+    /**
+     * Builds the status object of a session
+     */
+    private static String status(QuizSession session) {
+        return "{\"sessionId\":" + session.getId()
+                + ",\"questionCount\":" + session.getQuestionCount()
+                + ",\"timeLeft\":" + session.getTimeLeft()
+                + ",\"finished\":" + session.isFinished() + "}";
+    }
+    
+    /**
+     * Waits until the session's last record is in the answer log, so an acknowledged request survives a crash
+     * Sends 503 if the log cannot take it
+     * @return true if the record is durable and the response can be sent
+     */
+    private boolean awaitLog(HttpExchange exchange, QuizSession session) throws IOException {
+        try {
+            quizService.awaitLogged(session);
+            return true;
+        } catch (IOException e) {
+            sendUnavailable(exchange, "The answer log is not available", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendUnavailable(exchange, "Interrupted while waiting for the answer log", e);
+        }
+        return false;
+    }
+    
+    /**
+     * Sends 503 for a request the service cannot complete now, and logs the cause
+     */
+    private static void sendUnavailable(HttpExchange exchange, String message, Exception cause) throws IOException {
+        FAILED_REQUESTS.increment();
+        System.err.println("Request " + exchange.getRequestURI() + " failed: " + cause);
+        send(exchange, 503, Json.error(message));
+    }
+    
+    /**
+     * Checks the request method, sending 405 if it does not match
+     * @return true if the method matches
+     */
+    private static boolean expect(HttpExchange exchange, String method, String expected) throws IOException {
+        if (method.equals(expected)) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", expected);
+        send(exchange, 405, Json.error("Use " + expected));
+        return false;
+    }
+    
+    /**
+     * Splits a path into its non-empty segments
+     */
+    private static String[] split(String path) {
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        int end = path.length();
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return start == end ? new String[0] : path.substring(start, end).split("/");
+    }
+    
+    /**
+     * Parses a whole number from a path segment or parameter
+     * @param value The text to parse, may be null
+     * @param name What the value is, for the error message
+     * @return The number
+     * @throws IllegalArgumentException If the value is missing or not a number
+     */
+    static long parseNumber(String value, String name) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+    
+    /**
+     * Parses a number that must fit an int, such as a position or choice
+     * Larger values are rejected rather than wrapped, which could turn them into a valid position
+     * @param value The text to parse, may be null
+     * @param name What the value is, for the error message
+     * @return The number
+     * @throws IllegalArgumentException If the value is missing, not a number or out of the int range
+     */
+    static int parseInt(String value, String name) {
+        long number = parseNumber(value, name);
+        if (number < Integer.MIN_VALUE || number > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+        return (int) number;
+    }
+    
+    /**
+     * Gets a parameter of the query string
+     * @param exchange The HTTP exchange
+     * @param name The parameter name
+     * @return The raw parameter value, or null if absent
+     */
+    static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals == name.length() && pair.startsWith(name)) {
+                return pair.substring(equals + 1);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Reads and discards the request body, so the connection can be reused
+     */
+    static void drain(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+    
+    /**
+     * Sends 401 for a request without a valid candidate token
+     * @param exchange The HTTP exchange
+     * @throws IOException If the response cannot be written
+     */
+    static void sendUnauthorized(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+        send(exchange, 401, Json.error("Log in at /login and send the token as Authorization: Bearer {token}"));
+    }
+    
+    /**
+     * Sends a JSON response
+     * @param exchange The HTTP exchange
+     * @param status The HTTP status code
+     * @param json The response body
+     * @throws IOException If the response cannot be written
+     */
+    static void send(HttpExchange exchange, int status, String json) throws IOException {
+        send(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Sends a JSON response made of several UTF-8 parts, without joining them first
+     * @param exchange The HTTP exchange
+     * @param status The HTTP status code
+     * @param parts The parts of the response body, in order
+     * @throws IOException If the response cannot be written
+     */
+    static void send(HttpExchange exchange, int status, byte[]... parts) throws IOException {
+        long length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (byte[] part : parts) {
+                out.write(part);
+            }
+        }
+    }
+}
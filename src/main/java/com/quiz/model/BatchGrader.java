@@ -0,0 +1,127 @@
+package com.quiz.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Grades many answer sheets at once against an answer key
+ * Answer sheets are packed row by row into one byte array (candidates x questions), one byte per choice,
+ * with -1 for unanswered questions. Rows are compared eight answers at a time as longs and candidates
+ * are split across the common fork-join pool.
+ */
+public final class BatchGrader {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final int MIN_ANSWERS_PER_TASK = 1 << 16; // below this splitting costs more than it saves
+    
+    /**
+     * Private constructor, this class only has static methods
+     */
+    private BatchGrader() {
+    }
+    
+    /**
+     * Grades packed answer sheets
+     * @param answerKey Correct answer index per question
+     * @param answers Packed answer sheets, candidateCount rows of answerKey.length bytes
+     * @param candidateCount Number of answer sheets in the array
+     * @return Number of correct answers per candidate
+     */
+    public static int[] grade(byte[] answerKey, byte[] answers, int candidateCount) {
+        int[] scores = new int[candidateCount];
+        grade(answerKey, answers, 0, scores, 0, candidateCount);
+        return scores;
+    }
+    
+    /**
+     * Grades a range of packed answer sheets into an existing score array
+     * @param answerKey Correct answer index per question
+     * @param answers Packed answer sheets, rows of answerKey.length bytes
+     * @param answersOffset Offset of the first row in the answers array
+     * @param scores Array receiving one score per candidate
+     * @param scoresOffset Index in scores for the first candidate
+     * @param candidateCount Number of answer sheets to grade
+     */
+    public static void grade(byte[] answerKey, byte[] answers, int answersOffset,
+                             int[] scores, int scoresOffset, int candidateCount) {
+        long required = answersOffset + (long) candidateCount * answerKey.length;
+        if (candidateCount < 0 || answersOffset < 0 || required > answers.length
+                || scoresOffset < 0 || scoresOffset + candidateCount > scores.length) {
+            throw new IllegalArgumentException("Answer matrix does not match the answer key and candidate count");
+        }
+        GradeTask task = new GradeTask(answerKey, answers, answersOffset, scores, scoresOffset, 0, candidateCount);
+        if ((long) candidateCount * answerKey.length <= MIN_ANSWERS_PER_TASK) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+    }
+    
+    /**
+     * Grades a single answer sheet
+     * @param answerKey Correct answer index per question
+     * @param answers Array holding the answer sheet
+     * @param offset Offset of the sheet in the array
+     * @return Number of correct answers
+     */
+    public static int gradeRow(byte[] answerKey, byte[] answers, int offset) {
+        int length = answerKey.length;
+        int score = 0;
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            long difference = (long) LONGS.get(answers, offset + i) ^ (long) LONGS.get(answerKey, i);
+            // Sets the high bit of every byte that is zero, i.e. of every matching answer
+            long matches = ~(((difference & LOW_BITS) + LOW_BITS) | difference | LOW_BITS);
+            score += Long.bitCount(matches);
+        }
+        for (; i < length; i++) {
+            if (answers[offset + i] == answerKey[i]) {
+                score++;
+            }
+        }
+        return score;
+    }
+    
+    /**
+     * Fork-join task grading a range of candidates
+     */
+    private static class GradeTask extends RecursiveAction {
+        private final byte[] answerKey;
+        private final byte[] answers;
+        private final int answersOffset;
+        private final int[] scores;
+        private final int scoresOffset;
+        private final int from;
+        private final int to;
+        
+        GradeTask(byte[] answerKey, byte[] answers, int answersOffset,
+                  int[] scores, int scoresOffset, int from, int to) {
+            this.answerKey = answerKey;
+            this.answers = answers;
+            this.answersOffset = answersOffset;
+            this.scores = scores;
+            this.scoresOffset = scoresOffset;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            int questionCount = answerKey.length;
+            if ((long) (to - from) * questionCount > MIN_ANSWERS_PER_TASK && to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GradeTask(answerKey, answers, answersOffset, scores, scoresOffset, from, middle),
+                          new GradeTask(answerKey, answers, answersOffset, scores, scoresOffset, middle, to));
+                return;
+            }
+            int offset = answersOffset + from * questionCount;
+            for (int candidate = from; candidate < to; candidate++) {
+                scores[scoresOffset + candidate] = gradeRow(answerKey, answers, offset);
+                offset += questionCount;
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.quiz.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of questions stored as string handles in flat arrays
+ * Texts live once in a shared StringTable, so answers such as "True" or "None of the above" cost four bytes
+ * per use instead of a String each. Elements are flyweight Question views created on access; their getters
+ * decode from the table and their setters throw, so a changed question has to replace the old one.
+ */
+public final class CompactQuestionList extends AbstractList<Question> implements RandomAccess {
+    private static final int ANSWERS = 4;
+    
+    private final StringTable strings;
+    private final int[] texts;
+    private final int[] answers; // ANSWERS handles per question
+    private final int[] tags;
+    private final byte[] correct;
+    
+    /**
+     * Private constructor, use of() to build a list
+     */
+    private CompactQuestionList(StringTable strings, int size) {
+        this.strings = strings;
+        this.texts = new int[size];
+        this.answers = new int[size * ANSWERS];
+        this.tags = new int[size];
+        this.correct = new byte[size];
+    }
+    
+    /**
+     * Copies questions into a compact list
+     * @param questions The questions, each with up to four answers
+     * @param strings The table to store the texts in, may be shared with other lists
+     * @return The compact list, with the same questions in the same order
+     */
+    public static CompactQuestionList of(List<Question> questions, StringTable strings) {
+        CompactQuestionList list = new CompactQuestionList(strings, questions.size());
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            list.texts[i] = strings.intern(question.getQuestion());
+            String[] options = question.getAnswers();
+            for (int a = 0; a < ANSWERS; a++) {
+                String option = options != null && a < options.length ? options[a] : null;
+                list.answers[i * ANSWERS + a] = strings.intern(option);
+            }
+            list.tags[i] = strings.intern(question.getTag());
+            list.correct[i] = (byte) question.getCorrectAnswerIndex();
+        }
+        return list;
+    }
+    
+    /**
+     * Gets the table holding the texts of this list
+     * @return The string table
+     */
+    public StringTable getStrings() {
+        return strings;
+    }
+    
+    @Override
+    public Question get(int index) {
+        if (index < 0 || index >= texts.length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + texts.length);
+        }
+        return new View(index);
+    }
+    
+    @Override
+    public int size() {
+        return texts.length;
+    }
+    
+    /**
+     * Question backed by one row of the list
+     */
+    private final class View extends Question {
+        private final int index;
+        
+        /**
+         * Constructor for a view of one question
+         * @param index Index of the question in the list
+         */
+        View(int index) {
+            super(null, null, 0);
+            this.index = index;
+        }
+        
+        @Override
+        public String getQuestion() {
+            return strings.get(texts[index]);
+        }
+        
+        @Override
+        public String[] getAnswers() {
+            String[] options = new String[ANSWERS];
+            for (int a = 0; a < ANSWERS; a++) {
+                options[a] = strings.get(answers[index * ANSWERS + a]);
+            }
+            return options;
+        }
+        
+        @Override
+        public String getAnswer(int answerIndex) {
+            return answerIndex >= 0 && answerIndex < ANSWERS ? strings.get(answers[index * ANSWERS + answerIndex]) : null;
+        }
+        
+        @Override
+        public int getCorrectAnswerIndex() {
+            return correct[index];
+        }
+        
+        @Override
+        public String getTag() {
+            return strings.get(tags[index]);
+        }
+        
+        @Override
+        public void setQuestion(String question) {
+            throw new UnsupportedOperationException("Compact questions are read-only, replace the question instead");
+        }
+        
+        @Override
+        public void setAnswers(String[] answers) {
+            throw new UnsupportedOperationException("Compact questions are read-only, replace the question instead");
+        }
+        
+        @Override
+        public void setCorrectAnswerIndex(int correctAnswerIndex) {
+            throw new UnsupportedOperationException("Compact questions are read-only, replace the question instead");
+        }
+        
+        @Override
+        public void setTag(String tag) {
+            throw new UnsupportedOperationException("Compact questions are read-only, replace the question instead");
+        }
+    }
+}
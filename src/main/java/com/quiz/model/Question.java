@@ -8,6 +8,7 @@ public class Question {
     private String question;
     private String[] answers;
     private int correctAnswerIndex;
+    private String tag; // topic or difficulty used to stratify pool draws, may be null
     
     /**
      * Constructor to create a new question
@@ -21,6 +22,18 @@ public class Question {
         this.correctAnswerIndex = correctAnswerIndex;
     }
     
+    /**
+     * Constructor to create a new tagged question
+     * @param question The question text
+     * @param answers Array of possible answers (should be 4 options)
+     * @param correctAnswerIndex Index of the correct answer (0-3)
+     * @param tag Topic or difficulty of the question, or null
+     */
+    public Question(String question, String[] answers, int correctAnswerIndex, String tag) {
+        this(question, answers, correctAnswerIndex);
+        this.tag = tag;
+    }
+    
     /**
      * Gets the question text
      * @return The question as a string
@@ -37,6 +50,16 @@ public class Question {
         return answers;
     }
     
+    /**
+     * Gets one answer option
+     * @param answerIndex Index of the answer (0-3)
+     * @return The answer text, or null if the index is invalid
+     */
+    public String getAnswer(int answerIndex) {
+        String[] options = getAnswers();
+        return options != null && answerIndex >= 0 && answerIndex < options.length ? options[answerIndex] : null;
+    }
+    
     /**
      * Gets the index of the correct answer
      * @return Index of correct answer (0-3)
@@ -45,6 +68,14 @@ public class Question {
         return correctAnswerIndex;
     }
     
+    /**
+     * Gets the tag of the question
+     * @return Topic or difficulty of the question, or null if untagged
+     */
+    public String getTag() {
+        return tag;
+    }
+    
     /**
      * Sets the question text
      * @param question New question text
@@ -69,17 +100,25 @@ public class Question {
         this.correctAnswerIndex = correctAnswerIndex;
     }
     
+    /**
+     * Sets the tag of the question
+     * @param tag New topic or difficulty, or null
+     */
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+    
     /**
      * Checks if the given answer index is correct
      * @param answerIndex The index to check
      * @return true if the answer is correct, false otherwise
      */
     public boolean isCorrectAnswer(int answerIndex) {
-        return answerIndex == correctAnswerIndex;
+        return answerIndex == getCorrectAnswerIndex();
     }
     
     @Override
     public String toString() {
-        return "Question: " + question;
+        return "Question: " + getQuestion();
     }
 }
@@ -0,0 +1,232 @@
+package com.quiz.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Draws exam papers of N questions from a pool of M, stratified by question tag
+ * The pool indexes the questions of one snapshot by tag once; every draw after that
+ * costs O(N) time and memory whatever the size of the pool, using Floyd's sampling
+ * within each tag. Draws depend only on the seed, so a paper can be recomputed
+ * from the session seed instead of being stored.
+ */
+public final class QuestionPool {
+    private final List<Question> questions;
+    private final String[] tags;
+    private final int[][] strata; // stored question indexes per tag, null for a pool without tags
+    
+    /**
+     * Private constructor, use of() to index a question list
+     */
+    private QuestionPool(List<Question> questions, String[] tags, int[][] strata) {
+        this.questions = questions;
+        this.tags = tags;
+        this.strata = strata;
+    }
+    
+    /**
+     * Indexes a question list by tag
+     * Questions without a tag form their own stratum
+     * @param questions The questions of the pool, must not change afterwards
+     * @return The question pool
+     */
+    public static QuestionPool of(List<Question> questions) {
+        Map<String, IntList> byTag = new LinkedHashMap<>();
+        for (int i = 0; i < questions.size(); i++) {
+            byTag.computeIfAbsent(questions.get(i).getTag(), tag -> new IntList()).add(i);
+        }
+        if (byTag.size() <= 1) {
+            // Single stratum, draw straight from the index range without storing it
+            return new QuestionPool(questions, byTag.keySet().toArray(new String[0]), null);
+        }
+        String[] tags = new String[byTag.size()];
+        int[][] strata = new int[byTag.size()][];
+        int k = 0;
+        for (Map.Entry<String, IntList> entry : byTag.entrySet()) {
+            tags[k] = entry.getKey();
+            strata[k++] = entry.getValue().toArray();
+        }
+        return new QuestionPool(questions, tags, strata);
+    }
+    
+    /**
+     * Checks if this pool was built from a question list
+     * @param list The question list to compare
+     * @return true if the pool indexes exactly that list instance
+     */
+    public boolean isFor(List<Question> list) {
+        return questions == list;
+    }
+    
+    /**
+     * Gets the number of questions in the pool
+     * @return Pool size M
+     */
+    public int size() {
+        return questions.size();
+    }
+    
+    /**
+     * Gets the tags of the pool in order of first appearance
+     * @return The tags, a null entry stands for untagged questions
+     */
+    public List<String> getTags() {
+        return Arrays.asList(tags.clone());
+    }
+    
+    /**
+     * Draws a paper of questions
+     * Each tag receives a share of the paper proportional to its share of the pool,
+     * remaining seats go to the tags with the largest remainders
+     * @param count Number of questions to draw, at most size()
+     * @param seed Seed of the draw, the same seed always gives the same paper
+     * @return Stored indexes of the drawn questions in ascending order
+     */
+    public int[] draw(int count, long seed) {
+        int poolSize = questions.size();
+        if (count < 0 || count > poolSize) {
+            throw new IllegalArgumentException("Cannot draw " + count + " of " + poolSize + " questions");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] drawn = new int[count];
+        if (strata == null) {
+            sample(random, poolSize, count, drawn, 0);
+        } else {
+            int[] quotas = allocate(count, poolSize);
+            int filled = 0;
+            for (int s = 0; s < strata.length; s++) {
+                int[] stratum = strata[s];
+                int start = filled;
+                sample(random, stratum.length, quotas[s], drawn, start);
+                for (int i = start; i < start + quotas[s]; i++) {
+                    drawn[i] = stratum[drawn[i]];
+                }
+                filled += quotas[s];
+            }
+        }
+        Arrays.sort(drawn);
+        return drawn;
+    }
+    
+    /**
+     * Splits a paper over the tags by largest remainder
+     * @param count Number of questions to draw
+     * @param poolSize Number of questions in the pool
+     * @return Number of questions to draw per stratum
+     */
+    private int[] allocate(int count, int poolSize) {
+        int[] quotas = new int[strata.length];
+        long[] remainders = new long[strata.length];
+        int assigned = 0;
+        for (int s = 0; s < strata.length; s++) {
+            long share = (long) count * strata[s].length;
+            quotas[s] = (int) (share / poolSize);
+            remainders[s] = share % poolSize;
+            assigned += quotas[s];
+        }
+        // Fewer leftover seats than strata, so each stratum gets at most one more
+        while (assigned < count) {
+            int best = -1;
+            for (int s = 0; s < strata.length; s++) {
+                if (quotas[s] < strata[s].length && (best < 0 || remainders[s] > remainders[best])) {
+                    best = s;
+                }
+            }
+            quotas[best]++;
+            remainders[best] = -1;
+            assigned++;
+        }
+        return quotas;
+    }
+    
+    /**
+     * Floyd's algorithm: draws distinct values of [0, range) in O(count) time and memory
+     * @param random Source of randomness
+     * @param range Upper bound of the values
+     * @param count Number of values to draw
+     * @param out Array receiving the values
+     * @param offset Position of the first value in out
+     */
+    private static void sample(SplittableRandom random, int range, int count, int[] out, int offset) {
+        if (count == 0) {
+            return;
+        }
+        IntHashSet chosen = new IntHashSet(count);
+        int k = offset;
+        for (int j = range - count; j < range; j++) {
+            int candidate = random.nextInt(j + 1);
+            if (!chosen.add(candidate)) {
+                // Already drawn, j itself cannot have been drawn yet
+                candidate = j;
+                chosen.add(candidate);
+            }
+            out[k++] = candidate;
+        }
+    }
+    
+    /**
+     * Open-addressing set of non-negative ints sized for a known number of entries
+     */
+    private static final class IntHashSet {
+        private final int[] slots;
+        private final int mask;
+        
+        /**
+         * Constructor for a set that will hold up to capacity entries
+         * @param capacity Maximum number of entries
+         */
+        IntHashSet(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+            slots = new int[size];
+            Arrays.fill(slots, -1);
+            mask = size - 1;
+        }
+        
+        /**
+         * Adds a value
+         * @param value The value to add
+         * @return true if the value was not in the set
+         */
+        boolean add(int value) {
+            int slot = (value * 0x9E3779B9) & mask;
+            while (slots[slot] != -1) {
+                if (slots[slot] == value) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = value;
+            return true;
+        }
+    }
+    
+    /**
+     * Growable int array used while indexing the pool
+     */
+    private static final class IntList {
+        private int[] data = new int[16];
+        private int size;
+        
+        /**
+         * Appends a value
+         * @param value The value to append
+         */
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+        
+        /**
+         * Copies the values into an array of the exact size
+         * @return The values
+         */
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
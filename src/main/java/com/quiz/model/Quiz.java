@@ -1,22 +1,28 @@
 package com.quiz.model;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 /**
  * Represents a complete quiz with multiple questions
  * This class manages a collection of questions and quiz metadata
+ * Questions are held in an immutable QuizSnapshot that is swapped atomically on every change,
+ * so readers never block and concurrent changes never get lost
  */
 public class Quiz {
-    private String title;
-    private List<Question> questions;
-    private int timeLimit; // in seconds
+    private volatile String title;
+    private final AtomicReference<QuizSnapshot> questions;
+    private volatile int timeLimit; // in seconds
+    private volatile boolean shuffled = true;
+    private volatile int drawCount; // questions per session, 0 for the whole quiz
+    private volatile QuestionPool pool; // tag index of the latest snapshot, built on first draw
     
     /**
      * Default constructor creates an empty quiz
      */
     public Quiz() {
-        this.questions = new ArrayList<>();
+        this.questions = new AtomicReference<>(QuizSnapshot.EMPTY);
         this.title = "Untitled Quiz";
         this.timeLimit = 60; // Default 1 minute per quiz
     }
@@ -40,12 +46,77 @@ public class Quiz {
         this.timeLimit = timeLimit;
     }
     
+    /**
+     * Constructor over an existing list of questions
+     * The list is used as is, it is only copied when the quiz is first modified
+     * and must not change afterwards
+     * @param title The title of the quiz
+     * @param timeLimit Time limit in seconds
+     * @param questions The questions of the quiz, possibly read-only
+     */
+    public Quiz(String title, int timeLimit, List<Question> questions) {
+        this.title = title;
+        this.timeLimit = timeLimit;
+        this.questions = new AtomicReference<>(QuizSnapshot.wrap(questions));
+    }
+    
     /**
      * Adds a question to the quiz
      * @param question The question to add
      */
     public void addQuestion(Question question) {
-        questions.add(question);
+        questions.updateAndGet(snapshot -> snapshot.withAdded(question));
+    }
+    
+    /**
+     * Adds several questions to the quiz as one change
+     * Readers see either none or all of the questions
+     * @param newQuestions The questions to add
+     */
+    public void addQuestions(List<Question> newQuestions) {
+        questions.updateAndGet(snapshot -> snapshot.withAllAdded(newQuestions));
+    }
+    
+    /**
+     * Applies a batch of changes to the questions as one atomic update
+     * The function may be called more than once if another change happens concurrently,
+     * so it must not have side effects
+     * @param changes Function deriving the new snapshot from the current one
+     * @return The snapshot that was published
+     */
+    public QuizSnapshot update(UnaryOperator<QuizSnapshot> changes) {
+        return questions.updateAndGet(changes);
+    }
+    
+    /**
+     * Publishes a changed snapshot if the quiz still holds the one it was derived from
+     * For callers that must act between reading the questions and publishing the change,
+     * retrying with the new snapshot when another change came first
+     * @param expected The snapshot the change was derived from
+     * @param changed The changed snapshot
+     * @return true if the change was published, false if the quiz changed in between
+     */
+    public boolean publish(QuizSnapshot expected, QuizSnapshot changed) {
+        return questions.compareAndSet(expected, changed);
+    }
+    
+    /**
+     * Replaces a question of the quiz
+     * Sessions that already started keep the previous version of the question
+     * @param index The index of the question to replace
+     * @param question The new question
+     * @return true if question was replaced, false if index is invalid
+     */
+    public boolean updateQuestion(int index, Question question) {
+        while (true) {
+            QuizSnapshot current = questions.get();
+            if (index < 0 || index >= current.size()) {
+                return false;
+            }
+            if (questions.compareAndSet(current, current.withReplaced(index, question))) {
+                return true;
+            }
+        }
     }
     
     /**
@@ -54,11 +125,15 @@ public class Quiz {
      * @return true if question was removed, false if index is invalid
      */
     public boolean removeQuestion(int index) {
-        if (index >= 0 && index < questions.size()) {
-            questions.remove(index);
-            return true;
+        while (true) {
+            QuizSnapshot current = questions.get();
+            if (index < 0 || index >= current.size()) {
+                return false;
+            }
+            if (questions.compareAndSet(current, current.withRemoved(index))) {
+                return true;
+            }
         }
-        return false;
     }
     
     /**
@@ -67,18 +142,28 @@ public class Quiz {
      * @return The question at the specified index, or null if invalid index
      */
     public Question getQuestion(int index) {
-        if (index >= 0 && index < questions.size()) {
-            return questions.get(index);
+        QuizSnapshot current = questions.get();
+        if (index >= 0 && index < current.size()) {
+            return current.get(index);
         }
         return null;
     }
     
     /**
      * Gets all questions in the quiz
-     * @return List of all questions
+     * The returned snapshot is immutable and does not see later changes to the quiz
+     * @return Snapshot of all questions
      */
-    public List<Question> getQuestions() {
-        return new ArrayList<>(questions); // Return a copy to prevent external modification
+    public QuizSnapshot getQuestions() {
+        return questions.get();
+    }
+    
+    /**
+     * Gets the version of the questions, it increases with every change
+     * @return The current snapshot version
+     */
+    public long getVersion() {
+        return questions.get().getVersion();
     }
     
     /**
@@ -86,7 +171,7 @@ public class Quiz {
      * @return Number of questions
      */
     public int getQuestionCount() {
-        return questions.size();
+        return questions.get().size();
     }
     
     /**
@@ -94,7 +179,50 @@ public class Quiz {
      * @return true if quiz is empty, false otherwise
      */
     public boolean isEmpty() {
-        return questions.isEmpty();
+        return questions.get().isEmpty();
+    }
+    
+    /**
+     * Builds the answer key of the quiz
+     * @return Correct answer index of each question, in question order
+     */
+    public byte[] getAnswerKey() {
+        QuizSnapshot current = questions.get();
+        byte[] answerKey = new byte[current.size()];
+        for (int i = 0; i < answerKey.length; i++) {
+            answerKey[i] = (byte) current.get(i).getCorrectAnswerIndex();
+        }
+        return answerKey;
+    }
+    
+    /**
+     * Draws the questions of one session from a snapshot of this quiz
+     * The tag index of the snapshot is built once and shared by all sessions drawing from it
+     * @param snapshot Questions returned by getQuestions()
+     * @param seed Seed of the draw, the same seed and snapshot always give the same questions
+     * @return Stored indexes of the drawn questions in ascending order, or null if sessions get the whole quiz
+     */
+    public int[] drawQuestions(List<Question> snapshot, long seed) {
+        int count = drawCount;
+        if (count <= 0 || count >= snapshot.size()) {
+            return null;
+        }
+        QuestionPool current = pool;
+        if (current == null || !current.isFor(snapshot)) {
+            current = QuestionPool.of(snapshot);
+            pool = current;
+        }
+        return current.draw(count, seed);
+    }
+    
+    /**
+     * Grades a cohort of answer sheets against this quiz
+     * @param answers Packed answer sheets, one row of getQuestionCount() bytes per candidate, -1 for no answer
+     * @param candidateCount Number of answer sheets
+     * @return Number of correct answers per candidate
+     */
+    public int[] gradeAll(byte[] answers, int candidateCount) {
+        return BatchGrader.grade(getAnswerKey(), answers, candidateCount);
     }
     
     /**
@@ -113,6 +241,39 @@ public class Quiz {
         this.title = title;
     }
     
+    /**
+     * Checks if each session gets its own order of questions and answer options
+     * @return true if sessions are shuffled
+     */
+    public boolean isShuffled() {
+        return shuffled;
+    }
+    
+    /**
+     * Sets whether each session gets its own order of questions and answer options
+     * @param shuffled true to shuffle per session, false to show questions in stored order
+     */
+    public void setShuffled(boolean shuffled) {
+        this.shuffled = shuffled;
+    }
+    
+    /**
+     * Gets the number of questions drawn for each session
+     * @return Questions per session, 0 if every session gets the whole quiz
+     */
+    public int getDrawCount() {
+        return drawCount;
+    }
+    
+    /**
+     * Sets the number of questions drawn for each session
+     * Questions are drawn in proportion to their tags, see QuestionPool
+     * @param drawCount Questions per session, 0 to give every session the whole quiz
+     */
+    public void setDrawCount(int drawCount) {
+        this.drawCount = Math.max(0, drawCount);
+    }
+    
     /**
      * Gets the time limit for the quiz
      * @return Time limit in seconds
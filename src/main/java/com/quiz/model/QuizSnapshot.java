@@ -0,0 +1,298 @@
+package com.quiz.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, versioned list of the questions of a quiz
+ * A snapshot is never modified once published, so it can be handed to any number of readers without copying.
+ * Changes return a new snapshot that shares all untouched parts with the old one: questions are kept in a
+ * 32-way trie plus a tail block, so adding or replacing a question copies only one path of the trie.
+ * A snapshot can also wrap a read-only list such as a question bank; it is copied into a trie on the first change.
+ */
+public final class QuizSnapshot extends AbstractList<Question> implements RandomAccess {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS; // 32 entries per node
+    private static final int MASK = WIDTH - 1;
+    private static final Object[] EMPTY_NODE = new Object[WIDTH];
+    private static final Object[] EMPTY_TAIL = new Object[0];
+    
+    /** Empty snapshot, version 0 */
+    public static final QuizSnapshot EMPTY = new QuizSnapshot(0, 0, BITS, EMPTY_NODE, EMPTY_TAIL, null);
+    
+    private final long version;
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+    private final List<Question> base;
+    private volatile long contentHash; // 0 until computed
+    
+    /**
+     * Private constructor, snapshots are created from EMPTY or wrap()
+     */
+    private QuizSnapshot(long version, int size, int shift, Object[] root, Object[] tail, List<Question> base) {
+        this.version = version;
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+        this.base = base;
+    }
+    
+    /**
+     * Creates a snapshot over a read-only list without copying it
+     * The list must not change afterwards and should support fast random access
+     * @param questions The questions of the snapshot
+     * @return Snapshot with version 0 backed by the list
+     */
+    public static QuizSnapshot wrap(List<Question> questions) {
+        return new QuizSnapshot(0, questions.size(), BITS, EMPTY_NODE, EMPTY_TAIL, questions);
+    }
+    
+    /**
+     * Returns a snapshot over a read-only list that replaces all questions, as one new version
+     * The list must not change afterwards and should support fast random access
+     * @param questions The questions of the new snapshot
+     * @return Snapshot backed by the list
+     */
+    public QuizSnapshot withContents(List<Question> questions) {
+        return wrap(questions).withVersion(version + 1);
+    }
+    
+    /**
+     * Checks whether this snapshot still reads its questions from a list it wraps, such as a question bank
+     * @return true until a change copies the questions into the trie
+     */
+    public boolean isWrapped() {
+        return base != null;
+    }
+    
+    /**
+     * Gets the version of this snapshot, every change produces a higher version
+     * @return The version number
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Gets a hash of the texts, tags and correct answers of the questions, computed on first use
+     * Snapshots holding the same questions in the same order have the same hash whatever their version or storage,
+     * so it tells whether a quiz loaded after a restart is the one a logged session was started on
+     * @return The content hash, never 0
+     */
+    public long getContentHash() {
+        long hash = contentHash;
+        if (hash == 0) {
+            hash = 0xCBF29CE484222325L; // FNV-1a over the hashes of the question fields
+            for (Question question : this) {
+                hash = (hash ^ Objects.hashCode(question.getQuestion())) * 0x100000001B3L;
+                String[] answers = question.getAnswers();
+                for (int i = 0; answers != null && i < answers.length; i++) {
+                    hash = (hash ^ Objects.hashCode(answers[i])) * 0x100000001B3L;
+                }
+                hash = (hash ^ Objects.hashCode(question.getTag())) * 0x100000001B3L;
+                hash = (hash ^ question.getCorrectAnswerIndex()) * 0x100000001B3L;
+            }
+            if (hash == 0) {
+                hash = 1;
+            }
+            contentHash = hash;
+        }
+        return hash;
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public Question get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (base != null) {
+            return base.get(index);
+        }
+        return (Question) leafFor(index)[index & MASK];
+    }
+    
+    /**
+     * Returns a snapshot with a question added at the end
+     * @param question The question to add
+     * @return The new snapshot
+     */
+    public QuizSnapshot withAdded(Question question) {
+        if (base != null) {
+            return materialize().withAdded(question);
+        }
+        if (size - tailOffset() < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = question;
+            return new QuizSnapshot(version + 1, size + 1, shift, root, newTail, null);
+        }
+        
+        // Tail is full, move it into the trie
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            // Root is full, add a level
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        return new QuizSnapshot(version + 1, size + 1, newShift, newRoot, new Object[] {question}, null);
+    }
+    
+    /**
+     * Returns a snapshot with all given questions added at the end, as one new version
+     * @param questions The questions to add
+     * @return The new snapshot
+     */
+    public QuizSnapshot withAllAdded(List<Question> questions) {
+        if (questions.isEmpty()) {
+            return this;
+        }
+        QuizSnapshot result = this;
+        for (Question question : questions) {
+            result = result.withAdded(question);
+        }
+        return result.withVersion(version + 1);
+    }
+    
+    /**
+     * Returns a snapshot with the question at an index replaced
+     * @param index The index of the question to replace
+     * @param question The new question
+     * @return The new snapshot
+     */
+    public QuizSnapshot withReplaced(int index, Question question) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (base != null) {
+            return materialize().withReplaced(index, question);
+        }
+        if (index >= tailOffset()) {
+            Object[] newTail = tail.clone();
+            newTail[index & MASK] = question;
+            return new QuizSnapshot(version + 1, size, shift, root, newTail, null);
+        }
+        return new QuizSnapshot(version + 1, size, shift, assoc(shift, root, index, question), tail, null);
+    }
+    
+    /**
+     * Returns a snapshot without the question at an index
+     * Later questions shift down, so this rebuilds the whole snapshot
+     * @param index The index of the question to remove
+     * @return The new snapshot
+     */
+    public QuizSnapshot withRemoved(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        QuizSnapshot result = EMPTY;
+        for (int i = 0; i < size; i++) {
+            if (i != index) {
+                result = result.withAdded(get(i));
+            }
+        }
+        return result.withVersion(version + 1);
+    }
+    
+    /**
+     * Copies a wrapped list into a trie
+     * @return Snapshot with the same contents and version that owns its storage
+     */
+    private QuizSnapshot materialize() {
+        QuizSnapshot result = EMPTY;
+        for (Question question : base) {
+            result = result.withAdded(question);
+        }
+        return result.withVersion(version);
+    }
+    
+    /**
+     * Returns this snapshot's contents under another version number
+     * @param newVersion The version to use
+     * @return Snapshot sharing all storage with this one
+     */
+    private QuizSnapshot withVersion(long newVersion) {
+        return new QuizSnapshot(newVersion, size, shift, root, tail, base);
+    }
+    
+    /**
+     * Gets the index of the first question stored in the tail
+     * @return Offset of the tail
+     */
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+    
+    /**
+     * Finds the leaf node holding an index
+     * @param index The index of the question
+     * @return Node whose entry (index &amp; 31) is the question
+     */
+    private Object[] leafFor(int index) {
+        if (index >= tailOffset()) {
+            return tail;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return node;
+    }
+    
+    /**
+     * Copies the path to the last leaf and attaches a full tail block there
+     */
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int subIndex = ((size - 1) >>> level) & MASK;
+        Object[] result = parent.clone();
+        Object[] nodeToInsert;
+        if (level == BITS) {
+            nodeToInsert = tailNode;
+        } else {
+            Object[] child = (Object[]) parent[subIndex];
+            nodeToInsert = child != null ? pushTail(level - BITS, child, tailNode) : newPath(level - BITS, tailNode);
+        }
+        result[subIndex] = nodeToInsert;
+        return result;
+    }
+    
+    /**
+     * Builds a chain of single-child nodes down to a leaf
+     */
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] result = new Object[WIDTH];
+        result[0] = newPath(level - BITS, node);
+        return result;
+    }
+    
+    /**
+     * Copies the path to an index and replaces the question there
+     */
+    private static Object[] assoc(int level, Object[] node, int index, Question question) {
+        Object[] result = node.clone();
+        if (level == 0) {
+            result[index & MASK] = question;
+        } else {
+            int subIndex = (index >>> level) & MASK;
+            result[subIndex] = assoc(level - BITS, (Object[]) node[subIndex], index, question);
+        }
+        return result;
+    }
+}
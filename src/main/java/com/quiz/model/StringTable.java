@@ -0,0 +1,192 @@
+package com.quiz.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only table of distinct strings packed into one byte array
+ * Each string is stored once and referred to by an int handle, its offset in the array.
+ * Strings whose characters all fit in Latin-1 take one byte per character, others are stored as UTF-8;
+ * a varint header holds the byte length and which of the two encodings is used.
+ *
+ * Interning is synchronized. Reading needs no lock: a handle is only handed out after its bytes are written,
+ * and growing copies the array before publishing it, so a reader that got a handle always finds its bytes.
+ */
+public final class StringTable {
+    /** Handle of the null string */
+    public static final int NULL = -1;
+    
+    private volatile byte[] data = new byte[1 << 12];
+    private int size; // bytes used, guarded by this
+    private int[] slots = new int[256]; // hash table of handle + 1, 0 for an empty slot, guarded by this
+    private int count; // distinct strings, guarded by this
+    
+    /**
+     * Adds a string to the table unless an equal one is already in it
+     * @param value The string, may be null
+     * @return Handle of the stored string, or NULL for null
+     */
+    public synchronized int intern(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        boolean latin1 = isLatin1(value);
+        byte[] bytes = value.getBytes(latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        int header = bytes.length << 1 | (latin1 ? 0 : 1);
+        int hash = hash(bytes, 0, bytes.length) ^ (latin1 ? 0 : 0x5bd1e995);
+        
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        byte[] current = data;
+        while (slots[slot] != 0) {
+            int handle = slots[slot] - 1;
+            if (matches(current, handle, header, bytes)) {
+                return handle;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        int handle = append(header, bytes);
+        slots[slot] = handle + 1;
+        if (++count * 2 > slots.length) {
+            rehash();
+        }
+        return handle;
+    }
+    
+    /**
+     * Gets a stored string
+     * @param handle Handle returned by intern()
+     * @return The string, or null for NULL
+     */
+    public String get(int handle) {
+        if (handle == NULL) {
+            return null;
+        }
+        byte[] current = data;
+        int position = handle;
+        int header = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = current[position++];
+            header |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        int length = header >>> 1;
+        return new String(current, position, length,
+                (header & 1) == 0 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Gets the number of distinct strings in the table
+     * @return Number of strings
+     */
+    public synchronized int size() {
+        return count;
+    }
+    
+    /**
+     * Gets the number of bytes the strings take up
+     * @return Used bytes of the packed array
+     */
+    public synchronized int getByteSize() {
+        return size;
+    }
+    
+    /**
+     * Writes a string with its header at the end of the array
+     * @return Offset of the header
+     */
+    private int append(int header, byte[] bytes) {
+        int needed = size + 5 + bytes.length;
+        if (needed < 0 || needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("String table exceeds 2 GB");
+        }
+        byte[] current = data;
+        if (needed > current.length) {
+            current = Arrays.copyOf(current, (int) Math.min(Math.max((long) current.length * 2, needed), Integer.MAX_VALUE - 8));
+        }
+        int handle = size;
+        int position = size;
+        int rest = header;
+        while ((rest & ~0x7F) != 0) {
+            current[position++] = (byte) ((rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        current[position++] = (byte) rest;
+        System.arraycopy(bytes, 0, current, position, bytes.length);
+        size = position + bytes.length;
+        data = current; // publishes the bytes before the handle is returned
+        return handle;
+    }
+    
+    /**
+     * Checks whether the string at a handle has the given header and bytes
+     */
+    private static boolean matches(byte[] current, int handle, int header, byte[] bytes) {
+        int position = handle;
+        int stored = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = current[position++];
+            stored |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return stored == header && Arrays.equals(current, position, position + bytes.length, bytes, 0, bytes.length);
+    }
+    
+    /**
+     * Doubles the hash table, rehashing every handle from its stored bytes
+     */
+    private void rehash() {
+        int[] larger = new int[slots.length * 2];
+        int mask = larger.length - 1;
+        byte[] current = data;
+        for (int entry : slots) {
+            if (entry == 0) {
+                continue;
+            }
+            int position = entry - 1;
+            int header = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = current[position++];
+                header |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int hash = hash(current, position, position + (header >>> 1)) ^ ((header & 1) == 0 ? 0 : 0x5bd1e995);
+            int slot = hash & mask;
+            while (larger[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            larger[slot] = entry;
+        }
+        slots = larger;
+    }
+    
+    /**
+     * Checks whether every character of a string is Latin-1
+     */
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Hashes a byte range with FNV-1a and a final mix
+     */
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ bytes[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,254 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One candidate's computerised adaptive test
+ * Instead of working through the quiz in order, every question is chosen for the candidate: after each answer
+ * the ability estimate is updated and the engine picks the remaining question that tells most about an
+ * ability at that level. The test ends after a number of questions or once the estimate is precise enough.
+ *
+ * The ability is estimated as the mean of its posterior distribution (EAP) under a standard normal prior,
+ * evaluated on a grid of points from -4 to 4, so an answer costs one probability per grid point.
+ */
+public class AdaptiveTest {
+    /** Default maximum number of questions asked */
+    public static final int DEFAULT_MAX_QUESTIONS = 20;
+    /** Default standard error of the ability estimate at which the test stops early */
+    public static final double DEFAULT_TARGET_STANDARD_ERROR = 0.3;
+    
+    private static final int GRID_POINTS = 81;
+    private static final double GRID_STEP = (AdaptiveTestEngine.MAX_ABILITY - AdaptiveTestEngine.MIN_ABILITY) / (GRID_POINTS - 1);
+    private static final LatencyHistogram ANSWER = MetricsRegistry.getInstance().histogram("adaptive.answer");
+    
+    private final AdaptiveTestEngine engine;
+    private final List<Question> questions;
+    private final int maxQuestions;
+    private final double targetStandardError;
+    private final double[] logPosterior = new double[GRID_POINTS];
+    private final int[] administered; // question indexes in the order they were asked
+    private final boolean[] correct;
+    private final int[] askedSet; // open addressing set of the asked question indexes, -1 marks a free slot
+    private int answeredCount;
+    private int correctCount;
+    private int currentQuestion = -1; // index of the question waiting for an answer, -1 if none
+    private double ability;
+    private double standardError;
+    private boolean finished;
+    
+    /**
+     * Constructor for a new adaptive test
+     * @param engine Item parameters of the questions
+     * @param questions The question bank, in the order the engine's items are numbered
+     * @param maxQuestions Maximum number of questions to ask
+     * @param targetStandardError The test stops once the standard error of the estimate falls to this
+     * @throws IllegalArgumentException If the engine and the bank differ in size or maxQuestions is not positive
+     */
+    public AdaptiveTest(AdaptiveTestEngine engine, List<Question> questions, int maxQuestions, double targetStandardError) {
+        if (engine.size() != questions.size()) {
+            throw new IllegalArgumentException("The engine has " + engine.size() + " items but the bank " + questions.size());
+        }
+        if (maxQuestions <= 0) {
+            throw new IllegalArgumentException("maxQuestions must be positive");
+        }
+        this.engine = engine;
+        this.questions = questions;
+        this.maxQuestions = Math.min(maxQuestions, questions.size());
+        this.targetStandardError = targetStandardError;
+        this.administered = new int[this.maxQuestions];
+        this.correct = new boolean[this.maxQuestions];
+        this.askedSet = new int[Integer.highestOneBit(Math.max(1, this.maxQuestions)) * 4];
+        Arrays.fill(askedSet, -1);
+        for (int point = 0; point < GRID_POINTS; point++) {
+            double theta = gridPoint(point);
+            logPosterior[point] = -theta * theta / 2; // standard normal prior
+        }
+        updateEstimate();
+        this.finished = this.maxQuestions == 0;
+    }
+    
+    /**
+     * Picks the next question, or gives the current one again if it was not answered yet
+     * @return The question to ask, or null if the test is finished
+     */
+    public synchronized Question nextQuestion() {
+        if (finished) {
+            return null;
+        }
+        if (currentQuestion < 0) {
+            int item = engine.select(ability, this::wasAsked);
+            if (item < 0) {
+                finished = true;
+                return null;
+            }
+            currentQuestion = item;
+            markAsked(item);
+        }
+        return questions.get(currentQuestion);
+    }
+    
+    /**
+     * Answers the current question and updates the ability estimate
+     * @param answerIndex Index of the chosen answer, 0 to 3
+     * @return true if the answer was correct
+     * @throws IllegalStateException If no question is waiting for an answer
+     */
+    public synchronized boolean answer(int answerIndex) {
+        if (currentQuestion < 0) {
+            throw new IllegalStateException("No question to answer, call nextQuestion() first");
+        }
+        long start = System.nanoTime();
+        boolean right = questions.get(currentQuestion).isCorrectAnswer(answerIndex);
+        for (int point = 0; point < GRID_POINTS; point++) {
+            double p = engine.probability(currentQuestion, gridPoint(point));
+            logPosterior[point] += Math.log(Math.max(right ? p : 1 - p, Double.MIN_NORMAL));
+        }
+        administered[answeredCount] = currentQuestion;
+        correct[answeredCount] = right;
+        answeredCount++;
+        if (right) {
+            correctCount++;
+        }
+        currentQuestion = -1;
+        updateEstimate();
+        finished = answeredCount >= maxQuestions || standardError <= targetStandardError;
+        ANSWER.recordSince(start);
+        return right;
+    }
+    
+    /**
+     * Computes the posterior mean and standard deviation from the grid
+     */
+    private void updateEstimate() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double value : logPosterior) {
+            max = Math.max(max, value);
+        }
+        double weight = 0;
+        double sum = 0;
+        double sumSquares = 0;
+        for (int point = 0; point < GRID_POINTS; point++) {
+            double theta = gridPoint(point);
+            double w = Math.exp(logPosterior[point] - max); // scaled so the largest weight is 1
+            weight += w;
+            sum += w * theta;
+            sumSquares += w * theta * theta;
+        }
+        ability = sum / weight;
+        standardError = Math.sqrt(Math.max(0, sumSquares / weight - ability * ability));
+    }
+    
+    /**
+     * Gets the ability of a grid point
+     * @param point Index of the grid point
+     * @return Ability between -4 and 4
+     */
+    private static double gridPoint(int point) {
+        return AdaptiveTestEngine.MIN_ABILITY + point * GRID_STEP;
+    }
+    
+    /**
+     * Tells whether a question was already asked
+     * @param item Index of the question
+     * @return true if it was asked in this test
+     */
+    private boolean wasAsked(int item) {
+        int mask = askedSet.length - 1;
+        for (int slot = (item * 0x9E3779B9) >>> 7 & mask; askedSet[slot] != -1; slot = (slot + 1) & mask) {
+            if (askedSet[slot] == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Adds a question to the asked set
+     * @param item Index of the question
+     */
+    private void markAsked(int item) {
+        int mask = askedSet.length - 1;
+        int slot = (item * 0x9E3779B9) >>> 7 & mask;
+        while (askedSet[slot] != -1) {
+            slot = (slot + 1) & mask;
+        }
+        askedSet[slot] = item;
+    }
+    
+    /**
+     * Gets the question waiting for an answer
+     * @return The current question, or null if none is waiting
+     */
+    public synchronized Question getCurrentQuestion() {
+        return currentQuestion < 0 ? null : questions.get(currentQuestion);
+    }
+    
+    /**
+     * Gets the current ability estimate
+     * @return Posterior mean ability, 0 before the first answer
+     */
+    public synchronized double getAbility() {
+        return ability;
+    }
+    
+    /**
+     * Gets the precision of the ability estimate
+     * @return Posterior standard deviation, 1 before the first answer
+     */
+    public synchronized double getStandardError() {
+        return standardError;
+    }
+    
+    /**
+     * Gets the number of answered questions
+     * @return Number of answers
+     */
+    public synchronized int getAnsweredCount() {
+        return answeredCount;
+    }
+    
+    /**
+     * Gets the number of correct answers
+     * @return Number of correct answers
+     */
+    public synchronized int getCorrectCount() {
+        return correctCount;
+    }
+    
+    /**
+     * Gets the maximum number of questions of this test
+     * @return Maximum number of questions
+     */
+    public int getMaxQuestions() {
+        return maxQuestions;
+    }
+    
+    /**
+     * Gets the index in the bank of an answered question
+     * @param position Position in the test, starting at 0
+     * @return Index of the question in the bank
+     */
+    public synchronized int getAdministeredQuestion(int position) {
+        return administered[position];
+    }
+    
+    /**
+     * Tells whether an answered question was answered correctly
+     * @param position Position in the test, starting at 0
+     * @return true if the answer was correct
+     */
+    public synchronized boolean wasCorrect(int position) {
+        return correct[position];
+    }
+    
+    /**
+     * Tells whether the test is over
+     * @return true once the maximum number of questions was answered, the target precision was reached
+     *         or the bank ran out of questions
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+}
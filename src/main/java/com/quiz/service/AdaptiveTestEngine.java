@@ -0,0 +1,466 @@
+package com.quiz.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+/**
+ * Item parameters of a question bank under the three-parameter logistic (3PL) model of item response theory,
+ * with an index for picking the most informative question at an ability estimate
+ * The chance that a candidate of ability theta answers item i correctly is
+ * <pre>
+ * P(theta) = c + (1 - c) / (1 + exp(-1.7 a (theta - b)))
+ * </pre>
+ * with discrimination a, difficulty b and guessing c. Items with the same parameters are interchangeable and
+ * are grouped into one class, so an uncalibrated bank where every item has the defaults is a single class.
+ *
+ * The ability scale from -4 to 4 is split into bands. For every band the index keeps the classes with the
+ * highest upper bound of information anywhere in the band, best first. Selection walks the band of the current
+ * estimate and stops as soon as the next bound cannot beat the best item found, which on a large calibrated
+ * bank means a few dozen information evaluations instead of one per item. Instances never change once built.
+ */
+public class AdaptiveTestEngine {
+    /** Scaling constant that makes the logistic curve match the normal ogive */
+    public static final double SCALING = 1.7;
+    /** Discrimination of items without enough responses to calibrate */
+    public static final float DEFAULT_DISCRIMINATION = 1.0f;
+    /** Difficulty of items without enough responses to calibrate */
+    public static final float DEFAULT_DIFFICULTY = 0.0f;
+    /** Guessing parameter of four-choice items */
+    public static final float DEFAULT_GUESSING = 0.25f;
+    /** Number of responses a question needs before its parameters are estimated from them */
+    public static final int MIN_CALIBRATION_RESPONSES = 30;
+    
+    static final double MIN_ABILITY = -4.0;
+    static final double MAX_ABILITY = 4.0;
+    private static final int BANDS = 64;
+    private static final double BAND_WIDTH = (MAX_ABILITY - MIN_ABILITY) / BANDS;
+    private static final int BAND_CAPACITY = 1024; // classes kept per band
+    private static final float PARAMETER_STEP = 0.001f; // parameters are rounded to this, so near-equal items share a class
+    // Largest value of x^2 e^x / (1 + e^x)^2: no item gives more than this over d^2 at a distance d from its difficulty
+    private static final double MAX_SCALED_INFORMATION = 0.44;
+    private static final LatencyHistogram SELECT = MetricsRegistry.getInstance().histogram("adaptive.select");
+    private static final LongAdder FULL_SCANS = MetricsRegistry.getInstance().counter("adaptive.fullScans");
+    
+    private final int itemCount;
+    private final float[] discrimination; // per class
+    private final float[] difficulty;
+    private final float[] guessing;
+    private final int[] classStart; // members of class k are members[classStart[k]] to members[classStart[k + 1] - 1]
+    private final int[] members; // item indexes grouped by class, ascending within a class
+    private final int[] itemClass; // class of every item
+    private final int[] bandStart; // entries of band j are bandClass[bandStart[j]] to bandClass[bandStart[j + 1] - 1]
+    private final int[] bandClass;
+    private final float[] bandBound; // upper bound of information in the band, descending within a band
+    private final float[] restBound; // per band, bound of the classes that did not make the list, -1 if none
+    
+    /**
+     * Constructor for a bank with known item parameters
+     * @param discrimination Discrimination a of every item, clamped to 0.2 to 3
+     * @param difficulty Difficulty b of every item, clamped to -6 to 6
+     * @param guessing Guessing parameter c of every item, clamped to 0 to 0.5
+     * @throws IllegalArgumentException If the arrays differ in length
+     */
+    public AdaptiveTestEngine(float[] discrimination, float[] difficulty, float[] guessing) {
+        if (difficulty.length != discrimination.length || guessing.length != discrimination.length) {
+            throw new IllegalArgumentException("Parameter arrays differ in length");
+        }
+        this.itemCount = discrimination.length;
+        
+        // Group items by their rounded parameters
+        Map<Long, Integer> classes = new HashMap<>();
+        this.itemClass = new int[itemCount];
+        int[] sizes = new int[Math.max(16, itemCount)];
+        float[] a = new float[sizes.length];
+        float[] b = new float[sizes.length];
+        float[] c = new float[sizes.length];
+        for (int item = 0; item < itemCount; item++) {
+            int ai = Math.round(clamp(discrimination[item], 0.2f, 3.0f) / PARAMETER_STEP);
+            int bi = Math.round((clamp(difficulty[item], -6.0f, 6.0f) + 6.0f) / PARAMETER_STEP);
+            int ci = Math.round(clamp(guessing[item], 0.0f, 0.5f) / PARAMETER_STEP);
+            long key = ((long) ai << 40) | ((long) bi << 20) | ci;
+            Integer known = classes.putIfAbsent(key, classes.size());
+            int k = known != null ? known : classes.size() - 1;
+            if (known == null) {
+                a[k] = ai * PARAMETER_STEP;
+                b[k] = bi * PARAMETER_STEP - 6.0f;
+                c[k] = ci * PARAMETER_STEP;
+            }
+            itemClass[item] = k;
+            sizes[k]++;
+        }
+        int classCount = classes.size();
+        this.discrimination = Arrays.copyOf(a, classCount);
+        this.difficulty = Arrays.copyOf(b, classCount);
+        this.guessing = Arrays.copyOf(c, classCount);
+        this.classStart = new int[classCount + 1];
+        for (int k = 0; k < classCount; k++) {
+            classStart[k + 1] = classStart[k] + sizes[k];
+        }
+        this.members = new int[itemCount];
+        int[] fill = Arrays.copyOf(classStart, classCount);
+        for (int item = 0; item < itemCount; item++) {
+            members[fill[itemClass[item]]++] = item;
+        }
+        
+        // Keep the best classes of every band
+        this.bandStart = new int[BANDS + 1];
+        this.restBound = new float[BANDS];
+        int capacity = Math.min(BAND_CAPACITY, classCount);
+        this.bandClass = new int[BANDS * capacity];
+        this.bandBound = new float[BANDS * capacity];
+        double[] peak = new double[classCount];
+        double[] peakInformation = new double[classCount];
+        for (int k = 0; k < classCount; k++) {
+            peak[k] = peakAbility(k);
+            peakInformation[k] = peakInformation(k);
+        }
+        TopClasses top = new TopClasses(capacity);
+        for (int band = 0; band < BANDS; band++) {
+            double low = MIN_ABILITY + band * BAND_WIDTH;
+            double high = MIN_ABILITY + (band + 1) * BAND_WIDTH;
+            top.clear();
+            for (int k = 0; k < classCount; k++) {
+                // Information rises up to the peak and falls after it, so its maximum over the band is at the
+                // peak or at the band edge nearest to it
+                double itemDifficulty = this.difficulty[k];
+                double far = itemDifficulty < low ? low - itemDifficulty : itemDifficulty > high ? itemDifficulty - high : 0;
+                if (top.isFull() && Math.min(peakInformation[k], MAX_SCALED_INFORMATION / (far * far)) <= top.min()) {
+                    continue; // cannot make the list, skip the exponential
+                }
+                double bound = peak[k] < low ? information(k, low) : peak[k] > high ? information(k, high) : peakInformation[k];
+                top.offer(k, Math.nextUp((float) bound));
+            }
+            bandStart[band + 1] = bandStart[band] + top.size();
+            restBound[band] = top.drainTo(bandClass, bandBound, bandStart[band], classCount);
+        }
+    }
+    
+    /**
+     * Estimates item parameters from the responses recorded for a quiz
+     * Questions with fewer than MIN_CALIBRATION_RESPONSES responses keep the default parameters. For the others
+     * the guessing parameter stays at 0.25, the discrimination comes from the point-biserial correlation r as
+     * r / sqrt(1 - r^2), and the difficulty from the share p of correct answers corrected for guessing,
+     * using the approximations of Lord (1980)
+     * @param questionCount Number of questions in the bank
+     * @param statistics Responses recorded for the bank
+     * @return An engine over the calibrated items
+     */
+    public static AdaptiveTestEngine calibrate(int questionCount, ItemStatistics statistics) {
+        float[] a = new float[questionCount];
+        float[] b = new float[questionCount];
+        float[] c = new float[questionCount];
+        Arrays.fill(a, DEFAULT_DISCRIMINATION);
+        Arrays.fill(b, DEFAULT_DIFFICULTY);
+        Arrays.fill(c, DEFAULT_GUESSING);
+        int calibrated = Math.min(questionCount, statistics.getCapacity());
+        List<ItemStatistics.Item> items = statistics.snapshot(calibrated);
+        for (ItemStatistics.Item item : items) {
+            if (item.getResponses() < MIN_CALIBRATION_RESPONSES) {
+                continue;
+            }
+            double r = item.getPointBiserial();
+            double correctedShare = (item.getDifficulty() - DEFAULT_GUESSING) / (1 - DEFAULT_GUESSING);
+            double p = Math.min(Math.max(correctedShare, 0.02), 0.98);
+            double correlation = Double.isNaN(r) ? Math.sqrt(0.5) : Math.min(Math.max(r, 0.1), 0.9); // sqrt(0.5) gives a = 1
+            int index = item.getQuestionIndex();
+            a[index] = (float) (correlation / Math.sqrt(1 - correlation * correlation));
+            b[index] = (float) (Math.log((1 - p) / p) / (SCALING * correlation));
+        }
+        return new AdaptiveTestEngine(a, b, c);
+    }
+    
+    /**
+     * Gets the number of items in the bank
+     * @return Number of items
+     */
+    public int size() {
+        return itemCount;
+    }
+    
+    /**
+     * Gets the number of distinct parameter sets in the bank
+     * @return Number of item classes
+     */
+    public int getClassCount() {
+        return discrimination.length;
+    }
+    
+    /**
+     * Gets the discrimination of an item
+     * @param item Index of the item
+     * @return Parameter a, rounded to 0.001
+     */
+    public float getDiscrimination(int item) {
+        return discrimination[itemClass[item]];
+    }
+    
+    /**
+     * Gets the difficulty of an item
+     * @param item Index of the item
+     * @return Parameter b, rounded to 0.001
+     */
+    public float getDifficulty(int item) {
+        return difficulty[itemClass[item]];
+    }
+    
+    /**
+     * Gets the guessing parameter of an item
+     * @param item Index of the item
+     * @return Parameter c, rounded to 0.001
+     */
+    public float getGuessing(int item) {
+        return guessing[itemClass[item]];
+    }
+    
+    /**
+     * Gets the chance that a candidate answers an item correctly
+     * @param item Index of the item
+     * @param ability Ability of the candidate
+     * @return Probability of a correct answer
+     */
+    public double probability(int item, double ability) {
+        return classProbability(itemClass[item], ability);
+    }
+    
+    /**
+     * Gets the Fisher information an item gives about an ability
+     * @param item Index of the item
+     * @param ability The ability
+     * @return Information, the inverse of the variance the item alone would leave
+     */
+    public double getInformation(int item, double ability) {
+        return information(itemClass[item], ability);
+    }
+    
+    /**
+     * Finds the item that gives the most information at an ability estimate
+     * @param ability The current ability estimate, estimates beyond -4 to 4 count as the nearest end of the scale
+     * @param excluded Tells which items were already administered and must be skipped
+     * @return Index of the most informative remaining item, or -1 if every item is excluded
+     */
+    public int select(double ability, IntPredicate excluded) {
+        long start = System.nanoTime();
+        ability = Math.min(Math.max(ability, MIN_ABILITY), MAX_ABILITY);
+        int band = Math.min((int) ((ability - MIN_ABILITY) / BAND_WIDTH), BANDS - 1);
+        int bestItem = -1;
+        double best = -1;
+        for (int entry = bandStart[band]; entry < bandStart[band + 1]; entry++) {
+            if (bandBound[entry] <= best) {
+                SELECT.recordSince(start);
+                return bestItem; // no later class in the band can do better
+            }
+            int k = bandClass[entry];
+            double information = information(k, ability);
+            if (information > best) {
+                int item = firstRemaining(k, excluded);
+                if (item >= 0) {
+                    bestItem = item;
+                    best = information;
+                }
+            }
+        }
+        if (restBound[band] > best) {
+            // Everything on the list was taken or beaten by its bound, look at every class
+            FULL_SCANS.increment();
+            for (int k = 0; k < discrimination.length; k++) {
+                double information = information(k, ability);
+                if (information > best) {
+                    int item = firstRemaining(k, excluded);
+                    if (item >= 0) {
+                        bestItem = item;
+                        best = information;
+                    }
+                }
+            }
+        }
+        SELECT.recordSince(start);
+        return bestItem;
+    }
+    
+    /**
+     * Gets the first item of a class that is not excluded
+     * @param k The class
+     * @param excluded Tells which items must be skipped
+     * @return Item index, or -1 if every member is excluded
+     */
+    private int firstRemaining(int k, IntPredicate excluded) {
+        for (int i = classStart[k]; i < classStart[k + 1]; i++) {
+            if (!excluded.test(members[i])) {
+                return members[i];
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Gets the chance of a correct answer to the items of a class
+     * @param k The class
+     * @param ability Ability of the candidate
+     * @return Probability of a correct answer
+     */
+    private double classProbability(int k, double ability) {
+        double c = guessing[k];
+        return c + (1 - c) / (1 + Math.exp(-SCALING * discrimination[k] * (ability - difficulty[k])));
+    }
+    
+    /**
+     * Gets the information the items of a class give about an ability
+     * @param k The class
+     * @param ability The ability
+     * @return Fisher information
+     */
+    private double information(int k, double ability) {
+        double scale = SCALING * discrimination[k];
+        double c = guessing[k];
+        double p = classProbability(k, ability);
+        double above = (p - c) / (1 - c);
+        return scale * scale * (1 - p) / p * above * above;
+    }
+    
+    /**
+     * Gets the ability where the items of a class are most informative, due to Birnbaum (1968)
+     * @param k The class
+     * @return Ability at the peak of the information curve
+     */
+    private double peakAbility(int k) {
+        double c = guessing[k];
+        return difficulty[k] + Math.log((1 + Math.sqrt(1 + 8 * c)) / 2) / (SCALING * discrimination[k]);
+    }
+    
+    /**
+     * Gets the largest information the items of a class give at any ability
+     * @param k The class
+     * @return Information at the peak
+     */
+    private double peakInformation(int k) {
+        double scale = SCALING * discrimination[k];
+        double c = guessing[k];
+        return scale * scale / (8 * (1 - c) * (1 - c)) * (1 - 20 * c - 8 * c * c + Math.pow(1 + 8 * c, 1.5));
+    }
+    
+    /**
+     * Clamps a parameter to its range
+     * @param value The value
+     * @param min Lowest allowed value
+     * @param max Highest allowed value
+     * @return The clamped value, min if the value is NaN
+     */
+    private static float clamp(float value, float min, float max) {
+        return value >= min ? Math.min(value, max) : min;
+    }
+    
+    /**
+     * Bounded min-heap keeping the classes with the highest bounds seen so far
+     */
+    private static class TopClasses {
+        private final int[] classes;
+        private final float[] bounds;
+        private int size;
+        
+        /**
+         * Constructor for an empty heap
+         * @param capacity Number of classes to keep
+         */
+        TopClasses(int capacity) {
+            this.classes = new int[capacity];
+            this.bounds = new float[capacity];
+        }
+        
+        /**
+         * Empties the heap for the next band
+         */
+        void clear() {
+            size = 0;
+        }
+        
+        /**
+         * Tells whether the heap holds as many classes as it keeps
+         * @return true if full
+         */
+        boolean isFull() {
+            return size == classes.length;
+        }
+        
+        /**
+         * Gets the lowest bound kept
+         * @return The bound at the root
+         */
+        float min() {
+            return bounds[0];
+        }
+        
+        /**
+         * Gets the number of classes kept
+         * @return Number of classes
+         */
+        int size() {
+            return size;
+        }
+        
+        /**
+         * Offers a class, keeping it if its bound is among the highest
+         * @param k The class
+         * @param bound Its upper bound of information in the band
+         */
+        void offer(int k, float bound) {
+            if (size < classes.length) {
+                int i = size++;
+                while (i > 0 && bounds[(i - 1) / 2] > bound) {
+                    classes[i] = classes[(i - 1) / 2];
+                    bounds[i] = bounds[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                classes[i] = k;
+                bounds[i] = bound;
+            } else if (bound > bounds[0]) {
+                siftDown(k, bound, size);
+            }
+        }
+        
+        /**
+         * Puts a class at the root and moves it down to its place
+         * @param k The class
+         * @param bound Its bound
+         * @param length Number of heap entries
+         */
+        private void siftDown(int k, float bound, int length) {
+            int i = 0;
+            while (2 * i + 1 < length) {
+                int child = 2 * i + 1;
+                if (child + 1 < length && bounds[child + 1] < bounds[child]) {
+                    child++;
+                }
+                if (bounds[child] >= bound) {
+                    break;
+                }
+                classes[i] = classes[child];
+                bounds[i] = bounds[child];
+                i = child;
+            }
+            classes[i] = k;
+            bounds[i] = bound;
+        }
+        
+        /**
+         * Copies the kept classes out, highest bound first, and empties the heap
+         * @param toClasses Destination of the classes
+         * @param toBounds Destination of the bounds
+         * @param offset Position of the first entry in the destinations
+         * @param classCount Number of classes offered, to tell whether any was left out
+         * @return Bound of the classes left out, which is the lowest bound kept, or -1 if none was left out
+         */
+        float drainTo(int[] toClasses, float[] toBounds, int offset, int classCount) {
+            float rest = size < classCount ? bounds[0] : -1;
+            for (int length = size; length > 0; length--) {
+                toClasses[offset + length - 1] = classes[0];
+                toBounds[offset + length - 1] = bounds[0];
+                siftDown(classes[length - 1], bounds[length - 1], length - 1);
+            }
+            return rest;
+        }
+    }
+}
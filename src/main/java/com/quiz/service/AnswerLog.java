@@ -0,0 +1,538 @@
+package com.quiz.service;
+
+import com.quiz.model.QuizSnapshot;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented write-ahead log of session events
+ * Every session start, answer and finish is written as one fixed-size binary record, so the sessions
+ * that were running when the application died can be rebuilt at the next start.
+ *
+ * Appends only copy the record into a memory buffer. A single flusher thread swaps the buffer, writes it
+ * and forces it to disk, so all records appended while the previous fsync was running share the next one
+ * (group commit). Callers that need durability wait for their sequence number with awaitDurable().
+ *
+ * Record layout (32 bytes, big-endian):
+ * <pre>
+ * crc      CRC32C of the remaining 28 bytes (int)
+ * type     START, ANSWER, FINISH, QUIZ, CANDIDATE or FINGERPRINT (byte)
+ * choice   stored answer index for ANSWER (byte), 2 padding bytes
+ * session  session id (long)
+ * a, b     START: seed, start time in epoch millis; ANSWER: question position, unused;
+ *          QUIZ: catalogue id of the quiz, unused; CANDIDATE: candidate number, unused;
+ *          FINGERPRINT: question count (high int) and snapshot version (low int), content hash (2 x long)
+ * </pre>
+ * Every START record is preceded by a FINGERPRINT record of the questions the session was drawn from, and
+ * a session started on a catalogue quiz has a QUIZ record before that; all are written in the same batch.
+ * A session taken by a logged-in candidate has a CANDIDATE record after its START record.
+ * Segments are named answers-NNNNNNNNNN.log and are deleted once every session started in them has finished.
+ */
+public class AnswerLog implements Closeable {
+    /** Record type for a session start */
+    public static final byte START = 1;
+    /** Record type for a recorded answer */
+    public static final byte ANSWER = 2;
+    /** Record type for a finished session */
+    public static final byte FINISH = 3;
+    /** Record type naming the catalogue quiz of the session started by the next record */
+    public static final byte QUIZ = 4;
+    /** Record type naming the candidate who owns a session */
+    public static final byte CANDIDATE = 5;
+    /** Record type describing the questions of the session started by the next record */
+    public static final byte FINGERPRINT = 6;
+    
+    /** Default size after which a new segment is started */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    
+    private static final int RECORD_SIZE = 32;
+    private static final int BUFFER_SIZE = RECORD_SIZE * 32768; // 1 MB per buffer
+    private static final String SEGMENT_PREFIX = "answers-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    
+    private final Path directory;
+    private final long segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasRecords = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher;
+    
+    // Guarded by lock
+    private ByteBuffer active = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private ByteBuffer flushing = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean closed;
+    private IOException failure;
+    
+    // Used by the flusher thread only
+    private final TreeMap<Long, Integer> liveSessionsBySegment = new TreeMap<>();
+    private final Map<Long, Long> sessionSegments = new HashMap<>();
+    private final CRC32C crc = new CRC32C();
+    private FileChannel channel;
+    private long segmentIndex;
+    
+    /**
+     * Receives the records of the log during replay
+     */
+    public interface RecordHandler {
+        /**
+         * Called for each valid record, in log order
+         * @param type START, ANSWER, FINISH, QUIZ, CANDIDATE or FINGERPRINT
+         * @param sessionId The session the record belongs to
+         * @param choice Stored answer index for ANSWER records
+         * @param a Seed for START, question position for ANSWER, quiz id for QUIZ, candidate number for CANDIDATE,
+         *          question count shifted left by 32 or'ed with the low 32 bits of the snapshot version for FINGERPRINT
+         * @param b Start time in epoch millis for START, content hash for FINGERPRINT
+         */
+        void record(byte type, long sessionId, int choice, long a, long b);
+    }
+    
+    /**
+     * Private constructor, use open() to replay and open a log
+     */
+    private AnswerLog(Path directory, long segmentSize, long segmentIndex) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segmentIndex = segmentIndex;
+        this.channel = openSegment(segmentIndex);
+        this.flusher = new Thread(this::runFlusher, "quiz-answer-log");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+    
+    /**
+     * Replays the existing segments of a log directory and opens a new segment for appending
+     * Old segments are kept until compact() is called, after the live sessions were logged again
+     * @param directory The log directory, created if missing
+     * @param handler Receives every valid record of the existing segments
+     * @return The opened log
+     * @throws IOException If the directory cannot be read or the new segment cannot be created
+     */
+    public static AnswerLog open(Path directory, RecordHandler handler) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, handler);
+    }
+    
+    /**
+     * Replays the existing segments of a log directory and opens a new segment for appending
+     * @param directory The log directory, created if missing
+     * @param segmentSize Size in bytes after which a new segment is started
+     * @param handler Receives every valid record of the existing segments
+     * @return The opened log
+     * @throws IOException If the directory cannot be read or the new segment cannot be created
+     */
+    public static AnswerLog open(Path directory, long segmentSize, RecordHandler handler) throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> segments = listSegments(directory);
+        for (Path segment : segments.values()) {
+            replaySegment(segment, handler);
+        }
+        long next = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        return new AnswerLog(directory, segmentSize, next);
+    }
+    
+    /**
+     * Logs the start of a session
+     * The fingerprint, quiz and start records are appended together, so a crash never keeps one without the others
+     * @param sessionId The session id
+     * @param seed The session seed
+     * @param startMillis Start time in epoch millis
+     * @param quizId Catalogue id of the quiz, 0 for the current quiz
+     * @param questions The questions the session was drawn from, fingerprinted so recovery can check them
+     * @return Sequence number of the start record, for awaitDurable()
+     */
+    public long logStart(long sessionId, long seed, long startMillis, long quizId, QuizSnapshot questions) {
+        long shape = (long) questions.size() << 32 | (questions.getVersion() & 0xFFFFFFFFL);
+        long contentHash = questions.getContentHash(); // may decode every question once, keep it out of the lock
+        int records = quizId == 0 ? 2 : 3;
+        lock.lock();
+        try {
+            if (!awaitSpace(records * RECORD_SIZE)) {
+                return -1;
+            }
+            if (quizId != 0) {
+                put(QUIZ, sessionId, 0, quizId, 0);
+            }
+            put(FINGERPRINT, sessionId, 0, shape, contentHash);
+            put(START, sessionId, 0, seed, startMillis);
+            hasRecords.signal();
+            appendedSequence += records;
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Logs an answer
+     * @param sessionId The session id
+     * @param position The question position in the session
+     * @param storedChoice The stored answer index, or -1 for a cleared answer
+     * @return Sequence number of the record, for awaitDurable()
+     */
+    public long logAnswer(long sessionId, int position, int storedChoice) {
+        return append(ANSWER, sessionId, storedChoice, position, 0);
+    }
+    
+    /**
+     * Logs the candidate who owns a session
+     * @param sessionId The session id
+     * @param candidate The candidate number in the CandidateDirectory
+     * @return Sequence number of the record, for awaitDurable()
+     */
+    public long logCandidate(long sessionId, int candidate) {
+        return append(CANDIDATE, sessionId, 0, candidate, 0);
+    }
+    
+    /**
+     * Logs the end of a session
+     * @param sessionId The session id
+     * @return Sequence number of the record, for awaitDurable()
+     */
+    public long logFinish(long sessionId) {
+        return append(FINISH, sessionId, 0, 0, 0);
+    }
+    
+    /**
+     * Waits until a record has been forced to disk
+     * @param sequence Sequence number returned when the record was logged
+     * @throws IOException If the record was not accepted or the log failed before writing it
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void awaitDurable(long sequence) throws IOException, InterruptedException {
+        if (sequence < 0) {
+            throw new IOException("Record was not logged, the answer log is closed or has failed");
+        }
+        lock.lock();
+        try {
+            // The flusher drains all appended records, also when the log is being closed
+            while (durableSequence < sequence && failure == null) {
+                flushed.await();
+            }
+            if (durableSequence < sequence) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Waits until everything appended so far is durable, then deletes the segments written before this log was opened
+     * Call after the sessions recovered from replay have been logged again
+     * @throws IOException If the log failed or a segment cannot be deleted
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void compact() throws IOException, InterruptedException {
+        long sequence;
+        long firstSegment;
+        lock.lock();
+        try {
+            sequence = appendedSequence;
+            firstSegment = segmentIndex;
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+        for (Map.Entry<Long, Path> segment : listSegments(directory).headMap(firstSegment).entrySet()) {
+            Files.deleteIfExists(segment.getValue());
+        }
+    }
+    
+    /**
+     * Gets the number of records appended since the log was opened
+     * @return Sequence number of the last appended record
+     */
+    public long getAppendedCount() {
+        lock.lock();
+        try {
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Flushes the remaining records and closes the log
+     * @throws IOException If the final write fails
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            hasRecords.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * Copies a record into the active buffer, waiting if both buffers are full
+     * @return Sequence number of the record, or -1 if the log has failed or is closed
+     */
+    private long append(byte type, long sessionId, int choice, long a, long b) {
+        lock.lock();
+        try {
+            if (!awaitSpace(RECORD_SIZE)) {
+                return -1;
+            }
+            put(type, sessionId, choice, a, b);
+            hasRecords.signal();
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Waits until the active buffer has room, called with the lock held
+     * @param bytes Number of bytes needed
+     * @return false if the log is closed or has failed
+     */
+    private boolean awaitSpace(int bytes) {
+        while (active.remaining() < bytes && failure == null && !closed) {
+            flushed.awaitUninterruptibly();
+        }
+        return failure == null && !closed;
+    }
+    
+    /**
+     * Writes a record into the active buffer, called with the lock held; the CRC is filled in by the flusher
+     */
+    private void put(byte type, long sessionId, int choice, long a, long b) {
+        active.putInt(0);
+        active.put(type);
+        active.put((byte) choice);
+        active.putShort((short) 0);
+        active.putLong(sessionId);
+        active.putLong(a);
+        active.putLong(b);
+    }
+    
+    /**
+     * Flusher loop: swaps buffers, writes and forces them, and wakes the waiting appenders
+     */
+    private void runFlusher() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            lock.lock();
+            try {
+                while (active.position() == 0 && !closed) {
+                    hasRecords.awaitUninterruptibly();
+                }
+                if (active.position() == 0) {
+                    return; // Closed and drained
+                }
+                batch = active;
+                active = flushing;
+                flushing = batch;
+                batchSequence = appendedSequence;
+            } finally {
+                lock.unlock();
+            }
+            
+            try {
+                batch.flip();
+                stampAndTrack(batch);
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                batch.clear();
+                deleteFinishedSegments();
+                if (channel.size() >= segmentSize) {
+                    rollSegment();
+                }
+            } catch (IOException e) {
+                System.err.println("Answer log failed: " + e);
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            
+            lock.lock();
+            try {
+                durableSequence = batchSequence;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Computes the CRC of each record in a batch and tracks which segment holds each live session's start
+     * @param batch The records to write, positioned at the first record
+     */
+    private void stampAndTrack(ByteBuffer batch) {
+        ByteBuffer body = batch.duplicate();
+        for (int offset = batch.position(); offset < batch.limit(); offset += RECORD_SIZE) {
+            body.limit(offset + RECORD_SIZE).position(offset + 4);
+            crc.reset();
+            crc.update(body);
+            batch.putInt(offset, (int) crc.getValue());
+            
+            byte type = batch.get(offset + 4);
+            long sessionId = batch.getLong(offset + 8);
+            if (type == START) {
+                sessionSegments.put(sessionId, segmentIndex);
+                liveSessionsBySegment.merge(segmentIndex, 1, Integer::sum);
+            } else if (type == FINISH) {
+                Long segment = sessionSegments.remove(sessionId);
+                if (segment != null) {
+                    liveSessionsBySegment.merge(segment, -1, Integer::sum);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Deletes the oldest segments once every session started in them or before them has finished
+     * A live session has records in every segment from its start onwards, so only a prefix can go
+     * @throws IOException If a segment cannot be deleted
+     */
+    private void deleteFinishedSegments() throws IOException {
+        List<Long> done = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : liveSessionsBySegment.headMap(segmentIndex).entrySet()) {
+            if (entry.getValue() != 0) {
+                break;
+            }
+            done.add(entry.getKey());
+        }
+        for (Long segment : done) {
+            liveSessionsBySegment.remove(segment);
+            Files.deleteIfExists(segmentPath(segment));
+        }
+    }
+    
+    /**
+     * Closes the current segment and starts the next one
+     * @throws IOException If the new segment cannot be created
+     */
+    private void rollSegment() throws IOException {
+        channel.close();
+        segmentIndex++;
+        channel = openSegment(segmentIndex);
+        liveSessionsBySegment.putIfAbsent(segmentIndex - 1, 0);
+        deleteFinishedSegments();
+    }
+    
+    /**
+     * Creates a segment file
+     * @param index The segment number
+     * @return Channel positioned at the start of the segment
+     * @throws IOException If the file cannot be created
+     */
+    private FileChannel openSegment(long index) throws IOException {
+        return FileChannel.open(segmentPath(index), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+    
+    /**
+     * Gets the file of a segment
+     * @param index The segment number
+     * @return Path of the segment file
+     */
+    private Path segmentPath(long index) {
+        // Zero-padded by hand, String.format costs tens of milliseconds of class loading at startup
+        String number = Long.toString(index);
+        return directory.resolve(SEGMENT_PREFIX + "0000000000".substring(Math.min(number.length(), 10)) + number + SEGMENT_SUFFIX);
+    }
+    
+    /**
+     * Lists the segment files of a log directory
+     * @param directory The log directory
+     * @return Segment files by segment number
+     * @throws IOException If the directory cannot be read
+     */
+    private static TreeMap<Long, Path> listSegments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        // A name filter rather than a glob, which would compile a regex while the application starts
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, AnswerLog::isSegmentName)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long index = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                                               name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(index, file);
+                } catch (NumberFormatException e) {
+                    // Not a segment written by this class
+                }
+            }
+        }
+        return segments;
+    }
+    
+    /**
+     * Checks whether a file name looks like a segment written by this class
+     * @param file The file
+     * @return True if the name has the segment prefix and suffix
+     */
+    private static boolean isSegmentName(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)
+                && name.length() > SEGMENT_PREFIX.length() + SEGMENT_SUFFIX.length();
+    }
+    
+    /**
+     * Reads the records of a segment, stopping at the first torn or corrupt record
+     * @param segment The segment file
+     * @param handler Receives the valid records
+     * @throws IOException If the segment cannot be read
+     */
+    private static void replaySegment(Path segment, RecordHandler handler) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            while (channel.read(buffer) > 0 || buffer.position() > 0) {
+                buffer.flip();
+                if (buffer.remaining() < RECORD_SIZE) {
+                    return; // Torn record at the end of the segment
+                }
+                ByteBuffer body = buffer.duplicate();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    int offset = buffer.position();
+                    body.limit(offset + RECORD_SIZE).position(offset + 4);
+                    crc.reset();
+                    crc.update(body);
+                    if (buffer.getInt(offset) != (int) crc.getValue()) {
+                        return; // Corrupt record, nothing after it can be trusted
+                    }
+                    handler.record(buffer.get(offset + 4), buffer.getLong(offset + 8), buffer.get(offset + 5),
+                                   buffer.getLong(offset + 16), buffer.getLong(offset + 24));
+                    buffer.position(offset + RECORD_SIZE);
+                }
+                buffer.compact();
+            }
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package com.quiz.service;
+
+import com.quiz.model.BatchGrader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Grades a stream of answer sheets against an answer key in a reader, grader and writer pipeline
+ * A reader thread cuts the input into blocks at line boundaries, grader threads parse and grade blocks
+ * in parallel, and the calling thread writes the scores of each block in input order. Blocks come from
+ * a fixed pool and go back to it once written, so a slow stage holds up the ones before it instead of
+ * letting work pile up: memory stays the same whatever the size of the input.
+ *
+ * Input lines have the form candidate,answers where answers holds one character per question in quiz
+ * order: A-D (or a-d) for the chosen option, '-', '.' or a space for no answer. Missing trailing answers
+ * count as unanswered. A first line starting with "candidate," is treated as a header.
+ * Output lines have the form candidate,score,percentage.
+ * Runs and blocks are timed in the MetricsRegistry as grading.run and grading.block.
+ */
+public class AnswerSheetGrader {
+    /** Default size of the blocks the input is cut into, lines must be shorter than this */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    
+    private static final byte INVALID = -2;
+    private static final byte[] CHOICES = new byte[256]; // stored answer index per input character
+    private static final Block END = new Block(0, 0);
+    private static final LatencyHistogram RUN_LATENCY = MetricsRegistry.getInstance().histogram("grading.run");
+    private static final LatencyHistogram BLOCK_LATENCY = MetricsRegistry.getInstance().histogram("grading.block");
+    private static final LongAdder GRADED_SHEETS = MetricsRegistry.getInstance().counter("grading.sheets");
+    private static final LongAdder REJECTED_SHEETS = MetricsRegistry.getInstance().counter("grading.rejected");
+    
+    static {
+        Arrays.fill(CHOICES, INVALID);
+        for (int i = 0; i < 4; i++) {
+            CHOICES['A' + i] = (byte) i;
+            CHOICES['a' + i] = (byte) i;
+        }
+        CHOICES['-'] = QuizSession.NO_ANSWER;
+        CHOICES['.'] = QuizSession.NO_ANSWER;
+        CHOICES[' '] = QuizSession.NO_ANSWER;
+    }
+    
+    private final byte[] answerKey;
+    private final int workers;
+    private final int blockSize;
+    private final int blockCount;
+    
+    /**
+     * Constructor with one grader per processor and the default block size
+     * @param answerKey Correct answer index per question
+     */
+    public AnswerSheetGrader(byte[] answerKey) {
+        this(answerKey, Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * Constructor with a custom number of graders and block size
+     * @param answerKey Correct answer index per question
+     * @param workers Number of grader threads
+     * @param blockSize Size of the input blocks in bytes
+     */
+    public AnswerSheetGrader(byte[] answerKey, int workers, int blockSize) {
+        if (answerKey.length == 0) {
+            throw new IllegalArgumentException("The answer key has no questions");
+        }
+        if (workers <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("Worker count and block size must be positive");
+        }
+        this.answerKey = answerKey.clone();
+        this.workers = workers;
+        this.blockSize = blockSize;
+        this.blockCount = workers * 2 + 2; // enough for every stage to have the next block ready
+    }
+    
+    /**
+     * Grades a file of answer sheets into a file of scores
+     * @param sheets The answer sheet file
+     * @param scores The score file, replaced if it exists
+     * @return Report with the score distribution, item analysis and rejected lines
+     * @throws IOException If a file cannot be read or written
+     */
+    public GradingReport gradeFile(Path sheets, Path scores) throws IOException {
+        try (InputStream input = Files.newInputStream(sheets);
+             OutputStream output = Files.newOutputStream(scores)) {
+            return grade(input, output);
+        }
+    }
+    
+    /**
+     * Grades answer sheets from a stream
+     * @param input The answer sheets, it is not closed
+     * @param output Receives one score line per graded sheet in input order, it is not closed
+     * @return Report with the score distribution, item analysis and rejected lines
+     * @throws IOException If reading or writing fails
+     */
+    public GradingReport grade(InputStream input, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        BlockingQueue<Block> free = new ArrayBlockingQueue<>(blockCount);
+        BlockingQueue<Block> toGrade = new ArrayBlockingQueue<>(blockCount + workers);
+        // Room for every block, every end marker and one failure per stage, so handing over never blocks
+        BlockingQueue<Block> toWrite = new ArrayBlockingQueue<>(blockCount + 2 * workers + 1);
+        for (int i = 0; i < blockCount; i++) {
+            free.add(new Block(blockSize, answerKey.length * 2));
+        }
+        AtomicLong bytesRead = new AtomicLong();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService threads = Executors.newFixedThreadPool(workers + 1, task -> {
+            Thread thread = new Thread(task, "sheet-grading-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            threads.execute(() -> {
+                try {
+                    read(input, free, toGrade, bytesRead);
+                } catch (Throwable e) {
+                    toWrite.offer(Block.failed(e));
+                }
+            });
+            List<Future<Grader>> graders = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                graders.add(threads.submit(() -> {
+                    Grader grader = new Grader();
+                    try {
+                        grader.run(toGrade, toWrite);
+                    } catch (Throwable e) {
+                        toWrite.offer(Block.failed(e));
+                    }
+                    return grader;
+                }));
+            }
+            
+            GradingReport report = new GradingReport(answerKey.length);
+            write(output, free, toWrite, report);
+            ItemStatistics statistics = new ItemStatistics();
+            for (Future<Grader> future : graders) {
+                Grader grader = future.get();
+                statistics.add(grader.tally);
+                report.addScores(grader.scoreCounts);
+            }
+            report.finish(bytesRead.get(), System.nanoTime() - start, statistics.snapshot(answerKey.length));
+            RUN_LATENCY.recordSince(start);
+            GRADED_SHEETS.add(report.getSheetCount());
+            REJECTED_SHEETS.add(report.getErrorCount());
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while grading", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Grading failed", e.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+    
+    /**
+     * Reader stage, cuts the input into blocks that end at a line boundary
+     */
+    private void read(InputStream input, BlockingQueue<Block> free, BlockingQueue<Block> toGrade,
+                      AtomicLong bytesRead) throws IOException, InterruptedException {
+        byte[] carry = new byte[blockSize]; // start of a line cut off at the end of the previous block
+        int carried = 0;
+        long sequence = 0;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            Block block = free.take();
+            System.arraycopy(carry, 0, block.in, 0, carried);
+            int length = carried;
+            while (length < blockSize) {
+                int read = input.read(block.in, length, blockSize - length);
+                if (read < 0) {
+                    endOfInput = true;
+                    break;
+                }
+                length += read;
+                bytesRead.addAndGet(read);
+            }
+            int end = length;
+            if (!endOfInput) {
+                while (end > 0 && block.in[end - 1] != '\n') {
+                    end--;
+                }
+                if (end == 0) {
+                    throw new IOException("A line is longer than the block size of " + blockSize + " bytes");
+                }
+            }
+            carried = length - end;
+            System.arraycopy(block.in, end, carry, 0, carried);
+            block.reset(sequence++, end);
+            toGrade.put(block);
+        }
+        for (int i = 0; i < workers; i++) {
+            toGrade.put(END);
+        }
+    }
+    
+    /**
+     * Writer stage, writes graded blocks in input order and returns them to the pool
+     */
+    private void write(OutputStream output, BlockingQueue<Block> free, BlockingQueue<Block> toWrite,
+                       GradingReport report) throws IOException, InterruptedException {
+        Block[] waiting = new Block[blockCount]; // graded out of order, by sequence modulo the pool size
+        long next = 0;
+        long lineBase = 0;
+        int finishedGraders = 0;
+        while (finishedGraders < workers) {
+            Block block = toWrite.take();
+            if (block.failure != null) {
+                throw block.failure instanceof IOException ? (IOException) block.failure
+                        : new IOException("Grading failed", block.failure);
+            }
+            if (block == END) {
+                finishedGraders++;
+                continue;
+            }
+            waiting[(int) (block.sequence % blockCount)] = block;
+            Block ready;
+            while ((ready = waiting[(int) (next % blockCount)]) != null) {
+                waiting[(int) (next % blockCount)] = null;
+                output.write(ready.out, 0, ready.outLength);
+                for (int i = 0; i < ready.errorLines.size(); i++) {
+                    report.error(lineBase + ready.errorLines.get(i), ready.errorMessages.get(i));
+                }
+                lineBase += ready.lineCount;
+                next++;
+                free.put(ready);
+            }
+        }
+        output.flush();
+    }
+    
+    /**
+     * Grader stage, parses and grades whole blocks; each grader keeps its own statistics
+     */
+    private final class Grader {
+        private final ItemStatistics.Tally tally = new ItemStatistics.Tally(answerKey.length);
+        private final long[] scoreCounts = new long[answerKey.length + 1];
+        private final byte[] row = new byte[answerKey.length];
+        
+        /**
+         * Grades blocks until the reader runs out of input
+         * @param toGrade Blocks read from the input
+         * @param toWrite Graded blocks
+         * @throws InterruptedException If the pipeline is shut down
+         */
+        void run(BlockingQueue<Block> toGrade, BlockingQueue<Block> toWrite) throws InterruptedException {
+            while (true) {
+                Block block = toGrade.take();
+                if (block == END) {
+                    toWrite.put(END);
+                    return;
+                }
+                grade(block);
+                toWrite.put(block);
+            }
+        }
+        
+        /**
+         * Grades every line of a block
+         * @param block The block, its score lines and errors are filled in
+         */
+        private void grade(Block block) {
+            long start = System.nanoTime();
+            byte[] in = block.in;
+            int position = 0;
+            int line = 0;
+            while (position < block.length) {
+                int end = position;
+                while (end < block.length && in[end] != '\n') {
+                    end++;
+                }
+                line++;
+                int next = end + 1;
+                if (end > position && in[end - 1] == '\r') {
+                    end--;
+                }
+                boolean header = block.sequence == 0 && line == 1 && startsWith(in, position, end, "candidate,");
+                if (end > position && !header) {
+                    String error = gradeLine(block, position, end);
+                    if (error != null) {
+                        block.errorLines.add(line);
+                        block.errorMessages.add(error);
+                    }
+                }
+                position = next;
+            }
+            block.lineCount = line;
+            BLOCK_LATENCY.recordSince(start);
+        }
+        
+        /**
+         * Grades one answer sheet and appends its score line to the block
+         * @return null if the sheet was graded, otherwise why it was rejected
+         */
+        private String gradeLine(Block block, int from, int to) {
+            byte[] in = block.in;
+            int comma = from;
+            while (comma < to && in[comma] != ',') {
+                comma++;
+            }
+            if (comma == to) {
+                return "Expected candidate,answers";
+            }
+            int count = to - comma - 1;
+            if (count > row.length) {
+                return count + " answers for " + row.length + " questions";
+            }
+            for (int q = 0; q < count; q++) {
+                byte choice = CHOICES[in[comma + 1 + q] & 0xFF];
+                if (choice == INVALID) {
+                    return "Invalid answer '" + (char) (in[comma + 1 + q] & 0xFF) + "' for question " + (q + 1)
+                            + ", use A-D or - for none";
+                }
+                row[q] = choice;
+            }
+            Arrays.fill(row, count, row.length, (byte) QuizSession.NO_ANSWER);
+            
+            int score = BatchGrader.gradeRow(answerKey, row, 0);
+            tally.record(answerKey, row, 0, score);
+            scoreCounts[score]++;
+            block.appendScore(in, from, comma, score, row.length);
+            return null;
+        }
+    }
+    
+    /**
+     * Checks whether a byte range starts with an ASCII prefix
+     */
+    private static boolean startsWith(byte[] bytes, int from, int to, String prefix) {
+        if (to - from < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * A block of input lines and the score lines graded from them, reused through the pool
+     */
+    private static final class Block {
+        private final byte[] in;
+        private byte[] out;
+        private int length; // bytes of whole lines in the input buffer
+        private int outLength;
+        private long sequence;
+        private int lineCount;
+        private final List<Integer> errorLines = new ArrayList<>(); // line numbers within the block
+        private final List<String> errorMessages = new ArrayList<>();
+        private Throwable failure; // set on the marker a failed stage hands to the writer
+        
+        /**
+         * Constructor for an empty block
+         * @param inputSize Size of the input buffer
+         * @param outputSize Initial size of the output buffer, it grows as needed
+         */
+        Block(int inputSize, int outputSize) {
+            this.in = new byte[inputSize];
+            this.out = new byte[outputSize];
+        }
+        
+        /**
+         * Creates the marker that tells the writer a stage failed
+         * @param failure The error of the stage
+         * @return The marker block
+         */
+        static Block failed(Throwable failure) {
+            Block block = new Block(0, 0);
+            block.failure = failure;
+            return block;
+        }
+        
+        /**
+         * Prepares the block for new input
+         * @param newSequence Position of the block in the input
+         * @param newLength Bytes of whole lines read into the input buffer
+         */
+        void reset(long newSequence, int newLength) {
+            sequence = newSequence;
+            length = newLength;
+            outLength = 0;
+            lineCount = 0;
+            errorLines.clear();
+            errorMessages.clear();
+        }
+        
+        /**
+         * Appends a line of the form candidate,score,percentage
+         */
+        void appendScore(byte[] source, int idFrom, int idTo, int score, int questionCount) {
+            int idLength = idTo - idFrom;
+            if (outLength + idLength + 32 > out.length) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, outLength + idLength + 32));
+            }
+            System.arraycopy(source, idFrom, out, outLength, idLength);
+            outLength += idLength;
+            out[outLength++] = ',';
+            appendNumber(score);
+            out[outLength++] = ',';
+            int tenths = (score * 1000 + questionCount / 2) / questionCount; // percentage rounded to 0.1
+            appendNumber(tenths / 10);
+            out[outLength++] = '.';
+            out[outLength++] = (byte) ('0' + tenths % 10);
+            out[outLength++] = '\n';
+        }
+        
+        /**
+         * Appends a non-negative number in decimal
+         */
+        private void appendNumber(int value) {
+            int digits = 1;
+            for (int rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            for (int i = outLength + digits - 1; i >= outLength; i--) {
+                out[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            outLength += digits;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.quiz.service;
+
+/**
+ * Outcome of a password check made through AuthenticationService
+ */
+public final class AuthenticationResult {
+    
+    /**
+     * What happened to the attempt
+     */
+    public enum Status {
+        /** The password matched, getToken() holds a session token */
+        SUCCESS,
+        /** The user is unknown or the password did not match */
+        FAILED,
+        /** Too many attempts for this user, try again after getRetryAfterMillis() */
+        THROTTLED,
+        /** Every verification worker is busy and the queue is full */
+        BUSY
+    }
+    
+    private static final AuthenticationResult FAILED = new AuthenticationResult(Status.FAILED, null, 0);
+    private static final AuthenticationResult BUSY = new AuthenticationResult(Status.BUSY, null, 0);
+    
+    private final Status status;
+    private final String token;
+    private final long retryAfterMillis;
+    
+    /**
+     * Private constructor, use the factory methods
+     */
+    private AuthenticationResult(Status status, String token, long retryAfterMillis) {
+        this.status = status;
+        this.token = token;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    /**
+     * Creates the result of a matching password
+     * @param token The session token issued for it
+     * @return The result
+     */
+    static AuthenticationResult success(String token) {
+        return new AuthenticationResult(Status.SUCCESS, token, 0);
+    }
+    
+    /**
+     * Gets the result of a wrong password or unknown user
+     * @return The result
+     */
+    static AuthenticationResult failed() {
+        return FAILED;
+    }
+    
+    /**
+     * Creates the result of an attempt refused by the rate limiter
+     * @param retryAfterMillis Time until the next attempt is allowed
+     * @return The result
+     */
+    static AuthenticationResult throttled(long retryAfterMillis) {
+        return new AuthenticationResult(Status.THROTTLED, null, retryAfterMillis);
+    }
+    
+    /**
+     * Gets the result of an attempt that could not be queued
+     * @return The result
+     */
+    static AuthenticationResult busy() {
+        return BUSY;
+    }
+    
+    /**
+     * Gets what happened to the attempt
+     * @return The status
+     */
+    public Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * Checks whether the password matched
+     * @return true for SUCCESS
+     */
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+    
+    /**
+     * Gets the session token, which stands in for the password until it expires
+     * @return The token, or null unless the attempt succeeded
+     */
+    public String getToken() {
+        return token;
+    }
+    
+    /**
+     * Gets how long to wait before the next attempt
+     * @return Milliseconds, 0 unless the attempt was throttled
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -1,17 +1,95 @@
 package com.quiz.service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Service class for handling authentication operations
- * This class manages admin password verification and security
+ * Passwords are kept as salted PBKDF2 hashes in a CredentialStore. The store is the file named by
+ * -Dquiz.credentials.file, or DEFAULT_CREDENTIALS_FILE without it; the applications point it next to
+ * their question bank.
+ * Hashing is slow on purpose, so passwords are checked on a small bounded pool of worker threads and
+ * never on the caller's thread. A per-user token bucket refuses guessing before any hashing, and a
+ * successful check issues a session token that stands in for the password for a few minutes.
+ *
+ * Once a candidate file is opened, candidates log in with their id and access code (see CandidateDirectory)
+ * and get a signed CandidateTokens token, which each request of their session is checked against.
  */
 public class AuthenticationService {
-    private static AuthenticationService instance;
-    private final String ADMIN_PASSWORD = "admin123"; // In a real app, this should be encrypted and stored securely
+    /** User name of the administrator */
+    public static final String ADMIN_USER = "admin";
+    /** System property naming the credential file */
+    public static final String CREDENTIALS_PROPERTY = "quiz.credentials.file";
+    /** Credential file used when the property is not set */
+    public static final Path DEFAULT_CREDENTIALS_FILE = Paths.get(System.getProperty("user.home"), ".quiz", "credentials");
+    /** System property naming the candidate file */
+    public static final String CANDIDATES_PROPERTY = "quiz.candidates.file";
+    /** How long a session token stays valid */
+    public static final long SESSION_MILLIS = 5 * 60 * 1000;
+    
+    // The default password "admin123" until it is changed, hashed ahead so that startup does not hash anything
+    private static final String DEFAULT_ADMIN_HASH =
+            "pbkdf2-sha256$600000$GzO3zTw8FcuBDCTWg9nE2g$uSIBd7r/Uy7l5yzhRAZ5VxjLjjEcy2U5O3hya1JId9Y";
+    private static final String BEARER = "Bearer ";
+    private static final int MAX_QUEUED_CHECKS = 16;
+    private static final int MAX_SESSIONS = 10_000;
+    private static final int ATTEMPT_BURST = 5;
+    private static final long ATTEMPT_REFILL_MILLIS = 30_000;
+    private static final int CANDIDATE_ID_BURST = 50; // per id from all addresses, so one address cannot lock a candidate out
+    
+    private static final LatencyHistogram VERIFY_LATENCY = MetricsRegistry.getInstance().histogram("auth.verify");
+    private static final LatencyHistogram CANDIDATE_LOGIN_LATENCY =
+            MetricsRegistry.getInstance().histogram("auth.candidateLogin");
+    private static final LongAdder FAILED_LOGINS = MetricsRegistry.getInstance().counter("auth.failed");
+    private static final LongAdder THROTTLED_LOGINS = MetricsRegistry.getInstance().counter("auth.throttled");
+    private static final LongAdder REJECTED_LOGINS = MetricsRegistry.getInstance().counter("auth.rejected");
+    
+    private final CredentialStore credentials;
+    private final LoginRateLimiter rateLimiter = new LoginRateLimiter(ATTEMPT_BURST, ATTEMPT_REFILL_MILLIS);
+    private final ThreadPoolExecutor verifier;
+    private final Map<String, Long> sessions = new ConcurrentHashMap<>(); // token to expiry in System.nanoTime()
+    private final SecureRandom random = new SecureRandom();
+    // Candidate attempts are limited per id and address, and more loosely per id alone
+    private final LoginRateLimiter candidateRateLimiter = new LoginRateLimiter(ATTEMPT_BURST, ATTEMPT_REFILL_MILLIS);
+    private final LoginRateLimiter candidateIdRateLimiter = new LoginRateLimiter(CANDIDATE_ID_BURST, ATTEMPT_REFILL_MILLIS);
+    private final CandidateTokens candidateTokens = new CandidateTokens(CandidateTokens.DEFAULT_LIFETIME_SECONDS);
+    private volatile CandidateDirectory candidates; // null while candidates take quizzes anonymously
+    // Checked when a user is unknown, so unknown and known users take equally long
+    private final PasswordHash unknownUserHash = PasswordHash.decode(DEFAULT_ADMIN_HASH);
     
     /**
      * Private constructor for singleton pattern
      */
     private AuthenticationService() {
+        this.credentials = openCredentials();
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.verifier = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_CHECKS), task -> {
+                    Thread thread = new Thread(task, "password-check-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    /**
+     * Holder class, the JVM initializes it exactly once on first use
+     */
+    private static class Holder {
+        private static final AuthenticationService INSTANCE = new AuthenticationService();
     }
     
     /**
@@ -19,44 +97,280 @@ public class AuthenticationService {
      * @return The AuthenticationService instance
      */
     public static AuthenticationService getInstance() {
-        if (instance == null) {
-            instance = new AuthenticationService();
+        return Holder.INSTANCE;
+    }
+    
+    /**
+     * Opens the credential file named by -Dquiz.credentials.file, with the default admin password if it has none
+     * A file that cannot be read leaves admin login disabled rather than falling back to the default password
+     * @return The credential store
+     */
+    private static CredentialStore openCredentials() {
+        String file = System.getProperty(CREDENTIALS_PROPERTY);
+        CredentialStore store;
+        try {
+            store = CredentialStore.load(file == null ? DEFAULT_CREDENTIALS_FILE : Paths.get(file));
+        } catch (IOException e) {
+            System.err.println("Could not read credentials, admin login is disabled: " + e.getMessage());
+            return new CredentialStore();
         }
-        return instance;
+        store.putDefault(ADMIN_USER, PasswordHash.decode(DEFAULT_ADMIN_HASH));
+        return store;
     }
     
     /**
-     * Verifies the admin password
+     * Checks the admin password on a worker thread
+     * @param password The password, cleared once it has been checked
+     * @return The outcome, with a session token if the password matched
+     */
+    public CompletableFuture<AuthenticationResult> authenticateAdmin(char[] password) {
+        return authenticate(ADMIN_USER, password);
+    }
+    
+    /**
+     * Checks the password of a user on a worker thread
+     * Attempts beyond the user's token bucket and attempts finding the queue full complete at once
+     * @param user The user name
+     * @param password The password, cleared once it has been checked
+     * @return The outcome, with a session token if the password matched
+     */
+    public CompletableFuture<AuthenticationResult> authenticate(String user, char[] password) {
+        long retryAfter = rateLimiter.tryAcquire(user);
+        if (retryAfter > 0) {
+            THROTTLED_LOGINS.increment();
+            Arrays.fill(password, '\0');
+            return CompletableFuture.completedFuture(AuthenticationResult.throttled(retryAfter));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> check(user, password), verifier);
+        } catch (RejectedExecutionException e) {
+            REJECTED_LOGINS.increment();
+            Arrays.fill(password, '\0');
+            return CompletableFuture.completedFuture(AuthenticationResult.busy());
+        }
+    }
+    
+    /**
+     * Verifies the admin password, waiting for the check
+     * Blocks for the time of a hash, so UI code should use authenticateAdmin() instead
      * @param password The password to verify
      * @return true if password is correct, false otherwise
      */
     public boolean verifyAdminPassword(String password) {
-        return password != null && password.equals(ADMIN_PASSWORD);
+        return password != null && authenticateAdmin(password.toCharArray()).join().isSuccess();
+    }
+    
+    /**
+     * Checks whether a session token was issued by a successful login and has not expired
+     * Costs one map lookup, no hashing
+     * @param token The token, may be null
+     * @return true if the token is valid
+     */
+    public boolean isSessionValid(String token) {
+        if (token == null) {
+            return false;
+        }
+        Long expiry = sessions.get(token);
+        if (expiry == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiry >= 0) {
+            sessions.remove(token);
+            return false;
+        }
+        return true;
     }
     
     /**
-     * Gets the admin password (for internal use only)
-     * Note: In a real application, passwords should never be retrievable
-     * @return The admin password
+     * Ends a session before its token expires
+     * @param token The token, may be null
      */
-    protected String getAdminPassword() {
-        return ADMIN_PASSWORD;
+    public void endSession(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
     }
     
     /**
-     * Changes the admin password
-     * Note: In a real application, this would involve proper encryption and storage
+     * Changes the admin password and ends every admin session
+     * Blocks while the current password is checked and the new one hashed, do not call on the event thread
      * @param currentPassword The current password
      * @param newPassword The new password
      * @return true if password was changed successfully
      */
     public boolean changeAdminPassword(String currentPassword, String newPassword) {
-        // This is a placeholder for password change functionality
-        // In a real app, you would:
-        // 1. Verify current password
-        // 2. Encrypt new password
-        // 3. Store in secure location
-        // 4. Return success/failure
-        return verifyAdminPassword(currentPassword) && newPassword != null && !newPassword.trim().isEmpty();
+        if (currentPassword == null || newPassword == null || newPassword.trim().isEmpty()) {
+            return false;
+        }
+        AuthenticationResult result = authenticateAdmin(currentPassword.toCharArray()).join();
+        if (!result.isSuccess()) {
+            return false;
+        }
+        char[] password = newPassword.toCharArray();
+        try {
+            credentials.put(ADMIN_USER, PasswordHash.create(password));
+        } catch (IOException e) {
+            System.err.println("Could not save the new admin password: " + e.getMessage());
+            endSession(result.getToken());
+            return false;
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+        sessions.clear(); // tokens issued for the old password
+        rateLimiter.reset(ADMIN_USER);
+        return true;
+    }
+    
+    /**
+     * Opens a candidate file, after which candidates must log in to take a quiz over HTTP
+     * @param file The candidate file, see CandidateDirectory
+     * @return Number of candidate accounts
+     * @throws IOException If the file cannot be read or is not a valid candidate file
+     */
+    public int openCandidates(Path file) throws IOException {
+        CandidateDirectory directory = CandidateDirectory.load(file);
+        candidates = directory;
+        return directory.size();
+    }
+    
+    /**
+     * Checks whether candidates have accounts, so their requests need a token
+     * @return true once a candidate file is open
+     */
+    public boolean hasCandidateAccounts() {
+        return candidates != null;
+    }
+    
+    /**
+     * Logs a candidate in with their access code
+     * Access codes are random, so checking one takes a single SHA-256 and runs on the caller's thread;
+     * unknown ids fail without touching the rate limiters, so they cannot fill them up, but still hash
+     * the code, so they take as long as a wrong code.
+     * Attempts are limited per id and address, so someone guessing from one address does not lock the
+     * candidate out; a much larger allowance per id caps guessing spread over many addresses
+     * @param candidateId The candidate id
+     * @param accessCode The access code
+     * @param remoteAddress Address the attempt comes from
+     * @return The outcome, with a candidate token if the code matched
+     * @throws IllegalStateException If no candidate file is open
+     */
+    public AuthenticationResult loginCandidate(String candidateId, String accessCode, String remoteAddress) {
+        CandidateDirectory directory = candidates;
+        if (directory == null) {
+            throw new IllegalStateException("No candidate file is open");
+        }
+        long start = System.nanoTime();
+        try {
+            int candidate = directory.indexOf(candidateId);
+            if (candidate < 0) {
+                directory.checkUnknownAccessCode(candidateId, accessCode);
+                FAILED_LOGINS.increment();
+                return AuthenticationResult.failed();
+            }
+            long retryAfter = candidateRateLimiter.tryAcquire(candidateId + '@' + remoteAddress);
+            if (retryAfter == 0) {
+                retryAfter = candidateIdRateLimiter.tryAcquire(candidateId);
+            }
+            if (retryAfter > 0) {
+                THROTTLED_LOGINS.increment();
+                return AuthenticationResult.throttled(retryAfter);
+            }
+            if (!directory.checkAccessCode(candidate, accessCode)) {
+                FAILED_LOGINS.increment();
+                return AuthenticationResult.failed();
+            }
+            return AuthenticationResult.success(candidateTokens.issue(candidate));
+        } finally {
+            CANDIDATE_LOGIN_LATENCY.recordSince(start);
+        }
+    }
+    
+    /**
+     * Checks the candidate token of a request, without allocating or hashing a password
+     * @param authorization Value of the Authorization header, "Bearer " followed by the token; may be null
+     * @return The candidate number, or -1 if the token is missing, forged or expired
+     */
+    public int validateCandidateToken(String authorization) {
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return -1;
+        }
+        return candidateTokens.validate(authorization, BEARER.length());
+    }
+    
+    /**
+     * Issues a fresh token for a candidate whose token is still valid, so long exams outlast a token
+     * @param candidate The candidate number from validateCandidateToken()
+     * @return The new token
+     */
+    public String refreshCandidateToken(int candidate) {
+        return candidateTokens.issue(candidate);
+    }
+    
+    /**
+     * Gets how long candidate tokens stay valid
+     * @return Lifetime in seconds
+     */
+    public long getCandidateTokenLifetimeSeconds() {
+        return candidateTokens.getLifetimeSeconds();
+    }
+    
+    /**
+     * Gets the id of a candidate
+     * @param candidate The candidate number
+     * @return The candidate id, or null if no candidate file is open
+     */
+    public String getCandidateId(int candidate) {
+        CandidateDirectory directory = candidates;
+        return directory == null ? null : directory.getCandidateId(candidate);
+    }
+    
+    /**
+     * Checks a password against the store, runs on a worker thread
+     * A hash made with fewer iterations than the current setting is replaced after a successful check
+     * @param user The user name
+     * @param password The password, cleared afterwards
+     * @return The outcome
+     */
+    private AuthenticationResult check(String user, char[] password) {
+        long start = System.nanoTime();
+        try {
+            PasswordHash hash = credentials.get(user);
+            if (hash == null) {
+                unknownUserHash.matches(password);
+                FAILED_LOGINS.increment();
+                return AuthenticationResult.failed();
+            }
+            if (!hash.matches(password)) {
+                FAILED_LOGINS.increment();
+                return AuthenticationResult.failed();
+            }
+            if (hash.needsRehash()) {
+                try {
+                    credentials.put(user, PasswordHash.create(password));
+                } catch (IOException e) {
+                    System.err.println("Could not save the rehashed password of " + user + ": " + e.getMessage());
+                }
+            }
+            return AuthenticationResult.success(issueToken());
+        } finally {
+            Arrays.fill(password, '\0');
+            VERIFY_LATENCY.recordSince(start);
+        }
+    }
+    
+    /**
+     * Creates a random session token and remembers it until it expires
+     * @return The token
+     */
+    private String issueToken() {
+        long now = System.nanoTime();
+        if (sessions.size() >= MAX_SESSIONS) {
+            sessions.values().removeIf(expiry -> now - expiry >= 0);
+        }
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, now + TimeUnit.MILLISECONDS.toNanos(SESSION_MILLIS));
+        return token;
     }
 }
@@ -0,0 +1,332 @@
+package com.quiz.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Candidate accounts for high-volume exams, read from a candidate file into a compact index
+ * Candidates log in with their id and an access code handed out by the exam office. Access codes are
+ * random (see generateAccessCode()), so unlike admin passwords they need no key stretching: the file holds
+ * a salted SHA-256 digest of each code, cut to 128 bits, and checking a code takes about a microsecond.
+ * <pre>
+ * salt:BASE64                     first line, salt of every digest in the file
+ * candidateId:BASE64              one line per candidate, the digest of their access code
+ * </pre>
+ * Ids are stored as ASCII bytes back to back and digests in a long array, with an open-addressing table
+ * to find them, about 40 bytes per candidate. Candidates are numbered in file order; candidates added at
+ * the end of the file keep everyone else's number, which recovered sessions are matched by.
+ */
+public class CandidateDirectory {
+    private static final String SALT_PREFIX = "salt:";
+    private static final int SALT_BYTES = 16;
+    private static final int MAX_ID_LENGTH = 64;
+    private static final char[] CODE_ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int CODE_LENGTH = 12; // 60 random bits
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    private final byte[] salt;
+    private final int count;
+    private final byte[] ids; // ASCII ids back to back
+    private final int[] idEnds; // end of each id in ids
+    private final long[] digests; // two words per candidate
+    private final int[] slots; // candidate number + 1 by id hash, 0 for an empty slot
+    
+    /**
+     * Private constructor, use load()
+     */
+    private CandidateDirectory(byte[] salt, int count, byte[] ids, int[] idEnds, long[] digests) {
+        this.salt = salt;
+        this.count = count;
+        this.ids = ids;
+        this.idEnds = idEnds;
+        this.digests = digests;
+        this.slots = new int[Math.max(2, Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1)];
+        for (int candidate = 0; candidate < count; candidate++) {
+            int start = candidate == 0 ? 0 : idEnds[candidate - 1];
+            int hash = 0;
+            for (int i = start; i < idEnds[candidate]; i++) {
+                hash = 31 * hash + ids[i];
+            }
+            int slot = slotOf(hash);
+            while (slots[slot] != 0) {
+                if (idEquals(slots[slot] - 1, ids, start, idEnds[candidate])) {
+                    throw new IllegalArgumentException("Candidate " + getCandidateId(candidate) + " is listed twice");
+                }
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = candidate + 1;
+        }
+    }
+    
+    /**
+     * Reads a candidate file
+     * @param file The candidate file
+     * @return The directory
+     * @throws IOException If the file cannot be read or is not a valid candidate file
+     */
+    public static CandidateDirectory load(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String header = in.readLine();
+            if (header == null || !header.startsWith(SALT_PREFIX)) {
+                throw new IOException(file + " is not a candidate file, it must start with " + SALT_PREFIX);
+            }
+            byte[] salt = Base64.getDecoder().decode(header.substring(SALT_PREFIX.length()).trim());
+            
+            byte[] ids = new byte[1 << 16];
+            int idLength = 0;
+            int[] idEnds = new int[1024];
+            long[] digests = new long[2048];
+            int count = 0;
+            int lineNumber = 1;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                int colon = line.indexOf(':');
+                byte[] digest;
+                try {
+                    if (colon <= 0 || !isValidId(line, 0, colon)) {
+                        throw new IllegalArgumentException("expected candidateId:digest with a printable ASCII id");
+                    }
+                    digest = Base64.getDecoder().decode(line.substring(colon + 1).trim());
+                    if (digest.length != 16) {
+                        throw new IllegalArgumentException("the digest must be 16 bytes");
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + " line " + lineNumber + ": " + e.getMessage(), e);
+                }
+                if (idLength + colon > ids.length) {
+                    ids = Arrays.copyOf(ids, Math.max(ids.length * 2, idLength + colon));
+                }
+                if (count == idEnds.length) {
+                    idEnds = Arrays.copyOf(idEnds, count * 2);
+                    digests = Arrays.copyOf(digests, count * 4);
+                }
+                for (int i = 0; i < colon; i++) {
+                    ids[idLength++] = (byte) line.charAt(i);
+                }
+                idEnds[count] = idLength;
+                digests[2 * count] = toLong(digest, 0);
+                digests[2 * count + 1] = toLong(digest, 8);
+                count++;
+            }
+            try {
+                return new CandidateDirectory(salt, count, Arrays.copyOf(ids, idLength), Arrays.copyOf(idEnds, count),
+                                              Arrays.copyOf(digests, 2 * count));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * Writes a candidate file with a new access code for every candidate
+     * @param file The candidate file, replaced if it exists
+     * @param candidateIds Ids of the candidates, printable ASCII without ':' and spaces
+     * @return The access code of every candidate by id, in the order given, to hand out to the candidates
+     * @throws IOException If the file cannot be written
+     */
+    public static Map<String, String> create(Path file, List<String> candidateIds) throws IOException {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Map<String, String> codes = new LinkedHashMap<>();
+        Path directory = file.toAbsolutePath().getParent();
+        Path tempFile = Files.createTempFile(directory, "candidates", ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tempFile, StandardCharsets.US_ASCII)) {
+                Base64.Encoder base64 = Base64.getEncoder();
+                out.write(SALT_PREFIX + base64.encodeToString(salt));
+                out.newLine();
+                MessageDigest sha256 = sha256();
+                for (String candidateId : candidateIds) {
+                    if (!isValidId(candidateId, 0, candidateId.length())) {
+                        throw new IllegalArgumentException("Invalid candidate id: " + candidateId);
+                    }
+                    if (codes.containsKey(candidateId)) {
+                        throw new IllegalArgumentException("Candidate " + candidateId + " is listed twice");
+                    }
+                    String code = generateAccessCode();
+                    codes.put(candidateId, code);
+                    out.write(candidateId);
+                    out.write(':');
+                    out.write(base64.encodeToString(Arrays.copyOf(digest(sha256, salt, candidateId, code), 16)));
+                    out.newLine();
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return codes;
+    }
+    
+    /**
+     * Creates a random access code of 12 characters from digits and upper-case letters, without I, L, O and U
+     * @return The access code
+     */
+    public static String generateAccessCode() {
+        char[] code = new char[CODE_LENGTH];
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            code[i] = CODE_ALPHABET[RANDOM.nextInt(CODE_ALPHABET.length)];
+        }
+        return new String(code);
+    }
+    
+    /**
+     * Looks a candidate up by id
+     * @param candidateId The candidate id
+     * @return The candidate number, or -1 if there is no such candidate
+     */
+    public int indexOf(String candidateId) {
+        if (candidateId == null) {
+            return -1;
+        }
+        int hash = 0;
+        for (int i = 0; i < candidateId.length(); i++) {
+            hash = 31 * hash + candidateId.charAt(i);
+        }
+        for (int slot = slotOf(hash); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+            int candidate = slots[slot] - 1;
+            int start = candidate == 0 ? 0 : idEnds[candidate - 1];
+            if (idEnds[candidate] - start == candidateId.length() && idMatches(candidateId, start)) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Checks the access code of a candidate, in time independent of where the digests differ
+     * @param candidate The candidate number
+     * @param accessCode The access code entered
+     * @return true if the code matches
+     */
+    public boolean checkAccessCode(int candidate, String accessCode) {
+        if (candidate < 0 || candidate >= count || accessCode == null) {
+            return false;
+        }
+        byte[] digest = digest(sha256(), salt, getCandidateId(candidate), accessCode);
+        return ((toLong(digest, 0) ^ digests[2 * candidate]) | (toLong(digest, 8) ^ digests[2 * candidate + 1])) == 0;
+    }
+    
+    /**
+     * Does the work of checkAccessCode() for an id that has no candidate, and fails
+     * Logins with an unknown id then take as long as logins with a wrong code, so timing does not
+     * tell which ids exist
+     * @param candidateId The id that was not found
+     * @param accessCode The access code entered
+     * @return false
+     */
+    public boolean checkUnknownAccessCode(String candidateId, String accessCode) {
+        digest(sha256(), salt, candidateId == null ? "" : candidateId, accessCode == null ? "" : accessCode);
+        return false;
+    }
+    
+    /**
+     * Gets the id of a candidate
+     * @param candidate The candidate number
+     * @return The candidate id
+     */
+    public String getCandidateId(int candidate) {
+        int start = candidate == 0 ? 0 : idEnds[candidate - 1];
+        return new String(ids, start, idEnds[candidate] - start, StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * Gets the number of candidates
+     * @return Number of candidates
+     */
+    public int size() {
+        return count;
+    }
+    
+    /**
+     * Maps an id hash to its first slot
+     */
+    private int slotOf(int hash) {
+        return (hash * 0x9E3779B9 >>> 16 ^ hash) & (slots.length - 1);
+    }
+    
+    /**
+     * Compares a stored id with a range of id bytes
+     */
+    private boolean idEquals(int candidate, byte[] other, int otherStart, int otherEnd) {
+        int start = candidate == 0 ? 0 : idEnds[candidate - 1];
+        return Arrays.equals(ids, start, idEnds[candidate], other, otherStart, otherEnd);
+    }
+    
+    /**
+     * Compares the stored id starting at an offset with a string of the same length
+     */
+    private boolean idMatches(String candidateId, int start) {
+        for (int i = 0; i < candidateId.length(); i++) {
+            if (ids[start + i] != candidateId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Checks that an id is 1 to 64 printable ASCII characters without ':'
+     */
+    private static boolean isValidId(String text, int start, int end) {
+        if (end <= start || end - start > MAX_ID_LENGTH) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c <= ' ' || c > '~' || c == ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Computes SHA-256 of salt, id, a zero byte and access code
+     */
+    private static byte[] digest(MessageDigest sha256, byte[] salt, String candidateId, String accessCode) {
+        sha256.update(salt);
+        sha256.update(candidateId.getBytes(StandardCharsets.US_ASCII));
+        sha256.update((byte) 0);
+        return sha256.digest(accessCode.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Gets a SHA-256 digest
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // every Java SE runtime has it
+        }
+    }
+    
+    /**
+     * Reads 8 bytes as a big-endian word
+     */
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
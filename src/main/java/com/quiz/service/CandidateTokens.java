@@ -0,0 +1,174 @@
+package com.quiz.service;
+
+import java.security.SecureRandom;
+
+/**
+ * Short-lived session tokens for candidates, signed with SipHash-2-4
+ * A token is 32 hex digits: 16 for a word holding the candidate number and the expiry time, 16 for the
+ * MAC of that word under a random 128-bit key made when the application starts. Checking a token parses
+ * the digits, runs SipHash over one word and compares, so it takes constant time, allocates nothing and
+ * needs no table of issued tokens. Tokens cannot be revoked, which is why they expire after minutes, and
+ * they do not survive a restart of the application.
+ */
+public class CandidateTokens {
+    /** Lifetime of a token unless configured otherwise */
+    public static final long DEFAULT_LIFETIME_SECONDS = 30 * 60;
+    /** Number of characters in a token */
+    public static final int TOKEN_LENGTH = 32;
+    
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final long key0;
+    private final long key1;
+    private final long lifetimeSeconds;
+    
+    /**
+     * Creates a token signer with a new random key
+     * @param lifetimeSeconds How long issued tokens stay valid
+     */
+    public CandidateTokens(long lifetimeSeconds) {
+        if (lifetimeSeconds < 1) {
+            throw new IllegalArgumentException("Lifetime must be positive: " + lifetimeSeconds);
+        }
+        SecureRandom random = new SecureRandom();
+        this.key0 = random.nextLong();
+        this.key1 = random.nextLong();
+        this.lifetimeSeconds = lifetimeSeconds;
+    }
+    
+    /**
+     * Issues a token for a candidate
+     * @param candidate Number of the candidate in the CandidateDirectory
+     * @return The token
+     */
+    public String issue(int candidate) {
+        if (candidate < 0) {
+            throw new IllegalArgumentException("Invalid candidate number: " + candidate);
+        }
+        long expiry = System.currentTimeMillis() / 1000 + lifetimeSeconds;
+        long payload = (long) candidate << 32 | (expiry & 0xFFFFFFFFL);
+        char[] token = new char[TOKEN_LENGTH];
+        writeHex(token, 0, payload);
+        writeHex(token, 16, sipHash(key0, key1, payload));
+        return new String(token);
+    }
+    
+    /**
+     * Checks a token
+     * @param text Text holding the token
+     * @param start Index of the token in the text; the token must run to the end of the text
+     * @return The candidate number, or -1 if the token is malformed, forged or expired
+     */
+    public int validate(CharSequence text, int start) {
+        if (text == null || start < 0 || text.length() - start != TOKEN_LENGTH) {
+            return -1;
+        }
+        long payload = parseHex(text, start);
+        long mac = parseHex(text, start + 16);
+        if (invalidDigits(text, start) != 0 || sipHash(key0, key1, payload) != mac) {
+            return -1;
+        }
+        long expiry = payload & 0xFFFFFFFFL;
+        if (expiry <= System.currentTimeMillis() / 1000) {
+            return -1;
+        }
+        return (int) (payload >>> 32);
+    }
+    
+    /**
+     * Gets the lifetime of issued tokens
+     * @return Lifetime in seconds
+     */
+    public long getLifetimeSeconds() {
+        return lifetimeSeconds;
+    }
+    
+    /**
+     * SipHash-2-4 of a single 8-byte message
+     * @param k0 First half of the key
+     * @param k1 Second half of the key
+     * @param message The message, as a little-endian word
+     * @return The 64-bit MAC
+     */
+    static long sipHash(long k0, long k1, long message) {
+        long v0 = k0 ^ 0x736f6d6570736575L;
+        long v1 = k1 ^ 0x646f72616e646f6dL;
+        long v2 = k0 ^ 0x6c7967656e657261L;
+        long v3 = k1 ^ 0x7465646279746573L;
+        long last = 8L << 56; // message length in the top byte, no bytes left over
+        
+        v3 ^= message;
+        // Two compression rounds per word (the message, then the length word) and four finalization rounds
+        for (int round = 0; round < 8; round++) {
+            if (round == 2) {
+                v0 ^= message;
+                v3 ^= last;
+            } else if (round == 4) {
+                v0 ^= last;
+                v2 ^= 0xff;
+            }
+            v0 += v1;
+            v1 = Long.rotateLeft(v1, 13);
+            v1 ^= v0;
+            v0 = Long.rotateLeft(v0, 32);
+            v2 += v3;
+            v3 = Long.rotateLeft(v3, 16);
+            v3 ^= v2;
+            v0 += v3;
+            v3 = Long.rotateLeft(v3, 21);
+            v3 ^= v0;
+            v2 += v1;
+            v1 = Long.rotateLeft(v1, 17);
+            v1 ^= v2;
+            v2 = Long.rotateLeft(v2, 32);
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+    
+    /**
+     * Writes a word as 16 lowercase hex digits
+     */
+    private static void writeHex(char[] out, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            out[offset + i] = HEX[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+    
+    /**
+     * Parses 16 hex digits, reading anything else as 0; invalidDigits() finds those
+     */
+    private static long parseHex(CharSequence text, int offset) {
+        long value = 0;
+        for (int i = 0; i < 16; i++) {
+            value = value << 4 | (hexValue(text.charAt(offset + i)) & 0xF);
+        }
+        return value;
+    }
+    
+    /**
+     * Checks the 32 digits of a token
+     * @return 0 if all are lowercase hex digits, non-zero otherwise
+     */
+    private static int invalidDigits(CharSequence text, int start) {
+        int invalid = 0;
+        for (int i = 0; i < TOKEN_LENGTH; i++) {
+            invalid |= hexValue(text.charAt(start + i)) & 0x10;
+        }
+        return invalid;
+    }
+    
+    /**
+     * Gets the value of a lowercase hex digit
+     * @return 0 to 15, or 16 for any other character
+     */
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        return 16;
+    }
+}
@@ -0,0 +1,126 @@
+package com.quiz.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Password hashes by user name, optionally kept in a file
+ * The file has one "user:hash" line per user, with the hash as written by PasswordHash.encode();
+ * passwords themselves are never stored. Changes are written to the file straight away.
+ */
+public class CredentialStore {
+    private final Map<String, PasswordHash> hashes = new ConcurrentHashMap<>();
+    private final Path file;
+    
+    /**
+     * Creates an empty store that is only kept in memory
+     */
+    public CredentialStore() {
+        this.file = null;
+    }
+    
+    /**
+     * Private constructor, use load() for a store backed by a file
+     */
+    private CredentialStore(Path file) {
+        this.file = file;
+    }
+    
+    /**
+     * Opens a credential file, which is created on the first change if it does not exist
+     * @param file The credential file
+     * @return The store
+     * @throws IOException If the file exists but cannot be read or holds an invalid line
+     */
+    public static CredentialStore load(Path file) throws IOException {
+        CredentialStore store = new CredentialStore(file);
+        if (!Files.exists(file)) {
+            return store;
+        }
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int colon = line.lastIndexOf(':');
+            try {
+                if (colon <= 0) {
+                    throw new IllegalArgumentException("expected user:hash");
+                }
+                store.hashes.put(line.substring(0, colon), PasswordHash.decode(line.substring(colon + 1).trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return store;
+    }
+    
+    /**
+     * Gets the password hash of a user
+     * @param user The user name
+     * @return The hash, or null if the user has no password
+     */
+    public PasswordHash get(String user) {
+        return hashes.get(user);
+    }
+    
+    /**
+     * Sets the password hash of a user, writing the file before the new hash takes effect
+     * @param user The user name, without ':' or line breaks
+     * @param hash The new hash
+     * @throws IOException If the file cannot be written, the old hash then stays in effect
+     */
+    public synchronized void put(String user, PasswordHash hash) throws IOException {
+        if (user.isEmpty() || user.indexOf(':') >= 0 || user.indexOf('\n') >= 0 || user.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Invalid user name: " + user);
+        }
+        Map<String, PasswordHash> updated = new TreeMap<>(hashes);
+        updated.put(user, hash);
+        save(updated);
+        hashes.put(user, hash);
+    }
+    
+    /**
+     * Sets the password hash of a user unless the user already has one, without writing the file
+     * @param user The user name
+     * @param hash The hash to use as default
+     */
+    void putDefault(String user, PasswordHash hash) {
+        hashes.putIfAbsent(user, hash);
+    }
+    
+    /**
+     * Writes hashes to the file, next to it first and then moved into place
+     * @param entries The hashes to write, sorted by user
+     * @throws IOException If the file cannot be written
+     */
+    private void save(Map<String, PasswordHash> entries) throws IOException {
+        if (file == null) {
+            return;
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, "credentials", ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, PasswordHash> entry : entries.entrySet()) {
+                    out.write(entry.getKey());
+                    out.write(':');
+                    out.write(entry.getValue().encode());
+                    out.newLine();
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Finds near-duplicate questions with MinHash signatures and locality-sensitive hashing
+ * A question is reduced to shingles: pairs of neighbouring words of its text, plus each answer as a whole.
+ * Its signature holds the minimum of 128 hash functions over those shingles; two questions agree on a
+ * signature entry with a probability equal to the Jaccard similarity of their shingle sets.
+ *
+ * The signature is cut into 16 bands of 8 entries, and questions that agree on a whole band land in the
+ * same bucket. Only questions sharing a bucket are compared, so adding a question costs about the same
+ * however many are already indexed. With these bands, pairs at 80% similarity are found about 95% of the
+ * time and pairs below 50% are rarely even compared. Only the low 8 bits of each signature entry are kept
+ * for the comparison, which cuts memory fourfold at a small, corrected loss of precision.
+ */
+public class DuplicateDetector {
+    /** Default similarity from which two questions count as duplicates */
+    public static final double DEFAULT_THRESHOLD = 0.8;
+    
+    private static final int BANDS = 16;
+    private static final int ROWS = 8;
+    private static final int HASHES = BANDS * ROWS;
+    private static final int MAX_CHAIN = 64; // bucket members compared per band, newest first
+    private static final double CHANCE = 1.0 / 256; // probability that unrelated 8-bit entries agree
+    private static final long[] SEEDS = new long[HASHES];
+    
+    static {
+        long state = 0x2545F4914F6CDD1DL;
+        for (int i = 0; i < HASHES; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            SEEDS[i] = mix(state);
+        }
+    }
+    
+    private final double threshold;
+    private final BandTable[] bands = new BandTable[BANDS];
+    private final BitSet removed = new BitSet();
+    private final List<Match> duplicates = new ArrayList<>();
+    private Question[] documents = new Question[1024];
+    private byte[] signatures = new byte[1024 * HASHES]; // low 8 bits of each signature entry
+    private int[] chains = new int[1024 * BANDS]; // previous member of the same bucket, per document and band
+    private int documentCount;
+    
+    /**
+     * Constructor for a detector with the default threshold
+     */
+    public DuplicateDetector() {
+        this(DEFAULT_THRESHOLD);
+    }
+    
+    /**
+     * Constructor for a detector
+     * @param threshold Estimated Jaccard similarity from which questions are reported, between 0 and 1
+     */
+    public DuplicateDetector(double threshold) {
+        this.threshold = threshold;
+        for (int band = 0; band < BANDS; band++) {
+            bands[band] = new BandTable();
+        }
+    }
+    
+    /**
+     * Indexes a question and reports it if it duplicates one indexed before
+     * A question without words or answers has nothing to compare and is not indexed
+     * @param question The new question
+     * @return The match with the most similar earlier question, or null if there is none
+     */
+    public synchronized Match add(Question question) {
+        int[] signature = signature(question);
+        if (signature == null) {
+            return null;
+        }
+        int[] keys = bandKeys(signature);
+        Match match = bestMatch(question, signature, keys);
+        insert(question, signature, keys);
+        if (match != null) {
+            duplicates.add(match);
+        }
+        return match;
+    }
+    
+    /**
+     * Indexes several questions, in order
+     * @param questions The new questions
+     * @return The duplicates found among them, in order
+     */
+    public synchronized List<Match> addAll(List<Question> questions) {
+        List<Match> found = new ArrayList<>();
+        for (Question question : questions) {
+            Match match = add(question);
+            if (match != null) {
+                found.add(match);
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Finds the indexed question most similar to a question, without indexing it
+     * @param question The question to check
+     * @return The match, or null if no indexed question reaches the threshold
+     */
+    public synchronized Match findSimilar(Question question) {
+        int[] signature = signature(question);
+        if (signature == null) {
+            return null;
+        }
+        return bestMatch(question, signature, bandKeys(signature));
+    }
+    
+    /**
+     * Stops considering a question, after it was removed from the quiz or replaced
+     * @param question The question that was indexed, or one with the same text and answers
+     */
+    public synchronized void remove(Question question) {
+        int document = find(question);
+        if (document < 0) {
+            return;
+        }
+        Question indexed = documents[document];
+        removed.set(document);
+        documents[document] = null;
+        duplicates.removeIf(match -> match.getQuestion() == indexed || match.getDuplicateOf() == indexed);
+    }
+    
+    /**
+     * Gets the duplicates found so far among the indexed questions
+     * @return The matches, each pairing a question with an earlier one it duplicates
+     */
+    public synchronized List<Match> getDuplicates() {
+        return Collections.unmodifiableList(new ArrayList<>(duplicates));
+    }
+    
+    /**
+     * Gets the number of indexed questions
+     * @return Number of questions added and not removed
+     */
+    public synchronized int size() {
+        return documentCount - removed.cardinality();
+    }
+    
+    /**
+     * Compares a question with the members of the buckets it falls into
+     */
+    private Match bestMatch(Question question, int[] signature, int[] keys) {
+        byte[] lowBits = new byte[HASHES];
+        for (int i = 0; i < HASHES; i++) {
+            lowBits[i] = (byte) signature[i];
+        }
+        BitSet compared = new BitSet();
+        int best = -1;
+        double bestSimilarity = threshold;
+        for (int band = 0; band < BANDS; band++) {
+            int steps = 0;
+            for (int member = bands[band].head(keys[band]); member >= 0 && steps < MAX_CHAIN;
+                    member = chains[member * BANDS + band], steps++) {
+                if (removed.get(member) || compared.get(member)) {
+                    continue;
+                }
+                compared.set(member);
+                double similarity = similarity(lowBits, member);
+                if (similarity >= bestSimilarity && documents[member] != question) {
+                    best = member;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        return best < 0 ? null : new Match(question, documents[best], bestSimilarity);
+    }
+    
+    /**
+     * Estimates the Jaccard similarity of a signature and an indexed document from their 8-bit entries
+     */
+    private double similarity(byte[] lowBits, int document) {
+        int base = document * HASHES;
+        int equal = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (signatures[base + i] == lowBits[i]) {
+                equal++;
+            }
+        }
+        return Math.max(0, ((double) equal / HASHES - CHANCE) / (1 - CHANCE));
+    }
+    
+    /**
+     * Stores a question and adds it to the bucket of each band
+     */
+    private void insert(Question question, int[] signature, int[] keys) {
+        int document = documentCount++;
+        if (document == documents.length) {
+            int capacity = documents.length * 2;
+            documents = Arrays.copyOf(documents, capacity);
+            signatures = Arrays.copyOf(signatures, capacity * HASHES);
+            chains = Arrays.copyOf(chains, capacity * BANDS);
+        }
+        documents[document] = question;
+        for (int i = 0; i < HASHES; i++) {
+            signatures[document * HASHES + i] = (byte) signature[i];
+        }
+        for (int band = 0; band < BANDS; band++) {
+            chains[document * BANDS + band] = bands[band].push(keys[band], document);
+        }
+    }
+    
+    /**
+     * Finds the document id of an indexed question object
+     * @return The document id, or -1 if the question is not indexed
+     */
+    private int find(Question question) {
+        int[] signature = signature(question);
+        int equal = -1;
+        int first = signature == null ? -1 : bands[0].head(bandKeys(signature)[0]);
+        for (int member = first; member >= 0; member = chains[member * BANDS]) {
+            if (documents[member] == question) {
+                return member;
+            }
+            if (equal < 0 && sameContent(documents[member], question)) {
+                equal = member; // lists such as question banks hand out a new object on every access
+            }
+        }
+        if (equal >= 0) {
+            return equal;
+        }
+        // The question was changed in place since it was indexed
+        for (int document = 0; document < documentCount; document++) {
+            if (documents[document] == question) {
+                return document;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Checks whether two questions have the same text and answers
+     */
+    private static boolean sameContent(Question a, Question b) {
+        return a != null && Objects.equals(a.getQuestion(), b.getQuestion()) && Arrays.equals(a.getAnswers(), b.getAnswers());
+    }
+    
+    /**
+     * Computes the MinHash signature of a question
+     * @param question The question
+     * @return The minimum of each hash function over the shingles, or null if the question has no shingles
+     */
+    static int[] signature(Question question) {
+        long[] shingles = shingles(question);
+        if (shingles.length == 0) {
+            return null; // an all-MAX_VALUE signature would make every such question a duplicate of the others
+        }
+        int[] signature = new int[HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < HASHES; i++) {
+                int value = (int) (mix(shingle ^ SEEDS[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+    
+    /**
+     * Hashes the rows of each band of a signature into a bucket key
+     */
+    private static int[] bandKeys(int[] signature) {
+        int[] keys = new int[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = mix(hash * 31 + signature[band * ROWS + row]);
+            }
+            keys[band] = (int) hash;
+        }
+        return keys;
+    }
+    
+    /**
+     * Gets the hashed shingles of a question: pairs of neighbouring words, and each answer as a whole
+     */
+    private static long[] shingles(Question question) {
+        List<String> words = new ArrayList<>();
+        QuestionSearchIndex.tokenize(question.getQuestion(), words);
+        String[] answers = question.getAnswers();
+        int answerCount = answers == null ? 0 : answers.length;
+        long[] shingles = new long[Math.max(1, words.size() - 1) + answerCount];
+        int count = 0;
+        if (words.size() == 1) {
+            shingles[count++] = hash(words.get(0), 1);
+        }
+        for (int i = 0; i + 1 < words.size(); i++) {
+            shingles[count++] = mix(hash(words.get(i), 1) * 31 + hash(words.get(i + 1), 2));
+        }
+        List<String> answerWords = new ArrayList<>();
+        for (int a = 0; a < answerCount; a++) {
+            answerWords.clear();
+            QuestionSearchIndex.tokenize(answers[a], answerWords);
+            if (answerWords.isEmpty()) {
+                continue;
+            }
+            shingles[count++] = hash(String.join(" ", answerWords), 3);
+        }
+        return Arrays.copyOf(shingles, count);
+    }
+    
+    /**
+     * Hashes a word with 64-bit FNV-1a
+     */
+    private static long hash(String word, long salt) {
+        long hash = 0xCBF29CE484222325L ^ salt;
+        for (int i = 0; i < word.length(); i++) {
+            hash = (hash ^ word.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+    
+    /**
+     * Finalizer of SplitMix64, spreads every input bit over the whole result
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * Open-addressing table from the bucket keys of one band to the newest document in the bucket
+     */
+    private static final class BandTable {
+        private int[] keys = new int[1024];
+        private int[] heads = new int[1024]; // newest document + 1, 0 for an empty slot
+        private int size;
+        
+        /**
+         * Gets the newest document of a bucket
+         * @return The document id, or -1 if the bucket is empty
+         */
+        int head(int key) {
+            int mask = keys.length - 1;
+            for (int slot = key & mask; heads[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return heads[slot] - 1;
+                }
+            }
+            return -1;
+        }
+        
+        /**
+         * Makes a document the newest of its bucket
+         * @return The previous newest document, or -1 if the bucket was empty
+         */
+        int push(int key, int document) {
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = key & mask;
+            while (heads[slot] != 0) {
+                if (keys[slot] == key) {
+                    int previous = heads[slot] - 1;
+                    heads[slot] = document + 1;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            heads[slot] = document + 1;
+            size++;
+            return -1;
+        }
+        
+        /**
+         * Doubles the table
+         */
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldHeads = heads;
+            keys = new int[oldKeys.length * 2];
+            heads = new int[oldHeads.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldHeads[i] != 0) {
+                    int slot = oldKeys[i] & mask;
+                    while (heads[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    heads[slot] = oldHeads[i];
+                }
+            }
+        }
+    }
+    
+    /**
+     * A question found to duplicate an earlier one
+     */
+    public static class Match {
+        private final Question question;
+        private final Question duplicateOf;
+        private final double similarity;
+        
+        /**
+         * Constructor for a match
+         * @param question The later question
+         * @param duplicateOf The earlier question it resembles
+         * @param similarity Estimated Jaccard similarity of the two
+         */
+        public Match(Question question, Question duplicateOf, double similarity) {
+            this.question = question;
+            this.duplicateOf = duplicateOf;
+            this.similarity = similarity;
+        }
+        
+        /**
+         * Gets the later question
+         * @return The question flagged as a duplicate
+         */
+        public Question getQuestion() {
+            return question;
+        }
+        
+        /**
+         * Gets the earlier question
+         * @return The question that was indexed first
+         */
+        public Question getDuplicateOf() {
+            return duplicateOf;
+        }
+        
+        /**
+         * Gets the estimated similarity
+         * @return Jaccard similarity between 0 and 1
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("\"%s\" duplicates \"%s\" (%.0f%% similar)",
+                    question.getQuestion(), duplicateOf.getQuestion(), similarity * 100);
+        }
+    }
+}
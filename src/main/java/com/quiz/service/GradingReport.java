@@ -0,0 +1,163 @@
+package com.quiz.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of grading a file of answer sheets
+ * Holds the score distribution, the item analysis of every question and one error entry per rejected line
+ */
+public class GradingReport {
+    /** Maximum number of error entries kept, later errors are only counted */
+    public static final int MAX_ERRORS = 10_000;
+    
+    private final int questionCount;
+    private final long[] scoreCounts; // sheets per score, 0 to questionCount
+    private final List<ImportReport.LineError> errors = new ArrayList<>();
+    private long errorCount;
+    private long bytesRead;
+    private long elapsedNanos;
+    private List<ItemStatistics.Item> items = Collections.emptyList();
+    
+    /**
+     * Constructor for an empty report
+     * @param questionCount Number of questions on every sheet
+     */
+    GradingReport(int questionCount) {
+        this.questionCount = questionCount;
+        this.scoreCounts = new long[questionCount + 1];
+    }
+    
+    /**
+     * Adds a score distribution counted elsewhere
+     * @param counts Sheets per score
+     */
+    void addScores(long[] counts) {
+        for (int score = 0; score < scoreCounts.length; score++) {
+            scoreCounts[score] += counts[score];
+        }
+    }
+    
+    /**
+     * Records a rejected line
+     * @param lineNumber Line number in the input, starting at 1
+     * @param message Reason the line was rejected
+     */
+    void error(long lineNumber, String message) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new ImportReport.LineError(lineNumber, message));
+        }
+    }
+    
+    /**
+     * Records the size of the input, the time grading took and the item analysis
+     * @param bytes Number of input bytes read
+     * @param nanos Elapsed time in nanoseconds
+     * @param itemStatistics Statistics per question in quiz order
+     */
+    void finish(long bytes, long nanos, List<ItemStatistics.Item> itemStatistics) {
+        this.bytesRead = bytes;
+        this.elapsedNanos = nanos;
+        this.items = itemStatistics;
+    }
+    
+    /**
+     * Gets the number of questions on every sheet
+     * @return Number of questions
+     */
+    public int getQuestionCount() {
+        return questionCount;
+    }
+    
+    /**
+     * Gets the number of graded sheets
+     * @return Number of sheets
+     */
+    public long getSheetCount() {
+        long sheets = 0;
+        for (long count : scoreCounts) {
+            sheets += count;
+        }
+        return sheets;
+    }
+    
+    /**
+     * Gets how many sheets got a score
+     * @param score Number of correct answers
+     * @return Number of sheets with that score
+     */
+    public long getScoreCount(int score) {
+        return score >= 0 && score < scoreCounts.length ? scoreCounts[score] : 0;
+    }
+    
+    /**
+     * Gets the average score
+     * @return Mean number of correct answers, or 0 if no sheet was graded
+     */
+    public double getMeanScore() {
+        long sheets = 0;
+        long total = 0;
+        for (int score = 0; score < scoreCounts.length; score++) {
+            sheets += scoreCounts[score];
+            total += scoreCounts[score] * score;
+        }
+        return sheets == 0 ? 0 : (double) total / sheets;
+    }
+    
+    /**
+     * Gets the average score as a percentage
+     * @return Mean percentage of correct answers
+     */
+    public double getMeanPercentage() {
+        return questionCount == 0 ? 0 : getMeanScore() * 100.0 / questionCount;
+    }
+    
+    /**
+     * Gets the item analysis of the graded sheets
+     * @return Statistics per question in quiz order
+     */
+    public List<ItemStatistics.Item> getItems() {
+        return items;
+    }
+    
+    /**
+     * Gets the number of rejected lines
+     * @return Number of errors, which can be more than getErrors().size()
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+    
+    /**
+     * Gets the rejected lines in input order, at most MAX_ERRORS of them
+     * @return List of line errors
+     */
+    public List<ImportReport.LineError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+    
+    /**
+     * Gets the size of the input
+     * @return Number of bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+    
+    /**
+     * Gets the time grading took
+     * @return Elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Graded %d sheets, %d lines rejected, mean score %.2f/%d (%.1f%%), %.1f MB in %.2f s",
+                getSheetCount(), errorCount, getMeanScore(), questionCount, getMeanPercentage(),
+                bytesRead / 1e6, elapsedNanos / 1e9);
+    }
+}
@@ -0,0 +1,152 @@
+package com.quiz.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a bulk question import
+ * Holds the number of imported questions, one error entry per rejected line and the near-duplicates found
+ */
+public class ImportReport {
+    /** Maximum number of error entries kept, later errors are only counted */
+    public static final int MAX_ERRORS = 10_000;
+    
+    private int linesRead;
+    private int imported;
+    private int errorCount;
+    private final List<LineError> errors = new ArrayList<>();
+    private int duplicateCount;
+    private final List<DuplicateDetector.Match> duplicates = new ArrayList<>();
+    
+    /**
+     * Records that a line was read
+     */
+    void lineRead() {
+        linesRead++;
+    }
+    
+    /**
+     * Records imported questions
+     * @param count Number of questions added to the quiz
+     */
+    void imported(int count) {
+        imported += count;
+    }
+    
+    /**
+     * Records a rejected line
+     * @param lineNumber Line number in the input, starting at 1
+     * @param message Reason the line was rejected
+     */
+    void error(long lineNumber, String message) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new LineError(lineNumber, message));
+        }
+    }
+    
+    /**
+     * Records imported questions that duplicate existing ones
+     * @param matches The duplicates found in a batch
+     */
+    void duplicates(List<DuplicateDetector.Match> matches) {
+        duplicateCount += matches.size();
+        int room = MAX_ERRORS - duplicates.size();
+        duplicates.addAll(matches.subList(0, Math.min(room, matches.size())));
+    }
+    
+    /**
+     * Gets the number of lines read, including blank and header lines
+     * @return Number of lines
+     */
+    public int getLinesRead() {
+        return linesRead;
+    }
+    
+    /**
+     * Gets the number of questions added to the quiz
+     * @return Number of imported questions
+     */
+    public int getImportedCount() {
+        return imported;
+    }
+    
+    /**
+     * Gets the number of rejected lines
+     * @return Number of errors, which can be more than getErrors().size()
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+    
+    /**
+     * Gets the rejected lines in input order, at most MAX_ERRORS of them
+     * @return List of line errors
+     */
+    public List<LineError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+    
+    /**
+     * Gets the number of imported questions flagged as near-duplicates
+     * @return Number of duplicates, which can be more than getDuplicates().size()
+     */
+    public int getDuplicateCount() {
+        return duplicateCount;
+    }
+    
+    /**
+     * Gets the imported questions flagged as near-duplicates in input order, at most MAX_ERRORS of them
+     * The questions are still imported; the matches point the admin at the ones to review
+     * @return List of matches, each with the question it resembles
+     */
+    public List<DuplicateDetector.Match> getDuplicates() {
+        return Collections.unmodifiableList(duplicates);
+    }
+    
+    @Override
+    public String toString() {
+        return "Imported " + imported + " questions, " + errorCount + " lines rejected, "
+                + duplicateCount + " possible duplicates";
+    }
+    
+    /**
+     * A rejected input line
+     */
+    public static class LineError {
+        private final long lineNumber;
+        private final String message;
+        
+        /**
+         * Constructor for a line error
+         * @param lineNumber Line number in the input, starting at 1
+         * @param message Reason the line was rejected
+         */
+        public LineError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+        
+        /**
+         * Gets the line number
+         * @return Line number in the input, starting at 1
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+        
+        /**
+         * Gets the reason the line was rejected
+         * @return The error message
+         */
+        public String getMessage() {
+            return message;
+        }
+        
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + ": " + message;
+        }
+    }
+}
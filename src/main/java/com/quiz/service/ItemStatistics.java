@@ -0,0 +1,423 @@
+package com.quiz.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Item analysis of the questions of a quiz, collected from finished sessions
+ * For every question it counts how often each option was chosen, how often it was answered correctly,
+ * the time candidates spent on it, and sums of the candidates' total scores for the discrimination index.
+ *
+ * Counters live in StripedCounters, one stripe per CPU, and each thread adds to its own stripe, so
+ * concurrent sessions do not contend on the same cache lines. Storage grows in fixed chunks of questions
+ * that are never copied, so growing never loses concurrent updates.
+ * Snapshots add up the stripes while recording continues and may miss updates made during the read.
+ *
+ * Questions are identified by their index in the quiz, so replacing or removing a question needs new
+ * statistics: withoutQuestion() and withQuestionRemoved() copy the counters with that question reset or
+ * the later ones shifted down, and the copy ignores sessions started on a quiz version before the change.
+ * Sessions started on the changed quiz that still hold these statistics are recorded into the copy.
+ */
+public class ItemStatistics {
+    // Counter layout of one question within a chunk
+    private static final int PRESENTED = 0;
+    private static final int CHOICES = 1; // 4 counters, one per stored answer index
+    private static final int CORRECT = 5;
+    private static final int TIME_MILLIS = 6;
+    private static final int SUM_SCORE = 7;
+    private static final int SUM_SCORE_CORRECT = 8;
+    private static final int SUM_SCORE_SQUARED = 9;
+    private static final int FIELDS = 10;
+    
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS; // questions per chunk
+    
+    private final long minQuizVersion; // sessions started on an older quiz version are not recorded
+    private volatile ItemStatistics successor; // the copy made for the next question change, null until then
+    private final LongAdder papers = new LongAdder(); // sessions and answer sheets recorded
+    private volatile StripedCounters[] chunks = new StripedCounters[0]; // FIELDS counters per question, CHUNK_SIZE questions per chunk
+    
+    /**
+     * Constructor for empty statistics, with one stripe per available processor
+     */
+    public ItemStatistics() {
+        this(0);
+    }
+    
+    /**
+     * Constructor for empty statistics that only record sessions started on a given quiz version or later
+     * @param minQuizVersion The oldest quiz snapshot version whose sessions are recorded
+     */
+    private ItemStatistics(long minQuizVersion) {
+        this.minQuizVersion = minQuizVersion;
+    }
+    
+    /**
+     * Records the answers of a finished session
+     * Sessions started before the last question change these statistics were copied for are ignored,
+     * as their question indexes refer to the old questions; sessions started after a later change
+     * are recorded into the copy made for it
+     * @param session The finished session
+     */
+    public void recordSession(QuizSession session) {
+        ItemStatistics next = successor;
+        if (next != null && session.getQuizVersion() >= next.minQuizVersion) {
+            next.recordSession(session);
+            return;
+        }
+        if (session.getQuizVersion() < minQuizVersion) {
+            return;
+        }
+        int totalScore = session.getScore();
+        for (int i = 0; i < session.getQuestionCount(); i++) {
+            int storedChoice = session.getStoredAnswer(i);
+            boolean correct = storedChoice != QuizSession.NO_ANSWER && session.getQuestion(i).isCorrectAnswer(storedChoice);
+            record(session.getStoredIndex(i), storedChoice, correct, session.getTimeOnQuestion(i), totalScore);
+        }
+        papers.increment();
+    }
+    
+    /**
+     * Records one response to a question
+     * @param questionIndex Index of the question in the quiz
+     * @param storedChoice The stored answer index chosen, or QuizSession.NO_ANSWER
+     * @param correct true if the response was correct
+     * @param timeMillis Time spent on the question
+     * @param totalScore Total score of the candidate on the whole paper
+     */
+    public void record(int questionIndex, int storedChoice, boolean correct, long timeMillis, int totalScore) {
+        long[] counters = stripeFor(questionIndex);
+        int base = (questionIndex & (CHUNK_SIZE - 1)) * FIELDS;
+        add(counters, base + PRESENTED, 1);
+        if (storedChoice >= 0 && storedChoice <= 3) {
+            add(counters, base + CHOICES + storedChoice, 1);
+        }
+        if (correct) {
+            add(counters, base + CORRECT, 1);
+            add(counters, base + SUM_SCORE_CORRECT, totalScore);
+        }
+        add(counters, base + TIME_MILLIS, timeMillis);
+        add(counters, base + SUM_SCORE, totalScore);
+        add(counters, base + SUM_SCORE_SQUARED, (long) totalScore * totalScore);
+    }
+    
+    /**
+     * Adds the responses counted by a tally, one atomic add per counter instead of per response
+     * @param tally The tally, must not be in use by another thread
+     */
+    public void add(Tally tally) {
+        if (tally.papers == 0) {
+            return;
+        }
+        for (int q = 0; q < tally.questionCount; q++) {
+            long[] counters = stripeFor(q);
+            int base = (q & (CHUNK_SIZE - 1)) * FIELDS;
+            int local = q * Tally.FIELDS;
+            add(counters, base + PRESENTED, tally.papers);
+            for (int c = 0; c < 4; c++) {
+                add(counters, base + CHOICES + c, tally.counters[local + c]);
+            }
+            add(counters, base + CORRECT, tally.counters[local + 4]);
+            add(counters, base + SUM_SCORE_CORRECT, tally.counters[local + 5]);
+            add(counters, base + SUM_SCORE, tally.sumScore);
+            add(counters, base + SUM_SCORE_SQUARED, tally.sumScoreSquared);
+        }
+        papers.add(tally.papers);
+    }
+    
+    /**
+     * Gets the number of finished sessions and answer sheets recorded
+     * @return Number of papers, not counting single responses added with record()
+     */
+    public long getPaperCount() {
+        return papers.sum();
+    }
+    
+    /**
+     * Copies the statistics for a quiz in which one question was replaced
+     * @param questionIndex Index of the replaced question, its counters start again from zero
+     * @param quizVersion Quiz version after the change, sessions started before it are ignored by the copy
+     * @return The new statistics
+     */
+    public ItemStatistics withoutQuestion(int questionIndex, long quizVersion) {
+        ItemStatistics copy = new ItemStatistics(quizVersion);
+        successor = copy; // linked before copying, sessions forwarded meanwhile add to the same counters
+        copy.papers.add(getPaperCount());
+        int capacity = getCapacity();
+        for (int q = 0; q < capacity; q++) {
+            if (q != questionIndex) {
+                copy.copyItem(this, q, q);
+            }
+        }
+        return copy;
+    }
+    
+    /**
+     * Copies the statistics for a quiz from which one question was removed
+     * @param questionIndex Index of the removed question, the later questions move down by one
+     * @param quizVersion Quiz version after the change, sessions started before it are ignored by the copy
+     * @return The new statistics
+     */
+    public ItemStatistics withQuestionRemoved(int questionIndex, long quizVersion) {
+        ItemStatistics copy = new ItemStatistics(quizVersion);
+        successor = copy;
+        copy.papers.add(getPaperCount());
+        int capacity = getCapacity();
+        for (int q = 0; q < capacity; q++) {
+            if (q != questionIndex) {
+                copy.copyItem(this, q, q < questionIndex ? q : q - 1);
+            }
+        }
+        return copy;
+    }
+    
+    /**
+     * Adds the summed counters of a question of other statistics to a question of these
+     * @param source The statistics to copy from
+     * @param from Index of the question in the source
+     * @param to Index of the question here
+     */
+    private void copyItem(ItemStatistics source, int from, int to) {
+        long[] totals = source.getItem(from).totals;
+        if (totals[PRESENTED] == 0) {
+            return;
+        }
+        long[] counters = stripeFor(to);
+        int base = (to & (CHUNK_SIZE - 1)) * FIELDS;
+        for (int field = 0; field < FIELDS; field++) {
+            add(counters, base + field, totals[field]);
+        }
+    }
+    
+    /**
+     * Gets the number of questions counters are allocated for
+     * @return Highest question index recorded so far plus one, rounded up to whole chunks
+     */
+    public int getCapacity() {
+        return chunks.length * CHUNK_SIZE;
+    }
+    
+    /**
+     * Takes a snapshot of the statistics of one question
+     * @param questionIndex Index of the question in the quiz
+     * @return The item statistics, all zero if no response was recorded
+     */
+    public Item getItem(int questionIndex) {
+        long[] totals = new long[FIELDS];
+        StripedCounters[] current = chunks;
+        int chunk = questionIndex >>> CHUNK_BITS;
+        if (questionIndex >= 0 && chunk < current.length) {
+            current[chunk].sumInto((questionIndex & (CHUNK_SIZE - 1)) * FIELDS, totals);
+        }
+        return new Item(questionIndex, totals);
+    }
+    
+    /**
+     * Takes a snapshot of the statistics of a range of questions
+     * @param questionCount Number of questions, starting at index 0
+     * @return The item statistics in question order
+     */
+    public List<Item> snapshot(int questionCount) {
+        List<Item> items = new ArrayList<>(questionCount);
+        for (int i = 0; i < questionCount; i++) {
+            items.add(getItem(i));
+        }
+        return Collections.unmodifiableList(items);
+    }
+    
+    /**
+     * Adds to a counter atomically
+     */
+    private static void add(long[] counters, int index, long delta) {
+        StripedCounters.add(counters, index, delta);
+    }
+    
+    /**
+     * Gets this thread's stripe of the chunk holding a question, growing the storage if needed
+     * @param questionIndex Index of the question
+     * @return Counter array of the stripe
+     */
+    private long[] stripeFor(int questionIndex) {
+        int chunk = questionIndex >>> CHUNK_BITS;
+        StripedCounters[] current = chunks;
+        if (chunk >= current.length) {
+            current = grow(chunk + 1);
+        }
+        return current[chunk].stripe();
+    }
+    
+    /**
+     * Adds chunks until the storage holds a number of chunks, keeping the existing ones
+     * @param chunkCount Number of chunks needed
+     * @return The storage after growing
+     */
+    private synchronized StripedCounters[] grow(int chunkCount) {
+        StripedCounters[] current = chunks;
+        if (chunkCount <= current.length) {
+            return current;
+        }
+        StripedCounters[] larger = Arrays.copyOf(current, chunkCount);
+        for (int c = current.length; c < larger.length; c++) {
+            larger[c] = new StripedCounters(CHUNK_SIZE * FIELDS);
+        }
+        chunks = larger;
+        return larger;
+    }
+    
+    /**
+     * Single-threaded counters for whole answer sheets, added to the statistics in one go with add()
+     * Every sheet covers all questions of the quiz, so the per-paper sums are kept once rather than per question
+     */
+    public static class Tally {
+        private static final int FIELDS = 6; // 4 choice counters, correct, sum of scores when correct
+        
+        private final int questionCount;
+        private final long[] counters;
+        private long papers;
+        private long sumScore;
+        private long sumScoreSquared;
+        
+        /**
+         * Constructor for an empty tally
+         * @param questionCount Number of questions on every sheet
+         */
+        public Tally(int questionCount) {
+            this.questionCount = questionCount;
+            this.counters = new long[questionCount * FIELDS];
+        }
+        
+        /**
+         * Counts one graded answer sheet
+         * @param answerKey Correct answer index per question
+         * @param answers Array holding the sheet, one stored answer index or -1 per question
+         * @param offset Offset of the sheet in the array
+         * @param totalScore Score of the sheet
+         */
+        public void record(byte[] answerKey, byte[] answers, int offset, int totalScore) {
+            papers++;
+            sumScore += totalScore;
+            sumScoreSquared += (long) totalScore * totalScore;
+            for (int q = 0; q < questionCount; q++) {
+                int choice = answers[offset + q];
+                if (choice >= 0 && choice <= 3) {
+                    int base = q * FIELDS;
+                    counters[base + choice]++;
+                    if (choice == answerKey[q]) {
+                        counters[base + 4]++;
+                        counters[base + 5] += totalScore;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Gets the number of sheets counted
+         * @return Number of sheets
+         */
+        public long getPaperCount() {
+            return papers;
+        }
+    }
+    
+    /**
+     * Statistics of one question at the time of a snapshot
+     */
+    public static class Item {
+        private final int questionIndex;
+        private final long[] totals;
+        
+        /**
+         * Constructor for an item snapshot
+         * @param questionIndex Index of the question in the quiz
+         * @param totals Summed counters of the question
+         */
+        Item(int questionIndex, long[] totals) {
+            this.questionIndex = questionIndex;
+            this.totals = totals;
+        }
+        
+        /**
+         * Gets the index of the question in the quiz
+         * @return The question index
+         */
+        public int getQuestionIndex() {
+            return questionIndex;
+        }
+        
+        /**
+         * Gets the number of finished papers the question was on
+         * @return Number of responses, including unanswered ones
+         */
+        public long getResponses() {
+            return totals[PRESENTED];
+        }
+        
+        /**
+         * Gets how often an option was chosen
+         * @param storedChoice The stored answer index (0-3)
+         * @return Number of candidates who chose it
+         */
+        public long getChoiceCount(int storedChoice) {
+            return totals[CHOICES + storedChoice];
+        }
+        
+        /**
+         * Gets how often the question was left unanswered
+         * @return Number of responses without an answer
+         */
+        public long getUnansweredCount() {
+            long answered = 0;
+            for (int i = 0; i < 4; i++) {
+                answered += totals[CHOICES + i];
+            }
+            return totals[PRESENTED] - answered;
+        }
+        
+        /**
+         * Gets the difficulty index, the share of candidates who answered correctly
+         * @return Proportion correct between 0 and 1, or NaN if there are no responses
+         */
+        public double getDifficulty() {
+            return totals[PRESENTED] == 0 ? Double.NaN : (double) totals[CORRECT] / totals[PRESENTED];
+        }
+        
+        /**
+         * Gets the average time candidates spent on the question
+         * @return Average time in milliseconds, or 0 if there are no responses
+         */
+        public double getAverageTimeMillis() {
+            return totals[PRESENTED] == 0 ? 0 : (double) totals[TIME_MILLIS] / totals[PRESENTED];
+        }
+        
+        /**
+         * Gets the point-biserial correlation between answering correctly and the total score
+         * The total includes this question, which inflates the value slightly on short papers
+         * @return Discrimination index between -1 and 1, or NaN if everyone or no one answered correctly
+         */
+        public double getPointBiserial() {
+            double n = totals[PRESENTED];
+            double correct = totals[CORRECT];
+            if (correct == 0 || correct == n) {
+                return Double.NaN;
+            }
+            double mean = totals[SUM_SCORE] / n;
+            double variance = totals[SUM_SCORE_SQUARED] / n - mean * mean;
+            if (variance <= 0) {
+                return Double.NaN;
+            }
+            double meanCorrect = totals[SUM_SCORE_CORRECT] / correct;
+            double meanIncorrect = (totals[SUM_SCORE] - totals[SUM_SCORE_CORRECT]) / (n - correct);
+            double p = correct / n;
+            return (meanCorrect - meanIncorrect) / Math.sqrt(variance) * Math.sqrt(p * (1 - p));
+        }
+        
+        @Override
+        public String toString() {
+            return "Question " + (questionIndex + 1) + ": " + totals[PRESENTED] + " responses, difficulty "
+                    + getDifficulty() + ", discrimination " + getPointBiserial();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.quiz.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Live standings of the candidates of a quiz
+ * Candidates are counted per score in a Fenwick tree of atomic counters, so a score change,
+ * a rank lookup and finding the candidates at a given rank each take O(log maxScore),
+ * independent of the number of candidates. Updates only touch atomic counters and
+ * concurrent sets, so sessions never block each other; readers see standings that may
+ * be a few updates behind while answers are coming in.
+ */
+public class Leaderboard {
+    /** Highest score tracked by default, one point per question */
+    public static final int DEFAULT_MAX_SCORE = 65535;
+    
+    private final int maxScore;
+    private final AtomicIntegerArray tree; // Fenwick tree over score buckets, 1-based
+    private final AtomicReferenceArray<Set<Long>> members; // session ids per score, created on first use
+    private final Map<Long, Integer> scores = new ConcurrentHashMap<>();
+    
+    /**
+     * Constructor for a leaderboard with the default score range
+     */
+    public Leaderboard() {
+        this(DEFAULT_MAX_SCORE);
+    }
+    
+    /**
+     * Constructor for a leaderboard
+     * @param maxScore Highest score a candidate can reach
+     */
+    public Leaderboard(int maxScore) {
+        this.maxScore = maxScore;
+        this.tree = new AtomicIntegerArray(maxScore + 2);
+        this.members = new AtomicReferenceArray<>(maxScore + 1);
+    }
+    
+    /**
+     * Gets the highest score this leaderboard can track
+     * @return Maximum score
+     */
+    public int getMaxScore() {
+        return maxScore;
+    }
+    
+    /**
+     * Adds a candidate
+     * @param sessionId The session of the candidate
+     * @param score The current score of the candidate
+     */
+    public void add(long sessionId, int score) {
+        if (score < 0 || score > maxScore) {
+            throw new IllegalArgumentException("Score " + score + " is outside 0.." + maxScore);
+        }
+        if (scores.putIfAbsent(sessionId, score) == null) {
+            bucket(score).add(sessionId);
+            addToTree(score, 1);
+        }
+    }
+    
+    /**
+     * Moves a candidate to a new score
+     * Calls for the same candidate must not run concurrently, QuizSession makes them under its own lock
+     * @param sessionId The session of the candidate
+     * @param oldScore The previous score
+     * @param newScore The new score
+     */
+    public void update(long sessionId, int oldScore, int newScore) {
+        if (oldScore == newScore || newScore < 0 || newScore > maxScore) {
+            return;
+        }
+        // Insert before removing, so a concurrent top-K never misses the candidate
+        bucket(newScore).add(sessionId);
+        scores.put(sessionId, newScore);
+        bucket(oldScore).remove(sessionId);
+        moveInTree(oldScore, newScore);
+    }
+    
+    /**
+     * Removes a candidate
+     * @param sessionId The session of the candidate
+     */
+    public void remove(long sessionId) {
+        Integer score = scores.remove(sessionId);
+        if (score != null) {
+            bucket(score).remove(sessionId);
+            addToTree(score, -1);
+        }
+    }
+    
+    /**
+     * Gets the number of candidates on the leaderboard
+     * @return Number of candidates
+     */
+    public int size() {
+        return prefixCount(maxScore);
+    }
+    
+    /**
+     * Gets the current score of a candidate
+     * @param sessionId The session of the candidate
+     * @return The score, or -1 if the candidate is not on the leaderboard
+     */
+    public int getScore(long sessionId) {
+        Integer score = scores.get(sessionId);
+        return score == null ? -1 : score;
+    }
+    
+    /**
+     * Gets the rank of a candidate, candidates with equal scores share a rank
+     * @param sessionId The session of the candidate
+     * @return 1 for the best score, or -1 if the candidate is not on the leaderboard
+     */
+    public int getRank(long sessionId) {
+        Integer score = scores.get(sessionId);
+        return score == null ? -1 : rankOfScore(score);
+    }
+    
+    /**
+     * Gets the rank a score has on the leaderboard
+     * @param score The score
+     * @return 1 plus the number of candidates with a higher score
+     */
+    public int rankOfScore(int score) {
+        if (score >= maxScore) {
+            return 1;
+        }
+        return 1 + size() - prefixCount(Math.max(score, -1));
+    }
+    
+    /**
+     * Gets the best candidates, highest score first
+     * Candidates tied at the boundary are all included, so the list can be longer than k
+     * @param k Number of candidates wanted
+     * @return The standings of the top candidates
+     */
+    public List<Standing> getTop(int k) {
+        List<Standing> top = new ArrayList<>(Math.min(k, 1024));
+        int total = size();
+        int rank = 1;
+        while (rank <= k && rank <= total) {
+            int score = scoreAtRank(rank, total);
+            if (score < 0) {
+                break;
+            }
+            Set<Long> bucket = members.get(score);
+            if (bucket != null) {
+                for (Long sessionId : bucket) {
+                    top.add(new Standing(sessionId, score, rank));
+                }
+            }
+            // Continue below this score, whatever the bucket held when it was read
+            rank = Math.max(rank + 1, 1 + total - prefixCount(score - 1));
+        }
+        return Collections.unmodifiableList(top);
+    }
+    
+    /**
+     * Finds the score of the candidate at a rank by descending the Fenwick tree
+     * @param rank Rank counted from the best score, 1-based
+     * @param total Number of candidates
+     * @return The score at that rank, or -1 if there is none
+     */
+    private int scoreAtRank(int rank, int total) {
+        int wanted = total - rank + 1; // Same candidate counted from the lowest score
+        if (wanted <= 0) {
+            return -1;
+        }
+        int position = 0;
+        for (int step = Integer.highestOneBit(tree.length() - 1); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length()) {
+                int count = tree.get(next);
+                if (count < wanted) {
+                    position = next;
+                    wanted -= count;
+                }
+            }
+        }
+        // position is the last index with a prefix below the wanted count, buckets are shifted by one
+        return position <= maxScore ? position : -1;
+    }
+    
+    /**
+     * Counts the candidates with a score up to and including a value
+     * @param score The highest score to count, -1 for none
+     * @return Number of candidates
+     */
+    private int prefixCount(int score) {
+        int count = 0;
+        for (int i = score + 1; i > 0; i -= i & -i) {
+            count += tree.get(i);
+        }
+        return count;
+    }
+    
+    /**
+     * Adds to the candidate count of a score
+     * @param score The score
+     * @param delta Change of the count
+     */
+    private void addToTree(int score, int delta) {
+        for (int i = score + 1; i < tree.length(); i += i & -i) {
+            tree.addAndGet(i, delta);
+        }
+    }
+    
+    /**
+     * Moves one candidate between two scores
+     * The update paths of both scores meet at a common node, above which the +1 and -1 cancel out.
+     * Stopping there keeps nearby scores off the shared top nodes, which every session would hit otherwise
+     * @param oldScore The score to take the candidate from
+     * @param newScore The score to put the candidate in
+     */
+    private void moveInTree(int oldScore, int newScore) {
+        int from = oldScore + 1;
+        int to = newScore + 1;
+        int length = tree.length();
+        while (from != to && (from < length || to < length)) {
+            if (from < to) {
+                tree.addAndGet(from, -1);
+                from += from & -from;
+            } else {
+                tree.addAndGet(to, 1);
+                to += to & -to;
+            }
+        }
+    }
+    
+    /**
+     * Gets the set of candidates with a score, creating it on first use
+     * @param score The score
+     * @return The concurrent set of session ids
+     */
+    private Set<Long> bucket(int score) {
+        Set<Long> bucket = members.get(score);
+        if (bucket == null) {
+            members.compareAndSet(score, null, ConcurrentHashMap.newKeySet());
+            bucket = members.get(score);
+        }
+        return bucket;
+    }
+    
+    /**
+     * Position of one candidate on the leaderboard
+     */
+    public static class Standing {
+        private final long sessionId;
+        private final int score;
+        private final int rank;
+        
+        /**
+         * Constructor for a standing
+         * @param sessionId The session of the candidate
+         * @param score The score of the candidate
+         * @param rank The rank of the candidate
+         */
+        public Standing(long sessionId, int score, int rank) {
+            this.sessionId = sessionId;
+            this.score = score;
+            this.rank = rank;
+        }
+        
+        /**
+         * Gets the session of the candidate
+         * @return The session id
+         */
+        public long getSessionId() {
+            return sessionId;
+        }
+        
+        /**
+         * Gets the score of the candidate
+         * @return Number of correct answers
+         */
+        public int getScore() {
+            return score;
+        }
+        
+        /**
+         * Gets the rank of the candidate
+         * @return 1 for the best score
+         */
+        public int getRank() {
+            return rank;
+        }
+        
+        @Override
+        public String toString() {
+            return "#" + rank + " session " + sessionId + ": " + score;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.quiz.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token bucket per user that limits how often a password can be tried
+ * Every attempt takes a token, whether it succeeds or not, and tokens come back at a fixed rate up to the
+ * burst size. Attempts are refused before any hashing is done, so guessing costs the attacker time and
+ * the server nothing.
+ * The map is kept to MAX_TRACKED_USERS users. Once it is full, users whose bucket filled up again are
+ * forgotten first, then those idle longest, so a flood of new names cannot grow it.
+ */
+public class LoginRateLimiter {
+    private static final int MAX_TRACKED_USERS = 100_000;
+    private static final int EVICTED_TO = MAX_TRACKED_USERS / 10 * 9; // size left after evicting idle users
+    
+    private final int burst;
+    private final long refillNanos;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    
+    /**
+     * Creates a rate limiter
+     * @param burst Number of attempts a user can make in a row
+     * @param refillMillis Time after which one more attempt is allowed
+     */
+    public LoginRateLimiter(int burst, long refillMillis) {
+        if (burst < 1 || refillMillis < 1) {
+            throw new IllegalArgumentException("Burst and refill time must be positive");
+        }
+        this.burst = burst;
+        this.refillNanos = refillMillis * 1_000_000;
+    }
+    
+    /**
+     * Takes a token for an attempt of a user
+     * @param user The user name
+     * @return 0 if the attempt may go ahead, otherwise the milliseconds until the next token
+     */
+    public long tryAcquire(String user) {
+        long now = System.nanoTime();
+        Bucket bucket = buckets.get(user);
+        if (bucket == null) {
+            if (buckets.size() >= MAX_TRACKED_USERS) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(user, u -> new Bucket(burst, now));
+        }
+        synchronized (bucket) {
+            bucket.lastAttempt = now;
+            bucket.refill(now, burst, refillNanos);
+            if (bucket.tokens > 0) {
+                bucket.tokens--;
+                return 0;
+            }
+            return (bucket.lastRefill + refillNanos - now + 999_999) / 1_000_000;
+        }
+    }
+    
+    /**
+     * Gives a user the full burst again, such as after an administrator reset their password
+     * @param user The user name
+     */
+    public void reset(String user) {
+        buckets.remove(user);
+    }
+    
+    /**
+     * Makes room for new users once the map is full
+     * Users whose bucket has filled up again go first, they would start with a full bucket anyway. If that
+     * is not enough, the users idle longest are forgotten until a tenth of the map is free, so a rush of new
+     * users scans the map once per ten thousand of them, not for each one
+     * @param now Current System.nanoTime()
+     */
+    private void evict(long now) {
+        synchronized (evictionLock) {
+            if (buckets.size() < MAX_TRACKED_USERS) {
+                return; // another thread made room
+            }
+            buckets.values().removeIf(bucket -> {
+                synchronized (bucket) {
+                    bucket.refill(now, burst, refillNanos);
+                    return bucket.tokens == burst;
+                }
+            });
+            int excess = buckets.size() - EVICTED_TO;
+            if (excess <= 0) {
+                return;
+            }
+            long[] idleSince = new long[buckets.size()];
+            int count = 0;
+            for (Bucket bucket : buckets.values()) {
+                if (count == idleSince.length) {
+                    break; // users added meanwhile are the most recent anyway
+                }
+                synchronized (bucket) {
+                    idleSince[count++] = bucket.lastAttempt - now; // relative, so nanoTime overflow sorts right
+                }
+            }
+            if (count == 0) {
+                return;
+            }
+            Arrays.sort(idleSince, 0, count);
+            long cutoff = idleSince[Math.min(excess, count) - 1];
+            buckets.values().removeIf(bucket -> {
+                synchronized (bucket) {
+                    return bucket.lastAttempt - now <= cutoff;
+                }
+            });
+        }
+    }
+    
+    /**
+     * Tokens of one user
+     */
+    private static final class Bucket {
+        private int tokens;
+        private long lastRefill; // System.nanoTime() up to which tokens have been added
+        private long lastAttempt; // System.nanoTime() of the latest attempt
+        
+        /**
+         * Constructor for a full bucket
+         * @param tokens Number of tokens
+         * @param now Current System.nanoTime()
+         */
+        Bucket(int tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+            this.lastAttempt = now;
+        }
+        
+        /**
+         * Adds the tokens earned since the last refill
+         * @param now Current System.nanoTime()
+         * @param burst Maximum number of tokens
+         * @param refillNanos Time per token
+         */
+        void refill(long now, int burst, long refillNanos) {
+            long earned = (now - lastRefill) / refillNanos;
+            if (earned > 0) {
+                tokens = (int) Math.min(burst, tokens + earned);
+                lastRefill = tokens == burst ? now : lastRefill + earned * refillNanos;
+            }
+        }
+    }
+}
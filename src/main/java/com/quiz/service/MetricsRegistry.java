@@ -0,0 +1,161 @@
+package com.quiz.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters and latency histograms of the application
+ * Metrics are created on first use and live as long as the application. Call sites look them up once and
+ * keep the instance, so recording an event costs a few atomic adds and no map lookup.
+ * Everything can be exported in the Prometheus text format or as JSON, on the quiz server's /metrics
+ * endpoint or to the file named by -Dquiz.metrics.file when the application exits.
+ */
+public class MetricsRegistry {
+    /** System property naming the file metrics are written to on exit, JSON if it ends with .json */
+    public static final String FILE_PROPERTY = "quiz.metrics.file";
+    
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+    
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final AtomicBoolean exportOnExit = new AtomicBoolean();
+    
+    /**
+     * Private constructor for singleton pattern
+     */
+    private MetricsRegistry() {
+    }
+    
+    /**
+     * Holder class, the JVM initializes it exactly once on first use
+     */
+    private static class Holder {
+        private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+    }
+    
+    /**
+     * Gets the singleton instance of MetricsRegistry
+     * @return The MetricsRegistry instance
+     */
+    public static MetricsRegistry getInstance() {
+        return Holder.INSTANCE;
+    }
+    
+    /**
+     * Gets a counter, creating it on first use
+     * @param name Dotted name of the counter, such as sessions.expired
+     * @return The counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+    
+    /**
+     * Gets a latency histogram, creating it on first use
+     * @param name Dotted name of the timed operation, such as session.start
+     * @return The histogram
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+    
+    /**
+     * Exports all metrics in the Prometheus text format
+     * Counters become quiz_NAME_total, histograms summaries named quiz_NAME_seconds, with dots as underscores
+     * @return The exposition text
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder(4096);
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            String name = exportName(counter.getKey()) + "_total";
+            text.append("# TYPE ").append(name).append(" counter\n");
+            text.append(name).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            String name = exportName(histogram.getKey()) + "_seconds";
+            LatencyHistogram.Snapshot snapshot = histogram.getValue().snapshot();
+            text.append("# TYPE ").append(name).append(" summary\n");
+            for (String quantile : QUANTILES) {
+                text.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(snapshot.getValueAtPercentile(Double.parseDouble(quantile) * 100) / 1e9).append('\n');
+            }
+            text.append(name).append("_sum ").append(snapshot.getSum() / 1e9).append('\n');
+            text.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Turns a dotted metric name into a Prometheus name with the quiz_ prefix
+     * @param name Dotted name, such as session.start
+     * @return Name such as quiz_session_start
+     */
+    private static String exportName(String name) {
+        return (name.startsWith("quiz.") ? "" : "quiz_") + name.replace('.', '_');
+    }
+    
+    /**
+     * Exports all metrics as a JSON object, durations in nanoseconds
+     * @return JSON with a "counters" and a "histograms" member
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(4096).append("{\"counters\":{");
+        boolean first = true;
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            json.append(first ? "" : ",").append('"').append(counter.getKey()).append("\":").append(counter.getValue().sum());
+            first = false;
+        }
+        json.append("},\"histograms\":{");
+        first = true;
+        for (Map.Entry<String, LatencyHistogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram.Snapshot snapshot = histogram.getValue().snapshot();
+            json.append(first ? "" : ",").append('"').append(histogram.getKey()).append("\":{")
+                .append("\"count\":").append(snapshot.getCount())
+                .append(",\"mean\":").append(Math.round(snapshot.getMean()))
+                .append(",\"p50\":").append(snapshot.getValueAtPercentile(50))
+                .append(",\"p90\":").append(snapshot.getValueAtPercentile(90))
+                .append(",\"p99\":").append(snapshot.getValueAtPercentile(99))
+                .append(",\"p999\":").append(snapshot.getValueAtPercentile(99.9))
+                .append(",\"max\":").append(snapshot.getMax()).append('}');
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+    
+    /**
+     * Writes all metrics to a file
+     * @param path The file, written as JSON if its name ends with .json and as text otherwise
+     * @throws IOException If the file cannot be written
+     */
+    public void writeTo(Path path) throws IOException {
+        String content = path.getFileName().toString().endsWith(".json") ? toJson() : toText();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Writes the metrics to the file named by -Dquiz.metrics.file when the application exits
+     * Does nothing if the property is not set; calling it again has no further effect
+     */
+    public void exportOnExit() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null || !exportOnExit.compareAndSet(false, true)) {
+            return;
+        }
+        Path path = Paths.get(file);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                writeTo(path);
+            } catch (IOException e) {
+                System.err.println("Could not write metrics to " + path + ": " + e.getMessage());
+            }
+        }));
+    }
+}
@@ -0,0 +1,143 @@
+package com.quiz.service;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 hash of a password
+ * The iteration count is stored with every hash, so the cost can be raised without invalidating existing
+ * passwords; needsRehash() tells when a hash was made with a lower cost than the current one.
+ * Hashing takes a few hundred milliseconds on purpose and must not run on the event dispatch thread.
+ */
+public final class PasswordHash {
+    /** Iterations used for new hashes unless -Dquiz.password.iterations says otherwise (OWASP 2023 minimum) */
+    public static final int DEFAULT_ITERATIONS = 600_000;
+    /** System property that sets the iterations of new hashes */
+    public static final String ITERATIONS_PROPERTY = "quiz.password.iterations";
+    
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    private final int iterations;
+    private final byte[] salt;
+    private final byte[] hash;
+    
+    /**
+     * Private constructor, use create() or decode()
+     */
+    private PasswordHash(int iterations, byte[] salt, byte[] hash) {
+        this.iterations = iterations;
+        this.salt = salt;
+        this.hash = hash;
+    }
+    
+    /**
+     * Hashes a password with a new random salt at the current cost
+     * @param password The password
+     * @return The hash
+     */
+    public static PasswordHash create(char[] password) {
+        return create(password, currentIterations());
+    }
+    
+    /**
+     * Hashes a password with a new random salt
+     * @param password The password
+     * @param iterations PBKDF2 iteration count
+     * @return The hash
+     */
+    public static PasswordHash create(char[] password, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive: " + iterations);
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return new PasswordHash(iterations, salt, derive(password, salt, iterations));
+    }
+    
+    /**
+     * Gets the iteration count for new hashes
+     * @return The value of -Dquiz.password.iterations, or DEFAULT_ITERATIONS
+     */
+    public static int currentIterations() {
+        return Math.max(1, Integer.getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS));
+    }
+    
+    /**
+     * Checks a password against this hash, in time independent of where the hashes differ
+     * @param password The password to check
+     * @return true if the password matches
+     */
+    public boolean matches(char[] password) {
+        return MessageDigest.isEqual(hash, derive(password, salt, iterations));
+    }
+    
+    /**
+     * Checks whether this hash was made with fewer iterations than new hashes get
+     * @return true if the password should be hashed again after its next successful check
+     */
+    public boolean needsRehash() {
+        return iterations < currentIterations();
+    }
+    
+    /**
+     * Gets the iteration count of this hash
+     * @return PBKDF2 iteration count
+     */
+    public int getIterations() {
+        return iterations;
+    }
+    
+    /**
+     * Encodes the hash as pbkdf2-sha256$iterations$salt$hash with Base64 salt and hash
+     * @return The encoded hash
+     */
+    public String encode() {
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + base64.encodeToString(salt) + "$" + base64.encodeToString(hash);
+    }
+    
+    /**
+     * Decodes a hash written by encode()
+     * @param encoded The encoded hash
+     * @return The hash
+     * @throws IllegalArgumentException If the text is not an encoded hash
+     */
+    public static PasswordHash decode(String encoded) {
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 4 || !parts[0].equals(PREFIX)) {
+            throw new IllegalArgumentException("Not a " + PREFIX + " hash");
+        }
+        int iterations = Integer.parseInt(parts[1]);
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive: " + iterations);
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        return new PasswordHash(iterations, base64.decode(parts[2]), base64.decode(parts[3]));
+    }
+    
+    /**
+     * Runs PBKDF2 over a password
+     * @param password The password
+     * @param salt The salt
+     * @param iterations The iteration count
+     * @return The derived key
+     */
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e); // every Java SE runtime has it
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import com.quiz.model.Quiz;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Read-only question bank stored in a compact binary file and accessed through a memory mapping
+ * Questions are decoded only when they are requested, so opening a bank does not parse it
+ * Finding a record is O(1), but every lookup copies its strings out of the mapping and decodes them again
+ *
+ * File layout (big-endian):
+ * <pre>
+ * header   magic, version, question count, time limit, title offset, title length,
+ *          questions drawn per session, flags (8 x int)
+ * records  one fixed-width record per question: 6 x (offset, length) string refs (question, 4 answers, tag),
+ *          correct index, 3 padding bytes
+ * pool     UTF-8 string data, identical strings are stored once
+ * </pre>
+ * A null tag is stored with length -1. Version 1 files, which have a 6 int header and no tag ref, can still be read.
+ */
+public class QuestionBank {
+    private static final int MAGIC = 0x51424E4B; // "QBNK"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 52;
+    private static final int TAG_OFFSET = 40;
+    private static final int CORRECT_OFFSET = 48;
+    private static final int V1_HEADER_SIZE = 24;
+    private static final int V1_RECORD_SIZE = 44;
+    private static final int V1_CORRECT_OFFSET = 40;
+    private static final int FLAG_SHUFFLED = 1;
+    
+    private final MappedByteBuffer buffer;
+    private final int version;
+    private final int headerSize;
+    private final int recordSize;
+    private final int correctOffset;
+    private final int questionCount;
+    private final int timeLimit;
+    private final int drawCount;
+    private final boolean shuffled;
+    private final String title;
+    private final int poolStart;
+    
+    /**
+     * Private constructor, use open() to read a bank file
+     * @param buffer The mapped file contents
+     * @throws IOException If the file is not a valid question bank
+     */
+    private QuestionBank(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < V1_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a question bank file");
+        }
+        this.version = buffer.getInt(4);
+        if (version == VERSION && buffer.capacity() >= HEADER_SIZE) {
+            this.headerSize = HEADER_SIZE;
+            this.recordSize = RECORD_SIZE;
+            this.correctOffset = CORRECT_OFFSET;
+            this.drawCount = buffer.getInt(24);
+            this.shuffled = (buffer.getInt(28) & FLAG_SHUFFLED) != 0;
+        } else if (version == 1) {
+            this.headerSize = V1_HEADER_SIZE;
+            this.recordSize = V1_RECORD_SIZE;
+            this.correctOffset = V1_CORRECT_OFFSET;
+            this.drawCount = 0;
+            this.shuffled = true;
+        } else {
+            throw new IOException("Unsupported question bank version: " + version);
+        }
+        this.questionCount = buffer.getInt(8);
+        this.timeLimit = buffer.getInt(12);
+        long recordsEnd = headerSize + (long) questionCount * recordSize;
+        if (questionCount < 0 || recordsEnd > buffer.capacity()) {
+            throw new IOException("Corrupt question bank header");
+        }
+        this.poolStart = (int) recordsEnd;
+        try {
+            this.title = readString(buffer.getInt(16), buffer.getInt(20));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Opens a question bank file by mapping it into memory
+     * @param path The bank file
+     * @return The opened question bank
+     * @throws IOException If the file cannot be read or is not a valid question bank
+     */
+    public static QuestionBank open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new QuestionBank(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+    
+    /**
+     * Reads the title, question count and time limit of a bank file without mapping it
+     * Only the header and the title are read, so listing many large banks touches a few bytes of each
+     * @param path The bank file
+     * @return The header
+     * @throws IOException If the file cannot be read or is not a valid question bank
+     */
+    static Header readHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (header.position() < V1_HEADER_SIZE || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a question bank file");
+            }
+            int version = header.getInt(4);
+            long recordsStart;
+            int recordSize;
+            if (version == VERSION && header.position() >= HEADER_SIZE) {
+                recordsStart = HEADER_SIZE;
+                recordSize = RECORD_SIZE;
+            } else if (version == 1) {
+                recordsStart = V1_HEADER_SIZE;
+                recordSize = V1_RECORD_SIZE;
+            } else {
+                throw new IOException("Unsupported question bank version: " + version);
+            }
+            int questionCount = header.getInt(8);
+            int titleOffset = header.getInt(16);
+            int titleLength = header.getInt(20);
+            long titleStart = recordsStart + (long) questionCount * recordSize + titleOffset;
+            if (questionCount < 0 || titleOffset < 0 || titleStart + Math.max(titleLength, 0) > channel.size()) {
+                throw new IOException("Corrupt question bank header");
+            }
+            String title = null;
+            if (titleLength >= 0) {
+                ByteBuffer bytes = ByteBuffer.allocate(titleLength);
+                readFully(channel, bytes, titleStart);
+                title = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+            }
+            return new Header(title, questionCount, header.getInt(12));
+        }
+    }
+    
+    /**
+     * Reads from a file position until a buffer is full or the file ends
+     */
+    private static void readFully(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Writes a quiz to a question bank file
+     * The file is written next to the target and moved into place, so an open mapping of the old file stays valid
+     * @param quiz The quiz to write
+     * @param path The bank file
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Quiz quiz, Path path) throws IOException {
+        List<Question> questions = quiz.getQuestions();
+        Map<String, Integer> offsets = new HashMap<>();
+        ByteArrayPool pool = new ByteArrayPool();
+        
+        Path tempFile = Files.createTempFile(path.toAbsolutePath().getParent(), "qbank", ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(tempFile);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(questions.size());
+                out.writeInt(quiz.getTimeLimit());
+                writeRef(out, pool, offsets, quiz.getTitle());
+                out.writeInt(quiz.getDrawCount());
+                out.writeInt(quiz.isShuffled() ? FLAG_SHUFFLED : 0);
+                
+                for (Question question : questions) {
+                    writeRef(out, pool, offsets, question.getQuestion());
+                    String[] answers = question.getAnswers();
+                    for (int i = 0; i < 4; i++) {
+                        writeRef(out, pool, offsets, answers[i]);
+                    }
+                    writeRef(out, pool, offsets, question.getTag());
+                    out.writeByte(question.getCorrectAnswerIndex());
+                    out.writeByte(0);
+                    out.writeShort(0);
+                }
+                pool.writeTo(out);
+            }
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    /**
+     * Writes a pooled string reference, adding the string to the pool if it is not there yet
+     */
+    private static void writeRef(DataOutputStream out, ByteArrayPool pool,
+                                 Map<String, Integer> offsets, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(0);
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Integer offset = offsets.get(value);
+        if (offset == null) {
+            offset = pool.append(bytes);
+            offsets.put(value, offset);
+        }
+        out.writeInt(offset);
+        out.writeInt(bytes.length);
+    }
+    
+    /**
+     * Gets the number of questions in the bank
+     * @return Number of questions
+     */
+    public int size() {
+        return questionCount;
+    }
+    
+    /**
+     * Gets the title stored with the bank
+     * @return The quiz title
+     */
+    public String getTitle() {
+        return title;
+    }
+    
+    /**
+     * Gets the time limit stored with the bank
+     * @return Time limit in seconds
+     */
+    public int getTimeLimit() {
+        return timeLimit;
+    }
+    
+    /**
+     * Gets the number of questions drawn for each session stored with the bank
+     * @return Questions per session, 0 for the whole quiz
+     */
+    public int getDrawCount() {
+        return drawCount;
+    }
+    
+    /**
+     * Checks if the bank was saved from a quiz with per-session shuffling
+     * @return true if sessions are shuffled
+     */
+    public boolean isShuffled() {
+        return shuffled;
+    }
+    
+    /**
+     * Gets a question by index, decoding it from the mapped file
+     * @param index The index of the question
+     * @return The question at the specified index, or null if invalid index
+     * @throws UncheckedIOException If the record points outside the string pool
+     */
+    public Question getQuestion(int index) {
+        if (index < 0 || index >= questionCount) {
+            return null;
+        }
+        int record = headerSize + index * recordSize;
+        String text = readString(buffer.getInt(record), buffer.getInt(record + 4));
+        String[] answers = new String[4];
+        for (int i = 0; i < 4; i++) {
+            int ref = record + 8 + i * 8;
+            answers[i] = readString(buffer.getInt(ref), buffer.getInt(ref + 4));
+        }
+        String tag = null;
+        if (version >= 2) {
+            tag = readString(buffer.getInt(record + TAG_OFFSET), buffer.getInt(record + TAG_OFFSET + 4));
+        }
+        return new Question(text, answers, buffer.get(record + correctOffset), tag);
+    }
+    
+    /**
+     * Gets the correct answer index of a question without decoding its text
+     * @param index The index of the question
+     * @return Index of the correct answer (0-3), or -1 if invalid index
+     */
+    public int getCorrectAnswerIndex(int index) {
+        if (index < 0 || index >= questionCount) {
+            return -1;
+        }
+        return buffer.get(headerSize + index * recordSize + correctOffset);
+    }
+    
+    /**
+     * Gets a read-only list view of the bank
+     * Elements are decoded on access and not cached
+     * @return List of all questions
+     */
+    public List<Question> asList() {
+        return new QuestionList();
+    }
+    
+    /**
+     * Decodes a UTF-8 string from the pool
+     * @param offset Offset of the string in the pool
+     * @param length Length of the string in bytes, -1 for null
+     * @return The decoded string
+     * @throws UncheckedIOException If the string lies outside the pool
+     */
+    private String readString(int offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        // Checked against the pool before allocating, so a damaged ref cannot ask for a huge array
+        if (offset < 0 || length > buffer.capacity() - poolStart - offset) {
+            throw new UncheckedIOException(new IOException(
+                    "Corrupt question bank: string at " + offset + " of length " + length + " is outside the pool"));
+        }
+        byte[] bytes = new byte[length];
+        // Work on a duplicate so concurrent readers do not share a position
+        ByteBuffer view = buffer.duplicate();
+        view.position(poolStart + offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * List view over the questions of the bank
+     */
+    private class QuestionList extends AbstractList<Question> implements RandomAccess {
+        @Override
+        public Question get(int index) {
+            Question question = getQuestion(index);
+            if (question == null) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + questionCount);
+            }
+            return question;
+        }
+        
+        @Override
+        public int size() {
+            return questionCount;
+        }
+    }
+    
+    /**
+     * Metadata from the header of a bank file, read by readHeader()
+     */
+    static final class Header {
+        final String title;
+        final int questionCount;
+        final int timeLimit;
+        
+        /**
+         * Constructor for a header
+         * @param title The quiz title
+         * @param questionCount Number of questions
+         * @param timeLimit Time limit in seconds
+         */
+        Header(String title, int questionCount, int timeLimit) {
+            this.title = title;
+            this.questionCount = questionCount;
+            this.timeLimit = timeLimit;
+        }
+    }
+    
+    /**
+     * Growable byte buffer for the string pool of a bank being written
+     */
+    private static class ByteArrayPool {
+        private byte[] data = new byte[1 << 16];
+        private int size;
+        
+        /**
+         * Appends bytes to the pool
+         * @param bytes The bytes to append
+         * @return Offset of the appended bytes
+         * @throws IOException If the pool would exceed the 2 GB limit of the format
+         */
+        int append(byte[] bytes) throws IOException {
+            if ((long) size + bytes.length > Integer.MAX_VALUE - 8) {
+                throw new IOException("Question bank string pool exceeds 2 GB");
+            }
+            if (size + bytes.length > data.length) {
+                long grown = Math.max((long) data.length * 2, (long) size + bytes.length);
+                byte[] larger = new byte[(int) Math.min(grown, Integer.MAX_VALUE - 8)];
+                System.arraycopy(data, 0, larger, 0, size);
+                data = larger;
+            }
+            int offset = size;
+            System.arraycopy(bytes, 0, data, size, bytes.length);
+            size += bytes.length;
+            return offset;
+        }
+        
+        /**
+         * Writes the pool contents
+         * @param out The stream to write to
+         * @throws IOException If writing fails
+         */
+        void writeTo(OutputStream out) throws IOException {
+            out.write(data, 0, size);
+        }
+    }
+}
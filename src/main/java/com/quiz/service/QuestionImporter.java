@@ -0,0 +1,474 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * Streams questions from CSV or JSON Lines input into the current quiz
+ * Input is read in batches of lines. While one batch is parsed and validated in parallel, the next one is read,
+ * so at most two batches are held in memory whatever the size of the input. Valid questions of each batch are
+ * added to the quiz as one change, in input order, in compact storage (see QuizService.importQuestions).
+ *
+ * CSV lines have six columns: question, four answers and the correct answer index (0-3), plus an optional
+ * seventh column with the question tag. Fields containing commas or quotes are quoted, with quotes doubled. A first line starting with "question" is treated as a header.
+ * JSON lines are objects such as {"question": "...", "answers": ["a", "b", "c", "d"], "correctAnswerIndex": 1},
+ * with an optional "tag" string.
+ */
+public class QuestionImporter {
+    /** Number of lines parsed and added to the quiz together */
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+    
+    /**
+     * Supported input formats
+     */
+    public enum Format {
+        CSV, JSONL;
+        
+        /**
+         * Picks the format from a file name, ".jsonl" and ".json" are JSON Lines, anything else is CSV
+         * @param path The input file
+         * @return The format of the file
+         */
+        public static Format forFile(Path path) {
+            String name = path.getFileName().toString().toLowerCase();
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+    
+    private final QuizService quizService;
+    private final int batchSize;
+    
+    /**
+     * Constructor with the default batch size
+     * @param quizService The service whose current quiz receives the questions
+     */
+    public QuestionImporter(QuizService quizService) {
+        this(quizService, DEFAULT_BATCH_SIZE);
+    }
+    
+    /**
+     * Constructor with a custom batch size
+     * @param quizService The service whose current quiz receives the questions
+     * @param batchSize Number of lines per batch
+     */
+    public QuestionImporter(QuizService quizService, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.quizService = quizService;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Imports a UTF-8 file, choosing the format from its extension
+     * @param path The file to import
+     * @return Report of imported questions and rejected lines
+     * @throws IOException If the file cannot be read
+     */
+    public ImportReport importFile(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return importFrom(reader, Format.forFile(path));
+        }
+    }
+    
+    /**
+     * Imports questions from a reader
+     * @param reader The input, it is not closed
+     * @param format The input format
+     * @return Report of imported questions and rejected lines
+     * @throws IOException If reading fails
+     */
+    public ImportReport importFrom(Reader reader, Format format) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        ImportReport report = new ImportReport();
+        long lineNumber = 0;
+        CompletableFuture<Batch> pending = null;
+        
+        while (true) {
+            Batch batch = new Batch(lineNumber + 1, batchSize);
+            String line;
+            while (batch.size < batchSize && (line = lines.readLine()) != null) {
+                batch.lines[batch.size++] = line;
+                report.lineRead();
+            }
+            lineNumber += batch.size;
+            
+            // Finish the previous batch while this one is handed to the parsers
+            if (pending != null) {
+                commit(join(pending), report);
+            }
+            if (batch.size == 0) {
+                return report;
+            }
+            boolean skipHeader = format == Format.CSV && batch.firstLine == 1 && isCsvHeader(batch.lines[0]);
+            pending = CompletableFuture.supplyAsync(() -> batch.parse(format, skipHeader));
+        }
+    }
+    
+    /**
+     * Adds the valid questions of a parsed batch to the quiz and records its errors and duplicates
+     * @param batch The parsed batch
+     * @param report The report to update
+     */
+    private void commit(Batch batch, ImportReport report) {
+        List<Question> valid = new ArrayList<>(batch.size);
+        for (int i = 0; i < batch.size; i++) {
+            if (batch.questions[i] != null) {
+                valid.add(batch.questions[i]);
+            } else if (batch.errors[i] != null) {
+                report.error(batch.firstLine + i, batch.errors[i]);
+            }
+        }
+        report.duplicates(quizService.importQuestions(valid));
+        report.imported(valid.size());
+    }
+    
+    /**
+     * Waits for a parsed batch
+     * @param pending The batch being parsed
+     * @return The parsed batch
+     */
+    private static Batch join(CompletableFuture<Batch> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+    
+    /**
+     * Checks if a CSV line is a header line
+     * @param line The first line of the input
+     * @return true if the line starts with the "question" column name
+     */
+    private static boolean isCsvHeader(String line) {
+        return line.regionMatches(true, line.startsWith("\"") ? 1 : 0, "question", 0, 8);
+    }
+    
+    /**
+     * A block of input lines and their parse results, slot i holds either a question or an error
+     */
+    private class Batch {
+        private final long firstLine;
+        private final String[] lines;
+        private final Question[] questions;
+        private final String[] errors;
+        private int size;
+        
+        Batch(long firstLine, int capacity) {
+            this.firstLine = firstLine;
+            this.lines = new String[capacity];
+            this.questions = new Question[capacity];
+            this.errors = new String[capacity];
+        }
+        
+        /**
+         * Parses and validates all lines of the batch in parallel
+         * @param format The input format
+         * @param skipHeader true to ignore the first line
+         * @return This batch
+         */
+        Batch parse(Format format, boolean skipHeader) {
+            IntStream.range(skipHeader ? 1 : 0, size).parallel().forEach(i -> {
+                String line = lines[i];
+                lines[i] = null; // Let the text go as soon as it is parsed
+                if (line.trim().isEmpty()) {
+                    return;
+                }
+                try {
+                    Question question = format == Format.CSV ? parseCsv(line) : parseJson(line);
+                    if (quizService.validateQuestion(question.getQuestion(), question.getAnswers(),
+                                                     question.getCorrectAnswerIndex())) {
+                        questions[i] = question;
+                    } else {
+                        errors[i] = "Question text and all four answers are required, correct answer index must be 0-3";
+                    }
+                } catch (IllegalArgumentException e) {
+                    errors[i] = e.getMessage();
+                }
+            });
+            return this;
+        }
+    }
+    
+    /**
+     * Parses a CSV line into a question
+     * @param line The line to parse
+     * @return The parsed question, not validated
+     * @throws IllegalArgumentException If the line is malformed
+     */
+    static Question parseCsv(String line) {
+        String[] fields = new String[7];
+        int count = 0;
+        int position = 0;
+        int length = line.length();
+        while (true) {
+            String field;
+            if (position < length && line.charAt(position) == '"') {
+                // Quoted field, quotes inside are doubled
+                StringBuilder quoted = new StringBuilder();
+                int i = position + 1;
+                while (true) {
+                    int quote = line.indexOf('"', i);
+                    if (quote < 0) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    quoted.append(line, i, quote);
+                    if (quote + 1 < length && line.charAt(quote + 1) == '"') {
+                        quoted.append('"');
+                        i = quote + 2;
+                    } else {
+                        position = quote + 1;
+                        break;
+                    }
+                }
+                field = quoted.toString();
+                if (position < length && line.charAt(position) != ',') {
+                    throw new IllegalArgumentException("Unexpected text after quoted field");
+                }
+            } else {
+                int comma = line.indexOf(',', position);
+                int fieldEnd = comma < 0 ? length : comma;
+                field = line.substring(position, fieldEnd);
+                position = fieldEnd;
+            }
+            if (count == fields.length) {
+                throw new IllegalArgumentException("Expected 6 or 7 columns but found more");
+            }
+            fields[count++] = field.trim();
+            if (position >= length) {
+                break;
+            }
+            position++; // Skip the comma
+        }
+        
+        if (count < 6) {
+            throw new IllegalArgumentException("Expected 6 or 7 columns but found " + count);
+        }
+        String[] answers = {fields[1], fields[2], fields[3], fields[4]};
+        String tag = count == 7 && !fields[6].isEmpty() ? fields[6] : null;
+        return new Question(fields[0], answers, parseIndex(fields[5]), tag);
+    }
+    
+    /**
+     * Parses a JSON object line into a question
+     * @param line The line to parse
+     * @return The parsed question, not validated
+     * @throws IllegalArgumentException If the line is not a valid question object
+     */
+    static Question parseJson(String line) {
+        JsonCursor json = new JsonCursor(line);
+        String text = null;
+        List<String> answers = null;
+        Integer correct = null;
+        String tag = null;
+        
+        json.expect('{');
+        if (!json.consume('}')) {
+            do {
+                String key = json.readString();
+                json.expect(':');
+                switch (key) {
+                    case "question":
+                        text = json.readString();
+                        break;
+                    case "answers":
+                        answers = json.readStringArray();
+                        break;
+                    case "correctAnswerIndex":
+                        correct = parseIndex(json.readNumber());
+                        break;
+                    case "tag":
+                        tag = json.readString().trim();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            } while (json.consume(','));
+            json.expect('}');
+        }
+        json.expectEnd();
+        
+        if (text == null || answers == null || correct == null) {
+            throw new IllegalArgumentException("Missing \"question\", \"answers\" or \"correctAnswerIndex\"");
+        }
+        if (answers.size() != 4) {
+            throw new IllegalArgumentException("Expected 4 answers but found " + answers.size());
+        }
+        return new Question(text.trim(), trimAll(answers), correct, tag == null || tag.isEmpty() ? null : tag);
+    }
+    
+    /**
+     * Parses a correct answer index
+     * @param value The index text
+     * @return The index
+     * @throws IllegalArgumentException If the value is not an integer
+     */
+    private static int parseIndex(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Correct answer index is not a number: " + value);
+        }
+    }
+    
+    /**
+     * Trims every string of a list
+     * @param values The strings to trim
+     * @return Array of trimmed strings
+     */
+    private static String[] trimAll(List<String> values) {
+        String[] result = new String[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i).trim();
+        }
+        return result;
+    }
+    
+    /**
+     * Minimal reader for the flat JSON objects of an import line
+     */
+    private static class JsonCursor {
+        private final String text;
+        private int position;
+        
+        JsonCursor(String text) {
+            this.text = text;
+        }
+        
+        void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+        
+        boolean consume(char c) {
+            skipWhitespace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+        
+        void expect(char c) {
+            if (!consume(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+        
+        void expectEnd() {
+            skipWhitespace();
+            if (position != text.length()) {
+                throw error("Unexpected text after object");
+            }
+        }
+        
+        String readString() {
+            expect('"');
+            StringBuilder result = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return result.toString();
+                }
+                if (c != '\\') {
+                    result.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'n': result.append('\n'); break;
+                    case 't': result.append('\t'); break;
+                    case 'r': result.append('\r'); break;
+                    case 'b': result.append('\b'); break;
+                    case 'f': result.append('\f'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Bad unicode escape");
+                        }
+                        try {
+                            result.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default: result.append(escaped); // \" \\ and \/
+                }
+            }
+            throw error("Unterminated string");
+        }
+        
+        List<String> readStringArray() {
+            expect('[');
+            List<String> values = new ArrayList<>(4);
+            if (!consume(']')) {
+                do {
+                    values.add(readString());
+                } while (consume(','));
+                expect(']');
+            }
+            return values;
+        }
+        
+        String readNumber() {
+            skipWhitespace();
+            int start = position;
+            while (position < text.length() && "+-.0123456789eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            if (start == position) {
+                throw error("Expected a number");
+            }
+            return text.substring(start, position);
+        }
+        
+        void skipValue() {
+            skipWhitespace();
+            if (position >= text.length()) {
+                throw error("Expected a value");
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                readString();
+            } else if (c == '[' || c == '{') {
+                char close = c == '[' ? ']' : '}';
+                position++;
+                if (!consume(close)) {
+                    do {
+                        if (c == '{') {
+                            readString();
+                            expect(':');
+                        }
+                        skipValue();
+                    } while (consume(','));
+                    expect(close);
+                }
+            } else if (text.startsWith("true", position) || text.startsWith("null", position)) {
+                position += 4;
+            } else if (text.startsWith("false", position)) {
+                position += 5;
+            } else {
+                readNumber();
+            }
+        }
+        
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (position + 1));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.quiz.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Cache of pre-rendered, UTF-8 encoded question payloads for one quiz
+ * A payload is keyed by the question index and the answer order it was rendered with, and remembers
+ * the quiz version it was rendered from. Changing a question records the version of the change, and
+ * payloads rendered before it are no longer served; readers still on an older version of the quiz
+ * render without the cache, so every candidate sees exactly the questions of their own snapshot.
+ *
+ * The cache holds at most a configurable number of payload bytes. When it is over budget, entries are
+ * evicted with the CLOCK algorithm, an approximation of LRU that needs no lock on lookups.
+ */
+public class QuestionPayloadCache {
+    /** Default byte budget */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    
+    private static final int ENTRY_OVERHEAD = 64; // approximate bytes of bookkeeping per entry
+    
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> changedAt = new ConcurrentHashMap<>(); // question index -> version of last change
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private volatile long maxBytes;
+    private volatile long structureChangedAt; // version of the last change that moved question indexes
+    private Iterator<Map.Entry<Long, Entry>> clockHand; // guarded by evictionLock
+    
+    /**
+     * Constructor for a cache with the default byte budget
+     */
+    public QuestionPayloadCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+    
+    /**
+     * Constructor for a cache
+     * @param maxBytes Maximum number of payload bytes to keep
+     */
+    public QuestionPayloadCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Gets a payload, rendering and caching it if needed
+     * @param questionIndex Stored index of the question
+     * @param answerOrder Answer order the payload is rendered with, 0-31
+     * @param version Quiz version the reader sees
+     * @param renderer Renders the payload for that version on a miss
+     * @return The payload bytes, shared and must not be modified
+     */
+    public byte[] get(int questionIndex, int answerOrder, long version, Supplier<byte[]> renderer) {
+        long validFrom = lastChange(questionIndex);
+        if (version < validFrom) {
+            // The reader's snapshot predates the change, its payload is not the cached one
+            misses.incrementAndGet();
+            return renderer.get();
+        }
+        long key = ((long) questionIndex << 5) | answerOrder;
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version >= validFrom) {
+            entry.referenced = true;
+            hits.incrementAndGet();
+            return entry.payload;
+        }
+        misses.incrementAndGet();
+        byte[] payload = renderer.get();
+        Entry created = new Entry(payload, version);
+        Entry previous = entries.put(key, created);
+        usedBytes.addAndGet(created.size() - (previous != null ? previous.size() : 0));
+        if (usedBytes.get() > maxBytes) {
+            evict();
+        }
+        return payload;
+    }
+    
+    /**
+     * Stops serving cached payloads of a question, call after the question changed
+     * @param questionIndex Stored index of the changed question
+     * @param version Quiz version that contains the change
+     */
+    public void invalidate(int questionIndex, long version) {
+        changedAt.merge(questionIndex, version, Math::max);
+        Entry removed;
+        for (int order = 0; order < 32; order++) {
+            removed = entries.remove(((long) questionIndex << 5) | order);
+            if (removed != null) {
+                usedBytes.addAndGet(-removed.size());
+            }
+        }
+    }
+    
+    /**
+     * Stops serving all cached payloads, call after questions were removed or reordered
+     * @param version Quiz version that contains the change
+     */
+    public void invalidateAll(long version) {
+        structureChangedAt = Math.max(structureChangedAt, version);
+        changedAt.clear();
+        evictionLock.lock();
+        try {
+            entries.clear();
+            usedBytes.set(0);
+            clockHand = null;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    /**
+     * Sets the byte budget, evicting entries if the cache is now over it
+     * @param maxBytes Maximum number of payload bytes to keep
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+    
+    /**
+     * Gets the byte budget
+     * @return Maximum number of payload bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    /**
+     * Gets the number of bytes currently cached
+     * @return Approximate size of the cached payloads
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+    
+    /**
+     * Gets the number of lookups served from the cache
+     * @return Number of hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    /**
+     * Gets the number of lookups that had to render the payload
+     * @return Number of misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    /**
+     * Gets the version of the last change that affects a question
+     * @param questionIndex Stored index of the question
+     * @return The version, 0 if the question never changed
+     */
+    private long lastChange(int questionIndex) {
+        long structural = structureChangedAt;
+        if (changedAt.isEmpty()) {
+            return structural;
+        }
+        Long changed = changedAt.get(questionIndex);
+        return changed == null ? structural : Math.max(changed, structural);
+    }
+    
+    /**
+     * Evicts entries until the cache is within budget
+     * Entries used since the hand last passed get a second chance; only one thread evicts at a time
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int passes = 0;
+            while (usedBytes.get() > maxBytes && !entries.isEmpty() && passes < 3) {
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = entries.entrySet().iterator();
+                    passes++;
+                }
+                while (clockHand.hasNext() && usedBytes.get() > maxBytes) {
+                    Map.Entry<Long, Entry> candidate = clockHand.next();
+                    Entry entry = candidate.getValue();
+                    if (entry.referenced) {
+                        entry.referenced = false;
+                    } else if (entries.remove(candidate.getKey(), entry)) {
+                        usedBytes.addAndGet(-entry.size());
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    /**
+     * A cached payload
+     */
+    private static final class Entry {
+        final byte[] payload;
+        final long version;
+        volatile boolean referenced;
+        
+        /**
+         * Constructor for an entry
+         * @param payload The rendered bytes
+         * @param version Quiz version the payload was rendered from
+         */
+        Entry(byte[] payload, long version) {
+            this.payload = payload;
+            this.version = version;
+        }
+        
+        /**
+         * Gets the number of bytes charged to the budget
+         * @return Payload size plus bookkeeping
+         */
+        int size() {
+            return payload.length + ENTRY_OVERHEAD;
+        }
+    }
+}
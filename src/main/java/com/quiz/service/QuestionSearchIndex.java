@@ -0,0 +1,517 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the question and answer texts of a quiz
+ * Every question gets a document id in the order it was added. Words map to sorted arrays of the
+ * document ids that contain them, and a Fenwick tree over the live document ids converts between
+ * document ids and positions in the quiz, so removing a question never renumbers the index.
+ *
+ * Queries are words that must all occur; a word ending in '*' matches every word starting with it.
+ * Results come in quiz order, one page at a time.
+ */
+public class QuestionSearchIndex {
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private final BitSet live = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Question[] documents = new Question[16];
+    private int[] tree = new int[17]; // Fenwick tree of live documents, 1-based
+    private int documentCount; // document ids handed out so far
+    private int liveCount;
+    
+    /**
+     * Constructor for an empty index
+     */
+    public QuestionSearchIndex() {
+    }
+    
+    /**
+     * Constructor for an index over existing questions
+     * @param questions The questions of the quiz, in order
+     */
+    public QuestionSearchIndex(List<Question> questions) {
+        addAll(questions);
+    }
+    
+    /**
+     * Indexes a question added at the end of the quiz
+     * @param question The new question
+     */
+    public void add(Question question) {
+        lock.writeLock().lock();
+        try {
+            append(question);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Indexes several questions added at the end of the quiz
+     * @param questions The new questions, in order
+     */
+    public void addAll(List<Question> questions) {
+        lock.writeLock().lock();
+        try {
+            for (Question question : questions) {
+                append(question);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Re-indexes a question that was replaced
+     * @param position Index of the question in the quiz
+     * @param question The new question
+     */
+    public void update(int position, Question question) {
+        lock.writeLock().lock();
+        try {
+            int document = documentAt(position);
+            unindex(document);
+            documents[document] = question;
+            index(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Drops a question that was removed, later questions move up one position
+     * @param position Index of the question in the quiz
+     */
+    public void remove(int position) {
+        lock.writeLock().lock();
+        try {
+            int document = documentAt(position);
+            unindex(document);
+            documents[document] = null;
+            live.clear(document);
+            liveCount--;
+            addToTree(document, -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Gets the number of indexed questions
+     * @return Number of questions
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Finds the questions that contain all words of a query
+     * @param query Words separated by spaces, a trailing '*' makes a word a prefix; empty matches all questions
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of matches to return
+     * @return The page of matches in quiz order, with the total number of matches
+     */
+    public Page search(String query, int offset, int limit) {
+        List<String> words = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        parseQuery(query, words, prefixes);
+        offset = Math.max(0, offset);
+        
+        lock.readLock().lock();
+        try {
+            int[] page = new int[Math.max(0, Math.min(limit, liveCount - offset))];
+            int found = 0;
+            int total = 0;
+            if (words.isEmpty()) {
+                total = liveCount;
+                int document = offset < liveCount ? documentAt(offset) : -1;
+                while (found < page.length && document >= 0) {
+                    page[found++] = document;
+                    document = live.nextSetBit(document + 1);
+                }
+            } else {
+                BitSet matches = match(words, prefixes);
+                for (int document = matches.nextSetBit(0); document >= 0; document = matches.nextSetBit(document + 1)) {
+                    if (total >= offset && found < page.length) {
+                        page[found++] = document;
+                    }
+                    total++;
+                }
+            }
+            
+            int[] positions = new int[found];
+            List<Question> questions = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                positions[i] = prefixCount(page[i]);
+                questions.add(documents[page[i]]);
+            }
+            return new Page(offset, total, positions, questions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Finds the documents that contain all query words
+     * The rarest exact word is scanned and the others are checked by binary search; prefixes become bit sets
+     * @return Ids of the matching documents
+     */
+    private BitSet match(List<String> words, List<Boolean> prefixes) {
+        Postings rarest = null;
+        List<Postings> exact = new ArrayList<>();
+        List<BitSet> prefixMatches = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            if (prefixes.get(i)) {
+                BitSet union = new BitSet();
+                for (Postings postings : terms.subMap(words.get(i), true, words.get(i) + Character.MAX_VALUE, false).values()) {
+                    postings.setAll(union);
+                }
+                prefixMatches.add(union);
+            } else {
+                Postings postings = terms.get(words.get(i));
+                if (postings == null) {
+                    return new BitSet();
+                }
+                exact.add(postings);
+                if (rarest == null || postings.size < rarest.size) {
+                    rarest = postings;
+                }
+            }
+        }
+        
+        BitSet result;
+        if (rarest == null) {
+            result = prefixMatches.remove(0);
+        } else {
+            result = new BitSet();
+            for (int i = 0; i < rarest.size; i++) {
+                int document = rarest.ids[i];
+                boolean all = true;
+                for (Postings postings : exact) {
+                    if (postings != rarest && !postings.contains(document)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) {
+                    result.set(document);
+                }
+            }
+        }
+        for (BitSet prefix : prefixMatches) {
+            result.and(prefix);
+        }
+        return result;
+    }
+    
+    /**
+     * Splits a query into lower case words, marking the ones that end in '*'
+     */
+    private static void parseQuery(String query, List<String> words, List<Boolean> prefixes) {
+        if (query == null) {
+            return;
+        }
+        for (String part : query.trim().split("\\s+")) {
+            boolean prefix = part.endsWith("*");
+            List<String> tokens = new ArrayList<>();
+            tokenize(prefix ? part.substring(0, part.length() - 1) : part, tokens);
+            for (int i = 0; i < tokens.size(); i++) {
+                words.add(tokens.get(i));
+                prefixes.add(prefix && i == tokens.size() - 1);
+            }
+        }
+    }
+    
+    /**
+     * Splits a text into lower case words of letters and digits
+     * @param text The text, may be null
+     * @param out The list to add the words to
+     */
+    static void tokenize(String text, List<String> out) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                out.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+    }
+    
+    /**
+     * Gets the distinct words of a question and its answers
+     * @param question The question
+     * @return The words, without duplicates
+     */
+    private static String[] wordsOf(Question question) {
+        List<String> words = new ArrayList<>();
+        tokenize(question.getQuestion(), words);
+        String[] answers = question.getAnswers();
+        if (answers != null) {
+            for (String answer : answers) {
+                tokenize(answer, words);
+            }
+        }
+        // Questions have a few dozen words, a quadratic scan beats hashing them
+        String[] distinct = new String[words.size()];
+        int count = 0;
+        outer:
+        for (String word : words) {
+            for (int i = 0; i < count; i++) {
+                if (distinct[i].equals(word)) {
+                    continue outer;
+                }
+            }
+            distinct[count++] = word;
+        }
+        return Arrays.copyOf(distinct, count);
+    }
+    
+    /**
+     * Gives a question the next document id and indexes it
+     */
+    private void append(Question question) {
+        int document = documentCount++;
+        if (document >= documents.length) {
+            documents = Arrays.copyOf(documents, documents.length * 2);
+            rebuildTree(documents.length);
+        }
+        documents[document] = question;
+        live.set(document);
+        liveCount++;
+        addToTree(document, 1);
+        index(document);
+    }
+    
+    /**
+     * Adds a document to the postings of its words
+     */
+    private void index(int document) {
+        for (String word : wordsOf(documents[document])) {
+            terms.computeIfAbsent(word, w -> new Postings()).add(document);
+        }
+    }
+    
+    /**
+     * Removes a document from the postings of its words
+     */
+    private void unindex(int document) {
+        for (String word : wordsOf(documents[document])) {
+            Postings postings = terms.get(word);
+            if (postings != null && postings.remove(document) && postings.size == 0) {
+                terms.remove(word);
+            }
+        }
+    }
+    
+    /**
+     * Finds the document at a position of the quiz by descending the Fenwick tree
+     * @param position Index of the question in the quiz
+     * @return The document id
+     * @throws IndexOutOfBoundsException If there is no question at that position
+     */
+    private int documentAt(int position) {
+        if (position < 0 || position >= liveCount) {
+            throw new IndexOutOfBoundsException("No question at position " + position);
+        }
+        int wanted = position + 1;
+        int node = 0;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = node + step;
+            if (next < tree.length && tree[next] < wanted) {
+                node = next;
+                wanted -= tree[next];
+            }
+        }
+        return node; // node is the 1-based index of the last document before it
+    }
+    
+    /**
+     * Counts the live documents before a document, which is the document's position in the quiz
+     */
+    private int prefixCount(int document) {
+        int count = 0;
+        for (int i = document; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+    
+    /**
+     * Adds to the count of a document in the Fenwick tree
+     */
+    private void addToTree(int document, int delta) {
+        for (int i = document + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+    
+    /**
+     * Rebuilds the Fenwick tree for a larger number of documents in linear time
+     */
+    private void rebuildTree(int capacity) {
+        tree = new int[capacity + 1];
+        for (int document = live.nextSetBit(0); document >= 0; document = live.nextSetBit(document + 1)) {
+            tree[document + 1]++;
+        }
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+    
+    /**
+     * Sorted, growable array of the document ids that contain a word
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+        
+        /**
+         * Adds a document id, appending when it is the highest as it is for new questions
+         */
+        void add(int document) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            if (size == 0 || ids[size - 1] < document) {
+                ids[size++] = document;
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, document);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = document;
+            size++;
+        }
+        
+        /**
+         * Removes a document id
+         * @return true if it was present
+         */
+        boolean remove(int document) {
+            int at = Arrays.binarySearch(ids, 0, size, document);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+        
+        /**
+         * Checks whether a document id is present
+         */
+        boolean contains(int document) {
+            return Arrays.binarySearch(ids, 0, size, document) >= 0;
+        }
+        
+        /**
+         * Sets the bits of all document ids
+         */
+        void setAll(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(ids[i]);
+            }
+        }
+    }
+    
+    /**
+     * One page of search results
+     */
+    public static class Page {
+        private final int offset;
+        private final int total;
+        private final int[] positions;
+        private final List<Question> questions;
+        
+        /**
+         * Constructor for a page of results
+         * @param offset Number of matches before this page
+         * @param total Number of matches of the whole query
+         * @param positions Indexes of the matching questions in the quiz
+         * @param questions The matching questions, in the same order
+         */
+        Page(int offset, int total, int[] positions, List<Question> questions) {
+            this.offset = offset;
+            this.total = total;
+            this.positions = positions;
+            this.questions = Collections.unmodifiableList(questions);
+        }
+        
+        /**
+         * Gets the number of matches before this page
+         * @return The offset of the page
+         */
+        public int getOffset() {
+            return offset;
+        }
+        
+        /**
+         * Gets the number of matches of the whole query
+         * @return Total number of matching questions
+         */
+        public int getTotal() {
+            return total;
+        }
+        
+        /**
+         * Gets the number of matches on this page
+         * @return Number of results
+         */
+        public int size() {
+            return positions.length;
+        }
+        
+        /**
+         * Gets the index in the quiz of a match on this page
+         * @param i Index of the match on this page
+         * @return The question index
+         */
+        public int getPosition(int i) {
+            return positions[i];
+        }
+        
+        /**
+         * Gets a matching question on this page
+         * @param i Index of the match on this page
+         * @return The question
+         */
+        public Question getQuestion(int i) {
+            return questions.get(i);
+        }
+        
+        /**
+         * Checks whether there are matches after this page
+         * @return true if another page follows
+         */
+        public boolean hasNext() {
+            return offset + positions.length < total;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.quiz.service;
+
+import com.quiz.model.Quiz;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Catalogue of many quizzes stored as question bank files in one directory
+ * The metadata of every quiz stays in memory; the quizzes themselves are opened on demand and kept in
+ * a least-recently-used cache bounded by their total number of questions. Looking up a quiz is a hash
+ * lookup whether the catalogue holds ten quizzes or ten thousand, and concurrent requests for a quiz
+ * that is not loaded share a single load.
+ *
+ * Quizzes changed while loaded are written back to their file when they are evicted or on flush().
+ * Files are named quiz-ID.qbank, where ID is the positive number the quiz is catalogued under.
+ * Hits, misses, evictions and load times are also counted in MetricsRegistry as catalog.*.
+ */
+public class QuizCatalog {
+    /** Default number of questions kept loaded */
+    public static final long DEFAULT_MAX_QUESTIONS = 1_000_000;
+    
+    private static final String FILE_PREFIX = "quiz-";
+    private static final String FILE_SUFFIX = ".qbank";
+    
+    private static final LongAdder HITS = MetricsRegistry.getInstance().counter("catalog.hits");
+    private static final LongAdder MISSES = MetricsRegistry.getInstance().counter("catalog.misses");
+    private static final LongAdder EVICTIONS = MetricsRegistry.getInstance().counter("catalog.evictions");
+    private static final LatencyHistogram LOAD = MetricsRegistry.getInstance().histogram("catalog.load");
+    
+    private final Path directory;
+    private final long maxQuestions;
+    private final Map<Long, QuizInfo> infos = new ConcurrentHashMap<>();
+    private final Map<Long, FutureTask<Loaded>> loading = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Long, Loaded> loaded = new LinkedHashMap<>(16, 0.75f, true); // guarded by this
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private long loadedQuestions; // guarded by this
+    
+    /**
+     * Private constructor, use open() to read a catalogue directory
+     */
+    private QuizCatalog(Path directory, long maxQuestions) {
+        this.directory = directory;
+        this.maxQuestions = maxQuestions;
+    }
+    
+    /**
+     * Opens a catalogue directory and reads the metadata of every quiz in it
+     * Only the header of each bank file is read; the questions are mapped when a quiz is first requested
+     * @param directory The directory holding the question bank files, created if missing
+     * @param maxQuestions Number of questions to keep loaded at most
+     * @return The catalogue
+     * @throws IOException If the directory or a bank file cannot be read
+     */
+    public static QuizCatalog open(Path directory, long maxQuestions) throws IOException {
+        Files.createDirectories(directory);
+        QuizCatalog catalog = new QuizCatalog(directory, maxQuestions);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long id;
+                try {
+                    id = Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                catalog.infos.put(id, QuizInfo.of(id, QuestionBank.readHeader(file)));
+                catalog.nextId.accumulateAndGet(id + 1, Math::max);
+            }
+        }
+        return catalog;
+    }
+    
+    /**
+     * Adds a quiz to the catalogue, writing it to its own bank file
+     * @param quiz The quiz to add
+     * @return The id the quiz is catalogued under
+     * @throws IOException If the bank file cannot be written
+     */
+    public long add(Quiz quiz) throws IOException {
+        long id = nextId.getAndIncrement();
+        long version = quiz.getVersion();
+        QuestionBank.write(quiz, pathOf(id));
+        infos.put(id, QuizInfo.of(id, quiz));
+        synchronized (this) {
+            loaded.put(id, new Loaded(quiz, version));
+            loadedQuestions += quiz.getQuestionCount();
+            evict();
+        }
+        return id;
+    }
+    
+    /**
+     * Gets a quiz, opening its bank file if it is not loaded
+     * @param id Catalogue id of the quiz
+     * @return The quiz, or null if the catalogue has no quiz with that id
+     * @throws IOException If the bank file cannot be read
+     */
+    public Quiz get(long id) throws IOException {
+        synchronized (this) {
+            Loaded entry = loaded.get(id);
+            if (entry != null) {
+                hits.incrementAndGet();
+                HITS.increment();
+                return entry.quiz;
+            }
+        }
+        if (!infos.containsKey(id)) {
+            return null;
+        }
+        misses.incrementAndGet();
+        MISSES.increment();
+        
+        FutureTask<Loaded> task = new FutureTask<>(() -> load(id));
+        FutureTask<Loaded> running = loading.putIfAbsent(id, task);
+        if (running == null) {
+            running = task;
+            task.run();
+        }
+        try {
+            Loaded entry = running.get();
+            synchronized (this) {
+                Loaded current = loaded.get(id);
+                if (current != null) {
+                    return current.quiz;
+                }
+                loaded.put(id, entry);
+                loadedQuestions += entry.questionCount;
+                evict();
+            }
+            return entry.quiz;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading quiz " + id, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            loading.remove(id, running);
+        }
+    }
+    
+    /**
+     * Gets the metadata of a quiz without loading it
+     * @param id Catalogue id of the quiz
+     * @return The metadata, or null if the catalogue has no quiz with that id
+     */
+    public QuizInfo getInfo(long id) {
+        return infos.get(id);
+    }
+    
+    /**
+     * Gets the metadata of all quizzes
+     * @return The metadata, ordered by id
+     */
+    public List<QuizInfo> list() {
+        List<QuizInfo> all = new ArrayList<>(infos.values());
+        all.sort((x, y) -> Long.compare(x.getId(), y.getId()));
+        return Collections.unmodifiableList(all);
+    }
+    
+    /**
+     * Gets the number of catalogued quizzes
+     * @return Number of quizzes
+     */
+    public int size() {
+        return infos.size();
+    }
+    
+    /**
+     * Writes every loaded quiz that changed since it was loaded back to its bank file
+     * @throws IOException If a bank file cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        for (Map.Entry<Long, Loaded> entry : loaded.entrySet()) {
+            save(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * Gets the number of lookups served by a loaded quiz
+     * @return Number of hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+    
+    /**
+     * Gets the number of lookups that had to open a bank file
+     * @return Number of misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+    
+    /**
+     * Gets the number of quizzes evicted to stay within the question budget
+     * @return Number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+    
+    /**
+     * Gets the total time spent opening bank files
+     * @return Load time in nanoseconds
+     */
+    public long getTotalLoadNanos() {
+        return loadNanos.get();
+    }
+    
+    /**
+     * Gets the number of questions of the loaded quizzes
+     * @return Number of loaded questions
+     */
+    public synchronized long getLoadedQuestionCount() {
+        return loadedQuestions;
+    }
+    
+    /**
+     * Opens the bank file of a quiz
+     */
+    private Loaded load(long id) throws IOException {
+        long start = System.nanoTime();
+        QuestionBank bank = QuestionBank.open(pathOf(id));
+        Quiz quiz = new Quiz(bank.getTitle(), bank.getTimeLimit(), bank.asList());
+        quiz.setDrawCount(bank.getDrawCount());
+        quiz.setShuffled(bank.isShuffled());
+        long nanos = System.nanoTime() - start;
+        loadNanos.addAndGet(nanos);
+        LOAD.record(nanos);
+        return new Loaded(quiz, quiz.getVersion());
+    }
+    
+    /**
+     * Evicts the least recently used quizzes until the loaded questions fit the budget, called holding this
+     * The most recently used quiz is always kept, and changed quizzes that cannot be saved stay loaded
+     */
+    private void evict() {
+        Iterator<Map.Entry<Long, Loaded>> eldest = loaded.entrySet().iterator();
+        while (loadedQuestions > maxQuestions && loaded.size() > 1 && eldest.hasNext()) {
+            Map.Entry<Long, Loaded> entry = eldest.next();
+            if (!eldest.hasNext()) {
+                break;
+            }
+            try {
+                save(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                System.err.println("Could not save quiz " + entry.getKey() + ", keeping it loaded: " + e);
+                continue;
+            }
+            eldest.remove();
+            loadedQuestions -= entry.getValue().questionCount;
+            evictions.incrementAndGet();
+            EVICTIONS.increment();
+        }
+    }
+    
+    /**
+     * Writes a loaded quiz back to its file if it changed since it was loaded or last saved
+     */
+    private void save(long id, Loaded entry) throws IOException {
+        long version = entry.quiz.getVersion();
+        if (version != entry.savedVersion) {
+            QuestionBank.write(entry.quiz, pathOf(id));
+            infos.put(id, QuizInfo.of(id, entry.quiz));
+            entry.savedVersion = version;
+        }
+    }
+    
+    /**
+     * Gets the bank file of a quiz
+     */
+    private Path pathOf(long id) {
+        return directory.resolve(FILE_PREFIX + id + FILE_SUFFIX);
+    }
+    
+    /**
+     * A loaded quiz and the version last written to its file
+     */
+    private static final class Loaded {
+        final Quiz quiz;
+        final int questionCount;
+        long savedVersion; // guarded by the catalogue
+        
+        /**
+         * Constructor for a loaded quiz
+         * @param quiz The quiz
+         * @param savedVersion Version of the quiz that is in its file
+         */
+        Loaded(Quiz quiz, long savedVersion) {
+            this.quiz = quiz;
+            this.questionCount = quiz.getQuestionCount();
+            this.savedVersion = savedVersion;
+        }
+    }
+    
+    /**
+     * Metadata of a catalogued quiz, kept in memory for every quiz
+     */
+    public static class QuizInfo {
+        private final long id;
+        private final String title;
+        private final int questionCount;
+        private final int timeLimit;
+        
+        /**
+         * Constructor for quiz metadata
+         * @param id Catalogue id of the quiz
+         * @param title The title of the quiz
+         * @param questionCount Number of questions
+         * @param timeLimit Time limit in seconds
+         */
+        public QuizInfo(long id, String title, int questionCount, int timeLimit) {
+            this.id = id;
+            this.title = title;
+            this.questionCount = questionCount;
+            this.timeLimit = timeLimit;
+        }
+        
+        /**
+         * Takes the metadata from the header of a bank file
+         */
+        static QuizInfo of(long id, QuestionBank.Header header) {
+            return new QuizInfo(id, header.title, header.questionCount, header.timeLimit);
+        }
+        
+        /**
+         * Takes the metadata of a quiz in memory
+         */
+        static QuizInfo of(long id, Quiz quiz) {
+            return new QuizInfo(id, quiz.getTitle(), quiz.getQuestionCount(), quiz.getTimeLimit());
+        }
+        
+        /**
+         * Gets the catalogue id
+         * @return The quiz id
+         */
+        public long getId() {
+            return id;
+        }
+        
+        /**
+         * Gets the title
+         * @return The quiz title
+         */
+        public String getTitle() {
+            return title;
+        }
+        
+        /**
+         * Gets the number of questions
+         * @return Number of questions
+         */
+        public int getQuestionCount() {
+            return questionCount;
+        }
+        
+        /**
+         * Gets the time limit
+         * @return Time limit in seconds
+         */
+        public int getTimeLimit() {
+            return timeLimit;
+        }
+        
+        @Override
+        public String toString() {
+            return "#" + id + " " + title + " (" + questionCount + " questions)";
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import com.quiz.model.Quiz;
+import com.quiz.model.QuizSnapshot;
+import com.quiz.model.StringTable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Search index, duplicate detector and item statistics of one quiz, kept in step with its snapshots
+ * Writers publish a change through the quiz, which alone decides the order of changes, and then queue
+ * it under the version it got. One thread at a time drains the queue and hands the changes to the
+ * indexes strictly in version order, so writers never wait for each other or for the indexes.
+ *
+ * Before publishing, a writer claims the version it expects to get. A version that was published
+ * but is neither claimed nor queued was published directly through the quiz; the search index and
+ * detector are then rebuilt from the latest snapshot, and item statistics are left as they are.
+ *
+ * Item statistics are replaced by the draining thread, so a session started right after a question
+ * change may be handed the old statistics; they forward it to the copy once it exists. Only a session
+ * that finishes before its change was drained is recorded on the old statistics.
+ */
+final class QuizIndexes {
+    private final Quiz quiz;
+    private final ConcurrentSkipListMap<Long, Edit> queued = new ConcurrentSkipListMap<>(); // published changes by version
+    private final ConcurrentSkipListMap<Long, Integer> claims = new ConcurrentSkipListMap<>(); // version -> writers about to publish it
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicReference<CompletableFuture<QuestionSearchIndex>> searchIndex = new AtomicReference<>(); // null until requested
+    private final AtomicReference<CompletableFuture<DuplicateDetector>> duplicateDetector = new AtomicReference<>(); // null until requested
+    private final AtomicReference<StringTable> importStrings = new AtomicReference<>(); // texts of the questions imported into the quiz
+    private volatile ItemStatistics itemStatistics = new ItemStatistics();
+    private volatile long applied; // version of the last change drained, only written by the draining thread
+    private QuizSnapshot indexed; // snapshot the search index and detector reflect, only used by the draining thread
+    
+    /**
+     * Constructor for the indexes of a quiz, none of which is built yet
+     * @param quiz The quiz
+     */
+    QuizIndexes(Quiz quiz) {
+        this.quiz = quiz;
+        this.indexed = quiz.getQuestions();
+        this.applied = indexed.getVersion();
+    }
+    
+    /**
+     * Publishes a change through the quiz and queues it for the indexes
+     * @param change Derives the change from the current snapshot, or returns null to publish nothing;
+     *               called again with the new snapshot if another change came first
+     * @return The published change, or null if the function returned null
+     */
+    Edit publish(Function<QuizSnapshot, Edit> change) {
+        while (true) {
+            QuizSnapshot current = quiz.getQuestions();
+            long version = current.getVersion() + 1;
+            claims.merge(version, 1, Integer::sum);
+            Edit edit;
+            boolean published = false;
+            try {
+                edit = change.apply(current);
+                if (edit != null && quiz.publish(current, edit.snapshot)) {
+                    queued.put(edit.version, edit);
+                    published = true;
+                }
+            } finally {
+                // Queued before the claim is dropped, so a drainer never takes the version for a direct change
+                claims.computeIfPresent(version, (v, writers) -> writers == 1 ? null : writers - 1);
+                drain();
+            }
+            if (edit == null || published) {
+                return edit;
+            }
+        }
+    }
+    
+    /**
+     * Gets the search index, building it from the drained snapshot on first use
+     * @return The search index
+     */
+    QuestionSearchIndex getSearchIndex() {
+        return request(searchIndex).join();
+    }
+    
+    /**
+     * Gets the duplicate detector, building it from the drained snapshot on first use
+     * @return The duplicate detector
+     */
+    DuplicateDetector getDuplicateDetector() {
+        return request(duplicateDetector).join();
+    }
+    
+    /**
+     * Asks for the duplicate detector to be built without waiting for it
+     * Changes published after this are checked against it
+     */
+    void requestDuplicateDetector() {
+        request(duplicateDetector);
+    }
+    
+    /**
+     * Gets the item statistics for the drained questions
+     * @return The item statistics
+     */
+    ItemStatistics getItemStatistics() {
+        return itemStatistics;
+    }
+    
+    /**
+     * Gets the string table imports into the quiz share, creating it on first use
+     * @return The string table
+     */
+    StringTable getImportStrings() {
+        StringTable strings = importStrings.get();
+        if (strings == null) {
+            importStrings.compareAndSet(null, new StringTable());
+            strings = importStrings.get();
+        }
+        return strings;
+    }
+    
+    /**
+     * Replaces the string table later imports share, after the quiz was compacted into it
+     * @param strings The string table
+     */
+    void setImportStrings(StringTable strings) {
+        importStrings.set(strings);
+    }
+    
+    /**
+     * Requests an index to be built and starts draining
+     * @param slot The slot of the index
+     * @return Future completed once the index is built
+     */
+    private <T> CompletableFuture<T> request(AtomicReference<CompletableFuture<T>> slot) {
+        CompletableFuture<T> future = slot.get();
+        if (future == null) {
+            slot.compareAndSet(null, new CompletableFuture<>());
+            future = slot.get();
+            drain();
+        }
+        return future;
+    }
+    
+    /**
+     * Drains the queued changes unless another thread is already doing so
+     * The draining thread checks for work again after letting go, so nothing queued is left behind
+     */
+    private void drain() {
+        while (hasWork() && draining.compareAndSet(false, true)) {
+            try {
+                drainQueued();
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Checks if an index is waiting to be built or the next version can be drained
+     * @return true if there is work
+     */
+    private boolean hasWork() {
+        long next = applied + 1;
+        return isRequested(searchIndex) || isRequested(duplicateDetector) || queued.containsKey(next)
+                || (quiz.getVersion() >= next && !claims.containsKey(next));
+    }
+    
+    /**
+     * Hands the queued changes to the indexes in version order until the next version is not ready
+     */
+    private void drainQueued() {
+        while (true) {
+            buildRequested();
+            long next = applied + 1;
+            Edit edit = queued.remove(next);
+            if (edit != null) {
+                apply(edit);
+                continue;
+            }
+            // Read in this order: a writer queues its change before dropping its claim
+            QuizSnapshot latest = quiz.getQuestions();
+            long last = latest.getVersion();
+            Long claimed = claims.ceilingKey(next);
+            if (claimed != null) {
+                last = Math.min(last, claimed - 1);
+            }
+            Long waiting = queued.ceilingKey(next);
+            if (waiting != null) {
+                last = Math.min(last, waiting - 1);
+            }
+            if (last < next) {
+                if (waiting != null && waiting == next) {
+                    continue;
+                }
+                return; // not published yet, or its writer is still queueing it
+            }
+            // Versions next to last were published directly through the quiz
+            applied = last;
+            if (last > indexed.getVersion()) {
+                rebuild(quiz.getQuestions());
+            }
+        }
+    }
+    
+    /**
+     * Hands one change to the indexes
+     * Changes already covered by a rebuild only update the item statistics
+     * @param edit The change, its version directly follows the last one drained
+     */
+    private void apply(Edit edit) {
+        List<DuplicateDetector.Match> duplicates = Collections.emptyList();
+        try {
+            if (edit.kind == Edit.Kind.REPLACED) {
+                itemStatistics = itemStatistics.withoutQuestion(edit.index, edit.version);
+            } else if (edit.kind == Edit.Kind.REMOVED) {
+                itemStatistics = itemStatistics.withQuestionRemoved(edit.index, edit.version);
+            }
+            QuestionSearchIndex search = built(searchIndex);
+            DuplicateDetector detector = built(duplicateDetector);
+            if (edit.version <= indexed.getVersion()) {
+                if (edit.kind == Edit.Kind.ADDED && detector != null) {
+                    duplicates = duplicatesAmong(detector, edit.questions);
+                }
+            } else if (edit.kind == Edit.Kind.RESET) {
+                // The indexes refer to the old question objects, rebuild them over the new ones
+                rebuild(edit.snapshot);
+            } else {
+                switch (edit.kind) {
+                    case ADDED:
+                        if (search != null) {
+                            search.addAll(edit.questions);
+                        }
+                        if (detector != null) {
+                            duplicates = detector.addAll(edit.questions);
+                        }
+                        break;
+                    case REPLACED:
+                        if (search != null) {
+                            search.update(edit.index, edit.questions.get(0));
+                        }
+                        if (detector != null) {
+                            detector.remove(edit.previous);
+                            detector.add(edit.questions.get(0));
+                        }
+                        break;
+                    default:
+                        if (search != null) {
+                            search.remove(edit.index);
+                        }
+                        if (detector != null) {
+                            detector.remove(edit.previous);
+                        }
+                        break;
+                }
+                indexed = edit.snapshot;
+            }
+        } catch (RuntimeException e) {
+            edit.duplicates.completeExceptionally(e);
+            throw e;
+        } finally {
+            applied = edit.version;
+        }
+        edit.duplicates.complete(duplicates);
+    }
+    
+    /**
+     * Builds the indexes that were requested and not built yet from the drained snapshot
+     */
+    private void buildRequested() {
+        QuizSnapshot snapshot = indexed;
+        build(searchIndex, () -> new QuestionSearchIndex(snapshot));
+        build(duplicateDetector, () -> newDetector(snapshot));
+    }
+    
+    /**
+     * Replaces the built indexes with ones built from a snapshot
+     * @param snapshot The snapshot
+     */
+    private void rebuild(QuizSnapshot snapshot) {
+        if (built(searchIndex) != null) {
+            searchIndex.set(CompletableFuture.completedFuture(new QuestionSearchIndex(snapshot)));
+        }
+        if (built(duplicateDetector) != null) {
+            duplicateDetector.set(CompletableFuture.completedFuture(newDetector(snapshot)));
+        }
+        indexed = snapshot;
+    }
+    
+    /**
+     * Creates a duplicate detector holding the questions of a snapshot
+     * @param snapshot The snapshot
+     * @return The duplicate detector
+     */
+    private static DuplicateDetector newDetector(QuizSnapshot snapshot) {
+        DuplicateDetector detector = new DuplicateDetector();
+        detector.addAll(snapshot);
+        return detector;
+    }
+    
+    /**
+     * Finds the duplicates a detector flagged among some questions
+     * Used for added questions the detector picked up while being rebuilt
+     * @param detector The duplicate detector
+     * @param questions The questions
+     * @return Their matches
+     */
+    private static List<DuplicateDetector.Match> duplicatesAmong(DuplicateDetector detector, List<Question> questions) {
+        Set<Question> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        added.addAll(questions);
+        List<DuplicateDetector.Match> found = new ArrayList<>();
+        for (DuplicateDetector.Match match : detector.getDuplicates()) {
+            if (added.contains(match.getQuestion())) {
+                found.add(match);
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Completes the future of a requested index with a new index
+     * A failed build is reported to the waiting threads and can be requested again
+     * @param slot The slot of the index
+     * @param builder Builds the index
+     */
+    private static <T> void build(AtomicReference<CompletableFuture<T>> slot, Supplier<T> builder) {
+        CompletableFuture<T> future = slot.get();
+        if (future != null && !future.isDone()) {
+            try {
+                future.complete(builder.get());
+            } catch (RuntimeException e) {
+                slot.compareAndSet(future, null);
+                future.completeExceptionally(e);
+            }
+        }
+    }
+    
+    /**
+     * Gets an index if it was built
+     * @param slot The slot of the index
+     * @return The index, or null if not requested or not built yet
+     */
+    private static <T> T built(AtomicReference<CompletableFuture<T>> slot) {
+        CompletableFuture<T> future = slot.get();
+        return future != null && future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+    }
+    
+    /**
+     * Checks if an index was requested and is not built yet
+     * @param slot The slot of the index
+     * @return true if it waits to be built
+     */
+    private static boolean isRequested(AtomicReference<? extends CompletableFuture<?>> slot) {
+        CompletableFuture<?> future = slot.get();
+        return future != null && !future.isDone();
+    }
+    
+    /**
+     * One published change to the questions of the quiz
+     */
+    static final class Edit {
+        /**
+         * Kinds of changes
+         */
+        enum Kind {
+            /** Questions added at the end */
+            ADDED,
+            /** One question replaced */
+            REPLACED,
+            /** One question removed, later ones move up */
+            REMOVED,
+            /** Question objects replaced with equal ones, as by compaction */
+            RESET
+        }
+        
+        private final Kind kind;
+        private final QuizSnapshot snapshot; // the snapshot the change published
+        private final long version;
+        private final int index; // position of the replaced or removed question
+        private final List<Question> questions; // the added questions, or the replacement
+        private final Question previous; // the replaced or removed question
+        private final CompletableFuture<List<DuplicateDetector.Match>> duplicates = new CompletableFuture<>();
+        
+        /**
+         * Constructor for a change
+         */
+        private Edit(Kind kind, QuizSnapshot snapshot, int index, List<Question> questions, Question previous) {
+            this.kind = kind;
+            this.snapshot = snapshot;
+            this.version = snapshot.getVersion();
+            this.index = index;
+            this.questions = questions;
+            this.previous = previous;
+        }
+        
+        /**
+         * Creates the change adding questions at the end
+         * @param snapshot The snapshot with the questions added
+         * @param questions The added questions, in order
+         * @return The change
+         */
+        static Edit added(QuizSnapshot snapshot, List<Question> questions) {
+            return new Edit(Kind.ADDED, snapshot, -1, questions, null);
+        }
+        
+        /**
+         * Creates the change replacing a question
+         * @param snapshot The snapshot with the question replaced
+         * @param index Index of the question
+         * @param question The new question
+         * @param previous The replaced question
+         * @return The change
+         */
+        static Edit replaced(QuizSnapshot snapshot, int index, Question question, Question previous) {
+            return new Edit(Kind.REPLACED, snapshot, index, Collections.singletonList(question), previous);
+        }
+        
+        /**
+         * Creates the change removing a question
+         * @param snapshot The snapshot without the question
+         * @param index Index of the question
+         * @param previous The removed question
+         * @return The change
+         */
+        static Edit removed(QuizSnapshot snapshot, int index, Question previous) {
+            return new Edit(Kind.REMOVED, snapshot, index, Collections.emptyList(), previous);
+        }
+        
+        /**
+         * Creates the change replacing the question objects without changing their contents
+         * @param snapshot The snapshot with the new question objects
+         * @return The change
+         */
+        static Edit reset(QuizSnapshot snapshot) {
+            return new Edit(Kind.RESET, snapshot, -1, Collections.emptyList(), null);
+        }
+        
+        /**
+         * Gets the quiz version the change published
+         * @return The version
+         */
+        long getVersion() {
+            return version;
+        }
+        
+        /**
+         * Waits until the change reached the indexes and gets the duplicates it added
+         * @return The added questions flagged by the duplicate detector, empty if it was not built
+         */
+        List<DuplicateDetector.Match> awaitDuplicates() {
+            return duplicates.join();
+        }
+    }
+}
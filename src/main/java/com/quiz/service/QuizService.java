@@ -1,23 +1,72 @@
 package com.quiz.service;
 
+import com.quiz.model.CompactQuestionList;
 import com.quiz.model.Question;
 import com.quiz.model.Quiz;
+import com.quiz.model.QuizSnapshot;
+import com.quiz.model.StringTable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Service class for managing quiz operations
  * This class handles business logic for quiz management
+ * It is safe to use from many threads: the current quiz is swapped atomically together with its leaderboard,
+ * indexes and payload cache, and quiz changes are published as new immutable snapshots, so readers never take a lock.
+ * Question changes take no lock either: the quiz orders them, and QuizIndexes hands them to the search index,
+ * duplicate detector and item statistics in that order
+ * When an answer log is open, session starts, answers and finishes are written to it and
+ * running sessions are recovered from it after a restart
+ * When a quiz catalogue is open, sessions can also be started on any of its quizzes by id
  */
 public class QuizService {
-    private static QuizService instance;
-    private Quiz currentQuiz;
+    private static final LatencyHistogram SESSION_START = MetricsRegistry.getInstance().histogram("session.start");
+    private static final LatencyHistogram SET_QUIZ = MetricsRegistry.getInstance().histogram("quiz.setCurrentQuiz");
+    private static final LatencyHistogram ADD_QUESTION = MetricsRegistry.getInstance().histogram("quiz.addQuestion");
+    private static final LatencyHistogram ADD_QUESTIONS = MetricsRegistry.getInstance().histogram("quiz.addQuestions");
+    private static final LatencyHistogram UPDATE_QUESTION = MetricsRegistry.getInstance().histogram("quiz.updateQuestion");
+    private static final LatencyHistogram REMOVE_QUESTION = MetricsRegistry.getInstance().histogram("quiz.removeQuestion");
+    private static final LatencyHistogram COMPACT_QUIZ = MetricsRegistry.getInstance().histogram("quiz.compact");
+    private static final LongAdder EXPIRED_SESSIONS = MetricsRegistry.getInstance().counter("sessions.expired");
+    
+    private final AtomicReference<QuizState> state; // the current quiz with its leaderboard, statistics and cache
+    private final Map<Long, QuizSession> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom sessionIds = new SecureRandom(); // ids double as the key to a session over HTTP
+    private final Queue<Long> recoveredSessionIds = new ConcurrentLinkedQueue<>();
+    private volatile AnswerLog answerLog;
+    private volatile QuizCatalog catalog; // null until a catalogue is opened
+    private volatile long payloadCacheBytes = QuestionPayloadCache.DEFAULT_MAX_BYTES;
+    private volatile Calibration calibration; // item parameters of the adaptive tests, null until the first test
     
     /**
      * Private constructor for singleton pattern
      */
     private QuizService() {
-        this.currentQuiz = new Quiz("Default Quiz");
+        this.state = new AtomicReference<>(new QuizState(new Quiz("Default Quiz"), QuestionPayloadCache.DEFAULT_MAX_BYTES));
+    }
+    
+    /**
+     * Holder class, the JVM initializes it exactly once on first use
+     */
+    private static class Holder {
+        private static final QuizService INSTANCE = new QuizService();
     }
     
     /**
@@ -25,10 +74,7 @@ public class QuizService {
      * @return The QuizService instance
      */
     public static QuizService getInstance() {
-        if (instance == null) {
-            instance = new QuizService();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
     
     /**
@@ -36,15 +82,109 @@ public class QuizService {
      * @return The current quiz
      */
     public Quiz getCurrentQuiz() {
-        return currentQuiz;
+        return state.get().quiz;
     }
     
     /**
      * Sets the current quiz
+     * The quiz gets a new leaderboard, indexes and payload cache, published together with it
      * @param quiz The quiz to set as current
      */
     public void setCurrentQuiz(Quiz quiz) {
-        this.currentQuiz = quiz;
+        long start = System.nanoTime();
+        state.set(new QuizState(quiz, payloadCacheBytes));
+        SET_QUIZ.recordSince(start);
+    }
+    
+    /**
+     * Gets the full-text index of the current quiz, building it on first use
+     * The index is kept up to date by the question changes made through this service, shortly after
+     * they are published
+     * @return The search index
+     */
+    public QuestionSearchIndex getSearchIndex() {
+        return state.get().indexes.getSearchIndex();
+    }
+    
+    /**
+     * Gets the near-duplicate detector of the current quiz, building it on first use
+     * Building it flags the duplicates already in the quiz; after that every question added through
+     * this service is checked as it comes in
+     * @return The duplicate detector
+     */
+    public DuplicateDetector getDuplicateDetector() {
+        return state.get().indexes.getDuplicateDetector();
+    }
+    
+    /**
+     * Starts an adaptive test on the current quiz with the default length and precision
+     * @return The new test
+     */
+    public AdaptiveTest startAdaptiveTest() {
+        return startAdaptiveTest(AdaptiveTest.DEFAULT_MAX_QUESTIONS, AdaptiveTest.DEFAULT_TARGET_STANDARD_ERROR);
+    }
+    
+    /**
+     * Starts an adaptive test on the current quiz
+     * The item parameters are calibrated from the item statistics when the first test starts after a question
+     * change, and again whenever the finished sessions have grown by a tenth since the last calibration,
+     * so questions gain their own parameters once enough sessions were finished
+     * @param maxQuestions Maximum number of questions to ask
+     * @param targetStandardError The test stops once the standard error of the ability estimate falls to this
+     * @return The new test
+     */
+    public AdaptiveTest startAdaptiveTest(int maxQuestions, double targetStandardError) {
+        QuizState quizState = state.get();
+        // Statistics follow question changes shortly after; a test started in between is calibrated from
+        // the older statistics, and the next start calibrates again as the statistics object changed
+        List<Question> questions = quizState.quiz.getQuestions();
+        ItemStatistics statistics = quizState.indexes.getItemStatistics();
+        Calibration current = calibration;
+        long papers = statistics.getPaperCount();
+        if (current == null || current.questions != questions || current.statistics != statistics
+                || papers - current.papers >= Math.max(1, current.papers / 10)) {
+            // Concurrent starts may calibrate twice, which is cheaper than making them wait
+            current = new Calibration(questions, statistics, papers,
+                                      AdaptiveTestEngine.calibrate(questions.size(), statistics));
+            calibration = current;
+        }
+        return new AdaptiveTest(current.engine, questions, maxQuestions, targetStandardError);
+    }
+    
+    /**
+     * Gets the live standings of the sessions started on the current quiz
+     * Sessions stay on it once submitted, by the candidate or because their time ran out;
+     * only sessions that were discarded are taken off
+     * @return The leaderboard
+     */
+    public Leaderboard getLeaderboard() {
+        return state.get().leaderboard;
+    }
+    
+    /**
+     * Gets the item analysis of the sessions finished on the current quiz
+     * @return The item statistics, indexed like the questions of the current quiz; replaced when a question
+     *         is replaced or removed
+     */
+    public ItemStatistics getItemStatistics() {
+        return state.get().indexes.getItemStatistics();
+    }
+    
+    /**
+     * Gets the cache of rendered questions of the current quiz
+     * @return The payload cache
+     */
+    public QuestionPayloadCache getPayloadCache() {
+        return state.get().payloadCache;
+    }
+    
+    /**
+     * Sets the byte budget of the rendered question cache
+     * @param maxBytes Maximum number of payload bytes to keep
+     */
+    public void setPayloadCacheBytes(long maxBytes) {
+        payloadCacheBytes = maxBytes;
+        state.get().payloadCache.setMaxBytes(maxBytes);
     }
     
     /**
@@ -52,7 +192,73 @@ public class QuizService {
      * @param question The question to add
      */
     public void addQuestion(Question question) {
-        currentQuiz.addQuestion(question);
+        long start = System.nanoTime();
+        List<Question> added = Collections.singletonList(question);
+        state.get().indexes.publish(current -> QuizIndexes.Edit.added(current.withAdded(question), added));
+        ADD_QUESTION.recordSince(start);
+    }
+    
+    /**
+     * Adds several questions to the current quiz as one atomic change
+     * @param questions The questions to add
+     */
+    public void addQuestions(List<Question> questions) {
+        insertQuestions(questions, state.get().indexes, false);
+    }
+    
+    /**
+     * Adds several questions to a quiz as one atomic change and queues them for its indexes
+     * @param questions The questions to add
+     * @param indexes The indexes of the quiz
+     * @param checkDuplicates Whether to build the duplicate detector if it does not exist yet and wait for its result
+     * @return The duplicates found among the questions, empty if they were not checked
+     */
+    private static List<DuplicateDetector.Match> insertQuestions(List<Question> questions, QuizIndexes indexes,
+                                                                 boolean checkDuplicates) {
+        long start = System.nanoTime();
+        if (checkDuplicates) {
+            // Requested before publishing, so the detector holds the questions before the batch when it gets it
+            indexes.requestDuplicateDetector();
+        }
+        QuizIndexes.Edit edit = indexes.publish(current -> QuizIndexes.Edit.added(current.withAllAdded(questions), questions));
+        ADD_QUESTIONS.recordSince(start);
+        return checkDuplicates ? edit.awaitDuplicates() : Collections.emptyList();
+    }
+    
+    /**
+     * Adds a batch of imported questions to the current quiz in compact storage, as one atomic change
+     * Their texts go into a string table shared by every batch imported into the quiz, so answers repeated
+     * across a bank are stored once; the questions already in the quiz are left as they are.
+     * The batch is checked for near-duplicates, building the duplicate detector on the first import
+     * @param questions The imported questions
+     * @return The imported questions that duplicate one already in the quiz or earlier in the import
+     */
+    public List<DuplicateDetector.Match> importQuestions(List<Question> questions) {
+        QuizIndexes indexes = state.get().indexes;
+        // Views are created once here, so the quiz and its indexes hold the same question objects
+        List<Question> views = new ArrayList<>(CompactQuestionList.of(questions, indexes.getImportStrings()));
+        return insertQuestions(views, indexes, true);
+    }
+    
+    /**
+     * Replaces a question in the current quiz
+     * @param index The index of the question to replace
+     * @param question The new question
+     * @return true if question was replaced successfully
+     */
+    public boolean updateQuestion(int index, Question question) {
+        long start = System.nanoTime();
+        QuizState current = state.get();
+        QuizIndexes.Edit edit = current.indexes.publish(snapshot -> {
+            if (index < 0 || index >= snapshot.size()) {
+                return null;
+            }
+            // Versions up to this one keep the old question; stop caching it before the change is visible
+            current.payloadCache.invalidate(index, snapshot.getVersion() + 1);
+            return QuizIndexes.Edit.replaced(snapshot.withReplaced(index, question), index, question, snapshot.get(index));
+        });
+        UPDATE_QUESTION.recordSince(start);
+        return edit != null;
     }
     
     /**
@@ -61,7 +267,18 @@ public class QuizService {
      * @return true if question was removed successfully
      */
     public boolean removeQuestion(int index) {
-        return currentQuiz.removeQuestion(index);
+        long start = System.nanoTime();
+        QuizState current = state.get();
+        QuizIndexes.Edit edit = current.indexes.publish(snapshot -> {
+            if (index < 0 || index >= snapshot.size()) {
+                return null;
+            }
+            // Removing shifts the indexes of all later questions
+            current.payloadCache.invalidateAll(snapshot.getVersion() + 1);
+            return QuizIndexes.Edit.removed(snapshot.withRemoved(index), index, snapshot.get(index));
+        });
+        REMOVE_QUESTION.recordSince(start);
+        return edit != null;
     }
     
     /**
@@ -69,7 +286,7 @@ public class QuizService {
      * @return List of questions
      */
     public List<Question> getQuestions() {
-        return currentQuiz.getQuestions();
+        return state.get().quiz.getQuestions();
     }
     
     /**
@@ -78,7 +295,7 @@ public class QuizService {
      * @return The question at the specified index
      */
     public Question getQuestion(int index) {
-        return currentQuiz.getQuestion(index);
+        return state.get().quiz.getQuestion(index);
     }
     
     /**
@@ -86,7 +303,7 @@ public class QuizService {
      * @return Number of questions
      */
     public int getQuestionCount() {
-        return currentQuiz.getQuestionCount();
+        return state.get().quiz.getQuestionCount();
     }
     
     /**
@@ -94,7 +311,7 @@ public class QuizService {
      * @return true if quiz is empty
      */
     public boolean hasQuestions() {
-        return !currentQuiz.isEmpty();
+        return !state.get().quiz.isEmpty();
     }
     
     /**
@@ -102,7 +319,414 @@ public class QuizService {
      * @param title The title for the new quiz
      */
     public void createNewQuiz(String title) {
-        this.currentQuiz = new Quiz(title);
+        setCurrentQuiz(new Quiz(title));
+    }
+    
+    /**
+     * Loads a question bank file as the current quiz
+     * Questions stay in the mapped file and are decoded when accessed
+     * @param path The bank file
+     * @throws IOException If the file cannot be read
+     */
+    public void loadQuestionBank(Path path) throws IOException {
+        QuestionBank bank = QuestionBank.open(path);
+        Quiz quiz = new Quiz(bank.getTitle(), bank.getTimeLimit(), bank.asList());
+        quiz.setDrawCount(bank.getDrawCount());
+        quiz.setShuffled(bank.isShuffled());
+        setCurrentQuiz(quiz);
+    }
+    
+    /**
+     * Moves the questions of the current quiz into compact storage
+     * Texts are stored once in a shared string table and questions become read-only flyweight views,
+     * which cuts the heap used by large quizzes several times. Running sessions keep their snapshot.
+     * This visits every question and rebuilds the search index and duplicate detector, so it is meant as
+     * an occasional step; imports already compact their batches. A quiz still read from a question bank,
+     * or already compacted, is left alone, as compacting it would only decode it onto the heap.
+     * @return The string table holding the texts, or null if the quiz was left alone
+     */
+    public StringTable compactCurrentQuiz() {
+        long start = System.nanoTime();
+        QuizIndexes indexes = state.get().indexes;
+        StringTable strings = new StringTable();
+        // Strings interned by a retried attempt are found again by the next one
+        QuizIndexes.Edit edit = indexes.publish(current -> current.isWrapped() ? null
+                : QuizIndexes.Edit.reset(current.withContents(CompactQuestionList.of(current, strings))));
+        if (edit == null) {
+            return null;
+        }
+        indexes.setImportStrings(strings);
+        COMPACT_QUIZ.recordSince(start);
+        return strings;
+    }
+    
+    /**
+     * Saves the current quiz to a question bank file
+     * @param path The bank file
+     * @throws IOException If the file cannot be written
+     */
+    public void saveQuestionBank(Path path) throws IOException {
+        QuestionBank.write(state.get().quiz, path);
+    }
+    
+    /**
+     * Opens a directory of question bank files as the quiz catalogue
+     * Open the catalogue before the answer log, so sessions on catalogue quizzes can be recovered
+     * @param directory The catalogue directory, created if missing
+     * @param maxLoadedQuestions Number of questions to keep loaded at most
+     * @return The catalogue
+     * @throws IOException If the directory cannot be read
+     */
+    public QuizCatalog openCatalog(Path directory, long maxLoadedQuestions) throws IOException {
+        QuizCatalog opened = QuizCatalog.open(directory, maxLoadedQuestions);
+        catalog = opened;
+        return opened;
+    }
+    
+    /**
+     * Gets the quiz catalogue
+     * @return The catalogue, or null if none is open
+     */
+    public QuizCatalog getCatalog() {
+        return catalog;
+    }
+    
+    /**
+     * Starts a new quiz session on the current quiz
+     * The session is submitted automatically when its time limit is reached
+     * @return The new session
+     */
+    public QuizSession startSession() {
+        return startSession(null);
+    }
+    
+    /**
+     * Starts a new quiz session on the current quiz
+     * @param onExpired Called on a timer worker thread after the session was submitted because time ran out, may be null
+     * @return The new session
+     */
+    public QuizSession startSession(Consumer<QuizSession> onExpired) {
+        long start = System.nanoTime();
+        QuizState current = state.get(); // read once, so the session is ranked and cached with the quiz it runs on
+        QuizSession session = new QuizSession(newSessionId(), current.quiz, ThreadLocalRandom.current().nextLong());
+        AnswerLog log = answerLog;
+        if (log != null) {
+            session.setAnswerLog(log);
+            session.logged(log.logStart(session.getId(), session.getSeed(), session.getStartMillis(), 0,
+                                        session.getQuestionSnapshot()));
+        }
+        track(session, current);
+        sessions.put(session.getId(), session);
+        scheduleExpiry(session, onExpired);
+        SESSION_START.recordSince(start);
+        return session;
+    }
+    
+    /**
+     * Starts a new quiz session on a quiz of the catalogue, loading the quiz if needed
+     * Catalogue sessions are logged and expire like the others but are not ranked or analysed,
+     * as the leaderboard and item statistics belong to the current quiz
+     * @param quizId Catalogue id of the quiz
+     * @param onExpired Called on a timer worker thread after the session was submitted because time ran out, may be null
+     * @return The new session, or null if no catalogue is open or it has no quiz with that id
+     * @throws IOException If the quiz cannot be loaded
+     */
+    public QuizSession startSession(long quizId, Consumer<QuizSession> onExpired) throws IOException {
+        long start = System.nanoTime();
+        QuizCatalog opened = catalog;
+        Quiz quiz = opened == null ? null : opened.get(quizId);
+        if (quiz == null) {
+            return null;
+        }
+        QuizSession session = new QuizSession(newSessionId(), quizId, quiz, ThreadLocalRandom.current().nextLong(), 0);
+        AnswerLog log = answerLog;
+        if (log != null) {
+            session.setAnswerLog(log);
+            session.logged(log.logStart(session.getId(), session.getSeed(), session.getStartMillis(), quizId,
+                                        session.getQuestionSnapshot()));
+        }
+        sessions.put(session.getId(), session);
+        scheduleExpiry(session, onExpired);
+        SESSION_START.recordSince(start);
+        return session;
+    }
+    
+    /**
+     * Gives a session to the logged-in candidate who started it, so only they can continue it
+     * Call before the candidate learns the session id; the owner is logged and survives a restart
+     * @param session The new session
+     * @param candidate The candidate number
+     */
+    public void assignCandidate(QuizSession session, int candidate) {
+        session.setCandidate(candidate);
+        AnswerLog log = answerLog;
+        if (log != null) {
+            session.logged(log.logCandidate(session.getId(), candidate));
+        }
+    }
+    
+    /**
+     * Draws the id of a new session
+     * Ids are random rather than counted, so knowing one session does not lead to the others
+     * @return A positive id no running session has
+     */
+    private long newSessionId() {
+        while (true) {
+            long id = sessionIds.nextLong() & Long.MAX_VALUE;
+            if (id != 0 && !sessions.containsKey(id)) {
+                return id;
+            }
+        }
+    }
+    
+    /**
+     * Hands out a session recovered from the answer log so its candidate can continue
+     * @param onExpired Called on a timer worker thread after the session was submitted because time ran out, may be null
+     * @return A recovered session that is still running, or null if there is none
+     */
+    public QuizSession resumeSession(Consumer<QuizSession> onExpired) {
+        Long sessionId;
+        while ((sessionId = recoveredSessionIds.poll()) != null) {
+            QuizSession session = sessions.get(sessionId);
+            if (session != null && !session.isFinished()) {
+                scheduleExpiry(session, onExpired);
+                return session;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Puts a session on the leaderboard of the current quiz, if its paper fits the score range,
+     * has its responses added to the item statistics when it finishes, and shares the rendered questions
+     * @param session The session
+     * @param current The quiz state the session was started on
+     */
+    private static void track(QuizSession session, QuizState current) {
+        if (session.getQuestionCount() <= current.leaderboard.getMaxScore()) {
+            session.setLeaderboard(current.leaderboard);
+        }
+        session.setItemStatistics(current.indexes.getItemStatistics());
+        session.setPayloadCache(current.payloadCache);
+    }
+    
+    /**
+     * Schedules the automatic submission of a session when its time runs out
+     * @param session The session
+     * @param onExpired Called after the session was submitted, may be null
+     */
+    private void scheduleExpiry(QuizSession session, Consumer<QuizSession> onExpired) {
+        session.setExpiryTimeout(SessionTimer.getInstance().schedule(session.getMillisLeft(), () -> {
+            EXPIRED_SESSIONS.increment();
+            finishSession(session);
+            if (onExpired != null) {
+                onExpired.accept(session);
+            }
+        }));
+    }
+    
+    /**
+     * Opens the answer log and recovers the sessions that were running when the application stopped
+     * Recovered sessions are rebuilt on the current quiz from their seed, so the quiz must be the one
+     * they were started on; sessions on catalogue quizzes are rebuilt on the quiz of the open catalogue.
+     * A session whose quiz is missing or no longer matches the fingerprint logged at its start is not recovered,
+     * and the old segments are then kept so it can still be recovered once the right quiz is loaded.
+     * Sessions whose time ran out while the application was down are submitted.
+     * @param directory The log directory
+     * @return Number of sessions still running after recovery
+     * @throws IOException If the log cannot be read or written
+     */
+    public int openAnswerLog(Path directory) throws IOException {
+        if (answerLog != null) {
+            throw new IllegalStateException("Answer log is already open");
+        }
+        QuizState current = state.get();
+        Quiz quiz = current.quiz;
+        long now = System.currentTimeMillis();
+        QuizCatalog opened = catalog;
+        Map<Long, QuizSession> recovered = new LinkedHashMap<>();
+        Map<Long, Long> quizIds = new HashMap<>(); // catalogue quiz of the next START of a session
+        Map<Long, long[]> fingerprints = new HashMap<>(); // question count and version, content hash of the next START
+        Set<Long> unrecoverable = new HashSet<>();
+        AnswerLog log;
+        try {
+            log = AnswerLog.open(directory, (type, sessionId, choice, a, b) -> {
+                switch (type) {
+                    case AnswerLog.QUIZ:
+                        quizIds.put(sessionId, a);
+                        break;
+                    case AnswerLog.FINGERPRINT:
+                        fingerprints.put(sessionId, new long[] {a, b});
+                        break;
+                    case AnswerLog.START:
+                        Long quizId = quizIds.remove(sessionId);
+                        long[] fingerprint = fingerprints.remove(sessionId);
+                        Quiz sessionQuiz = quizId == null ? quiz : catalogQuiz(opened, quizId);
+                        recovered.remove(sessionId);
+                        unrecoverable.remove(sessionId);
+                        if (sessionQuiz == null) {
+                            System.err.println("Cannot recover session " + sessionId + ", quiz " + quizId + " is not in the catalogue");
+                            unrecoverable.add(sessionId);
+                            break;
+                        }
+                        QuizSnapshot questions = sessionQuiz.getQuestions();
+                        if (fingerprint != null && ((int) (fingerprint[0] >>> 32) != questions.size()
+                                || fingerprint[1] != questions.getContentHash())) {
+                            System.err.println("Cannot recover session " + sessionId + ", it was started on "
+                                               + (int) (fingerprint[0] >>> 32) + " questions (version "
+                                               + (fingerprint[0] & 0xFFFFFFFFL) + ") that differ from the loaded quiz");
+                            unrecoverable.add(sessionId);
+                            break;
+                        }
+                        recovered.put(sessionId, new QuizSession(sessionId, quizId == null ? 0 : quizId, sessionQuiz,
+                                                                 a, Math.max(0, now - b)));
+                        break;
+                    case AnswerLog.ANSWER:
+                        QuizSession session = recovered.get(sessionId);
+                        if (session != null) {
+                            session.restoreAnswer((int) a, choice);
+                        }
+                        break;
+                    case AnswerLog.CANDIDATE:
+                        QuizSession owned = recovered.get(sessionId);
+                        if (owned != null) {
+                            owned.setCandidate((int) a);
+                        }
+                        break;
+                    case AnswerLog.FINISH:
+                        recovered.remove(sessionId);
+                        unrecoverable.remove(sessionId);
+                        break;
+                    default:
+                        break;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        // Log the recovered sessions again so the old segments can be dropped
+        for (QuizSession session : recovered.values()) {
+            session.setAnswerLog(log);
+            log.logStart(session.getId(), session.getSeed(), session.getStartMillis(), session.getQuizId(),
+                         session.getQuestionSnapshot());
+            if (session.getCandidate() != QuizSession.NO_CANDIDATE) {
+                log.logCandidate(session.getId(), session.getCandidate());
+            }
+            for (int i = 0; i < session.getQuestionCount(); i++) {
+                int storedChoice = session.getStoredAnswer(i);
+                if (storedChoice != QuizSession.NO_ANSWER) {
+                    log.logAnswer(session.getId(), i, storedChoice);
+                }
+            }
+        }
+        if (unrecoverable.isEmpty()) {
+            try {
+                log.compact();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while compacting the answer log", e);
+            }
+        } else {
+            System.err.println("Keeping the old answer log segments, " + unrecoverable.size()
+                               + " session(s) could not be recovered");
+        }
+        answerLog = log;
+        
+        int running = 0;
+        for (QuizSession session : recovered.values()) {
+            if (session.isExpired()) {
+                session.finish();
+            } else {
+                if (session.getQuizId() == 0) {
+                    track(session, current);
+                }
+                sessions.put(session.getId(), session);
+                recoveredSessionIds.add(session.getId());
+                scheduleExpiry(session, null);
+                running++;
+            }
+        }
+        return running;
+    }
+    
+    /**
+     * Loads a quiz of the catalogue during log replay
+     * @param opened The open catalogue, may be null
+     * @param quizId Catalogue id of the quiz
+     * @return The quiz, or null if it is not in the catalogue
+     */
+    private static Quiz catalogQuiz(QuizCatalog opened, long quizId) {
+        try {
+            return opened == null ? null : opened.get(quizId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * Waits until the last record logged for a session is on disk, returns at once if none was logged
+     * Records of other sessions appended later are not waited for
+     * @param session The session
+     * @throws IOException If the record was refused or the answer log has failed
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void awaitLogged(QuizSession session) throws IOException, InterruptedException {
+        AnswerLog log = answerLog;
+        long sequence = session.getLogSequence();
+        if (log != null && sequence != 0) {
+            log.awaitDurable(sequence);
+        }
+    }
+    
+    /**
+     * Flushes and closes the answer log, running sessions stay recoverable from it
+     * @throws IOException If the final write fails
+     */
+    public void closeAnswerLog() throws IOException {
+        AnswerLog log = answerLog;
+        if (log != null) {
+            answerLog = null;
+            log.close();
+        }
+    }
+    
+    /**
+     * Gets an active session by id
+     * @param sessionId The id of the session
+     * @return The session, or null if no active session has that id
+     */
+    public QuizSession getSession(long sessionId) {
+        return sessions.get(sessionId);
+    }
+    
+    /**
+     * Finishes a session and removes it from the active sessions
+     * @param session The session to finish
+     * @return The final score of the session
+     */
+    public int finishSession(QuizSession session) {
+        int score = session.finish();
+        sessions.remove(session.getId());
+        return score;
+    }
+    
+    /**
+     * Ends a session the candidate abandoned, without a result
+     * It is removed from the active sessions and the leaderboard, and its responses are not analysed
+     * @param session The session to discard
+     */
+    public void discardSession(QuizSession session) {
+        session.discard();
+        sessions.remove(session.getId());
+    }
+    
+    /**
+     * Gets the number of sessions currently in progress
+     * @return Number of active sessions
+     */
+    public int getActiveSessionCount() {
+        return sessions.size();
     }
     
     /**
@@ -129,4 +753,52 @@ public class QuizService {
         
         return correctAnswerIndex >= 0 && correctAnswerIndex < 4;
     }
+    
+    /**
+     * The current quiz together with the state kept for it
+     * Immutable and swapped as a whole, so a reader that gets it once sees a quiz with its own
+     * leaderboard, indexes and cache
+     */
+    private static final class QuizState {
+        private final Quiz quiz;
+        private final Leaderboard leaderboard; // standings of the sessions on the quiz
+        private final QuizIndexes indexes; // search index, duplicate detector and item statistics of the quiz
+        private final QuestionPayloadCache payloadCache; // rendered questions of the quiz
+        
+        /**
+         * Constructor for the state of a newly set quiz
+         * @param quiz The quiz
+         * @param payloadCacheBytes Byte budget of its payload cache
+         */
+        QuizState(Quiz quiz, long payloadCacheBytes) {
+            this.quiz = quiz;
+            this.leaderboard = new Leaderboard();
+            this.indexes = new QuizIndexes(quiz);
+            this.payloadCache = new QuestionPayloadCache(payloadCacheBytes);
+        }
+    }
+    
+    /**
+     * Item parameters calibrated for one questions snapshot from the statistics recorded so far
+     */
+    private static class Calibration {
+        private final List<Question> questions;
+        private final ItemStatistics statistics;
+        private final long papers; // papers in the statistics when calibrated
+        private final AdaptiveTestEngine engine;
+        
+        /**
+         * Constructor for a calibration
+         * @param questions The questions snapshot the engine was calibrated for
+         * @param statistics The statistics it was calibrated from
+         * @param papers Number of papers in the statistics at that time
+         * @param engine The calibrated engine
+         */
+        Calibration(List<Question> questions, ItemStatistics statistics, long papers, AdaptiveTestEngine engine) {
+            this.questions = questions;
+            this.statistics = statistics;
+            this.papers = papers;
+            this.engine = engine;
+        }
+    }
 }
@@ -0,0 +1,618 @@
+package com.quiz.service;
+
+import com.quiz.model.Question;
+import com.quiz.model.Quiz;
+import com.quiz.model.QuizSnapshot;
+
+/**
+ * Holds the state of one candidate taking a quiz, independent of any user interface
+ * Answers are kept in a compact byte array and all methods are safe to call from multiple threads
+ *
+ * Questions are addressed by position, the order this candidate sees them in. For shuffled quizzes the
+ * position maps to the stored question, and the displayed options to the stored answers, through a
+ * SessionPermutation derived from the session seed. Answers are recorded as stored answer indexes,
+ * so grading compares them with getCorrectAnswerIndex() directly.
+ *
+ * Pool-based quizzes draw their questions from the seed as well (see Quiz.drawQuestions), so the
+ * seed and the quiz version are enough to recompute a session's paper. That is what lets an AnswerLog
+ * rebuild a session from its start record and answers alone.
+ */
+public class QuizSession {
+    /** Marker stored in the answer array for questions that have not been answered */
+    public static final int NO_ANSWER = -1;
+    /** Candidate number of a session nobody logged in for */
+    public static final int NO_CANDIDATE = -1;
+    
+    private static final LatencyHistogram ANSWER_LATENCY = MetricsRegistry.getInstance().histogram("session.answer");
+    private static final LatencyHistogram FINISH_LATENCY = MetricsRegistry.getInstance().histogram("session.finish");
+    
+    private final long id;
+    private final long seed;
+    private final long quizId; // catalogue id of the quiz, 0 for the current quiz
+    private final QuizSnapshot questions;
+    private final long quizVersion; // version of the quiz snapshot the session was started on
+    private final int[] drawn; // stored indexes of the drawn questions, null for the whole quiz
+    private final SessionPermutation permutation; // null when the quiz is not shuffled
+    private final byte[] answers;
+    private final int[] timeOnQuestion; // milliseconds spent on each position
+    private final int timeLimit; // in seconds
+    private final long startTime; // System.nanoTime() at session start
+    private int currentQuestionIndex;
+    private int score;
+    private int runningScore; // correct answers so far, kept up to date by every answer change
+    private boolean finished;
+    private SessionTimer.Timeout expiryTimeout;
+    private AnswerLog answerLog; // null when answers are not logged
+    private long logSequence; // sequence of the last record logged for this session, 0 if none
+    private Leaderboard leaderboard; // null when the session is not ranked
+    private ItemStatistics itemStatistics; // null when responses are not analysed
+    private QuestionPayloadCache payloadCache; // null when rendered questions are not shared
+    private long questionShownAt; // elapsed millis when the current question was shown
+    private int candidate = NO_CANDIDATE; // number of the logged-in candidate who owns the session
+    
+    /**
+     * Constructor to create a session over the questions of a quiz
+     * @param id Unique identifier of the session
+     * @param quiz The quiz being taken
+     * @param seed Seed of the question draw and of the question and answer order
+     */
+    public QuizSession(long id, Quiz quiz, long seed) {
+        this(id, quiz, seed, 0);
+    }
+    
+    /**
+     * Constructor to rebuild a session that started earlier, used when recovering from the answer log
+     * @param id Unique identifier of the session
+     * @param quiz The quiz being taken
+     * @param seed Seed of the question draw and of the question and answer order
+     * @param elapsedMillis Time already spent in the session
+     */
+    QuizSession(long id, Quiz quiz, long seed, long elapsedMillis) {
+        this(id, 0, quiz, seed, elapsedMillis);
+    }
+    
+    /**
+     * Constructor to create or rebuild a session on a quiz of the catalogue
+     * @param id Unique identifier of the session
+     * @param quizId Catalogue id of the quiz, 0 for the current quiz
+     * @param quiz The quiz being taken
+     * @param seed Seed of the question draw and of the question and answer order
+     * @param elapsedMillis Time already spent in the session
+     */
+    QuizSession(long id, long quizId, Quiz quiz, long seed, long elapsedMillis) {
+        this.id = id;
+        this.seed = seed;
+        this.quizId = quizId;
+        QuizSnapshot snapshot = quiz.getQuestions();
+        this.questions = snapshot;
+        this.quizVersion = snapshot.getVersion();
+        this.drawn = quiz.drawQuestions(questions, seed);
+        int count = drawn == null ? questions.size() : drawn.length;
+        this.permutation = quiz.isShuffled() ? new SessionPermutation(count, seed) : null;
+        this.answers = new byte[count];
+        this.timeOnQuestion = new int[count];
+        this.timeLimit = quiz.getTimeLimit();
+        this.startTime = System.nanoTime() - elapsedMillis * 1_000_000L;
+        this.questionShownAt = elapsedMillis;
+        
+        // Initialize user answers to -1 (no answer selected)
+        for (int i = 0; i < answers.length; i++) {
+            answers[i] = NO_ANSWER;
+        }
+    }
+    
+    /**
+     * Gets the session identifier
+     * @return The session id
+     */
+    public long getId() {
+        return id;
+    }
+    
+    /**
+     * Gets the seed of the question draw and of the question and answer order
+     * @return The session seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+    
+    /**
+     * Gets the number of questions in this session
+     * @return Number of questions
+     */
+    public int getQuestionCount() {
+        return answers.length;
+    }
+    
+    /**
+     * Gets the question shown at a position of this session
+     * @param index The position of the question
+     * @return The question at the specified position, or null if invalid index
+     */
+    public Question getQuestion(int index) {
+        if (index >= 0 && index < answers.length) {
+            return questions.get(getStoredIndex(index));
+        }
+        return null;
+    }
+    
+    /**
+     * Maps a position of this session to the index of the question in the quiz
+     * @param index The position of the question
+     * @return Index of the question in the quiz
+     */
+    public int getStoredIndex(int index) {
+        int drawIndex = permutation == null ? index : permutation.map(index);
+        return drawn == null ? drawIndex : drawn[drawIndex];
+    }
+    
+    /**
+     * Gets the text of an answer option as shown to the candidate
+     * @param index The position of the question
+     * @param choice The displayed option (0-3)
+     * @return The answer text, or null if an index is invalid
+     */
+    public String getAnswerText(int index, int choice) {
+        Question question = getQuestion(index);
+        if (question == null || choice < 0 || choice > 3) {
+            return null;
+        }
+        return question.getAnswer(toStoredChoice(index, choice));
+    }
+    
+    /**
+     * Maps a displayed option to the stored answer index of the question
+     * @param index The position of the question
+     * @param choice The displayed option (0-3)
+     * @return The stored answer index (0-3)
+     */
+    public int toStoredChoice(int index, int choice) {
+        if (permutation == null) {
+            return choice;
+        }
+        return SessionPermutation.toStoredChoice(permutation.answerOrder(getStoredIndex(index)), choice);
+    }
+    
+    /**
+     * Maps a stored answer index of the question to the option displayed to the candidate
+     * @param index The position of the question
+     * @param storedChoice The stored answer index (0-3)
+     * @return The displayed option (0-3)
+     */
+    public int toDisplayedChoice(int index, int storedChoice) {
+        if (permutation == null) {
+            return storedChoice;
+        }
+        return SessionPermutation.toDisplayedChoice(permutation.answerOrder(getStoredIndex(index)), storedChoice);
+    }
+    
+    /**
+     * Gets the order in which the answer options of a question are displayed
+     * @param index The position of the question
+     * @return The answer order (0-23), or SessionPermutation.ORDER_COUNT if the quiz is not shuffled
+     */
+    public int getAnswerOrder(int index) {
+        return permutation == null ? SessionPermutation.ORDER_COUNT : permutation.answerOrder(getStoredIndex(index));
+    }
+    
+    /**
+     * Gets the catalogue id of the quiz this session is taken on
+     * @return The quiz id, 0 for the current quiz
+     */
+    public long getQuizId() {
+        return quizId;
+    }
+    
+    /**
+     * Gets the version of the quiz the questions of this session were taken from
+     * @return The snapshot version
+     */
+    public long getQuizVersion() {
+        return quizVersion;
+    }
+    
+    /**
+     * Gets the questions the session was drawn from
+     * @return The quiz snapshot the session was started on
+     */
+    QuizSnapshot getQuestionSnapshot() {
+        return questions;
+    }
+    
+    /**
+     * Gets the question the candidate is currently on
+     * @return The current question, or null if the quiz has no questions
+     */
+    public synchronized Question getCurrentQuestion() {
+        return getQuestion(currentQuestionIndex);
+    }
+    
+    /**
+     * Gets the index of the question the candidate is currently on
+     * @return Current question index
+     */
+    public synchronized int getCurrentQuestionIndex() {
+        return currentQuestionIndex;
+    }
+    
+    /**
+     * Moves to the next question
+     * @return true if the session moved, false if already on the last question
+     */
+    public synchronized boolean next() {
+        if (currentQuestionIndex < answers.length - 1) {
+            leaveQuestion();
+            currentQuestionIndex++;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Moves to the previous question
+     * @return true if the session moved, false if already on the first question
+     */
+    public synchronized boolean previous() {
+        if (currentQuestionIndex > 0) {
+            leaveQuestion();
+            currentQuestionIndex--;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Moves to a specific question
+     * @param index The index of the question to move to
+     * @return true if the session moved, false if index is invalid
+     */
+    public synchronized boolean goTo(int index) {
+        if (index >= 0 && index < answers.length) {
+            leaveQuestion();
+            currentQuestionIndex = index;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Adds the time since the current question was shown to its time on question
+     */
+    private void leaveQuestion() {
+        if (finished || answers.length == 0) {
+            return;
+        }
+        long now = Math.min(getElapsedMillis(), timeLimit * 1000L);
+        timeOnQuestion[currentQuestionIndex] += (int) Math.max(0, now - questionShownAt);
+        questionShownAt = now;
+    }
+    
+    /**
+     * Gets the time the candidate has spent on a question, not counting the visit in progress
+     * @param questionIndex The position of the question
+     * @return Time in milliseconds, or 0 if invalid index
+     */
+    public synchronized long getTimeOnQuestion(int questionIndex) {
+        if (questionIndex < 0 || questionIndex >= answers.length) {
+            return 0;
+        }
+        return timeOnQuestion[questionIndex];
+    }
+    
+    /**
+     * Records an answer for the current question
+     * @param answerIndex The selected option as displayed (0-3)
+     * @return true if the answer was recorded
+     */
+    public synchronized boolean selectAnswer(int answerIndex) {
+        return selectAnswer(currentQuestionIndex, answerIndex);
+    }
+    
+    /**
+     * Records an answer for a specific question
+     * @param questionIndex The position of the question
+     * @param answerIndex The selected option as displayed (0-3)
+     * @return true if the answer was recorded, false if the session is finished or an index is invalid
+     */
+    public synchronized boolean selectAnswer(int questionIndex, int answerIndex) {
+        if (finished || questionIndex < 0 || questionIndex >= answers.length
+                || answerIndex < 0 || answerIndex > 3) {
+            return false;
+        }
+        long start = System.nanoTime();
+        int storedChoice = toStoredChoice(questionIndex, answerIndex);
+        applyAnswer(questionIndex, storedChoice);
+        if (answerLog != null) {
+            logSequence = answerLog.logAnswer(id, questionIndex, answers[questionIndex]);
+        }
+        ANSWER_LATENCY.recordSince(start);
+        return true;
+    }
+    
+    /**
+     * Restores an answer read back from the answer log, without logging it again
+     * @param questionIndex The position of the question
+     * @param storedChoice The stored answer index, or NO_ANSWER
+     */
+    synchronized void restoreAnswer(int questionIndex, int storedChoice) {
+        if (questionIndex >= 0 && questionIndex < answers.length && storedChoice >= NO_ANSWER && storedChoice <= 3) {
+            applyAnswer(questionIndex, storedChoice);
+        }
+    }
+    
+    /**
+     * Stores an answer and adjusts the running score by the change in correctness
+     * @param questionIndex The position of the question
+     * @param storedChoice The stored answer index, or NO_ANSWER
+     */
+    private void applyAnswer(int questionIndex, int storedChoice) {
+        Question question = questions.get(getStoredIndex(questionIndex));
+        int previous = answers[questionIndex];
+        int delta = (storedChoice != NO_ANSWER && question.isCorrectAnswer(storedChoice) ? 1 : 0)
+                - (previous != NO_ANSWER && question.isCorrectAnswer(previous) ? 1 : 0);
+        answers[questionIndex] = (byte) storedChoice;
+        if (delta != 0) {
+            runningScore += delta;
+            if (leaderboard != null) {
+                leaderboard.update(id, runningScore - delta, runningScore);
+            }
+        }
+    }
+    
+    /**
+     * Puts the session on a leaderboard with its current score
+     * @param leaderboard The leaderboard
+     */
+    synchronized void setLeaderboard(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+        leaderboard.add(id, runningScore);
+    }
+    
+    /**
+     * Takes the session off its leaderboard, later answer changes are no longer ranked
+     */
+    synchronized void leaveLeaderboard() {
+        if (leaderboard != null) {
+            leaderboard.remove(id);
+            leaderboard = null;
+        }
+    }
+    
+    /**
+     * Sets the item statistics that receive the responses of this session when it finishes
+     * @param itemStatistics The item statistics
+     */
+    synchronized void setItemStatistics(ItemStatistics itemStatistics) {
+        this.itemStatistics = itemStatistics;
+    }
+    
+    /**
+     * Sets the cache of rendered questions shared with the other sessions on the quiz
+     * @param payloadCache The payload cache
+     */
+    synchronized void setPayloadCache(QuestionPayloadCache payloadCache) {
+        this.payloadCache = payloadCache;
+    }
+    
+    /**
+     * Gets the cache of rendered questions shared with the other sessions on the quiz
+     * @return The payload cache, or null if the session has none
+     */
+    public synchronized QuestionPayloadCache getPayloadCache() {
+        return payloadCache;
+    }
+    
+    /**
+     * Gets the number of correct answers so far, while the session is running
+     * @return Current number of correct answers
+     */
+    public synchronized int getCurrentScore() {
+        return runningScore;
+    }
+    
+    /**
+     * Gets the candidate who owns this session
+     * @return The candidate number, or NO_CANDIDATE for an anonymous session
+     */
+    public synchronized int getCandidate() {
+        return candidate;
+    }
+    
+    /**
+     * Sets the candidate who owns this session
+     * @param candidate The candidate number
+     */
+    synchronized void setCandidate(int candidate) {
+        this.candidate = candidate;
+    }
+    
+    /**
+     * Sets the log that records the answers and the end of this session
+     * @param answerLog The answer log
+     */
+    synchronized void setAnswerLog(AnswerLog answerLog) {
+        this.answerLog = answerLog;
+    }
+    
+    /**
+     * Notes a record logged for this session by someone else, such as its start
+     * @param sequence Sequence number returned by the answer log
+     */
+    synchronized void logged(long sequence) {
+        logSequence = sequence;
+    }
+    
+    /**
+     * Gets the sequence number of the last record logged for this session
+     * @return Sequence number for AnswerLog.awaitDurable(), 0 if nothing was logged, -1 if the log refused the record
+     */
+    synchronized long getLogSequence() {
+        return logSequence;
+    }
+    
+    /**
+     * Gets the answer recorded for a question
+     * @param questionIndex The position of the question
+     * @return The selected option as displayed, or NO_ANSWER if none was selected
+     */
+    public synchronized int getAnswer(int questionIndex) {
+        if (questionIndex < 0 || questionIndex >= answers.length || answers[questionIndex] == NO_ANSWER) {
+            return NO_ANSWER;
+        }
+        return toDisplayedChoice(questionIndex, answers[questionIndex]);
+    }
+    
+    /**
+     * Gets the answer recorded for a question as a stored answer index
+     * @param questionIndex The position of the question
+     * @return The stored answer index, or NO_ANSWER if none was selected
+     */
+    public synchronized int getStoredAnswer(int questionIndex) {
+        if (questionIndex < 0 || questionIndex >= answers.length) {
+            return NO_ANSWER;
+        }
+        return answers[questionIndex];
+    }
+    
+    /**
+     * Gets the time left in the session
+     * @return Time left in seconds, never negative
+     */
+    public int getTimeLeft() {
+        long left = timeLimit * 1000L - getElapsedMillis();
+        return left <= 0 ? 0 : (int) ((left + 999) / 1000);
+    }
+    
+    /**
+     * Gets the exact time left in the session
+     * @return Time left in milliseconds, never negative
+     */
+    public long getMillisLeft() {
+        return Math.max(0, timeLimit * 1000L - getElapsedMillis());
+    }
+    
+    /**
+     * Gets the time spent in the session, capped at the time limit
+     * @return Elapsed time in seconds
+     */
+    public int getTimeTaken() {
+        return Math.min(timeLimit, (int) (getElapsedMillis() / 1000));
+    }
+    
+    /**
+     * Checks if the time limit of the session has been reached
+     * @return true if no time is left
+     */
+    public boolean isExpired() {
+        return getElapsedMillis() >= timeLimit * 1000L;
+    }
+    
+    /**
+     * Gets the wall-clock time the session started
+     * @return Start time in epoch millis
+     */
+    public long getStartMillis() {
+        return System.currentTimeMillis() - getElapsedMillis();
+    }
+    
+    /**
+     * Gets the time limit of the session
+     * @return Time limit in seconds
+     */
+    public int getTimeLimit() {
+        return timeLimit;
+    }
+    
+    /**
+     * Finishes the session and calculates the score
+     * Calling this more than once returns the score of the first call
+     * @return Number of correctly answered questions
+     */
+    public synchronized int finish() {
+        if (!finished) {
+            long start = System.nanoTime();
+            if (expiryTimeout != null) {
+                expiryTimeout.cancel();
+                expiryTimeout = null;
+            }
+            leaveQuestion();
+            score = runningScore;
+            finished = true;
+            if (itemStatistics != null) {
+                itemStatistics.recordSession(this);
+            }
+            if (answerLog != null) {
+                logSequence = answerLog.logFinish(id);
+            }
+            FINISH_LATENCY.recordSince(start);
+        }
+        return score;
+    }
+    
+    /**
+     * Ends the session without a result: it leaves the leaderboard and its responses are not analysed
+     * Does nothing if the session already finished
+     */
+    synchronized void discard() {
+        if (!finished) {
+            itemStatistics = null;
+            finish();
+            leaveLeaderboard();
+        }
+    }
+    
+    /**
+     * Sets the timeout that auto-submits the session, it is cancelled when the session finishes
+     * A previously set timeout is cancelled
+     * @param expiryTimeout The scheduled expiry
+     */
+    synchronized void setExpiryTimeout(SessionTimer.Timeout expiryTimeout) {
+        if (this.expiryTimeout != null) {
+            this.expiryTimeout.cancel();
+        }
+        this.expiryTimeout = expiryTimeout;
+    }
+    
+    /**
+     * Gets the time until the next whole second of the countdown
+     * @return Milliseconds until getTimeLeft() changes
+     */
+    public long getMillisUntilNextSecond() {
+        long left = timeLimit * 1000L - getElapsedMillis();
+        long remainder = left % 1000;
+        return left <= 0 ? 0 : (remainder == 0 ? 1000 : remainder);
+    }
+    
+    /**
+     * Checks if the session has been finished
+     * @return true if finish() has been called
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+    
+    /**
+     * Gets the final score of the session
+     * @return Number of correct answers, or 0 if the session is not finished
+     */
+    public synchronized int getScore() {
+        return score;
+    }
+    
+    /**
+     * Gets the score as a percentage of the number of questions
+     * @return Percentage of correct answers
+     */
+    public synchronized double getPercentage() {
+        return answers.length == 0 ? 0 : score * 100.0 / answers.length;
+    }
+    
+    /**
+     * Gets the time since the session started
+     * @return Elapsed time in milliseconds
+     */
+    private long getElapsedMillis() {
+        return (System.nanoTime() - startTime) / 1_000_000L;
+    }
+}
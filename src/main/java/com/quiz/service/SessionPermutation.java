@@ -0,0 +1,164 @@
+package com.quiz.service;
+
+/**
+ * Seeded, allocation-free permutation of question positions and answer options
+ * Question order is a Feistel network over the smallest even power of two that holds all questions,
+ * with cycle-walking to stay below the question count. Nothing is materialised, so a permutation
+ * costs the same few bytes for ten questions or ten million, and any position maps in O(1).
+ * Answer options use one of the 24 orderings of four, picked from the seed and the question.
+ */
+public final class SessionPermutation {
+    /** Number of answer orderings, answer order ids are 0 to ORDER_COUNT - 1 */
+    public static final int ORDER_COUNT = 24;
+    
+    private static final int ROUNDS = 4;
+    
+    /** All 24 orderings of four options: ORDERS[k][displayed choice] = stored choice */
+    private static final byte[][] ORDERS = new byte[ORDER_COUNT][4];
+    /** Inverse orderings: INVERSE_ORDERS[k][stored choice] = displayed choice */
+    private static final byte[][] INVERSE_ORDERS = new byte[ORDER_COUNT][4];
+    
+    static {
+        int k = 0;
+        for (int a = 0; a < 4; a++) {
+            for (int b = 0; b < 4; b++) {
+                for (int c = 0; c < 4; c++) {
+                    int d = 6 - a - b - c;
+                    if (a != b && a != c && b != c && d >= 0 && d < 4 && d != a && d != b && d != c) {
+                        ORDERS[k] = new byte[] {(byte) a, (byte) b, (byte) c, (byte) d};
+                        for (int i = 0; i < 4; i++) {
+                            INVERSE_ORDERS[k][ORDERS[k][i]] = (byte) i;
+                        }
+                        k++;
+                    }
+                }
+            }
+        }
+    }
+    
+    private final int size;
+    private final long seed;
+    private final int halfBits;
+    private final int halfMask;
+    
+    /**
+     * Constructor for a permutation of [0, size)
+     * @param size Number of positions
+     * @param seed Seed selecting the permutation, the same seed always gives the same order
+     */
+    public SessionPermutation(int size, long seed) {
+        this.size = size;
+        this.seed = seed;
+        int bits = size <= 1 ? 2 : 32 - Integer.numberOfLeadingZeros(size - 1);
+        bits += bits & 1; // Feistel halves need an even number of bits
+        this.halfBits = Math.max(1, bits / 2);
+        this.halfMask = (1 << halfBits) - 1;
+    }
+    
+    /**
+     * Gets the number of positions
+     * @return Size of the permutation
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Maps a position to its permuted value
+     * @param position Position in [0, size)
+     * @return Permuted value in [0, size)
+     */
+    public int map(int position) {
+        int value = position;
+        do {
+            value = encrypt(value);
+        } while (value >= size); // Cycle-walk values outside the range back in
+        return value;
+    }
+    
+    /**
+     * Maps a permuted value back to its position, the inverse of map()
+     * @param value Value in [0, size)
+     * @return Position in [0, size)
+     */
+    public int unmap(int value) {
+        int position = value;
+        do {
+            position = decrypt(position);
+        } while (position >= size);
+        return position;
+    }
+    
+    /**
+     * Picks the answer ordering for a question
+     * @param questionIndex Stored index of the question
+     * @return Ordering id (0-23) for toStoredChoice() and toDisplayedChoice()
+     */
+    public int answerOrder(int questionIndex) {
+        return (int) ((mix(seed ^ 0x5DEECE66DL ^ ((long) questionIndex << 20)) >>> 1) % ORDERS.length);
+    }
+    
+    /**
+     * Maps a displayed option to the stored answer index
+     * @param order Ordering id from answerOrder()
+     * @param displayedChoice Option as shown to the candidate (0-3)
+     * @return Stored answer index (0-3)
+     */
+    public static int toStoredChoice(int order, int displayedChoice) {
+        return ORDERS[order][displayedChoice];
+    }
+    
+    /**
+     * Maps a stored answer index to the option shown to the candidate
+     * @param order Ordering id from answerOrder()
+     * @param storedChoice Stored answer index (0-3)
+     * @return Option as shown to the candidate (0-3)
+     */
+    public static int toDisplayedChoice(int order, int storedChoice) {
+        return INVERSE_ORDERS[order][storedChoice];
+    }
+    
+    /**
+     * Runs the Feistel rounds forward
+     */
+    private int encrypt(int value) {
+        int left = value >>> halfBits;
+        int right = value & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            int next = left ^ roundFunction(round, right);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+    
+    /**
+     * Runs the Feistel rounds backward
+     */
+    private int decrypt(int value) {
+        int left = value >>> halfBits;
+        int right = value & halfMask;
+        for (int round = ROUNDS - 1; round >= 0; round--) {
+            int previous = right ^ roundFunction(round, left);
+            right = left;
+            left = previous;
+        }
+        return (left << halfBits) | right;
+    }
+    
+    /**
+     * Feistel round function
+     */
+    private int roundFunction(int round, int half) {
+        return (int) mix(seed + (round + 1) * 0x9E3779B97F4A7C15L + half) & halfMask;
+    }
+    
+    /**
+     * SplitMix64 finalizer, spreads every input bit over the whole output
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
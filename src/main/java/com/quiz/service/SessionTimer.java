@@ -0,0 +1,279 @@
+package com.quiz.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Shared timer that tracks the deadlines of all active sessions with a hierarchical timing wheel
+ * One daemon thread advances the wheel every millisecond. Each tick only touches the timeouts
+ * that expire on it (plus an occasional cascade from a coarser wheel), and ticking does not allocate.
+ * The timer thread only dispatches: each expired task runs on its own virtual thread, so a task that
+ * blocks, such as a session submission waiting for room in the answer log, does not hold up other
+ * deadlines, and a task that throws cannot stop the timer.
+ */
+public class SessionTimer {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS; // 64 slots per level
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 5; // 1 ms, 64 ms, 4 s, 4.4 min and 4.7 h per slot
+    private static final long MAX_DELAY = (1L << (WHEEL_BITS * LEVELS)) - 1; // about 12 days
+    
+    private final Timeout[][] wheels = new Timeout[LEVELS][WHEEL_SIZE];
+    private final Thread thread;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final long startTime = System.nanoTime();
+    private long currentTick; // guarded by this
+    private int pendingCount; // guarded by this
+    private Timeout expired; // guarded by this, timeouts collected by advance() and not fired yet
+    
+    /**
+     * Private constructor for singleton pattern
+     */
+    private SessionTimer() {
+        thread = new Thread(this::run, "quiz-session-timer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Holder class, the JVM initializes it exactly once on first use
+     */
+    private static class Holder {
+        private static final SessionTimer INSTANCE = new SessionTimer();
+    }
+    
+    /**
+     * Gets the shared SessionTimer instance
+     * @return The SessionTimer instance
+     */
+    public static SessionTimer getInstance() {
+        return Holder.INSTANCE;
+    }
+    
+    /**
+     * Schedules a task to run once after a delay
+     * @param delayMillis Delay in milliseconds, delays over about 12 days are capped
+     * @param task The task to run, on a virtual thread of its own
+     * @return Handle that can cancel the task
+     */
+    public Timeout schedule(long delayMillis, Runnable task) {
+        Timeout timeout = new Timeout(task);
+        boolean wasIdle;
+        synchronized (this) {
+            long now = nowTick();
+            if (pendingCount == 0 && now > currentTick) {
+                // Nothing is scheduled, so the wheel can jump to the present without ticking through idle time
+                currentTick = now;
+            }
+            timeout.deadline = now + Math.max(1, Math.min(delayMillis, MAX_DELAY));
+            wasIdle = pendingCount == 0;
+            pendingCount++;
+            insert(timeout);
+        }
+        if (wasIdle) {
+            LockSupport.unpark(thread);
+        }
+        return timeout;
+    }
+    
+    /**
+     * Gets the number of scheduled timeouts that have neither fired nor been cancelled
+     * @return Number of pending timeouts
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+    
+    /**
+     * Links a timeout into the slot of the finest wheel that can hold its deadline
+     * @param timeout The timeout to insert
+     */
+    private void insert(Timeout timeout) {
+        long delta = timeout.deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) (Math.max(timeout.deadline, currentTick) >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+        Timeout head = wheels[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+    }
+    
+    /**
+     * Unlinks a timeout from its slot
+     * @param timeout The timeout to remove
+     */
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheels[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+    
+    /**
+     * Main loop of the timer thread
+     */
+    private void run() {
+        while (true) {
+            try {
+                tick();
+            } catch (Throwable e) {
+                // Keep ticking, every other session still needs its deadline
+                System.err.println("Session timer failed: " + e);
+            }
+        }
+    }
+    
+    /**
+     * Advances the wheel to the present, dispatches the expired timeouts and waits for the next tick
+     */
+    private void tick() {
+        synchronized (this) {
+            long now = nowTick();
+            while (currentTick < now && pendingCount > 0) {
+                advance();
+            }
+            if (pendingCount == 0) {
+                currentTick = Math.max(currentTick, now);
+            }
+        }
+        fireExpired();
+        
+        boolean idle;
+        synchronized (this) {
+            idle = pendingCount == 0;
+        }
+        if (idle) {
+            LockSupport.park(this);
+        } else {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+    
+    /**
+     * Advances the wheel by one tick, cascading coarser wheels and collecting expired timeouts
+     */
+    private void advance() {
+        currentTick++;
+        
+        // Move timeouts from coarser wheels down when a finer wheel completes a rotation
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            int slot = (int) (currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+            Timeout timeout = wheels[level][slot];
+            wheels[level][slot] = null;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                insert(timeout);
+                timeout = next;
+            }
+        }
+        
+        int slot = (int) currentTick & WHEEL_MASK;
+        Timeout timeout = wheels[0][slot];
+        wheels[0][slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.level = -1;
+            timeout.prev = null;
+            timeout.next = expired;
+            expired = timeout;
+            pendingCount--;
+            timeout = next;
+        }
+    }
+    
+    /**
+     * Hands the tasks of all timeouts collected by advance() to the workers, outside the wheel lock
+     */
+    private void fireExpired() {
+        Timeout timeout;
+        synchronized (this) {
+            timeout = expired;
+            expired = null;
+        }
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            try {
+                workers.execute(timeout);
+            } catch (Throwable e) {
+                System.err.println("Session timer could not start a task: " + e);
+            }
+            timeout = next;
+        }
+    }
+    
+    /**
+     * Gets the current time in ticks since the timer started
+     * @return Milliseconds since the timer started
+     */
+    private long nowTick() {
+        return (System.nanoTime() - startTime) / 1_000_000L;
+    }
+    
+    /**
+     * Handle of a scheduled task
+     */
+    public final class Timeout implements Runnable {
+        private final Runnable task;
+        private long deadline;
+        private int level;
+        private int slot;
+        private Timeout prev;
+        private Timeout next;
+        
+        /**
+         * Constructor for a timeout that is not scheduled yet
+         * @param task The task to run when the timeout expires
+         */
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+        
+        /**
+         * Runs the task on a worker, reporting anything it throws
+         */
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                System.err.println("Session timer task failed: " + e);
+            }
+        }
+        
+        /**
+         * Cancels the task if it has not fired yet
+         * @return true if the task was cancelled, false if it already fired or was cancelled before
+         */
+        public boolean cancel() {
+            synchronized (SessionTimer.this) {
+                if (level < 0) {
+                    return false;
+                }
+                unlink(this);
+                level = -1;
+                pendingCount--;
+                return true;
+            }
+        }
+    }
+}
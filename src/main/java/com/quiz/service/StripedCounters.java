@@ -0,0 +1,74 @@
+package com.quiz.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed number of long counters split into stripes, one per CPU
+ * Each thread adds to its own stripe, so threads recording at the same time do not contend on the same
+ * cache lines. A stripe is only allocated once a thread adds to it.
+ * Sums add up the stripes while adding continues and may miss updates made during the read.
+ */
+final class StripedCounters {
+    private static final int STRIPE_COUNT = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+    private static final int PADDING = 8; // longs after each stripe, keeps neighbouring stripes on separate cache lines
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle STRIPES = MethodHandles.arrayElementVarHandle(long[][].class);
+    
+    private final int size;
+    private final long[][] stripes = new long[STRIPE_COUNT][]; // null until a thread adds to the stripe
+    
+    /**
+     * Constructor for counters that all start at zero
+     * @param size Number of counters
+     */
+    StripedCounters(int size) {
+        this.size = size;
+    }
+    
+    /**
+     * Gets the stripe of the current thread, allocating it on first use
+     * Callers making several adds look the stripe up once and pass it to add()
+     * @return Counter array of the stripe
+     */
+    long[] stripe() {
+        // Fibonacci hash of the thread id, so neighbouring threads land on different stripes
+        int stripe = (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 40) & (STRIPE_COUNT - 1);
+        long[] counters = (long[]) STRIPES.getAcquire(stripes, stripe);
+        if (counters == null) {
+            long[] allocated = new long[size + PADDING];
+            counters = (long[]) STRIPES.compareAndExchangeRelease(stripes, stripe, null, allocated);
+            if (counters == null) {
+                counters = allocated;
+            }
+        }
+        return counters;
+    }
+    
+    /**
+     * Adds to a counter of a stripe atomically
+     * @param stripe Stripe returned by stripe()
+     * @param index Index of the counter
+     * @param delta Value to add
+     */
+    static void add(long[] stripe, int index, long delta) {
+        COUNTERS.getAndAdd(stripe, index, delta);
+    }
+    
+    /**
+     * Adds the sums of a range of counters over all stripes to an array
+     * @param from Index of the first counter
+     * @param totals Array receiving the sums, one entry per counter starting at from
+     */
+    void sumInto(int from, long[] totals) {
+        for (int s = 0; s < STRIPE_COUNT; s++) {
+            long[] stripe = (long[]) STRIPES.getAcquire(stripes, s);
+            if (stripe == null) {
+                continue;
+            }
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += (long) COUNTERS.getOpaque(stripe, from + i);
+            }
+        }
+    }
+}
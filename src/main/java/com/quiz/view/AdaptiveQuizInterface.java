@@ -0,0 +1,166 @@
+package com.quiz.view;
+
+import com.quiz.model.Question;
+import com.quiz.service.AdaptiveTest;
+import com.quiz.service.QuizService;
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Interface for taking an adaptive test
+ * Unlike QuizInterface there is no going back: every answer is submitted and the next question is picked
+ * from the candidate's answers so far, until the ability estimate is precise enough
+ */
+public class AdaptiveQuizInterface extends JFrame {
+    private AdaptiveTest test;
+    private JLabel questionLabel;
+    private JRadioButton[] answerButtons = new JRadioButton[4];
+    private ButtonGroup answerGroup = new ButtonGroup();
+    private JLabel progressLabel;
+    private JLabel abilityLabel;
+    private JButton submitButton;
+    
+    /**
+     * Constructor to initialize the adaptive test interface
+     */
+    public AdaptiveQuizInterface() {
+        this.test = QuizService.getInstance().startAdaptiveTest();
+        initializeComponents();
+        displayQuestion();
+    }
+    
+    /**
+     * Initializes all UI components
+     */
+    private void initializeComponents() {
+        setTitle("Quiz Application - Adaptive Test");
+        setSize(600, 500);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        setLocationRelativeTo(null);
+        setLayout(new BorderLayout());
+        
+        // Create header panel with progress and the current estimate
+        JPanel headerPanel = new JPanel(new BorderLayout());
+        headerPanel.setBackground(UIResources.ACCENT);
+        headerPanel.setBorder(UIResources.emptyBorder(10, 15, 10, 15));
+        
+        progressLabel = new JLabel();
+        progressLabel.setFont(UIResources.font(Font.BOLD, 14));
+        progressLabel.setForeground(Color.WHITE);
+        
+        abilityLabel = new JLabel();
+        abilityLabel.setFont(UIResources.font(Font.BOLD, 14));
+        abilityLabel.setForeground(Color.WHITE);
+        
+        headerPanel.add(progressLabel, BorderLayout.WEST);
+        headerPanel.add(abilityLabel, BorderLayout.EAST);
+        add(headerPanel, BorderLayout.NORTH);
+        
+        // Create main content panel
+        JPanel contentPanel = new JPanel(new BorderLayout());
+        contentPanel.setBorder(UIResources.emptyBorder(20, 20, 20, 20));
+        
+        JPanel questionPanel = new JPanel(new BorderLayout());
+        questionPanel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Question"));
+        
+        questionLabel = new JLabel();
+        questionLabel.setFont(UIResources.font(Font.PLAIN, 16));
+        questionLabel.setBorder(UIResources.emptyBorder(15, 15, 15, 15));
+        questionLabel.setVerticalAlignment(SwingConstants.TOP);
+        questionPanel.add(questionLabel, BorderLayout.CENTER);
+        contentPanel.add(questionPanel, BorderLayout.NORTH);
+        
+        JPanel answerPanel = new JPanel(new GridLayout(4, 1, 5, 5));
+        answerPanel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), "Select your answer"));
+        
+        for (int i = 0; i < 4; i++) {
+            answerButtons[i] = new JRadioButton();
+            answerButtons[i].setFont(UIResources.font(Font.PLAIN, 14));
+            answerButtons[i].setBorder(UIResources.emptyBorder(5, 10, 5, 10));
+            answerButtons[i].addActionListener(e -> submitButton.setEnabled(true));
+            answerGroup.add(answerButtons[i]);
+            answerPanel.add(answerButtons[i]);
+        }
+        
+        contentPanel.add(answerPanel, BorderLayout.CENTER);
+        add(contentPanel, BorderLayout.CENTER);
+        
+        // Create submit panel
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.setBorder(UIResources.emptyBorder(10, 20, 20, 20));
+        
+        submitButton = new JButton("Submit Answer");
+        submitButton.setBackground(UIResources.PRIMARY);
+        submitButton.setForeground(Color.WHITE);
+        submitButton.setFont(UIResources.font(Font.BOLD, 12));
+        submitButton.setPreferredSize(new Dimension(140, 35));
+        submitButton.addActionListener(e -> submitAnswer());
+        buttonPanel.add(submitButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+    }
+    
+    /**
+     * Submits the selected answer and moves on to the question the test picks next
+     */
+    private void submitAnswer() {
+        for (int i = 0; i < 4; i++) {
+            if (answerButtons[i].isSelected()) {
+                test.answer(i);
+                displayQuestion();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Displays the next question, or the results once the test is finished
+     */
+    private void displayQuestion() {
+        Question question = test.nextQuestion();
+        if (question == null) {
+            showResults();
+            dispose();
+            return;
+        }
+        questionLabel.setText("<html><body style='width: 500px'>" +
+                             question.getQuestion() + "</body></html>");
+        for (int i = 0; i < 4; i++) {
+            answerButtons[i].setText((char)('A' + i) + ". " + question.getAnswer(i));
+        }
+        answerGroup.clearSelection();
+        submitButton.setEnabled(false);
+        
+        progressLabel.setText("Question " + (test.getAnsweredCount() + 1) + " of at most " + test.getMaxQuestions());
+        abilityLabel.setText(String.format("Ability %.2f ± %.2f", test.getAbility(), test.getStandardError()));
+    }
+    
+    /**
+     * Shows the ability estimate the test ended with
+     */
+    private void showResults() {
+        String message = String.format(
+            "Adaptive Test Complete!\n\n" +
+            "Correct answers: %d out of %d\n" +
+            "Ability estimate: %.2f (standard error %.2f)\n" +
+            "Higher than about %.0f%% of candidates",
+            test.getCorrectCount(),
+            test.getAnsweredCount(),
+            test.getAbility(),
+            test.getStandardError(),
+            percentile(test.getAbility())
+        );
+        JOptionPane.showMessageDialog(null, message, "Adaptive Test Results", JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    /**
+     * Converts an ability on the standard normal scale into a percentile
+     * @param ability The ability estimate
+     * @return Share of the population below that ability, in percent
+     */
+    private static double percentile(double ability) {
+        // Logistic approximation of the normal distribution function
+        return 100.0 / (1 + Math.exp(-1.7 * ability));
+    }
+}
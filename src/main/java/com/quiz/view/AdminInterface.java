@@ -1,11 +1,18 @@
 package com.quiz.view;
 
+import com.quiz.service.AuthenticationResult;
 import com.quiz.service.AuthenticationService;
+import com.quiz.service.DuplicateDetector;
+import com.quiz.service.ImportReport;
+import com.quiz.service.QuestionImporter;
 import com.quiz.service.QuizService;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Admin interface for managing quiz questions and starting quizzes
@@ -14,6 +21,7 @@ import java.awt.event.ActionListener;
 public class AdminInterface extends JFrame {
     private QuizService quizService;
     private AuthenticationService authService;
+    private String adminToken; // session token of the last admin login, spares asking again for a few minutes
     
     /**
      * Constructor to initialize the admin interface
@@ -29,47 +37,64 @@ public class AdminInterface extends JFrame {
      */
     private void initializeComponents() {
         setTitle("Quiz Application - Admin Panel");
-        setSize(500, 400);
+        setSize(500, 530);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null); // Center the window
         setLayout(new BorderLayout());
         
         // Create header panel
         JPanel headerPanel = new JPanel();
-        headerPanel.setBackground(new Color(52, 152, 219));
+        headerPanel.setBackground(UIResources.PRIMARY);
         JLabel titleLabel = new JLabel("Quiz Admin Panel", SwingConstants.CENTER);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
+        titleLabel.setFont(UIResources.font(Font.BOLD, 18));
         titleLabel.setForeground(Color.WHITE);
-        titleLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        titleLabel.setBorder(UIResources.emptyBorder(10, 10, 10, 10));
         headerPanel.add(titleLabel);
         add(headerPanel, BorderLayout.NORTH);
         
         // Create main button panel
-        JPanel buttonPanel = new JPanel(new GridLayout(4, 1, 10, 10));
-        buttonPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        JPanel buttonPanel = new JPanel(new GridLayout(6, 1, 10, 10));
+        buttonPanel.setBorder(UIResources.emptyBorder(20, 20, 20, 20));
         
-        JButton addButton = createStyledButton("Add Question", new Color(46, 204, 113));
-        JButton editButton = createStyledButton("Edit Question", new Color(241, 196, 15));
-        JButton deleteButton = createStyledButton("Delete Question", new Color(231, 76, 60));
-        JButton startQuizButton = createStyledButton("Start Quiz", new Color(155, 89, 182));
+        JButton addButton = createStyledButton("Add Question", UIResources.SUCCESS);
+        JButton editButton = createStyledButton("Edit Question", UIResources.WARNING);
+        JButton deleteButton = createStyledButton("Delete Question", UIResources.DANGER);
+        JButton importButton = createStyledButton("Import Questions", UIResources.TEAL);
+        JButton startQuizButton = createStyledButton("Start Quiz", UIResources.ACCENT);
+        JButton adaptiveTestButton = createStyledButton("Start Adaptive Test", UIResources.DARK);
         
         buttonPanel.add(addButton);
         buttonPanel.add(editButton);
         buttonPanel.add(deleteButton);
+        buttonPanel.add(importButton);
         buttonPanel.add(startQuizButton);
+        buttonPanel.add(adaptiveTestButton);
         
         add(buttonPanel, BorderLayout.CENTER);
         
         // Create footer panel with question count
         JPanel footerPanel = new JPanel();
-        footerPanel.setBackground(new Color(236, 240, 241));
+        footerPanel.setBackground(UIResources.LIGHT);
         JLabel questionCountLabel = new JLabel("Questions in database: " + quizService.getQuestionCount());
-        questionCountLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        questionCountLabel.setBorder(UIResources.emptyBorder(5, 10, 5, 10));
         footerPanel.add(questionCountLabel);
+        JButton passwordButton = new JButton("Change Password");
+        passwordButton.setFocusPainted(false);
+        passwordButton.addActionListener(e -> changePassword(passwordButton));
+        footerPanel.add(passwordButton);
         add(footerPanel, BorderLayout.SOUTH);
         
         // Add action listeners
         setupActionListeners(addButton, editButton, deleteButton, startQuizButton, questionCountLabel);
+        adaptiveTestButton.addActionListener(e -> {
+            if (quizService.hasQuestions()) {
+                new AdaptiveQuizInterface().setVisible(true);
+            } else {
+                showMessage("Please add some questions before starting the test!", 
+                          "No Questions", JOptionPane.WARNING_MESSAGE);
+            }
+        });
+        importButton.addActionListener(e -> requireAdmin(() -> importQuestions(importButton, questionCountLabel)));
     }
     
     /**
@@ -82,7 +107,7 @@ public class AdminInterface extends JFrame {
         JButton button = new JButton(text);
         button.setBackground(color);
         button.setForeground(Color.WHITE);
-        button.setFont(new Font("Arial", Font.BOLD, 14));
+        button.setFont(UIResources.font(Font.BOLD, 14));
         button.setFocusPainted(false);
         button.setBorderPainted(false);
         button.setPreferredSize(new Dimension(200, 50));
@@ -99,19 +124,19 @@ public class AdminInterface extends JFrame {
         addButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (promptForPassword()) {
+                requireAdmin(() -> {
                     QuestionEditor editor = new QuestionEditor(AdminInterface.this);
                     editor.setVisible(true);
                     // Update question count after editor is closed
                     updateQuestionCount(questionCountLabel);
-                }
+                });
             }
         });
         
         editButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (promptForPassword()) {
+                requireAdmin(() -> {
                     if (quizService.hasQuestions()) {
                         // Show question selection dialog
                         int questionIndex = showQuestionSelectionDialog();
@@ -127,14 +152,14 @@ public class AdminInterface extends JFrame {
                     } else {
                         showMessage("No questions to edit!", "Information", JOptionPane.INFORMATION_MESSAGE);
                     }
-                }
+                });
             }
         });
         
         deleteButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                if (promptForPassword()) {
+                requireAdmin(() -> {
                     if (quizService.hasQuestions()) {
                         int questionIndex = showQuestionSelectionDialog();
                         if (questionIndex >= 0) {
@@ -153,7 +178,7 @@ public class AdminInterface extends JFrame {
                     } else {
                         showMessage("No questions to delete!", "Information", JOptionPane.INFORMATION_MESSAGE);
                     }
-                }
+                });
             }
         });
         
@@ -171,11 +196,170 @@ public class AdminInterface extends JFrame {
         });
     }
     
+    /**
+     * Lets the admin pick a CSV or JSON Lines file and imports it in the background
+     * @param importButton The import button, disabled while the import runs
+     * @param questionCountLabel The label to update when the import is done
+     */
+    private void importQuestions(JButton importButton, JLabel questionCountLabel) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Questions (CSV or JSON Lines)");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        importButton.setEnabled(false);
+        
+        new SwingWorker<ImportReport, Void>() {
+            @Override
+            protected ImportReport doInBackground() throws Exception {
+                return new QuestionImporter(quizService).importFile(file.toPath());
+            }
+            
+            @Override
+            protected void done() {
+                importButton.setEnabled(true);
+                updateQuestionCount(questionCountLabel);
+                try {
+                    showImportReport(get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showMessage("Import failed: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Shows the result of an import with the first rejected lines
+     * @param report The import report
+     */
+    private void showImportReport(ImportReport report) {
+        StringBuilder message = new StringBuilder(report.toString()).append('.');
+        List<ImportReport.LineError> errors = report.getErrors();
+        int shown = Math.min(errors.size(), 10);
+        for (int i = 0; i < shown; i++) {
+            message.append('\n').append(errors.get(i));
+        }
+        if (report.getErrorCount() > shown) {
+            message.append("\n... and ").append(report.getErrorCount() - shown).append(" more");
+        }
+        List<DuplicateDetector.Match> duplicates = report.getDuplicates();
+        int shownDuplicates = Math.min(duplicates.size(), 10);
+        if (shownDuplicates > 0) {
+            message.append("\n\nPossible duplicates:");
+        }
+        for (int i = 0; i < shownDuplicates; i++) {
+            message.append('\n').append(duplicates.get(i));
+        }
+        if (report.getDuplicateCount() > shownDuplicates) {
+            message.append("\n... and ").append(report.getDuplicateCount() - shownDuplicates).append(" more");
+        }
+        int messageType = report.getErrorCount() == 0 && report.getDuplicateCount() == 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE;
+        showMessage(message.toString(), "Import Complete", messageType);
+    }
+    
+    /**
+     * Runs an admin action, asking for the admin password unless an admin session is still valid
+     * The password is checked on the authentication workers, so the window stays responsive while it is hashed
+     * @param action The action to run on the event dispatch thread once the admin is authenticated
+     */
+    private void requireAdmin(Runnable action) {
+        if (authService.isSessionValid(adminToken)) {
+            action.run();
+            return;
+        }
+        char[] password = promptForPassword();
+        if (password == null) {
+            return;
+        }
+        
+        setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        authService.authenticateAdmin(password).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            setCursor(Cursor.getDefaultCursor());
+            setEnabled(true);
+            toFront();
+            if (error != null) {
+                showMessage("Could not check the password: " + error.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            } else if (result.isSuccess()) {
+                adminToken = result.getToken();
+                action.run();
+            } else if (result.getStatus() == AuthenticationResult.Status.THROTTLED) {
+                showMessage("Too many attempts, try again in " + (result.getRetryAfterMillis() + 999) / 1000 + " seconds.",
+                          "Authentication Failed", JOptionPane.ERROR_MESSAGE);
+            } else if (result.getStatus() == AuthenticationResult.Status.BUSY) {
+                showMessage("The server is busy, please try again.", "Authentication Failed", JOptionPane.ERROR_MESSAGE);
+            } else {
+                showMessage("Incorrect password!", "Authentication Failed", JOptionPane.ERROR_MESSAGE);
+            }
+        }));
+    }
+    
+    /**
+     * Asks for the current and a new admin password and changes it in the background
+     * The current password is checked again, so a remembered admin login is not enough to change it
+     * @param passwordButton The button, disabled while the passwords are hashed
+     */
+    private void changePassword(JButton passwordButton) {
+        JPasswordField currentField = new JPasswordField();
+        JPasswordField newField = new JPasswordField();
+        JPasswordField confirmField = new JPasswordField();
+        JPanel panel = new JPanel(new GridLayout(6, 1, 0, 2));
+        panel.add(new JLabel("Current password:"));
+        panel.add(currentField);
+        panel.add(new JLabel("New password:"));
+        panel.add(newField);
+        panel.add(new JLabel("Repeat new password:"));
+        panel.add(confirmField);
+        
+        int option = JOptionPane.showConfirmDialog(this, panel, "Change Admin Password",
+                                                   JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        String currentPassword = new String(currentField.getPassword());
+        String newPassword = new String(newField.getPassword());
+        if (newPassword.trim().isEmpty()) {
+            showMessage("The new password must not be empty.", "Change Password", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (!newPassword.equals(new String(confirmField.getPassword()))) {
+            showMessage("The new passwords do not match.", "Change Password", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        
+        passwordButton.setEnabled(false);
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                return authService.changeAdminPassword(currentPassword, newPassword);
+            }
+            
+            @Override
+            protected void done() {
+                passwordButton.setEnabled(true);
+                try {
+                    if (get()) {
+                        adminToken = null; // every admin session ended with the old password
+                        showMessage("The admin password was changed.", "Change Password", JOptionPane.INFORMATION_MESSAGE);
+                    } else {
+                        showMessage("The password was not changed. Check the current password, or wait if there "
+                                + "were too many attempts.", "Change Password", JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (InterruptedException | ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    showMessage("Could not change the password: " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
     /**
      * Prompts user for admin password
-     * @return true if correct password is entered
+     * @return The entered password, or null if the dialog was cancelled
      */
-    private boolean promptForPassword() {
+    private char[] promptForPassword() {
         JPasswordField passwordField = new JPasswordField();
         passwordField.setPreferredSize(new Dimension(200, 25));
         
@@ -187,15 +371,7 @@ public class AdminInterface extends JFrame {
             JOptionPane.PLAIN_MESSAGE
         );
         
-        if (option == JOptionPane.OK_OPTION) {
-            String enteredPassword = new String(passwordField.getPassword());
-            boolean isValid = authService.verifyAdminPassword(enteredPassword);
-            if (!isValid) {
-                showMessage("Incorrect password!", "Authentication Failed", JOptionPane.ERROR_MESSAGE);
-            }
-            return isValid;
-        }
-        return false;
+        return option == JOptionPane.OK_OPTION ? passwordField.getPassword() : null;
     }
     
     /**
@@ -203,31 +379,9 @@ public class AdminInterface extends JFrame {
      * @return Index of selected question, or -1 if cancelled
      */
     private int showQuestionSelectionDialog() {
-        String[] questionTitles = new String[quizService.getQuestionCount()];
-        for (int i = 0; i < questionTitles.length; i++) {
-            String questionText = quizService.getQuestion(i).getQuestion();
-            questionTitles[i] = (i + 1) + ". " + (questionText.length() > 50 ? 
-                questionText.substring(0, 50) + "..." : questionText);
-        }
-        
-        String selectedQuestion = (String) JOptionPane.showInputDialog(
-            this,
-            "Select a question:",
-            "Question Selection",
-            JOptionPane.QUESTION_MESSAGE,
-            null,
-            questionTitles,
-            questionTitles[0]
-        );
-        
-        if (selectedQuestion != null) {
-            for (int i = 0; i < questionTitles.length; i++) {
-                if (questionTitles[i].equals(selectedQuestion)) {
-                    return i;
-                }
-            }
-        }
-        return -1;
+        QuestionSearchDialog dialog = new QuestionSearchDialog(this);
+        dialog.setVisible(true);
+        return dialog.getSelectedIndex();
     }
     
     /**
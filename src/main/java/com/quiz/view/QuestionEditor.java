@@ -58,17 +58,17 @@ public class QuestionEditor extends JFrame {
         
         // Create header
         JPanel headerPanel = new JPanel();
-        headerPanel.setBackground(new Color(52, 152, 219));
+        headerPanel.setBackground(UIResources.PRIMARY);
         JLabel titleLabel = new JLabel(title, SwingConstants.CENTER);
-        titleLabel.setFont(new Font("Arial", Font.BOLD, 16));
+        titleLabel.setFont(UIResources.font(Font.BOLD, 16));
         titleLabel.setForeground(Color.WHITE);
-        titleLabel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        titleLabel.setBorder(UIResources.emptyBorder(10, 10, 10, 10));
         headerPanel.add(titleLabel);
         add(headerPanel, BorderLayout.NORTH);
         
         // Create main content panel
         JPanel contentPanel = new JPanel(new GridBagLayout());
-        contentPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        contentPanel.setBorder(UIResources.emptyBorder(20, 20, 20, 20));
         GridBagConstraints gbc = new GridBagConstraints();
         
         // Question field
@@ -77,12 +77,13 @@ public class QuestionEditor extends JFrame {
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.insets = new Insets(0, 0, 15, 0);
         
-        JLabel questionLabel = new JLabel("Question:");\n        questionLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        JLabel questionLabel = new JLabel("Question:");
+        questionLabel.setFont(UIResources.font(Font.BOLD, 12));
         contentPanel.add(questionLabel, gbc);
         
         gbc.gridy = 1;
         questionField = new JTextField("Enter question here...");
-        questionField.setFont(new Font("Arial", Font.PLAIN, 12));
+        questionField.setFont(UIResources.font(Font.PLAIN, 12));
         questionField.setPreferredSize(new Dimension(400, 30));
         questionField.addFocusListener(new FocusAdapter() {
             @Override
@@ -103,7 +104,7 @@ public class QuestionEditor extends JFrame {
             gbc.gridx = 0; gbc.gridy = 2 + i;
             gbc.fill = GridBagConstraints.NONE;
             JLabel answerLabel = new JLabel("Answer " + (i + 1) + ":");
-            answerLabel.setFont(new Font("Arial", Font.BOLD, 12));
+            answerLabel.setFont(UIResources.font(Font.BOLD, 12));
             contentPanel.add(answerLabel, gbc);
             
             // Answer field
@@ -113,7 +114,7 @@ public class QuestionEditor extends JFrame {
             
             JPanel answerPanel = new JPanel(new BorderLayout(5, 0));
             answerFields[i] = new JTextField("Answer " + (i + 1));
-            answerFields[i].setFont(new Font("Arial", Font.PLAIN, 12));
+            answerFields[i].setFont(UIResources.font(Font.PLAIN, 12));
             answerFields[i].setPreferredSize(new Dimension(250, 25));
             
             final int index = i;
@@ -127,7 +128,7 @@ public class QuestionEditor extends JFrame {
             });
             
             correctAnswerButtons[i] = new JRadioButton("Correct");
-            correctAnswerButtons[i].setFont(new Font("Arial", Font.PLAIN, 11));
+            correctAnswerButtons[i].setFont(UIResources.font(Font.PLAIN, 11));
             group.add(correctAnswerButtons[i]);
             
             answerPanel.add(answerFields[i], BorderLayout.CENTER);
@@ -139,19 +140,19 @@ public class QuestionEditor extends JFrame {
         
         // Create button panel
         JPanel buttonPanel = new JPanel(new FlowLayout());
-        buttonPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        buttonPanel.setBorder(UIResources.emptyBorder(10, 10, 10, 10));
         
         JButton saveButton = new JButton(editingQuestion != null ? "Update Question" : "Save Question");
-        saveButton.setBackground(new Color(46, 204, 113));
+        saveButton.setBackground(UIResources.SUCCESS);
         saveButton.setForeground(Color.WHITE);
-        saveButton.setFont(new Font("Arial", Font.BOLD, 12));
+        saveButton.setFont(UIResources.font(Font.BOLD, 12));
         saveButton.setPreferredSize(new Dimension(150, 35));
         saveButton.setFocusPainted(false);
         
         JButton cancelButton = new JButton("Cancel");
-        cancelButton.setBackground(new Color(149, 165, 166));
+        cancelButton.setBackground(UIResources.NEUTRAL);
         cancelButton.setForeground(Color.WHITE);
-        cancelButton.setFont(new Font("Arial", Font.BOLD, 12));
+        cancelButton.setFont(UIResources.font(Font.BOLD, 12));
         cancelButton.setPreferredSize(new Dimension(100, 35));
         cancelButton.setFocusPainted(false);
         
@@ -224,10 +225,10 @@ public class QuestionEditor extends JFrame {
             
             // Save or update question
             if (editingQuestion != null && editingIndex >= 0) {
-                // Update existing question
-                editingQuestion.setQuestion(questionText);
-                editingQuestion.setAnswers(answers);
-                editingQuestion.setCorrectAnswerIndex(correctAnswerIndex);
+                // Update existing question, running quizzes keep the version they started with
+                Question question = new Question(questionText, answers, correctAnswerIndex,
+                                                 editingQuestion.getTag());
+                quizService.updateQuestion(editingIndex, question);
                 showSuccess("Question updated successfully!");
             } else {
                 // Add new question
@@ -241,7 +242,7 @@ public class QuestionEditor extends JFrame {
                 parentInterface.updateQuestionCount(null);
             }
             dispose();
-            
+        
         } catch (Exception e) {
             showError("An error occurred while saving the question: " + e.getMessage());
         }
@@ -0,0 +1,191 @@
+package com.quiz.view;
+
+import com.quiz.service.QuestionSearchIndex;
+import com.quiz.service.QuizService;
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Dialog for finding a question by the words of its text or answers
+ * Only one page of matches is shown at a time, so opening it costs the same for ten questions or a million
+ */
+public class QuestionSearchDialog extends JDialog {
+    private static final int PAGE_SIZE = 50;
+    
+    private final QuizService quizService;
+    private final JTextField searchField = new JTextField();
+    private final DefaultListModel<String> resultModel = new DefaultListModel<>();
+    private final JList<String> resultList = new JList<>(resultModel);
+    private final JLabel statusLabel = new JLabel("Indexing questions...");
+    private final JButton previousButton = new JButton("Previous");
+    private final JButton nextButton = new JButton("Next");
+    private final JButton selectButton = new JButton("Select");
+    private QuestionSearchIndex index; // null until the index is built
+    private QuestionSearchIndex.Page page;
+    private int offset;
+    private int selectedIndex = -1;
+    
+    /**
+     * Constructor for the search dialog
+     * @param owner The window the dialog belongs to
+     */
+    public QuestionSearchDialog(Frame owner) {
+        super(owner, "Question Selection", true);
+        this.quizService = QuizService.getInstance();
+        setupDialog();
+        loadIndex();
+    }
+    
+    /**
+     * Gets the question the admin picked
+     * @return Index of the selected question, or -1 if cancelled
+     */
+    public int getSelectedIndex() {
+        return selectedIndex;
+    }
+    
+    /**
+     * Sets up the dialog components
+     */
+    private void setupDialog() {
+        setSize(560, 460);
+        setLocationRelativeTo(getOwner());
+        setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        setLayout(new BorderLayout(5, 5));
+        
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.setBorder(UIResources.emptyBorder(10, 10, 0, 10));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchField.setEnabled(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                showPage(0);
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                showPage(0);
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                showPage(0);
+            }
+        });
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        add(searchPanel, BorderLayout.NORTH);
+        
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.addListSelectionListener(e -> selectButton.setEnabled(resultList.getSelectedIndex() >= 0));
+        resultList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && resultList.getSelectedIndex() >= 0) {
+                    select();
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(resultList);
+        scrollPane.setBorder(BorderFactory.createCompoundBorder(
+            UIResources.emptyBorder(0, 10, 0, 10), scrollPane.getBorder()));
+        add(scrollPane, BorderLayout.CENTER);
+        
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.setBorder(UIResources.emptyBorder(0, 10, 10, 10));
+        JPanel pagePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+        pagePanel.add(previousButton);
+        pagePanel.add(nextButton);
+        pagePanel.add(statusLabel);
+        bottomPanel.add(pagePanel, BorderLayout.WEST);
+        
+        JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        JButton cancelButton = new JButton("Cancel");
+        actionPanel.add(selectButton);
+        actionPanel.add(cancelButton);
+        bottomPanel.add(actionPanel, BorderLayout.EAST);
+        add(bottomPanel, BorderLayout.SOUTH);
+        
+        previousButton.setEnabled(false);
+        nextButton.setEnabled(false);
+        selectButton.setEnabled(false);
+        previousButton.addActionListener(e -> showPage(Math.max(0, offset - PAGE_SIZE)));
+        nextButton.addActionListener(e -> showPage(offset + PAGE_SIZE));
+        selectButton.addActionListener(e -> select());
+        cancelButton.addActionListener(e -> dispose());
+        searchField.addActionListener(e -> {
+            if (resultModel.size() > 0) {
+                resultList.setSelectedIndex(0);
+                resultList.requestFocusInWindow();
+            }
+        });
+    }
+    
+    /**
+     * Builds the search index in the background if this is its first use, then shows the first page
+     */
+    private void loadIndex() {
+        new SwingWorker<QuestionSearchIndex, Void>() {
+            @Override
+            protected QuestionSearchIndex doInBackground() {
+                return quizService.getSearchIndex();
+            }
+            
+            @Override
+            protected void done() {
+                try {
+                    index = get();
+                    searchField.setEnabled(true);
+                    searchField.requestFocusInWindow();
+                    showPage(0);
+                } catch (InterruptedException | ExecutionException e) {
+                    statusLabel.setText("Indexing failed: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Runs the current query and shows one page of matches
+     * The last word is matched as a prefix while it is being typed
+     * @param newOffset Number of matches to skip
+     */
+    private void showPage(int newOffset) {
+        if (index == null) {
+            return;
+        }
+        String query = searchField.getText();
+        if (!query.isEmpty() && !Character.isWhitespace(query.charAt(query.length() - 1)) && !query.endsWith("*")) {
+            query += "*";
+        }
+        page = index.search(query, newOffset, PAGE_SIZE);
+        offset = page.getOffset();
+        
+        resultModel.clear();
+        for (int i = 0; i < page.size(); i++) {
+            String questionText = page.getQuestion(i).getQuestion();
+            resultModel.addElement((page.getPosition(i) + 1) + ". " + (questionText.length() > 70 ?
+                questionText.substring(0, 70) + "..." : questionText));
+        }
+        statusLabel.setText(page.getTotal() == 0 ? "No matches"
+            : (offset + 1) + "-" + (offset + page.size()) + " of " + page.getTotal());
+        previousButton.setEnabled(offset > 0);
+        nextButton.setEnabled(page.hasNext());
+    }
+    
+    /**
+     * Accepts the selected match and closes the dialog
+     */
+    private void select() {
+        int row = resultList.getSelectedIndex();
+        if (page != null && row >= 0) {
+            selectedIndex = page.getPosition(row);
+            dispose();
+        }
+    }
+}
@@ -2,44 +2,43 @@ package com.quiz.view;
 
 import com.quiz.model.Question;
 import com.quiz.service.QuizService;
+import com.quiz.service.QuizSession;
+import com.quiz.service.SessionTimer;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Quiz interface for users to take the quiz
- * This class provides the quiz-taking experience with questions, timer, and scoring
+ * This class presents a QuizSession, which holds the answers, timing and scoring
  */
 public class QuizInterface extends JFrame {
+    private static final Color TIME_LOW_COLOR = UIResources.DANGER; // Red
+    private static final Color TIME_WARNING_COLOR = UIResources.WARNING; // Yellow
+    
     private QuizService quizService;
-    private List<Question> questions;
-    private int currentQuestionIndex = 0;
-    private int score = 0;
+    private QuizSession session;
     private JLabel questionLabel;
     private JRadioButton[] answerButtons = new JRadioButton[4];
     private ButtonGroup answerGroup = new ButtonGroup();
     private JLabel timerLabel;
     private JLabel progressLabel;
-    private Timer quizTimer;
-    private int timeLeft;
+    private volatile SessionTimer.Timeout clockTimeout;
+    private volatile boolean clockStopped; // set when the window closes, the timer callback must not reschedule
+    private int displayedTimeLeft = -1;
     private JButton nextButton;
     private JButton previousButton;
-    private int[] userAnswers;
     
     /**
      * Constructor to initialize the quiz interface
+     * Continues a session recovered from the answer log if there is one, otherwise starts a new session
      */
     public QuizInterface() {
         this.quizService = QuizService.getInstance();
-        this.questions = quizService.getQuestions();
-        this.userAnswers = new int[questions.size()];
-        this.timeLeft = quizService.getCurrentQuiz().getTimeLimit();
-        
-        // Initialize user answers to -1 (no answer selected)
-        for (int i = 0; i < userAnswers.length; i++) {
-            userAnswers[i] = -1;
-        }
+        Consumer<QuizSession> onExpired = expired -> SwingUtilities.invokeLater(this::timeUp);
+        QuizSession resumed = quizService.resumeSession(onExpired);
+        this.session = resumed != null ? resumed : quizService.startSession(onExpired);
         
         initializeComponents();
         startTimer();
@@ -55,18 +54,27 @@ public class QuizInterface extends JFrame {
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
+        // Without this the countdown would keep rescheduling itself, and keep this window reachable, until the deadline
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                stopClock();
+                // Nothing can reopen a closed quiz, so the candidate gave it up
+                quizService.discardSession(session);
+            }
+        });
         
         // Create header panel with timer and progress
         JPanel headerPanel = new JPanel(new BorderLayout());
-        headerPanel.setBackground(new Color(52, 152, 219));
-        headerPanel.setBorder(BorderFactory.createEmptyBorder(10, 15, 10, 15));
+        headerPanel.setBackground(UIResources.PRIMARY);
+        headerPanel.setBorder(UIResources.emptyBorder(10, 15, 10, 15));
         
-        progressLabel = new JLabel("Question 1 of " + questions.size());
-        progressLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        progressLabel = new JLabel("Question 1 of " + session.getQuestionCount());
+        progressLabel.setFont(UIResources.font(Font.BOLD, 14));
         progressLabel.setForeground(Color.WHITE);
         
-        timerLabel = new JLabel("Time left: " + formatTime(timeLeft));
-        timerLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        timerLabel = new JLabel("Time left: " + formatTime(session.getTimeLeft()));
+        timerLabel.setFont(UIResources.font(Font.BOLD, 14));
         timerLabel.setForeground(Color.WHITE);
         
         headerPanel.add(progressLabel, BorderLayout.WEST);
@@ -75,7 +83,7 @@ public class QuizInterface extends JFrame {
         
         // Create main content panel
         JPanel contentPanel = new JPanel(new BorderLayout());
-        contentPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        contentPanel.setBorder(UIResources.emptyBorder(20, 20, 20, 20));
         
         // Question panel
         JPanel questionPanel = new JPanel(new BorderLayout());
@@ -83,8 +91,8 @@ public class QuizInterface extends JFrame {
             BorderFactory.createEtchedBorder(), "Question"));
         
         questionLabel = new JLabel();
-        questionLabel.setFont(new Font("Arial", Font.PLAIN, 16));
-        questionLabel.setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
+        questionLabel.setFont(UIResources.font(Font.PLAIN, 16));
+        questionLabel.setBorder(UIResources.emptyBorder(15, 15, 15, 15));
         questionLabel.setVerticalAlignment(SwingConstants.TOP);
         questionPanel.add(questionLabel, BorderLayout.CENTER);
         
@@ -97,15 +105,15 @@ public class QuizInterface extends JFrame {
         
         for (int i = 0; i < 4; i++) {
             answerButtons[i] = new JRadioButton();
-            answerButtons[i].setFont(new Font("Arial", Font.PLAIN, 14));
-            answerButtons[i].setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+            answerButtons[i].setFont(UIResources.font(Font.PLAIN, 14));
+            answerButtons[i].setBorder(UIResources.emptyBorder(5, 10, 5, 10));
             answerGroup.add(answerButtons[i]);
             answerPanel.add(answerButtons[i]);
             
             // Add action listener to save answer when selected
             final int answerIndex = i;
             answerButtons[i].addActionListener(e -> {
-                userAnswers[currentQuestionIndex] = answerIndex;
+                session.selectAnswer(answerIndex);
             });
         }
         
@@ -114,27 +122,27 @@ public class QuizInterface extends JFrame {
         
         // Create navigation panel
         JPanel navigationPanel = new JPanel(new BorderLayout());
-        navigationPanel.setBorder(BorderFactory.createEmptyBorder(10, 20, 20, 20));
+        navigationPanel.setBorder(UIResources.emptyBorder(10, 20, 20, 20));
         
         JPanel buttonPanel = new JPanel(new FlowLayout());
         
         previousButton = new JButton("Previous");
-        previousButton.setBackground(new Color(149, 165, 166));
+        previousButton.setBackground(UIResources.NEUTRAL);
         previousButton.setForeground(Color.WHITE);
-        previousButton.setFont(new Font("Arial", Font.BOLD, 12));
+        previousButton.setFont(UIResources.font(Font.BOLD, 12));
         previousButton.setPreferredSize(new Dimension(100, 35));
         previousButton.setEnabled(false);
         
         nextButton = new JButton("Next");
-        nextButton.setBackground(new Color(52, 152, 219));
+        nextButton.setBackground(UIResources.PRIMARY);
         nextButton.setForeground(Color.WHITE);
-        nextButton.setFont(new Font("Arial", Font.BOLD, 12));
+        nextButton.setFont(UIResources.font(Font.BOLD, 12));
         nextButton.setPreferredSize(new Dimension(100, 35));
         
         JButton finishButton = new JButton("Finish Quiz");
-        finishButton.setBackground(new Color(231, 76, 60));
+        finishButton.setBackground(UIResources.DANGER);
         finishButton.setForeground(Color.WHITE);
-        finishButton.setFont(new Font("Arial", Font.BOLD, 12));
+        finishButton.setFont(UIResources.font(Font.BOLD, 12));
         finishButton.setPreferredSize(new Dimension(120, 35));
         
         buttonPanel.add(previousButton);
@@ -153,16 +161,14 @@ public class QuizInterface extends JFrame {
      */
     private void setupActionListeners(JButton previousButton, JButton nextButton, JButton finishButton) {
         previousButton.addActionListener(e -> {
-            if (currentQuestionIndex > 0) {
-                currentQuestionIndex--;
+            if (session.previous()) {
                 displayQuestion();
                 updateNavigationButtons();
             }
         });
         
         nextButton.addActionListener(e -> {
-            if (currentQuestionIndex < questions.size() - 1) {
-                currentQuestionIndex++;
+            if (session.next()) {
                 displayQuestion();
                 updateNavigationButtons();
             }
@@ -185,9 +191,10 @@ public class QuizInterface extends JFrame {
      * Updates the navigation buttons based on current question
      */
     private void updateNavigationButtons() {
+        int currentQuestionIndex = session.getCurrentQuestionIndex();
         previousButton.setEnabled(currentQuestionIndex > 0);
         
-        if (currentQuestionIndex == questions.size() - 1) {
+        if (currentQuestionIndex == session.getQuestionCount() - 1) {
             nextButton.setText("Last Question");
             nextButton.setEnabled(false);
         } else {
@@ -200,58 +207,95 @@ public class QuizInterface extends JFrame {
      * Displays the current question and its answers
      */
     private void displayQuestion() {
-        if (currentQuestionIndex < questions.size()) {
-            Question question = questions.get(currentQuestionIndex);
+        int currentQuestionIndex = session.getCurrentQuestionIndex();
+        Question question = session.getQuestion(currentQuestionIndex);
+        if (question != null) {
             
             // Update question text
             questionLabel.setText("<html><body style='width: 500px'>" + 
                                  question.getQuestion() + "</body></html>");
             
-            // Update answer options
-            String[] answers = question.getAnswers();
+            // Update answer options, in the order chosen for this session
             for (int i = 0; i < 4; i++) {
-                answerButtons[i].setText((char)('A' + i) + ". " + answers[i]);
+                answerButtons[i].setText((char)('A' + i) + ". " + session.getAnswerText(currentQuestionIndex, i));
             }
             
             // Restore previous answer if any
             answerGroup.clearSelection();
-            if (userAnswers[currentQuestionIndex] != -1) {
-                answerButtons[userAnswers[currentQuestionIndex]].setSelected(true);
+            int answer = session.getAnswer(currentQuestionIndex);
+            if (answer != QuizSession.NO_ANSWER) {
+                answerButtons[answer].setSelected(true);
             }
             
             // Update progress
-            progressLabel.setText("Question " + (currentQuestionIndex + 1) + " of " + questions.size());
+            progressLabel.setText("Question " + (currentQuestionIndex + 1) + " of " + session.getQuestionCount());
         }
     }
     
     /**
-     * Starts the quiz timer
+     * Starts the countdown display
+     * The session deadline itself is tracked by the shared SessionTimer, this only refreshes the label
      */
     private void startTimer() {
-        quizTimer = new Timer(1000, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                timeLeft--;
-                timerLabel.setText("Time left: " + formatTime(timeLeft));
-                
-                // Change color when time is running low
-                if (timeLeft <= 60) { // Last minute
-                    timerLabel.setForeground(new Color(231, 76, 60)); // Red
-                } else if (timeLeft <= 300) { // Last 5 minutes
-                    timerLabel.setForeground(new Color(241, 196, 15)); // Yellow
-                }
-                
-                if (timeLeft <= 0) {
-                    quizTimer.stop();
-                    JOptionPane.showMessageDialog(QuizInterface.this, 
-                        "Time's up! The quiz will now be submitted.", 
-                        "Time Up", 
-                        JOptionPane.WARNING_MESSAGE);
-                    finishQuiz();
-                }
-            }
-        });
-        quizTimer.start();
+        scheduleClockUpdate();
+    }
+    
+    /**
+     * Schedules the next countdown refresh on the shared timer, just after the displayed second changes
+     */
+    private void scheduleClockUpdate() {
+        long delay = session.getMillisUntilNextSecond();
+        if (delay > 0 && !session.isFinished() && !clockStopped) {
+            clockTimeout = SessionTimer.getInstance().schedule(delay + 1, () -> {
+                SwingUtilities.invokeLater(this::updateTimerLabel);
+                scheduleClockUpdate();
+            });
+        }
+    }
+    
+    /**
+     * Stops the countdown display for good
+     */
+    private void stopClock() {
+        clockStopped = true;
+        SessionTimer.Timeout timeout = clockTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+    
+    /**
+     * Updates the countdown label with the time left in the session
+     */
+    private void updateTimerLabel() {
+        int timeLeft = session.getTimeLeft();
+        if (timeLeft == displayedTimeLeft) {
+            return;
+        }
+        displayedTimeLeft = timeLeft;
+        timerLabel.setText("Time left: " + formatTime(timeLeft));
+        
+        // Change color when time is running low
+        if (timeLeft <= 60) { // Last minute
+            timerLabel.setForeground(TIME_LOW_COLOR);
+        } else if (timeLeft <= 300) { // Last 5 minutes
+            timerLabel.setForeground(TIME_WARNING_COLOR);
+        }
+    }
+    
+    /**
+     * Tells the user the time is up after the session was submitted automatically
+     */
+    private void timeUp() {
+        if (!isDisplayable()) {
+            return; // Window was already closed
+        }
+        updateTimerLabel();
+        JOptionPane.showMessageDialog(QuizInterface.this, 
+            "Time's up! The quiz will now be submitted.", 
+            "Time Up", 
+            JOptionPane.WARNING_MESSAGE);
+        finishQuiz();
     }
     
     /**
@@ -262,23 +306,17 @@ public class QuizInterface extends JFrame {
     private String formatTime(int seconds) {
         int minutes = seconds / 60;
         int secs = seconds % 60;
-        return String.format("%02d:%02d", minutes, secs);
+        return (minutes < 10 ? "0" : "") + minutes + (secs < 10 ? ":0" : ":") + secs;
     }
     
     /**
      * Calculates the score and finishes the quiz
      */
     private void finishQuiz() {
-        quizTimer.stop();
+        stopClock();
         
         // Calculate score
-        score = 0;
-        for (int i = 0; i < questions.size(); i++) {
-            if (userAnswers[i] != -1 && 
-                questions.get(i).isCorrectAnswer(userAnswers[i])) {
-                score++;
-            }
-        }
+        quizService.finishSession(session);
         
         // Show results
         showResults();
@@ -294,17 +332,17 @@ public class QuizInterface extends JFrame {
             "Your Score: %d out of %d\\n" +
             "Percentage: %.1f%%\\n\\n" +
             "Time taken: %s",
-            score, 
-            questions.size(),
-            (score * 100.0 / questions.size()),
-            formatTime(quizService.getCurrentQuiz().getTimeLimit() - timeLeft)
+            session.getScore(), 
+            session.getQuestionCount(),
+            session.getPercentage(),
+            formatTime(session.getTimeTaken())
         );
         
         String title = "Quiz Results";
         int messageType = JOptionPane.INFORMATION_MESSAGE;
         
         // Determine message type based on score
-        double percentage = (score * 100.0 / questions.size());
+        double percentage = session.getPercentage();
         if (percentage >= 80) {
             title = "Excellent!";
         } else if (percentage >= 60) {
@@ -0,0 +1,71 @@
+package com.quiz.view;
+
+import javax.swing.BorderFactory;
+import javax.swing.border.Border;
+import java.awt.Color;
+import java.awt.Font;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Colours, fonts and borders shared by all windows
+ * Fonts, colours and empty borders never change once created, so every window uses the same instances
+ * instead of building its own each time it opens. Fonts and borders are created on first use.
+ */
+public final class UIResources {
+    public static final Color PRIMARY = new Color(52, 152, 219); // Blue
+    public static final Color SUCCESS = new Color(46, 204, 113); // Green
+    public static final Color WARNING = new Color(241, 196, 15); // Yellow
+    public static final Color DANGER = new Color(231, 76, 60); // Red
+    public static final Color ACCENT = new Color(155, 89, 182); // Purple
+    public static final Color TEAL = new Color(26, 188, 156);
+    public static final Color NEUTRAL = new Color(149, 165, 166); // Grey
+    public static final Color DARK = new Color(52, 73, 94);
+    public static final Color LIGHT = new Color(236, 240, 241);
+    
+    private static final String FONT_FAMILY = "Arial";
+    private static final int MAX_FONT_SIZE = 32;
+    
+    private static final Font[] fonts = new Font[4 * (MAX_FONT_SIZE + 1)]; // by style and size
+    private static final Map<Long, Border> emptyBorders = new ConcurrentHashMap<>();
+    
+    /**
+     * Private constructor, this class only has static members
+     */
+    private UIResources() {
+    }
+    
+    /**
+     * Gets the application font in a style and size
+     * @param style Font.PLAIN, Font.BOLD, Font.ITALIC or Font.BOLD | Font.ITALIC
+     * @param size Point size
+     * @return The shared font
+     */
+    public static Font font(int style, int size) {
+        if (size < 0 || size > MAX_FONT_SIZE || (style & ~3) != 0) {
+            return new Font(FONT_FAMILY, style, size);
+        }
+        int slot = style * (MAX_FONT_SIZE + 1) + size;
+        Font font = fonts[slot];
+        if (font == null) {
+            // Racing threads may each create one, any of them will do
+            font = new Font(FONT_FAMILY, style, size);
+            fonts[slot] = font;
+        }
+        return font;
+    }
+    
+    /**
+     * Gets an empty border of the given widths
+     * @param top Top width
+     * @param left Left width
+     * @param bottom Bottom width
+     * @param right Right width
+     * @return The shared border
+     */
+    public static Border emptyBorder(int top, int left, int bottom, int right) {
+        long key = ((long) (top & 0xFFFF) << 48) | ((long) (left & 0xFFFF) << 32)
+                | ((long) (bottom & 0xFFFF) << 16) | (right & 0xFFFF);
+        return emptyBorders.computeIfAbsent(key, k -> BorderFactory.createEmptyBorder(top, left, bottom, right));
+    }
+}
@@ -0,0 +1,194 @@
+package com.quiz.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Readers and batch writers working on one quiz at the same time
+ * Every snapshot a reader sees must be one the writers published: whole batches only, a version that
+ * counts exactly the changes it contains, and no change lost when writers race on the same snapshot
+ */
+class QuizConcurrencyTest {
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+    private static final int BATCHES = 500; // per writer
+    private static final int BATCH_SIZE = 5;
+    private static final int INCREMENTS = 2_000; // per writer
+    
+    /**
+     * Writers add batches of their own numbered questions while readers check every snapshot
+     */
+    @Test
+    void batchWritesAreAtomicAndNoneIsLost() throws Exception {
+        Quiz quiz = new Quiz("Concurrent");
+        AtomicLong snapshotsRead = new AtomicLong();
+        long[] lastVersion = new long[READERS]; // each reader only touches its own entry
+        run(READERS, reader -> {
+            QuizSnapshot snapshot = quiz.getQuestions();
+            assertTrue(snapshot.getVersion() >= lastVersion[reader], "version went back");
+            lastVersion[reader] = snapshot.getVersion();
+            assertEquals(0, snapshot.size() % BATCH_SIZE, "torn batch of " + snapshot.size() % BATCH_SIZE);
+            assertEquals(snapshot.size() / BATCH_SIZE, snapshot.getVersion(), "version does not count the batches");
+            int[] nextSequence = new int[WRITERS];
+            for (int i = 0; i < snapshot.size(); i++) {
+                Question question = snapshot.get(i);
+                assertSame(question, snapshot.get(i), "snapshot changed while read");
+                int writer = writerOf(question);
+                assertEquals(nextSequence[writer]++, sequenceOf(question), "writer " + writer + " out of order");
+            }
+            snapshotsRead.incrementAndGet();
+        }, writer -> {
+            for (int b = 0; b < BATCHES; b++) {
+                List<Question> batch = new ArrayList<>(BATCH_SIZE);
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    batch.add(question(writer, b * BATCH_SIZE + i));
+                }
+                quiz.addQuestions(batch);
+            }
+        });
+        
+        QuizSnapshot last = quiz.getQuestions();
+        assertEquals(WRITERS * BATCHES * BATCH_SIZE, last.size());
+        assertEquals(WRITERS * BATCHES, last.getVersion());
+        int[] count = new int[WRITERS];
+        for (Question question : last) {
+            assertEquals(count[writerOf(question)]++, sequenceOf(question));
+        }
+        for (int writer = 0; writer < WRITERS; writer++) {
+            assertEquals(BATCHES * BATCH_SIZE, count[writer]);
+        }
+        assertTrue(snapshotsRead.get() > 0);
+    }
+    
+    /**
+     * Writers increment a counter question, all racing on the same snapshot
+     */
+    @Test
+    void racingReplacementsAreNotLost() throws Exception {
+        Quiz quiz = new Quiz("Counter");
+        quiz.addQuestion(counter(0));
+        run(READERS, reader -> {
+            QuizSnapshot snapshot = quiz.getQuestions();
+            // Every change adds one to the counter in the same snapshot, so both must agree
+            assertEquals(snapshot.getVersion() - 1, valueOf(snapshot.get(0)), "torn version");
+            assertEquals(1, snapshot.size());
+        }, writer -> {
+            for (int i = 0; i < INCREMENTS; i++) {
+                quiz.update(current -> current.withReplaced(0, counter(valueOf(current.get(0)) + 1)));
+            }
+        });
+        
+        QuizSnapshot last = quiz.getQuestions();
+        assertEquals(WRITERS * INCREMENTS, valueOf(last.get(0)));
+        assertEquals(WRITERS * INCREMENTS + 1, last.getVersion());
+    }
+    
+    /**
+     * Runs the writers once each while the readers read in a loop, until all writers are done
+     * @param readers Number of reader threads
+     * @param read Body of one read, repeated
+     * @param write Body of a writer, given its number
+     * @throws Exception If a reader or writer failed or timed out
+     */
+    private static void run(int readers, Body read, Body write) throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(readers + WRITERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Future<?>> readerResults = new ArrayList<>();
+            List<Future<?>> writerResults = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                int reader = r;
+                readerResults.add(threads.submit(() -> {
+                    start.await();
+                    do {
+                        read.run(reader);
+                    } while (writing.get());
+                    return null;
+                }));
+            }
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writerResults.add(threads.submit(() -> {
+                    start.await();
+                    write.run(writer);
+                    return null;
+                }));
+            }
+            start.countDown();
+            try {
+                for (Future<?> result : writerResults) {
+                    result.get(60, TimeUnit.SECONDS);
+                }
+            } finally {
+                writing.set(false);
+            }
+            for (Future<?> result : readerResults) {
+                result.get(60, TimeUnit.SECONDS); // rethrows the first failed check of a reader
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+    
+    /**
+     * Creates the question a writer adds as its nth question
+     */
+    private static Question question(int writer, int sequence) {
+        return new Question(writer + ":" + sequence, new String[] {"a", "b", "c", "d"}, 0);
+    }
+    
+    /**
+     * Gets the writer that added a question
+     */
+    private static int writerOf(Question question) {
+        String text = question.getQuestion();
+        return Integer.parseInt(text.substring(0, text.indexOf(':')));
+    }
+    
+    /**
+     * Gets the position of a question among those added by its writer
+     */
+    private static int sequenceOf(Question question) {
+        String text = question.getQuestion();
+        return Integer.parseInt(text.substring(text.indexOf(':') + 1));
+    }
+    
+    /**
+     * Creates the question holding the counter
+     */
+    private static Question counter(long value) {
+        return new Question(Long.toString(value), new String[] {"a", "b", "c", "d"}, 0);
+    }
+    
+    /**
+     * Gets the value of the counter question
+     */
+    private static long valueOf(Question question) {
+        return Long.parseLong(question.getQuestion());
+    }
+    
+    /**
+     * Work of one thread, given its number
+     */
+    private interface Body {
+        /**
+         * Does the work
+         * @param thread Number of the thread among the readers or among the writers
+         * @throws Exception If the work or one of its checks fails
+         */
+        void run(int thread) throws Exception;
+    }
+}